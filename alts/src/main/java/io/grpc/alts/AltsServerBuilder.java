@@ -118,6 +118,27 @@ public final class AltsServerBuilder extends ServerBuilder<AltsServerBuilder> {
     return this;
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public AltsServerBuilder virtualThreadExecutor() {
+    delegate.virtualThreadExecutor();
+    return this;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public AltsServerBuilder workStealingExecutor() {
+    delegate.workStealingExecutor();
+    return this;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public AltsServerBuilder adaptiveConcurrencyLimit(int initialLimit, int maxLimit) {
+    delegate.adaptiveConcurrencyLimit(initialLimit, maxLimit);
+    return this;
+  }
+
   /** {@inheritDoc} */
   @Override
   public AltsServerBuilder addService(ServerServiceDefinition service) {
@@ -34,18 +34,22 @@ import io.grpc.netty.NegotiationType;
 import io.grpc.netty.NettyChannelBuilder;
 import io.grpc.netty.NettyServerBuilder;
 import io.grpc.okhttp.OkHttpChannelBuilder;
+import io.grpc.stub.StreamObserver;
 import io.netty.channel.Channel;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
 import io.netty.channel.local.LocalAddress;
 import io.netty.channel.local.LocalChannel;
 import io.netty.channel.local.LocalServerChannel;
+import java.io.File;
 import java.net.InetSocketAddress;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
@@ -57,7 +61,7 @@ import org.openjdk.jmh.annotations.TearDown;
 @State(Scope.Benchmark)
 public class TransportBenchmark {
   public enum Transport {
-    INPROCESS, NETTY, NETTY_LOCAL, NETTY_EPOLL, OKHTTP
+    INPROCESS, NETTY, NETTY_LOCAL, NETTY_EPOLL, NETTY_UNIX_DOMAIN_SOCKET, OKHTTP
   }
 
   @Param({"INPROCESS", "NETTY", "NETTY_LOCAL", "OKHTTP"})
@@ -68,7 +72,10 @@ public class TransportBenchmark {
   private ManagedChannel channel;
   private Server server;
   private BenchmarkServiceGrpc.BenchmarkServiceBlockingStub stub;
+  private StreamObserver<SimpleRequest> streamingRequests;
+  private final Semaphore streamingResponses = new Semaphore(0);
   private volatile EventLoopGroup groupToShutdown;
+  private File socketToDelete;
 
   @Setup
   @SuppressWarnings("LiteralClassName") // Epoll is not available on windows
@@ -127,6 +134,17 @@ public class TransportBenchmark {
         groupToShutdown = group;
         break;
       }
+      case NETTY_UNIX_DOMAIN_SOCKET:
+      {
+        // Compare with NETTY_EPOLL to see what skipping the TCP stack saves on the same host.
+        File socket = File.createTempFile("bench", ".sock");
+        socket.delete();
+        serverBuilder = NettyServerBuilder.forUnixDomainSocket(socket.getAbsolutePath());
+        channelBuilder = NettyChannelBuilder.forTarget("unix://" + socket.getAbsolutePath())
+            .negotiationType(NegotiationType.PLAINTEXT);
+        socketToDelete = socket;
+        break;
+      }
       case OKHTTP:
       {
         int port = pickUnusedPort();
@@ -154,10 +172,28 @@ public class TransportBenchmark {
     stub = BenchmarkServiceGrpc.newBlockingStub(channel);
     // Wait for channel to start
     stub.unaryCall(SimpleRequest.getDefaultInstance());
+
+    streamingRequests = BenchmarkServiceGrpc.newStub(channel).streamingCall(
+        new StreamObserver<SimpleResponse>() {
+          @Override
+          public void onNext(SimpleResponse value) {
+            streamingResponses.release();
+          }
+
+          @Override
+          public void onError(Throwable t) {
+            // Unblock the benchmark thread; the failure surfaces as a missing response count.
+            streamingResponses.release(STREAMING_BURST_SIZE);
+          }
+
+          @Override
+          public void onCompleted() {}
+        });
   }
 
   @TearDown
   public void tearDown() throws Exception {
+    streamingRequests.onCompleted();
     channel.shutdown();
     server.shutdown();
     channel.awaitTermination(1, TimeUnit.SECONDS);
@@ -168,6 +204,9 @@ public class TransportBenchmark {
     if (!server.isTerminated()) {
       throw new Exception("failed to shut down server");
     }
+    if (socketToDelete != null) {
+      socketToDelete.delete();
+    }
     if (groupToShutdown != null) {
       Future<?> unused = groupToShutdown.shutdownGracefully(0, 1, TimeUnit.SECONDS);
       groupToShutdown.awaitTermination(1, TimeUnit.SECONDS);
@@ -182,10 +221,32 @@ public class TransportBenchmark {
       .setPayload(Payload.newBuilder().setBody(ByteString.copyFrom(new byte[1024])))
       .build();
 
+  private static final int STREAMING_BURST_SIZE = 100;
+
+  private SimpleRequest smallRequest = SimpleRequest.newBuilder()
+      .setResponseSize(64)
+      .setPayload(Payload.newBuilder().setBody(ByteString.copyFrom(new byte[64])))
+      .build();
+
   @Benchmark
   @BenchmarkMode(Mode.SampleTime)
   @OutputTimeUnit(TimeUnit.NANOSECONDS)
   public SimpleResponse unaryCall1024() {
     return stub.unaryCall(simpleRequest);
   }
+
+  /**
+   * Sends a burst of small messages on a bidi stream and waits for all the responses. This mostly
+   * measures the per-message framing and socket write overhead of the transport.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(STREAMING_BURST_SIZE)
+  public void streamingCallBurst64() throws Exception {
+    for (int i = 0; i < STREAMING_BURST_SIZE; i++) {
+      streamingRequests.onNext(smallRequest);
+    }
+    streamingResponses.acquire(STREAMING_BURST_SIZE);
+  }
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.benchmarks;
+
+import static io.grpc.benchmarks.Utils.pickUnusedPort;
+
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.benchmarks.proto.BenchmarkServiceGrpc;
+import io.grpc.benchmarks.proto.Messages.Payload;
+import io.grpc.benchmarks.proto.Messages.SimpleRequest;
+import io.grpc.benchmarks.proto.Messages.SimpleResponse;
+import io.grpc.benchmarks.qps.AsyncServer;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.internal.AbstractManagedChannelImplBuilder;
+import io.grpc.internal.AbstractServerImplBuilder;
+import io.grpc.netty.NegotiationType;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.NettyServerBuilder;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Per-call allocation profile of small unary RPCs. Run with the GC profiler, for example
+ * {@code -prof gc}, and compare {@code gc.alloc.rate.norm}, which is the number of bytes allocated
+ * per RPC by the client and the server together.
+ */
+@State(Scope.Benchmark)
+public class UnaryCallAllocationBenchmark {
+  public enum Transport {
+    INPROCESS, NETTY
+  }
+
+  @Param({"INPROCESS", "NETTY"})
+  public Transport transport;
+
+  private ManagedChannel channel;
+  private Server server;
+  private BenchmarkServiceGrpc.BenchmarkServiceBlockingStub blockingStub;
+  private BenchmarkServiceGrpc.BenchmarkServiceFutureStub futureStub;
+
+  private final SimpleRequest request = SimpleRequest.newBuilder()
+      .setResponseSize(16)
+      .setPayload(Payload.newBuilder().setBody(ByteString.copyFrom(new byte[16])))
+      .build();
+
+  /**
+   * Setup.
+   */
+  @Setup
+  public void setUp() throws Exception {
+    AbstractServerImplBuilder<?> serverBuilder;
+    AbstractManagedChannelImplBuilder<?> channelBuilder;
+    switch (transport) {
+      case INPROCESS:
+      {
+        String name = "bench" + Math.random();
+        serverBuilder = InProcessServerBuilder.forName(name);
+        channelBuilder = InProcessChannelBuilder.forName(name);
+        break;
+      }
+      case NETTY:
+      {
+        InetSocketAddress address = new InetSocketAddress("localhost", pickUnusedPort());
+        serverBuilder = NettyServerBuilder.forAddress(address);
+        channelBuilder = NettyChannelBuilder.forAddress(address)
+            .negotiationType(NegotiationType.PLAINTEXT);
+        break;
+      }
+      default:
+        throw new Exception("Unknown transport: " + transport);
+    }
+    // Keep executor hand-offs out of the profile; they are not part of the per-call cost.
+    serverBuilder.directExecutor();
+    channelBuilder.directExecutor();
+
+    server = serverBuilder
+        .addService(new AsyncServer.BenchmarkServiceImpl())
+        .build()
+        .start();
+    channel = channelBuilder.build();
+    blockingStub = BenchmarkServiceGrpc.newBlockingStub(channel);
+    futureStub = BenchmarkServiceGrpc.newFutureStub(channel);
+    // Wait for channel to start
+    blockingStub.unaryCall(request);
+  }
+
+  /**
+   * Tear down.
+   */
+  @TearDown
+  public void tearDown() throws Exception {
+    channel.shutdown();
+    server.shutdown();
+    channel.awaitTermination(1, TimeUnit.SECONDS);
+    server.awaitTermination(1, TimeUnit.SECONDS);
+    if (!channel.isTerminated()) {
+      throw new Exception("failed to shut down channel");
+    }
+    if (!server.isTerminated()) {
+      throw new Exception("failed to shut down server");
+    }
+  }
+
+  /**
+   * Unary call through {@code ClientCalls.blockingUnaryCall}, the path generated blocking stubs
+   * use.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public SimpleResponse blockingUnaryCall() {
+    return blockingStub.unaryCall(request);
+  }
+
+  /**
+   * Unary call through {@code ClientCalls.futureUnaryCall}, for comparison with the blocking path.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public SimpleResponse futureUnaryCall() throws Exception {
+    return futureStub.unaryCall(request).get();
+  }
+}
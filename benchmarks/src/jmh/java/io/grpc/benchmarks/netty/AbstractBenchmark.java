@@ -115,6 +115,9 @@ public abstract class AbstractBenchmark {
 
   private static final CallOptions CALL_OPTIONS = CallOptions.DEFAULT;
 
+  /** Coalesced responses are flushed once they fill a DATA frame of the default max size. */
+  private static final int FLUSH_COALESCING_BYTES = 16 * 1024;
+
   private static final InetAddress BENCHMARK_ADDR = buildBenchmarkAddr();
 
   /**
@@ -177,6 +180,11 @@ public abstract class AbstractBenchmark {
   private MethodDescriptor<ByteBuf, ByteBuf> pingPongMethod;
   private MethodDescriptor<ByteBuf, ByteBuf> flowControlledStreaming;
   protected ManagedChannel[] channels;
+  /**
+   * How long the server may hold back the flush of a streamed response, in microseconds, so that
+   * small responses share frames. Zero flushes each response as it is sent.
+   */
+  protected long responseFlushCoalescingMicros;
 
   public AbstractBenchmark() {
   }
@@ -331,6 +339,10 @@ public abstract class AbstractBenchmark {
                   public ServerCall.Listener<ByteBuf> startCall(
                       final ServerCall<ByteBuf, ByteBuf> call,
                       Metadata headers) {
+                    if (responseFlushCoalescingMicros > 0) {
+                      call.setFlushCoalescing(responseFlushCoalescingMicros, TimeUnit.MICROSECONDS,
+                          FLUSH_COALESCING_BYTES);
+                    }
                     call.sendHeaders(new Metadata());
                     call.request(1);
                     return new ServerCall.Listener<ByteBuf>() {
@@ -33,7 +33,8 @@ import org.openjdk.jmh.annotations.TearDown;
 /**
  * Benchmark intended to test response bandwidth in bytes/sec for streaming calls by permuting
  * payload size and flow-control windows with number of concurrent calls. Async stubs are used
- * to avoid context-switching overheads.
+ * to avoid context-switching overheads. Small payloads are also run with the server coalescing
+ * the flushes of its responses.
  */
 @State(Scope.Benchmark)
 @Fork(1)
@@ -42,12 +43,16 @@ public class StreamingResponseBandwidthBenchmark extends AbstractBenchmark {
   @Param({"1", "10"})
   public int maxConcurrentStreams = 1;
 
-  @Param({"LARGE", "JUMBO"})
+  @Param({"SMALL", "MEDIUM", "LARGE", "JUMBO"})
   public MessageSize responseSize = MessageSize.JUMBO;
 
   @Param({"MEDIUM", "LARGE", "JUMBO"})
   public FlowWindowSize clientInboundFlowWindow = FlowWindowSize.MEDIUM;
 
+  /** Longest the server holds back a response flush, zero to flush each response. */
+  @Param({"0", "50"})
+  public long flushCoalescingMicros = 0;
+
   private static AtomicLong callCounter;
   private AtomicBoolean completed;
   private AtomicBoolean record;
@@ -76,6 +81,7 @@ public class StreamingResponseBandwidthBenchmark extends AbstractBenchmark {
    */
   @Setup(Level.Trial)
   public void setup() throws Exception {
+    responseFlushCoalescingMicros = flushCoalescingMicros;
     super.setup(ExecutorType.DIRECT,
         ExecutorType.DIRECT,
         MessageSize.SMALL,
@@ -171,21 +171,35 @@ public class AsyncServer {
     if (config.directExecutor) {
       builder.directExecutor();
     } else {
-      // TODO(carl-mastrangelo): This should not be necessary.  I don't know where this should be
-      // put.  Move it somewhere else, or remove it if no longer necessary.
-      // See: https://github.com/grpc/grpc-java/issues/2119
-      builder.executor(new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
-          new ForkJoinWorkerThreadFactory() {
-            final AtomicInteger num = new AtomicInteger();
-            @Override
-            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
-              ForkJoinWorkerThread thread =
-                  ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
-              thread.setDaemon(true);
-              thread.setName("grpc-server-app-" + "-" + num.getAndIncrement());
-              return thread;
-            }
-          }, UncaughtExceptionHandlers.systemExit(), true /* async */));
+      switch (config.executor) {
+        case DEFAULT:
+          break;
+        case VIRTUAL_THREAD:
+          builder.virtualThreadExecutor();
+          break;
+        case WORK_STEALING:
+          builder.workStealingExecutor();
+          break;
+        case FORK_JOIN:
+          // TODO(carl-mastrangelo): This should not be necessary.  I don't know where this should
+          // be put.  Move it somewhere else, or remove it if no longer necessary.
+          // See: https://github.com/grpc/grpc-java/issues/2119
+          builder.executor(new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+              new ForkJoinWorkerThreadFactory() {
+                final AtomicInteger num = new AtomicInteger();
+                @Override
+                public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                  ForkJoinWorkerThread thread =
+                      ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                  thread.setDaemon(true);
+                  thread.setName("grpc-server-app-" + "-" + num.getAndIncrement());
+                  return thread;
+                }
+              }, UncaughtExceptionHandlers.systemExit(), true /* async */));
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported executor: " + config.executor);
+      }
     }
 
     return builder.build();
@@ -20,6 +20,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import io.grpc.internal.Channelz.ServerStats;
 import io.grpc.internal.Channelz.SocketStats;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Mode;
@@ -28,6 +29,7 @@ import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
 
 /**
  * Javadoc.
@@ -48,6 +50,12 @@ public class ChannelzBenchmark {
   public Instrumented<SocketStats> serverSocketToAdd;
   public Instrumented<SocketStats> serverSocketToRemove;
 
+  public CallTracer callTracer = CallTracer.getDefaultFactory().create();
+  public TransportTracer transportTracer = new TransportTracer();
+  public LongCounter atomicCounter = new AtomicLongCounter();
+  public LongCounter stripedCounter = new StripedLongCounter();
+  public LongAdder longAdder = new LongAdder();
+
   /**
    * Javadoc.
    */
@@ -127,6 +135,46 @@ public class ChannelzBenchmark {
     channelz.removeServerSocket(serverForServerSocket, serverSocketToRemove);
   }
 
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @Threads(64)
+  public void reportCallStartedContended() {
+    callTracer.reportCallStarted();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @Threads(64)
+  public void reportMessageReceivedContended() {
+    transportTracer.reportMessageReceived();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @Threads(64)
+  public void atomicCounterAddContended() {
+    atomicCounter.add(1);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @Threads(64)
+  public void stripedCounterAddContended() {
+    stripedCounter.add(1);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @Threads(64)
+  public void longAdderAddContended() {
+    longAdder.add(1);
+  }
+
   private static <T> Instrumented<T> create() {
     return new Instrumented<T>() {
       final LogId id = LogId.allocate("fake-tag");
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Compares the shared timer implementations on the common deadline pattern: a timer is scheduled
+ * when the RPC starts and cancelled when it completes, long before it would have fired.
+ */
+@State(Scope.Benchmark)
+public class HashedWheelTimerBenchmark {
+  private static final int DEADLINES = 1000000;
+
+  @Param({"hashedWheel", "scheduledThreadPool"})
+  public String timer;
+
+  private ScheduledExecutorService timerService;
+  private final Runnable noop = new Runnable() {
+    @Override
+    public void run() {}
+  };
+
+  /**
+   * Setup.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    if ("hashedWheel".equals(timer)) {
+      timerService = new HashedWheelTimer(GrpcUtil.getThreadFactory("grpc-timer-%d", true));
+    } else {
+      timerService = GrpcUtil.TIMER_SERVICE.create();
+    }
+  }
+
+  /**
+   * Tear down.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    timerService.shutdownNow();
+  }
+
+  /**
+   * Schedules a million 30 second deadlines, then cancels all of them.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @OperationsPerInvocation(DEADLINES)
+  public void scheduleThenCancelMillion() {
+    ScheduledFuture<?>[] futures = new ScheduledFuture<?>[DEADLINES];
+    for (int i = 0; i < DEADLINES; i++) {
+      futures[i] = timerService.schedule(noop, 30, TimeUnit.SECONDS);
+    }
+    for (int i = 0; i < DEADLINES; i++) {
+      futures[i].cancel(false);
+    }
+  }
+
+  /**
+   * Schedules and cancels a deadline from many threads at once.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Threads(8)
+  public boolean scheduleThenCancel_contended() {
+    return timerService.schedule(noop, 30, TimeUnit.SECONDS).cancel(false);
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the per-frame cost of keepalive tracking on the transport read path.
+ */
+@State(Scope.Thread)
+public class KeepAliveManagerBenchmark {
+
+  @Param({"true", "false"})
+  public boolean keepAliveEnabled;
+
+  private ScheduledExecutorService scheduler;
+  private KeepAliveManager keepAliveManager;
+  private long framesReceived;
+
+  /**
+   * Setup.
+   */
+  @Setup
+  public void setUp() {
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    if (keepAliveEnabled) {
+      keepAliveManager = new KeepAliveManager(new KeepAliveManager.KeepAlivePinger() {
+        @Override
+        public void ping() {
+          // The benchmark keeps receiving frames, so the ping is always effectively acked.
+          keepAliveManager.onDataReceived();
+        }
+
+        @Override
+        public void onPingTimeout() {
+          throw new AssertionError("Ping timed out");
+        }
+      }, scheduler, TimeUnit.SECONDS.toNanos(10), TimeUnit.SECONDS.toNanos(20), true);
+      keepAliveManager.onTransportStarted();
+    }
+  }
+
+  /**
+   * Tear down.
+   */
+  @TearDown
+  public void tearDown() {
+    if (keepAliveManager != null) {
+      keepAliveManager.onTransportTermination();
+    }
+    scheduler.shutdownNow();
+  }
+
+  /**
+   * Mirrors what the transports do for each received DATA or HEADERS frame.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public long frameReceived() {
+    if (keepAliveManager != null) {
+      keepAliveManager.onDataReceived();
+    }
+    return ++framesReceived;
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import io.grpc.Codec;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark for framing small messages with {@link MessageFramer}, with buffers from a {@link
+ * PooledWritableBufferAllocator} or from plain heap allocations. The sink releases each frame, like
+ * a transport that copies frames out. Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Thread)
+public class MessageFramerBenchmark {
+  private static final int MESSAGES = 16;
+
+  @Param({"64", "1024"})
+  public int messageSize;
+
+  @Param({"true", "false"})
+  public boolean pooled;
+
+  /** Whether the messages are of unknown length, like compressed ones. */
+  @Param({"false", "true"})
+  public boolean unknownLength;
+
+  private MessageFramer framer;
+  private byte[] message;
+  private long bytesFramed;
+
+  /**
+   * Javadoc comment.
+   */
+  @Setup
+  public void setUp() {
+    WritableBufferAllocator allocator = pooled
+        ? new PooledWritableBufferAllocator(1024 * 1024)
+        : new HeapAllocator();
+    MessageFramer.Sink sink = new MessageFramer.Sink() {
+      @Override
+      public void deliverFrame(
+          @Nullable WritableBuffer frame, boolean endOfStream, boolean flush, int numMessages) {
+        if (frame != null) {
+          bytesFramed += frame.readableBytes();
+          frame.release();
+        }
+      }
+    };
+    framer = new MessageFramer(sink, allocator, StatsTraceContext.NOOP);
+    framer.setCompressor(Codec.Identity.NONE);
+    message = new byte[messageSize];
+  }
+
+  /**
+   * Frames messages one at a time, flushing after each like a streaming call.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(MESSAGES)
+  public long flushEachMessage() {
+    for (int i = 0; i < MESSAGES; i++) {
+      framer.writePayload(newStream());
+      framer.flush();
+    }
+    return bytesFramed;
+  }
+
+  /**
+   * Frames back-to-back messages and flushes them together, so that they share buffers.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(MESSAGES)
+  public long flushBatch() {
+    for (int i = 0; i < MESSAGES; i++) {
+      framer.writePayload(newStream());
+    }
+    framer.flush();
+    return bytesFramed;
+  }
+
+  private InputStream newStream() {
+    InputStream stream = new ByteArrayInputStream(message);
+    return unknownLength ? new BufferedInputStream(stream, messageSize) : stream;
+  }
+
+  /** Allocates a new heap buffer each time, like a transport without pooling. */
+  private static final class HeapAllocator implements WritableBufferAllocator {
+    @Override
+    public WritableBuffer allocate(int capacityHint) {
+      final byte[] array = new byte[Math.min(1024 * 1024, Math.max(4096, capacityHint))];
+      return new WritableBuffer() {
+        private int size;
+
+        @Override
+        public void write(byte[] src, int srcIndex, int length) {
+          System.arraycopy(src, srcIndex, array, size, length);
+          size += length;
+        }
+
+        @Override
+        public void write(byte b) {
+          array[size++] = b;
+        }
+
+        @Override
+        public int writableBytes() {
+          return array.length - size;
+        }
+
+        @Override
+        public int readableBytes() {
+          return size;
+        }
+
+        @Override
+        public void release() {}
+      };
+    }
+  }
+}
@@ -20,6 +20,7 @@ import io.grpc.CallOptions;
 import io.grpc.Metadata;
 import io.grpc.MethodDescriptor;
 import io.grpc.ServerStreamTracer;
+import io.grpc.Status;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -29,6 +30,7 @@ import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
 
 /**
  * Benchmark for {@link StatsTraceContext}.
@@ -62,4 +64,43 @@ public class StatsTraceContextBenchmark {
     return StatsTraceContext.newServerContext(
         serverStreamTracerFactories, methodName, emptyMetadata);
   }
+
+  /**
+   * Runs the stats callbacks of a client stream without tracers. Run with {@code -prof gc} to see
+   * that it doesn't allocate.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @Threads(4)
+  public StatsTraceContext clientStream_noTracers() {
+    StatsTraceContext ctx = StatsTraceContext.newClientContext(CallOptions.DEFAULT, emptyMetadata);
+    ctx.clientOutboundHeaders();
+    ctx.outboundMessage(0);
+    ctx.outboundMessageSent(0, 10, 10);
+    ctx.clientInboundHeaders();
+    ctx.inboundMessage(0);
+    ctx.inboundMessageRead(0, 10, 10);
+    ctx.streamClosed(Status.OK);
+    return ctx;
+  }
+
+  /**
+   * Runs the stats callbacks of a server stream without tracers. Run with {@code -prof gc} to see
+   * that it doesn't allocate.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @Threads(4)
+  public StatsTraceContext serverStream_noTracers() {
+    StatsTraceContext ctx = StatsTraceContext.newServerContext(
+        serverStreamTracerFactories, methodName, emptyMetadata);
+    ctx.inboundMessage(0);
+    ctx.inboundMessageRead(0, 10, 10);
+    ctx.outboundMessage(0);
+    ctx.outboundMessageSent(0, 10, 10);
+    ctx.streamClosed(Status.OK);
+    return ctx;
+  }
 }
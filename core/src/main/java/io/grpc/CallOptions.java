@@ -70,6 +70,8 @@ public final class CallOptions {
   private Integer maxInboundMessageSize;
   @Nullable
   private Integer maxOutboundMessageSize;
+  private long flushCoalescingDelayNanos;
+  private int flushCoalescingMaxBytes;
 
 
   /**
@@ -373,6 +375,50 @@ public final class CallOptions {
     return maxOutboundMessageSize;
   }
 
+  /**
+   * Returns a new {@code CallOptions} that holds back the flushes of outbound messages, so that
+   * messages sent in quick succession on a streaming call share frames and transport flushes.
+   * Messages are flushed once {@code maxBytes} of them are pending, and at the latest {@code
+   * maxDelay} after they were sent. This trades up to {@code maxDelay} of latency for fewer and
+   * larger writes when sending many small messages.
+   *
+   * <p>By default, and with a zero {@code maxDelay}, each message is flushed as it is sent.
+   *
+   * @throws IllegalArgumentException if {@code maxDelay} is negative or {@code maxBytes} is not
+   *     positive
+   * @since 1.12.0
+   */
+  @ExperimentalApi
+  public CallOptions withFlushCoalescing(long maxDelay, TimeUnit unit, int maxBytes) {
+    checkArgument(maxDelay >= 0, "invalid maxDelay %s", maxDelay);
+    checkArgument(maxBytes > 0, "invalid maxBytes %s", maxBytes);
+    CallOptions newOptions = new CallOptions(this);
+    newOptions.flushCoalescingDelayNanos = unit.toNanos(maxDelay);
+    newOptions.flushCoalescingMaxBytes = maxBytes;
+    return newOptions;
+  }
+
+  /**
+   * Returns the longest an outbound message may wait to be flushed, or zero if flushes aren't
+   * coalesced.
+   *
+   * @since 1.12.0
+   */
+  @ExperimentalApi
+  public long getFlushCoalescingDelayNanos() {
+    return flushCoalescingDelayNanos;
+  }
+
+  /**
+   * Returns the pending outbound bytes that trigger a flush when flushes are coalesced.
+   *
+   * @since 1.12.0
+   */
+  @ExperimentalApi
+  public int getFlushCoalescingMaxBytes() {
+    return flushCoalescingMaxBytes;
+  }
+
   /**
    * Copy constructor.
    */
@@ -386,6 +432,8 @@ public final class CallOptions {
     waitForReady = other.waitForReady;
     maxInboundMessageSize = other.maxInboundMessageSize;
     maxOutboundMessageSize = other.maxOutboundMessageSize;
+    flushCoalescingDelayNanos = other.flushCoalescingDelayNanos;
+    flushCoalescingMaxBytes = other.flushCoalescingMaxBytes;
     streamTracerFactories = other.streamTracerFactories;
   }
 
@@ -401,6 +449,8 @@ public final class CallOptions {
         .add("waitForReady", isWaitForReady())
         .add("maxInboundMessageSize", maxInboundMessageSize)
         .add("maxOutboundMessageSize", maxOutboundMessageSize)
+        .add("flushCoalescingDelayNanos", flushCoalescingDelayNanos)
+        .add("flushCoalescingMaxBytes", flushCoalescingMaxBytes)
         .add("streamTracerFactories", streamTracerFactories)
         .toString();
   }
@@ -16,11 +16,13 @@
 
 package io.grpc;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.Deflater;
 
 /**
  * Encloses classes related to the compression and decompression of messages.
@@ -29,10 +31,36 @@ import java.util.zip.GZIPOutputStream;
 @ExperimentalApi("https://github.com/grpc/grpc-java/issues/1704")
 public interface Codec extends Compressor, Decompressor {
   /**
-   * A gzip compressor and decompressor.  In the future this will likely support other
-   * compression methods, such as compression level.
+   * A gzip compressor and decompressor. The native {@link java.util.zip.Deflater} and
+   * {@link java.util.zip.Inflater} of each message are reused by later messages on the same thread.
    */
   public static final class Gzip implements Codec {
+    private final int compressionLevel;
+    private final ThreadLocal<Deflater> deflaters = new ThreadLocal<Deflater>();
+
+    /**
+     * Creates a gzip codec with the default compression level.
+     */
+    public Gzip() {
+      this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates a gzip codec with the given compression level.
+     *
+     * @param compressionLevel from 0 (no compression) to 9 (best compression), or -1 for the
+     *     default level
+     * @since 1.12.0
+     */
+    public Gzip(int compressionLevel) {
+      checkArgument(
+          compressionLevel == Deflater.DEFAULT_COMPRESSION
+              || (compressionLevel >= Deflater.NO_COMPRESSION
+                  && compressionLevel <= Deflater.BEST_COMPRESSION),
+          "invalid compression level: %s", compressionLevel);
+      this.compressionLevel = compressionLevel;
+    }
+
     @Override
     public String getMessageEncoding() {
       return "gzip";
@@ -40,12 +68,146 @@ public interface Codec extends Compressor, Decompressor {
 
     @Override
     public OutputStream compress(OutputStream os) throws IOException {
-      return new GZIPOutputStream(os);
+      return new CodecStreams.PooledGzipOutputStream(os, deflaters, compressionLevel);
+    }
+
+    @Override
+    public InputStream decompress(InputStream is) throws IOException {
+      return new CodecStreams.PooledGzipInputStream(is);
+    }
+  }
+
+  /**
+   * A Zstandard compressor and decompressor, backed by the optional
+   * {@code com.github.luben:zstd-jni} library. It is not in the default registries; register it
+   * in a {@link CompressorRegistry} and {@link DecompressorRegistry} to use it.
+   *
+   * @since 1.12.0
+   */
+  public static final class Zstd implements Codec {
+    public static final int DEFAULT_COMPRESSION_LEVEL = 3;
+
+    private final int compressionLevel;
+
+    /**
+     * Creates a zstd codec with the default compression level.
+     *
+     * @throws IllegalStateException if the library is not available
+     */
+    public Zstd() {
+      this(DEFAULT_COMPRESSION_LEVEL);
+    }
+
+    /**
+     * Creates a zstd codec with the given compression level.
+     *
+     * @throws IllegalStateException if the library is not available
+     */
+    public Zstd(int compressionLevel) {
+      checkState(isAvailable(), "zstd-jni is not available");
+      this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Returns whether the zstd-jni library is on the class path and could be loaded.
+     */
+    public static boolean isAvailable() {
+      return CodecStreams.ZSTD.isAvailable();
+    }
+
+    @Override
+    public String getMessageEncoding() {
+      return "zstd";
+    }
+
+    @Override
+    public OutputStream compress(OutputStream os) throws IOException {
+      return CodecStreams.ZSTD.newOutputStream(os, compressionLevel);
+    }
+
+    @Override
+    public InputStream decompress(InputStream is) throws IOException {
+      return CodecStreams.ZSTD.newInputStream(is);
+    }
+  }
+
+  /**
+   * An LZ4 frame format compressor and decompressor, backed by the optional
+   * {@code org.lz4:lz4-java} library. It is not in the default registries; register it in a
+   * {@link CompressorRegistry} and {@link DecompressorRegistry} to use it.
+   *
+   * @since 1.12.0
+   */
+  public static final class Lz4 implements Codec {
+    /**
+     * Creates an LZ4 codec.
+     *
+     * @throws IllegalStateException if the library is not available
+     */
+    public Lz4() {
+      checkState(isAvailable(), "lz4-java is not available");
+    }
+
+    /**
+     * Returns whether the lz4-java library is on the class path and could be loaded.
+     */
+    public static boolean isAvailable() {
+      return CodecStreams.LZ4.isAvailable();
+    }
+
+    @Override
+    public String getMessageEncoding() {
+      return "lz4";
+    }
+
+    @Override
+    public OutputStream compress(OutputStream os) throws IOException {
+      return CodecStreams.LZ4.newOutputStream(os);
+    }
+
+    @Override
+    public InputStream decompress(InputStream is) throws IOException {
+      return CodecStreams.LZ4.newInputStream(is);
+    }
+  }
+
+  /**
+   * A Snappy framing format compressor and decompressor, backed by the optional
+   * {@code org.xerial.snappy:snappy-java} library. It is not in the default registries; register
+   * it in a {@link CompressorRegistry} and {@link DecompressorRegistry} to use it.
+   *
+   * @since 1.12.0
+   */
+  public static final class Snappy implements Codec {
+    /**
+     * Creates a Snappy codec.
+     *
+     * @throws IllegalStateException if the library is not available
+     */
+    public Snappy() {
+      checkState(isAvailable(), "snappy-java is not available");
+    }
+
+    /**
+     * Returns whether the snappy-java library is on the class path and could be loaded.
+     */
+    public static boolean isAvailable() {
+      return CodecStreams.SNAPPY.isAvailable();
+    }
+
+    @Override
+    public String getMessageEncoding() {
+      return "snappy";
+    }
+
+    @Override
+    public OutputStream compress(OutputStream os) throws IOException {
+      return CodecStreams.SNAPPY.newOutputStream(os);
     }
 
     @Override
     public InputStream decompress(InputStream is) throws IOException {
-      return new GZIPInputStream(is);
+      return CodecStreams.SNAPPY.newInputStream(is);
     }
   }
 
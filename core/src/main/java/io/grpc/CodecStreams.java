@@ -0,0 +1,358 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+import javax.annotation.Nullable;
+
+/**
+ * Streams used by the {@link Codec} implementations.
+ */
+final class CodecStreams {
+  private static final Logger logger = Logger.getLogger(CodecStreams.class.getName());
+
+  private static final int GZIP_MAGIC = 0x8b1f;
+  private static final byte[] GZIP_HEADER = {
+      (byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+  private static final int BUFFER_SIZE = 512;
+
+  /** Inflaters do not depend on the compression level, so they are shared by all gzip codecs. */
+  private static final ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>();
+
+  static final OptionalStreams ZSTD = new OptionalStreams(
+      "com.github.luben.zstd.ZstdOutputStream", new Class<?>[] {OutputStream.class, int.class},
+      "com.github.luben.zstd.ZstdInputStream");
+  static final OptionalStreams LZ4 = new OptionalStreams(
+      "net.jpountz.lz4.LZ4FrameOutputStream", new Class<?>[] {OutputStream.class},
+      "net.jpountz.lz4.LZ4FrameInputStream");
+  static final OptionalStreams SNAPPY = new OptionalStreams(
+      "org.xerial.snappy.SnappyFramedOutputStream", new Class<?>[] {OutputStream.class},
+      "org.xerial.snappy.SnappyFramedInputStream");
+
+  private CodecStreams() {}
+
+  private static Deflater takeDeflater(ThreadLocal<Deflater> pool, int level) {
+    Deflater deflater = pool.get();
+    if (deflater == null) {
+      return new Deflater(level, true);
+    }
+    pool.set(null);
+    return deflater;
+  }
+
+  private static void releaseDeflater(ThreadLocal<Deflater> pool, Deflater deflater) {
+    deflater.reset();
+    if (pool.get() == null) {
+      pool.set(deflater);
+    } else {
+      deflater.end();
+    }
+  }
+
+  private static Inflater takeInflater() {
+    Inflater inflater = inflaters.get();
+    if (inflater == null) {
+      return new Inflater(true);
+    }
+    inflaters.set(null);
+    return inflater;
+  }
+
+  private static void releaseInflater(Inflater inflater) {
+    inflater.reset();
+    if (inflaters.get() == null) {
+      inflaters.set(inflater);
+    } else {
+      inflater.end();
+    }
+  }
+
+  /**
+   * A gzip compressing stream that borrows its {@link Deflater} from a per-thread pool and returns
+   * it on {@link #close}.
+   */
+  static final class PooledGzipOutputStream extends DeflaterOutputStream {
+    private final ThreadLocal<Deflater> pool;
+    private final CRC32 crc = new CRC32();
+    private boolean released;
+
+    PooledGzipOutputStream(OutputStream out, ThreadLocal<Deflater> pool, int level)
+        throws IOException {
+      super(out, takeDeflater(pool, level), BUFFER_SIZE);
+      this.pool = pool;
+      out.write(GZIP_HEADER);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (released) {
+        throw new IOException("Stream closed");
+      }
+      super.write(b, off, len);
+      crc.update(b, off, len);
+    }
+
+    @Override
+    public void finish() throws IOException {
+      if (!def.finished()) {
+        super.finish();
+        writeIntLe((int) crc.getValue());
+        writeIntLe((int) def.getBytesRead());
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (released) {
+        return;
+      }
+      released = true;
+      try {
+        super.close();
+      } finally {
+        releaseDeflater(pool, def);
+      }
+    }
+
+    private void writeIntLe(int i) throws IOException {
+      out.write(i);
+      out.write(i >> 8);
+      out.write(i >> 16);
+      out.write(i >> 24);
+    }
+  }
+
+  /**
+   * A gzip decompressing stream that borrows its {@link Inflater} from a per-thread pool and
+   * returns it once the end of the gzip member is reached, or on {@link #close}. Only a single
+   * member is read.
+   */
+  static final class PooledGzipInputStream extends InflaterInputStream {
+    private final CRC32 crc = new CRC32();
+    private boolean eos;
+    private boolean released;
+
+    PooledGzipInputStream(InputStream in) throws IOException {
+      super(in, takeInflater(), BUFFER_SIZE);
+      try {
+        readHeader();
+      } catch (IOException e) {
+        release();
+        throw e;
+      }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (eos) {
+        return -1;
+      }
+      if (released) {
+        throw new IOException("Stream closed");
+      }
+      int n;
+      try {
+        n = super.read(b, off, len);
+        if (n == -1) {
+          readTrailer();
+          eos = true;
+        } else {
+          crc.update(b, off, n);
+        }
+      } catch (IOException e) {
+        release();
+        throw e;
+      }
+      if (eos) {
+        release();
+      }
+      return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return eos ? 0 : super.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        release();
+      }
+    }
+
+    private void release() {
+      if (!released) {
+        released = true;
+        releaseInflater(inf);
+      }
+    }
+
+    private void readHeader() throws IOException {
+      CheckedInputStream checked = new CheckedInputStream(in, crc);
+      if (readUnsignedShortLe(checked) != GZIP_MAGIC) {
+        throw new ZipException("Not in GZIP format");
+      }
+      if (readUnsignedByte(checked) != Deflater.DEFLATED) {
+        throw new ZipException("Unsupported compression method");
+      }
+      int flags = readUnsignedByte(checked);
+      // Skip MTIME, XFL and OS.
+      skipBytes(checked, 6);
+      if ((flags & FEXTRA) == FEXTRA) {
+        skipBytes(checked, readUnsignedShortLe(checked));
+      }
+      if ((flags & FNAME) == FNAME) {
+        while (readUnsignedByte(checked) != 0) {}
+      }
+      if ((flags & FCOMMENT) == FCOMMENT) {
+        while (readUnsignedByte(checked) != 0) {}
+      }
+      if ((flags & FHCRC) == FHCRC) {
+        int expected = (int) crc.getValue() & 0xffff;
+        if (readUnsignedShortLe(checked) != expected) {
+          throw new ZipException("Corrupt GZIP header");
+        }
+      }
+      crc.reset();
+    }
+
+    private void readTrailer() throws IOException {
+      InputStream trailer = in;
+      int remaining = inf.getRemaining();
+      if (remaining > 0) {
+        trailer = new SequenceInputStream(
+            new ByteArrayInputStream(buf, len - remaining, remaining), in);
+      }
+      long expectedCrc = readUnsignedIntLe(trailer);
+      long expectedSize = readUnsignedIntLe(trailer);
+      if (expectedCrc != crc.getValue() || expectedSize != (inf.getBytesWritten() & 0xffffffffL)) {
+        throw new ZipException("Corrupt GZIP trailer");
+      }
+    }
+  }
+
+  private static int readUnsignedByte(InputStream in) throws IOException {
+    int b = in.read();
+    if (b == -1) {
+      throw new EOFException();
+    }
+    return b;
+  }
+
+  private static int readUnsignedShortLe(InputStream in) throws IOException {
+    return readUnsignedByte(in) | (readUnsignedByte(in) << 8);
+  }
+
+  private static long readUnsignedIntLe(InputStream in) throws IOException {
+    return readUnsignedShortLe(in) | ((long) readUnsignedShortLe(in) << 16);
+  }
+
+  private static void skipBytes(InputStream in, int n) throws IOException {
+    for (int i = 0; i < n; i++) {
+      readUnsignedByte(in);
+    }
+  }
+
+  /**
+   * Creates compressing and decompressing streams through the constructors of a library that may
+   * not be on the class path.
+   */
+  @VisibleForTesting
+  static final class OptionalStreams {
+    @Nullable
+    private final Constructor<? extends OutputStream> outputConstructor;
+    @Nullable
+    private final Constructor<? extends InputStream> inputConstructor;
+
+    OptionalStreams(String outputClassName, Class<?>[] outputParams, String inputClassName) {
+      Constructor<? extends OutputStream> output = null;
+      Constructor<? extends InputStream> input = null;
+      try {
+        ClassLoader loader = CodecStreams.class.getClassLoader();
+        output = Class.forName(outputClassName, true, loader)
+            .asSubclass(OutputStream.class).getConstructor(outputParams);
+        input = Class.forName(inputClassName, true, loader)
+            .asSubclass(InputStream.class).getConstructor(InputStream.class);
+      } catch (ClassNotFoundException e) {
+        // The library is not on the class path.
+      } catch (Exception e) {
+        logger.log(Level.FINE, "Unable to load " + outputClassName, e);
+      } catch (LinkageError e) {
+        // The library failed to load its native code.
+        logger.log(Level.FINE, "Unable to load " + outputClassName, e);
+      }
+      if (output != null && input != null) {
+        this.outputConstructor = output;
+        this.inputConstructor = input;
+      } else {
+        this.outputConstructor = null;
+        this.inputConstructor = null;
+      }
+    }
+
+    boolean isAvailable() {
+      return outputConstructor != null;
+    }
+
+    OutputStream newOutputStream(Object... args) throws IOException {
+      return newInstance(outputConstructor, args);
+    }
+
+    InputStream newInputStream(InputStream in) throws IOException {
+      return newInstance(inputConstructor, in);
+    }
+
+    private static <T> T newInstance(Constructor<T> constructor, Object... args)
+        throws IOException {
+      try {
+        return constructor.newInstance(args);
+      } catch (InvocationTargetException e) {
+        Throwables.propagateIfPossible(e.getCause(), IOException.class);
+        throw new RuntimeException(e.getCause());
+      } catch (InstantiationException e) {
+        throw new RuntimeException(e);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+}
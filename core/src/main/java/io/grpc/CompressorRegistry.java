@@ -36,7 +36,8 @@ public final class CompressorRegistry {
 
   /**
    * Returns the default instance used by gRPC when the registry is not specified.
-   * Currently the registry just contains support for gzip.
+   * Currently the registry just contains support for gzip. Codecs backed by optional libraries,
+   * such as {@link Codec.Zstd}, must be registered explicitly.
    */
   public static CompressorRegistry getDefaultInstance() {
     return DEFAULT_INSTANCE;
@@ -186,6 +186,18 @@ public abstract class ForwardingChannelBuilder<T extends ForwardingChannelBuilde
     return thisT();
   }
 
+  @Override
+  public T adaptiveHedgingDelay(double percentile) {
+    delegate().adaptiveHedgingDelay(percentile);
+    return thisT();
+  }
+
+  @Override
+  public T adaptiveThrottling(double k) {
+    delegate().adaptiveThrottling(k);
+    return thisT();
+  }
+
   @Override
   public T retryBufferSize(long bytes) {
     delegate().retryBufferSize(bytes);
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc;
+
+import java.nio.ByteBuffer;
+import javax.annotation.Nullable;
+
+/**
+ * An {@link java.io.InputStream} whose content can be accessed directly as {@link ByteBuffer}s,
+ * without being copied.
+ *
+ * <p>This allows a {@link MethodDescriptor.Marshaller} to parse messages straight from the
+ * transport's buffers. Accessing the content does not change the read position of the stream. The
+ * returned buffers are only valid until the stream is closed, and must not be modified.
+ */
+@ExperimentalApi
+public interface HasByteBuffer {
+
+  /**
+   * Indicates whether or not {@link #getByteBuffer} is supported.
+   */
+  boolean byteBufferSupported();
+
+  /**
+   * Gets a {@link ByteBuffer} containing some of the bytes next to be read, or {@code null} if the
+   * stream has been exhausted. The returned buffer may hold fewer bytes than are available from
+   * the stream; if it holds all of them, the whole message can be consumed from it directly.
+   *
+   * @throws UnsupportedOperationException if {@link #byteBufferSupported} returns {@code false}
+   */
+  @Nullable
+  ByteBuffer getByteBuffer();
+}
@@ -386,6 +386,44 @@ public abstract class ManagedChannelBuilder<T extends ManagedChannelBuilder<T>>
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Derives the hedging delay of each hedged method from a percentile of its recent response
+   * latencies on this channel, instead of using the {@code hedgingDelay} from the service config.
+   * The configured delay is still used until enough latencies of the method have been observed.
+   *
+   * <p>This is useful when a few slow backends dominate tail latency: with a percentile of 95, only
+   * about one in twenty RPCs is hedged.
+   *
+   * @param percentile the latency percentile to use as hedging delay, between 0 and 100 exclusive
+   * @return this
+   * @throws IllegalArgumentException if percentile is out of range
+   * @since 1.12.0
+   */
+  @ExperimentalApi("https://github.com/grpc/grpc-java/issues/3982")
+  public T adaptiveHedgingDelay(double percentile) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Rejects calls locally, before they are sent, when backends have recently been rejecting many
+   * of them with {@link Status.Code#UNAVAILABLE} or {@link Status.Code#RESOURCE_EXHAUSTED}. Each
+   * call is rejected with probability {@code max(0, (requests - k * accepts) / (requests + 1))},
+   * counted over the last two minutes, and fails with {@link Status.Code#UNAVAILABLE}. Unlike the
+   * retry throttling of the service config, this also applies to the first attempt of a call.
+   *
+   * <p>With a {@code k} of 2, the channel keeps sending about twice as many calls as the backends
+   * accept. Lower values throttle sooner. By default calls are not throttled.
+   *
+   * @param k the ratio of requests to accepted calls above which calls are rejected, at least 1
+   * @return this
+   * @throws IllegalArgumentException if {@code k} is less than 1
+   * @since 1.12.0
+   */
+  @ExperimentalApi
+  public T adaptiveThrottling(double k) {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * Sets the retry buffer size in bytes. If the buffer limit is exceeded, no RPC
    * could retry at the moment, and in hedging case all hedges but one of the same RPC will cancel.
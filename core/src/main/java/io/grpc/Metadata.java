@@ -124,9 +124,20 @@ public final class Metadata {
     namesAndValues = binaryValues;
   }
 
+  /**
+   * Number of headers above which lookups go through {@link #index} instead of a linear scan.
+   */
+  private static final int INDEX_THRESHOLD = 8;
+
   private byte[][] namesAndValues;
   // The unscaled number of headers present.
   private int size;
+  // Open-addressed table from name hash to the position + 1 of the last header with that name.
+  // Built lazily once there are more than INDEX_THRESHOLD headers, and dropped by any mutation
+  // other than put(). Reads only ever publish a fully built table, so concurrent readers stay safe
+  // even if several of them build it.
+  @Nullable
+  private volatile int[] index;
 
   private byte[] name(int i) {
     return namesAndValues[i * 2];
@@ -169,16 +180,11 @@ public final class Metadata {
   /**
    * Returns true if a value is defined for the given key.
    *
-   * <p>This is done by linear search, so if it is followed by {@link #get} or {@link #getAll},
-   * prefer calling them directly and checking the return value against {@code null}.
+   * <p>If it is followed by {@link #get} or {@link #getAll}, prefer calling them directly and
+   * checking the return value against {@code null}.
    */
   public boolean containsKey(Key<?> key) {
-    for (int i = 0; i < size; i++) {
-      if (bytesEqual(key.asciiName(), name(i))) {
-        return true;
-      }
-    }
-    return false;
+    return lastIndexOf(key) >= 0;
   }
 
   /**
@@ -188,12 +194,55 @@ public final class Metadata {
    */
   @Nullable
   public <T> T get(Key<T> key) {
-    for (int i = size - 1; i >= 0; i--) {
-      if (bytesEqual(key.asciiName(), name(i))) {
-        return key.parseBytes(value(i));
+    int i = lastIndexOf(key);
+    return i >= 0 ? key.parseBytes(value(i)) : null;
+  }
+
+  /** Returns the position of the last header named as {@code key}, or -1 if there is none. */
+  private int lastIndexOf(Key<?> key) {
+    int[] index = this.index;
+    if (index == null && size > INDEX_THRESHOLD) {
+      index = buildIndex();
+      this.index = index;
+    }
+    if (index == null) {
+      for (int i = size - 1; i >= 0; i--) {
+        if (bytesEqual(key.asciiName(), name(i))) {
+          return i;
+        }
+      }
+      return -1;
+    }
+    int mask = index.length - 1;
+    for (int slot = key.nameHash() & mask; ; slot = (slot + 1) & mask) {
+      int entry = index[slot];
+      if (entry == 0) {
+        return -1;
+      }
+      if (bytesEqual(key.asciiName(), name(entry - 1))) {
+        return entry - 1;
+      }
+    }
+  }
+
+  private int[] buildIndex() {
+    // Size the table to at least twice the header capacity, so put() only rebuilds after expand().
+    int[] table = new int[Integer.highestOneBit(Math.max(cap(), INDEX_THRESHOLD * 4) - 1) << 1];
+    for (int i = 0; i < size; i++) {
+      addToIndex(table, i, hashName(name(i)));
+    }
+    return table;
+  }
+
+  private void addToIndex(int[] table, int i, int hash) {
+    int mask = table.length - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int entry = table[slot];
+      if (entry == 0 || bytesEqual(name(i), name(entry - 1))) {
+        table[slot] = i + 1;
+        return;
       }
     }
-    return null;
   }
 
   private final class IterableAt<T> implements Iterable<T> {
@@ -249,6 +298,9 @@ public final class Metadata {
    */
   @Nullable
   public <T> Iterable<T> getAll(final Key<T> key) {
+    if (index != null && lastIndexOf(key) < 0) {
+      return null;
+    }
     for (int i = 0; i < size; i++) {
       if (bytesEqual(key.asciiName(), name(i))) {
         return new IterableAt<T>(key, i);
@@ -287,6 +339,14 @@ public final class Metadata {
     maybeExpand();
     name(size, key.asciiName());
     value(size, key.toBytes(value));
+    int[] index = this.index;
+    if (index != null) {
+      if ((size + 1) * 2 > index.length) {
+        this.index = null;
+      } else {
+        addToIndex(index, size, key.nameHash());
+      }
+    }
     size++;
   }
 
@@ -325,6 +385,7 @@ public final class Metadata {
       if (!value.equals(stored)) {
         continue;
       }
+      index = null;
       int writeIdx = i * 2;
       int readIdx = (i + 1) * 2;
       int readLen = len() - readIdx;
@@ -359,6 +420,7 @@ public final class Metadata {
     // Multiply by two since namesAndValues is interleaved.
     Arrays.fill(namesAndValues, writeIdx * 2, len(), null);
     size = newSize;
+    index = null;
     return ret;
   }
 
@@ -385,6 +447,7 @@ public final class Metadata {
     // Multiply by two since namesAndValues is interleaved.
     Arrays.fill(namesAndValues, writeIdx * 2, len(), null);
     size = newSize;
+    index = null;
   }
 
   /**
@@ -405,6 +468,8 @@ public final class Metadata {
   @Nullable
   byte[][] serialize() {
     if (len() == cap()) {
+      // The transport may rearrange the returned array.
+      index = null;
       return namesAndValues;
     }
     byte[][] serialized = new byte[len()][];
@@ -428,6 +493,7 @@ public final class Metadata {
     }
     System.arraycopy(other.namesAndValues, 0, namesAndValues, len(), other.len());
     size += other.size;
+    index = null;
   }
 
   /**
@@ -453,6 +519,7 @@ public final class Metadata {
         size++;
       }
     }
+    index = null;
   }
 
   @SuppressWarnings("BetaApi") // BaseEncoding is stable in Guava 20.0
@@ -479,6 +546,70 @@ public final class Metadata {
     return Arrays.equals(left, right);
   }
 
+  private static int hashName(byte[] name) {
+    int h = 0;
+    for (byte b : name) {
+      h = 31 * h + b;
+    }
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Registry of header names that are present on most calls. {@link Key}s with these names share a
+   * single name array, which lets name comparisons usually succeed by reference.
+   */
+  private static final class WellKnownNames {
+    private static final String[] NAMES = {
+        ":authority",
+        ":method",
+        ":path",
+        ":scheme",
+        ":status",
+        "content-type",
+        "te",
+        "user-agent",
+        "grpc-accept-encoding",
+        "grpc-encoding",
+        "grpc-message",
+        "grpc-status",
+        "grpc-timeout",
+        "grpc-tags-bin",
+        "grpc-trace-bin",
+    };
+
+    // Open-addressed by hashName(), with a load factor below 1/4.
+    private static final byte[][] TABLE = new byte[64][];
+
+    static {
+      for (String name : NAMES) {
+        byte[] bytes = name.getBytes(US_ASCII);
+        int mask = TABLE.length - 1;
+        int slot = hashName(bytes) & mask;
+        while (TABLE[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        TABLE[slot] = bytes;
+      }
+    }
+
+    /**
+     * Returns the canonical array for {@code name} if it is well-known, or {@code name} itself
+     * otherwise.
+     */
+    static byte[] intern(byte[] name, int hash) {
+      int mask = TABLE.length - 1;
+      for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+        byte[] candidate = TABLE[slot];
+        if (candidate == null) {
+          return name;
+        }
+        if (candidate == name || Arrays.equals(candidate, name)) {
+          return candidate;
+        }
+      }
+    }
+  }
+
   /** Marshaller for metadata values that are serialized into raw binary. */
   public interface BinaryMarshaller<T> {
     /**
@@ -600,6 +731,7 @@ public final class Metadata {
 
     private final String name;
     private final byte[] nameBytes;
+    private final int nameHash;
 
     private static BitSet generateValidTChars() {
       BitSet valid = new BitSet(0x7f);
@@ -634,7 +766,9 @@ public final class Metadata {
     private Key(String name, boolean pseudo) {
       this.originalName = checkNotNull(name, "name");
       this.name = validateName(this.originalName.toLowerCase(Locale.ROOT), pseudo);
-      this.nameBytes = this.name.getBytes(US_ASCII);
+      byte[] bytes = this.name.getBytes(US_ASCII);
+      this.nameHash = hashName(bytes);
+      this.nameBytes = WellKnownNames.intern(bytes, nameHash);
     }
 
     /**
@@ -664,6 +798,11 @@ public final class Metadata {
       return nameBytes;
     }
 
+    /** Returns the precomputed hash of {@link #asciiName}, as used by the header index. */
+    int nameHash() {
+      return nameHash;
+    }
+
     /**
      * Returns true if the two objects are both Keys, and their names match (case insensitive).
      */
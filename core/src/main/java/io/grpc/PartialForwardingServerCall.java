@@ -16,6 +16,8 @@
 
 package io.grpc;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * A {@link ServerCall} which forwards all of it's methods to another {@link ServerCall} which
  * may have a different onMessage() message type.
@@ -57,6 +59,12 @@ abstract class PartialForwardingServerCall<ReqT, RespT> extends ServerCall<ReqT,
     delegate().setMessageCompression(enabled);
   }
 
+  @Override
+  @ExperimentalApi
+  public void setFlushCoalescing(long maxDelay, TimeUnit unit, int maxBytes) {
+    delegate().setFlushCoalescing(maxDelay, unit, maxBytes);
+  }
+
   @Override
   @ExperimentalApi("https://github.com/grpc/grpc-java/issues/1704")
   public void setCompression(String compressor) {
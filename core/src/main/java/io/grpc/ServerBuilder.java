@@ -69,6 +69,59 @@ public abstract class ServerBuilder<T extends ServerBuilder<T>> {
    */
   public abstract T executor(@Nullable Executor executor);
 
+  /**
+   * Runs application callbacks on virtual threads, one per task, instead of the default cached
+   * thread pool. On JDKs without virtual threads this behaves like the default executor.
+   *
+   * <p>Callbacks for a single call are still serialized. This overrides a previous call to {@link
+   * #executor} or {@link #directExecutor}.
+   *
+   * @return this
+   * @since 1.12.0
+   */
+  @ExperimentalApi
+  public T virtualThreadExecutor() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Runs application callbacks on a shared work-stealing pool with one worker per processor,
+   * instead of the default cached thread pool. Callbacks for a single call run as one task, and
+   * work created while running a callback stays on the same worker unless another one is idle.
+   *
+   * <p>Callbacks should not block, since the pool does not grow to compensate. This overrides a
+   * previous call to {@link #executor} or {@link #directExecutor}.
+   *
+   * @return this
+   * @since 1.12.0
+   */
+  @ExperimentalApi
+  public T workStealingExecutor() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Limits how many calls the server runs at once across all of its connections, adjusting the
+   * limit to the latency of completed calls. The limit starts at {@code initialLimit}, shrinks
+   * when latency rises under load and grows back up to {@code maxLimit} while it stays steady.
+   * Calls over the limit fail with {@link Status.Code#RESOURCE_EXHAUSTED} before they reach the
+   * executor.
+   *
+   * <p>Only unary calls count towards the limit and its latency. Streaming calls are turned away
+   * while the server is at its limit, but do not hold on to a slot once they start.
+   *
+   * <p>By default calls are not limited.
+   *
+   * @return this
+   * @throws IllegalArgumentException if {@code initialLimit} is not positive or {@code maxLimit}
+   *     is less than {@code initialLimit}
+   * @since 1.12.0
+   */
+  @ExperimentalApi
+  public T adaptiveConcurrencyLimit(int initialLimit, int maxLimit) {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * Adds a service implementation to the handler registry.
    *
@@ -17,6 +17,7 @@
 package io.grpc;
 
 import com.google.errorprone.annotations.DoNotMock;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
@@ -188,6 +189,24 @@ public abstract class ServerCall<ReqT, RespT> {
     // noop
   }
 
+  /**
+   * Holds back the flushes of messages, so that messages sent in quick succession share frames
+   * and transport flushes. Messages are flushed once {@code maxBytes} of them are pending, and at
+   * the latest {@code maxDelay} after they were sent. This trades up to {@code maxDelay} of
+   * latency for fewer and larger writes when sending many small messages. This method may only be
+   * called before the first {@link #sendMessage}.
+   *
+   * <p>By default, and with a zero {@code maxDelay}, each message is flushed as it is sent.
+   *
+   * @throws IllegalArgumentException if {@code maxDelay} is negative or {@code maxBytes} is not
+   *     positive
+   * @since 1.12.0
+   */
+  @ExperimentalApi
+  public void setFlushCoalescing(long maxDelay, TimeUnit unit, int maxBytes) {
+    // noop
+  }
+
   /**
    * Returns properties of a single call.
    *
@@ -462,6 +462,12 @@ final class InProcessTransport implements ServerTransport, ConnectionClientTrans
         // noop
       }
 
+      @Override
+      public void setFlushCoalescing(
+          long maxDelayNanos, int maxBytes, ScheduledExecutorService scheduler) {
+        // noop, messages aren't framed
+      }
+
       @Override
       public void setCompressor(Compressor compressor) {}
 
@@ -627,6 +633,10 @@ final class InProcessTransport implements ServerTransport, ConnectionClientTrans
       @Override
       public void setMessageCompression(boolean enable) {}
 
+      @Override
+      public void setFlushCoalescing(
+          long maxDelayNanos, int maxBytes, ScheduledExecutorService scheduler) {}
+
       @Override
       public void setAuthority(String string) {
         InProcessStream.this.authority = string;
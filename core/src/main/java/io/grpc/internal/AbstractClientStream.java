@@ -184,6 +184,7 @@ public abstract class AbstractClientStream extends AbstractStream
   public final void cancel(Status reason) {
     Preconditions.checkArgument(!reason.isOk(), "Should not cancel with OK status");
     cancelled = true;
+    cancelPendingFlush();
     abstractClientStreamSink().cancel(reason);
   }
 
@@ -125,6 +125,10 @@ public abstract class AbstractManagedChannelImplBuilder
 
   int maxRetryAttempts = 5;
   int maxHedgedAttempts = 5;
+  // Zero means the hedging delay from the service config is used as is.
+  double hedgingDelayPercentile;
+  // Zero means calls are not throttled.
+  double throttlingK;
   long retryBufferSize = DEFAULT_RETRY_BUFFER_SIZE_IN_BYTES;
   long perRpcBufferLimit = DEFAULT_PER_RPC_BUFFER_LIMIT_IN_BYTES;
   boolean retryDisabled = true; // TODO(zdapeng): default to false
@@ -299,6 +303,20 @@ public abstract class AbstractManagedChannelImplBuilder
     return thisT();
   }
 
+  @Override
+  public final T adaptiveHedgingDelay(double percentile) {
+    checkArgument(percentile > 0D && percentile < 100D, "percentile must be in (0, 100)");
+    this.hedgingDelayPercentile = percentile;
+    return thisT();
+  }
+
+  @Override
+  public final T adaptiveThrottling(double k) {
+    checkArgument(k >= 1D, "k must be at least 1");
+    this.throttlingK = k;
+    return thisT();
+  }
+
   @Override
   public final T retryBufferSize(long bytes) {
     checkArgument(bytes > 0L, "retry buffer size must be positive");
@@ -57,6 +57,10 @@ public abstract class AbstractServerImplBuilder<T extends AbstractServerImplBuil
 
   private static final ObjectPool<? extends Executor> DEFAULT_EXECUTOR_POOL =
       SharedResourcePool.forResource(GrpcUtil.SHARED_CHANNEL_EXECUTOR);
+  private static final ObjectPool<? extends Executor> VIRTUAL_THREAD_EXECUTOR_POOL =
+      SharedResourcePool.forResource(GrpcUtil.SHARED_VIRTUAL_THREAD_EXECUTOR);
+  private static final ObjectPool<? extends Executor> WORK_STEALING_EXECUTOR_POOL =
+      SharedResourcePool.forResource(GrpcUtil.SHARED_WORK_STEALING_EXECUTOR);
   private static final HandlerRegistry DEFAULT_FALLBACK_REGISTRY = new HandlerRegistry() {
       @Override
       public List<ServerServiceDefinition> getServices() {
@@ -99,6 +103,10 @@ public abstract class AbstractServerImplBuilder<T extends AbstractServerImplBuil
 
   long handshakeTimeoutMillis = DEFAULT_HANDSHAKE_TIMEOUT_MILLIS;
 
+  int initialConcurrencyLimit;
+
+  int maxConcurrencyLimit;
+
   @Nullable
   private CensusStatsModule censusStatsOverride;
 
@@ -128,6 +136,28 @@ public abstract class AbstractServerImplBuilder<T extends AbstractServerImplBuil
     return thisT();
   }
 
+  @Override
+  public final T virtualThreadExecutor() {
+    this.executorPool = VIRTUAL_THREAD_EXECUTOR_POOL;
+    return thisT();
+  }
+
+  @Override
+  public final T workStealingExecutor() {
+    this.executorPool = WORK_STEALING_EXECUTOR_POOL;
+    return thisT();
+  }
+
+  @Override
+  public final T adaptiveConcurrencyLimit(int initialLimit, int maxLimit) {
+    checkArgument(initialLimit > 0, "initialLimit must be positive: %s", initialLimit);
+    checkArgument(maxLimit >= initialLimit,
+        "maxLimit %s must be at least initialLimit %s", maxLimit, initialLimit);
+    this.initialConcurrencyLimit = initialLimit;
+    this.maxConcurrencyLimit = maxLimit;
+    return thisT();
+  }
+
   @Override
   public final T addService(ServerServiceDefinition service) {
     registryBuilder.addService(service);
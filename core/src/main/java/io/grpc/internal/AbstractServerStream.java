@@ -150,6 +150,7 @@ public abstract class AbstractServerStream extends AbstractStream
 
   @Override
   public final void cancel(Status status) {
+    cancelPendingFlush();
     abstractServerStreamSink().cancel(status);
   }
 
@@ -24,6 +24,8 @@ import io.grpc.Codec;
 import io.grpc.Compressor;
 import io.grpc.Decompressor;
 import java.io.InputStream;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 
 /**
@@ -31,6 +33,10 @@ import javax.annotation.concurrent.GuardedBy;
  * application thread.
  */
 public abstract class AbstractStream implements Stream {
+  /** Wraps {@link #framer()} once flush coalescing is enabled. */
+  @Nullable
+  private CoalescingFramer coalescingFramer;
+
   /** The framer to use for sending messages. */
   protected abstract Framer framer();
 
@@ -42,15 +48,15 @@ public abstract class AbstractStream implements Stream {
 
   @Override
   public final void setMessageCompression(boolean enable) {
-    framer().setMessageCompression(enable);
+    activeFramer().setMessageCompression(enable);
   }
 
   @Override
   public final void writeMessage(InputStream message) {
     checkNotNull(message, "message");
     try {
-      if (!framer().isClosed()) {
-        framer().writePayload(message);
+      if (!activeFramer().isClosed()) {
+        activeFramer().writePayload(message);
       }
     } finally {
       GrpcUtil.closeQuietly(message);
@@ -59,8 +65,8 @@ public abstract class AbstractStream implements Stream {
 
   @Override
   public final void flush() {
-    if (!framer().isClosed()) {
-      framer().flush();
+    if (!activeFramer().isClosed()) {
+      activeFramer().flush();
     }
   }
 
@@ -69,22 +75,47 @@ public abstract class AbstractStream implements Stream {
    * (half closure on client; closure on server).
    */
   protected final void endOfMessages() {
-    framer().close();
+    activeFramer().close();
   }
 
   @Override
   public final void setCompressor(Compressor compressor) {
-    framer().setCompressor(checkNotNull(compressor, "compressor"));
+    activeFramer().setCompressor(checkNotNull(compressor, "compressor"));
   }
 
   @Override
   public boolean isReady() {
-    if (framer().isClosed()) {
+    if (activeFramer().isClosed()) {
       return false;
     }
     return transportState().isReady();
   }
 
+  @Override
+  public final void setFlushCoalescing(
+      long maxDelayNanos, int maxBytes, ScheduledExecutorService scheduler) {
+    Framer framer = framer();
+    // GET requests are unary and don't flush per message, so only a MessageFramer is wrapped.
+    if (framer instanceof MessageFramer) {
+      coalescingFramer =
+          new CoalescingFramer((MessageFramer) framer, maxDelayNanos, maxBytes, scheduler);
+    }
+  }
+
+  /**
+   * Cancels the delayed flush of flush coalescing, if any. Should be called when the stream is
+   * cancelled, as no more messages will be sent.
+   */
+  protected final void cancelPendingFlush() {
+    if (coalescingFramer != null) {
+      coalescingFramer.cancelPendingFlush();
+    }
+  }
+
+  private Framer activeFramer() {
+    return coalescingFramer != null ? coalescingFramer : framer();
+  }
+
   /**
    * Event handler to be called by the subclass when a number of bytes are being queued for sending
    * to the remote endpoint.
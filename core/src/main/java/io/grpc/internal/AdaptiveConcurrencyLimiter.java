@@ -0,0 +1,158 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Limits how many calls a server runs at once, adjusting the limit to the latency of completed
+ * calls.
+ *
+ * <p>Latencies are averaged over windows of calls. Each window's average is compared to a long
+ * term average: while they are close the limit grows by about its square root, and once the
+ * recent latency rises above the long term one by more than a tolerance, the limit shrinks in
+ * proportion. The limit only grows while the server actually uses at least half of it.
+ */
+final class AdaptiveConcurrencyLimiter {
+  @VisibleForTesting
+  static final int DEFAULT_WINDOW_SIZE = 100;
+  /** How much of each new limit is applied, to keep one noisy window from moving it too far. */
+  private static final double SMOOTHING = 0.2;
+  /** How much higher than the long term latency the recent latency may be before shrinking. */
+  private static final double RTT_TOLERANCE = 1.5;
+  /** The number of windows the long term latency averages over. */
+  private static final int LONG_WINDOWS = 600;
+  private static final int MIN_LIMIT = 1;
+
+  private final int maxLimit;
+  private final int windowSize;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicLong rejectedCalls = new AtomicLong();
+  private volatile int limit;
+
+  private final Object lock = new Object();
+  @GuardedBy("lock")
+  private double estimatedLimit;
+  @GuardedBy("lock")
+  private double longRttNanos;
+  @GuardedBy("lock")
+  private long windowRttSumNanos;
+  @GuardedBy("lock")
+  private int windowSamples;
+  @GuardedBy("lock")
+  private int windowMaxInFlight;
+
+  AdaptiveConcurrencyLimiter(int initialLimit, int maxLimit) {
+    this(initialLimit, maxLimit, DEFAULT_WINDOW_SIZE);
+  }
+
+  @VisibleForTesting
+  AdaptiveConcurrencyLimiter(int initialLimit, int maxLimit, int windowSize) {
+    checkArgument(initialLimit >= MIN_LIMIT, "initialLimit must be positive");
+    checkArgument(maxLimit >= initialLimit, "maxLimit must be at least initialLimit");
+    checkArgument(windowSize > 0, "windowSize must be positive");
+    this.maxLimit = maxLimit;
+    this.windowSize = windowSize;
+    this.limit = initialLimit;
+    this.estimatedLimit = initialLimit;
+  }
+
+  /**
+   * Returns {@code true} if a call may start, in which case either {@link #release()} or {@link
+   * #release(long)} must be called once it is done.
+   */
+  boolean tryAcquire() {
+    while (true) {
+      int current = inFlight.get();
+      if (current >= limit) {
+        rejectedCalls.incrementAndGet();
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Releases a call that did not complete normally, so its latency says nothing about load.
+   */
+  void release() {
+    inFlight.decrementAndGet();
+  }
+
+  /**
+   * Releases a call that completed normally after {@code rttNanos}.
+   */
+  void release(long rttNanos) {
+    int current = inFlight.getAndDecrement();
+    synchronized (lock) {
+      windowRttSumNanos += rttNanos;
+      windowSamples++;
+      windowMaxInFlight = Math.max(windowMaxInFlight, current);
+      if (windowSamples >= windowSize) {
+        updateLimitLocked();
+      }
+    }
+  }
+
+  @GuardedBy("lock")
+  private void updateLimitLocked() {
+    double shortRttNanos = Math.max(1, (double) windowRttSumNanos / windowSamples);
+    int maxInFlight = windowMaxInFlight;
+    windowRttSumNanos = 0;
+    windowSamples = 0;
+    windowMaxInFlight = 0;
+
+    if (longRttNanos == 0) {
+      longRttNanos = shortRttNanos;
+    } else {
+      longRttNanos += (shortRttNanos - longRttNanos) * 2 / (LONG_WINDOWS + 1);
+    }
+    if (longRttNanos > 2 * shortRttNanos) {
+      // Latency has dropped well below where it was, for example after a spike. Let the long term
+      // latency catch up faster, otherwise the limit could grow far past what the server handles.
+      longRttNanos *= 0.95;
+    }
+    if (maxInFlight < estimatedLimit / 2) {
+      // The server isn't using the limit, so latency says nothing about whether it should grow.
+      return;
+    }
+    double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRttNanos / shortRttNanos));
+    double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+    newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+    estimatedLimit = Math.max(MIN_LIMIT, Math.min(maxLimit, newLimit));
+    limit = (int) estimatedLimit;
+  }
+
+  int getLimit() {
+    return limit;
+  }
+
+  int getInFlight() {
+    return inFlight.get();
+  }
+
+  long getRejectedCalls() {
+    return rejectedCalls.get();
+  }
+}
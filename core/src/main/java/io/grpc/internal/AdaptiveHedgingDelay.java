@@ -0,0 +1,162 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Derives the hedging delay of each method from a percentile of its recent response latencies, so
+ * that only the slowest attempts are hedged. There should be a single instance for each channel.
+ */
+final class AdaptiveHedgingDelay {
+  /** Until a method has this many samples, its configured hedging delay is used. */
+  @VisibleForTesting
+  static final int MIN_SAMPLES = 100;
+
+  /** All counts of a method are halved after this many samples, so old latencies fade out. */
+  @VisibleForTesting
+  static final int DECAY_SAMPLES = 1000;
+
+  private final double percentile;
+  private final ConcurrentMap<String, LatencyHistogram> histograms =
+      new ConcurrentHashMap<String, LatencyHistogram>();
+
+  /**
+   * Creates an instance that uses the given latency percentile as the hedging delay.
+   *
+   * @param percentile a number between 0 and 100, exclusive
+   */
+  AdaptiveHedgingDelay(double percentile) {
+    checkArgument(percentile > 0 && percentile < 100, "percentile must be in (0, 100)");
+    this.percentile = percentile;
+  }
+
+  /**
+   * Records the latency of an attempt that succeeded, or the elapsed time of an original attempt
+   * that was outrun by a hedge as a lower bound of its latency.
+   */
+  void record(String fullMethodName, long latencyNanos) {
+    LatencyHistogram histogram = histograms.get(fullMethodName);
+    if (histogram == null) {
+      histogram = new LatencyHistogram();
+      LatencyHistogram existing = histograms.putIfAbsent(fullMethodName, histogram);
+      if (existing != null) {
+        histogram = existing;
+      }
+    }
+    histogram.record(latencyNanos);
+  }
+
+  /**
+   * Returns the hedging delay for the method, or {@code defaultDelayNanos} if not enough latencies
+   * have been recorded for it.
+   */
+  long getDelayNanos(String fullMethodName, long defaultDelayNanos) {
+    LatencyHistogram histogram = histograms.get(fullMethodName);
+    if (histogram == null) {
+      return defaultDelayNanos;
+    }
+    long delayNanos = histogram.percentile(percentile);
+    return delayNanos < 0 ? defaultDelayNanos : delayNanos;
+  }
+
+  /**
+   * A lock-free histogram with four buckets per power of two microseconds, giving a relative error
+   * of at most 25%.
+   */
+  @VisibleForTesting
+  static final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Covers up to 2^40 microseconds, about 12 days.
+    private static final int BUCKETS = 1 + 40 * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicInteger samplesSinceDecay = new AtomicInteger();
+
+    void record(long latencyNanos) {
+      buckets.incrementAndGet(bucketOf(latencyNanos));
+      if (samplesSinceDecay.incrementAndGet() == DECAY_SAMPLES) {
+        samplesSinceDecay.set(0);
+        for (int i = 0; i < BUCKETS; i++) {
+          long count = buckets.get(i);
+          if (count != 0) {
+            // Races with concurrent increments only make the decay slightly inexact.
+            buckets.addAndGet(i, -(count / 2));
+          }
+        }
+      }
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the given percentile, or -1 if there are fewer
+     * than {@link #MIN_SAMPLES} samples.
+     */
+    long percentile(double percentile) {
+      long[] counts = new long[BUCKETS];
+      long total = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        counts[i] = buckets.get(i);
+        total += counts[i];
+      }
+      if (total < MIN_SAMPLES) {
+        return -1;
+      }
+      long rank = (long) Math.ceil(total * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return upperBoundNanos(i);
+        }
+      }
+      return upperBoundNanos(BUCKETS - 1);
+    }
+
+    @VisibleForTesting
+    static int bucketOf(long latencyNanos) {
+      long micros = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+      if (micros <= 0) {
+        return 0;
+      }
+      int msb = 63 - Long.numberOfLeadingZeros(micros);
+      int subBucket = msb >= SUB_BUCKET_BITS
+          ? (int) (micros >>> (msb - SUB_BUCKET_BITS))
+          : (int) (micros << (SUB_BUCKET_BITS - msb));
+      // subBucket is in [SUB_BUCKETS, 2 * SUB_BUCKETS)
+      return Math.min(1 + msb * SUB_BUCKETS + subBucket - SUB_BUCKETS, BUCKETS - 1);
+    }
+
+    @VisibleForTesting
+    static long upperBoundNanos(int bucket) {
+      if (bucket == 0) {
+        return TimeUnit.MICROSECONDS.toNanos(1);
+      }
+      int msb = (bucket - 1) / SUB_BUCKETS;
+      long subBucket = SUB_BUCKETS + (bucket - 1) % SUB_BUCKETS;
+      long upperMicros = ((subBucket + 1) << msb) >> SUB_BUCKET_BITS;
+      return TimeUnit.MICROSECONDS.toNanos(Math.max(upperMicros, 1));
+    }
+  }
+}
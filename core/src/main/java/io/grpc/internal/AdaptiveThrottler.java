@@ -0,0 +1,272 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import io.grpc.ClientCall;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.Nullable;
+
+/**
+ * Rejects calls locally when the backends have been rejecting too many of them, so that a client
+ * stops adding load to an overloaded service, including first attempts. There should be a single
+ * instance for each channel.
+ *
+ * <p>Over a sliding window, each call is rejected with probability {@code max(0, (requests -
+ * acceptsMultiplier * accepts) / (requests + 1))}, where requests counts every call, including
+ * those rejected locally, and accepts counts calls that did not fail with {@code UNAVAILABLE} or
+ * {@code RESOURCE_EXHAUSTED}.
+ *
+ * <p>Counts are kept in one-second buckets, striped by thread. Decisions use the totals of the
+ * completed buckets in the window, which are summed once per bucket.
+ */
+final class AdaptiveThrottler {
+  @VisibleForTesting
+  static final long BUCKET_NANOS = TimeUnit.SECONDS.toNanos(1);
+  @VisibleForTesting
+  static final int BUCKETS = 120;
+
+  private static final int STRIPES = stripes();
+  private static final int REQUESTS = 0;
+  private static final int ACCEPTS = 1;
+  /** Longs between the counts of two stripes, so that they don't share a cache line. */
+  private static final int PADDING = 8;
+  private static final int STRIPE_LENGTH = BUCKETS * 2 + PADDING;
+
+  private final double acceptsMultiplier;
+  private final Ticker ticker;
+  private final long startNanos;
+  @Nullable
+  private final Random random;
+  private final ThreadLocal<Random> randoms = new ThreadLocal<Random>() {
+    @Override
+    protected Random initialValue() {
+      return new Random();
+    }
+  };
+  private final AtomicLongArray counts = new AtomicLongArray(STRIPES * STRIPE_LENGTH);
+  /** The bucket number each bucket currently counts for. */
+  private final AtomicLongArray bucketNumbers = new AtomicLongArray(BUCKETS);
+  private volatile Totals totals = new Totals(-1, 0, 0);
+
+  /**
+   * Creates an instance.
+   *
+   * @param acceptsMultiplier how many requests may be sent for each accepted one before rejecting
+   *     locally, at least 1. Lower values throttle sooner.
+   */
+  AdaptiveThrottler(double acceptsMultiplier) {
+    this(acceptsMultiplier, Ticker.systemTicker(), null);
+  }
+
+  @VisibleForTesting
+  AdaptiveThrottler(double acceptsMultiplier, Ticker ticker, @Nullable Random random) {
+    checkArgument(acceptsMultiplier >= 1, "acceptsMultiplier must be at least 1");
+    this.acceptsMultiplier = acceptsMultiplier;
+    this.ticker = ticker;
+    this.startNanos = ticker.read();
+    this.random = random;
+    for (int i = 0; i < BUCKETS; i++) {
+      bucketNumbers.set(i, -1);
+    }
+  }
+
+  /**
+   * Records a call, returning {@code false} if it should be rejected locally.
+   */
+  boolean tryAcquire() {
+    long bucketNumber = currentBucketNumber();
+    int bucket = roll(bucketNumber);
+    Totals totals = totals(bucketNumber);
+    counts.incrementAndGet(index(bucket, REQUESTS));
+    double rejectProbability =
+        (totals.requests - acceptsMultiplier * totals.accepts) / (totals.requests + 1D);
+    if (rejectProbability <= 0) {
+      return true;
+    }
+    return nextDouble() >= rejectProbability;
+  }
+
+  /**
+   * Records that the backend accepted a call.
+   */
+  void accepted() {
+    long bucketNumber = currentBucketNumber();
+    counts.incrementAndGet(index(roll(bucketNumber), ACCEPTS));
+  }
+
+  /**
+   * Returns a call that counts {@code call} as accepted unless it fails with a status that means
+   * the backend rejected it.
+   */
+  <ReqT, RespT> ClientCall<ReqT, RespT> track(ClientCall<ReqT, RespT> call) {
+    return new TrackedCall<ReqT, RespT>(call);
+  }
+
+  /**
+   * Returns a call that fails with {@code UNAVAILABLE} once started.
+   */
+  static <ReqT, RespT> ClientCall<ReqT, RespT> newRejectedCall(Executor callExecutor) {
+    return new RejectedCall<ReqT, RespT>(callExecutor);
+  }
+
+  @VisibleForTesting
+  static boolean isAccepted(Status status) {
+    return status.getCode() != Status.Code.UNAVAILABLE
+        && status.getCode() != Status.Code.RESOURCE_EXHAUSTED;
+  }
+
+  private long currentBucketNumber() {
+    return (ticker.read() - startNanos) / BUCKET_NANOS;
+  }
+
+  /**
+   * Makes the bucket for {@code bucketNumber} current, clearing what it counted for an older one.
+   */
+  private int roll(long bucketNumber) {
+    int bucket = (int) (bucketNumber % BUCKETS);
+    long current = bucketNumbers.get(bucket);
+    if (current < bucketNumber && bucketNumbers.compareAndSet(bucket, current, bucketNumber)) {
+      // Counts recorded by other threads between the two steps are lost, which only makes the
+      // totals slightly inexact.
+      for (int stripe = 0; stripe < STRIPES; stripe++) {
+        int index = stripe * STRIPE_LENGTH + bucket * 2;
+        counts.set(index + REQUESTS, 0);
+        counts.set(index + ACCEPTS, 0);
+      }
+    }
+    return bucket;
+  }
+
+  private Totals totals(long bucketNumber) {
+    Totals totals = this.totals;
+    if (totals.bucketNumber == bucketNumber) {
+      return totals;
+    }
+    long requests = 0;
+    long accepts = 0;
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      long number = bucketNumbers.get(bucket);
+      if (number >= bucketNumber || number <= bucketNumber - BUCKETS) {
+        // The current bucket is incomplete, and the others are out of the window.
+        continue;
+      }
+      for (int stripe = 0; stripe < STRIPES; stripe++) {
+        int index = stripe * STRIPE_LENGTH + bucket * 2;
+        requests += counts.get(index + REQUESTS);
+        accepts += counts.get(index + ACCEPTS);
+      }
+    }
+    // Concurrent callers may compute the same totals, whichever is set last is as good.
+    totals = new Totals(bucketNumber, requests, accepts);
+    this.totals = totals;
+    return totals;
+  }
+
+  private static int index(int bucket, int kind) {
+    int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+    return stripe * STRIPE_LENGTH + bucket * 2 + kind;
+  }
+
+  private double nextDouble() {
+    return random != null ? random.nextDouble() : randoms.get().nextDouble();
+  }
+
+  private static int stripes() {
+    // A power of two, so that a thread's stripe is a mask of its id.
+    int processors = Runtime.getRuntime().availableProcessors();
+    return Math.min(16, Integer.highestOneBit(Math.max(1, processors - 1)) << 1);
+  }
+
+  private static final class Totals {
+    final long bucketNumber;
+    final long requests;
+    final long accepts;
+
+    Totals(long bucketNumber, long requests, long accepts) {
+      this.bucketNumber = bucketNumber;
+      this.requests = requests;
+      this.accepts = accepts;
+    }
+  }
+
+  private final class TrackedCall<ReqT, RespT>
+      extends ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT> {
+    TrackedCall(ClientCall<ReqT, RespT> delegate) {
+      super(delegate);
+    }
+
+    @Override
+    public void start(Listener<RespT> responseListener, Metadata headers) {
+      super.start(
+          new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(
+              responseListener) {
+            @Override
+            public void onClose(Status status, Metadata trailers) {
+              if (isAccepted(status)) {
+                accepted();
+              }
+              super.onClose(status, trailers);
+            }
+          },
+          headers);
+    }
+  }
+
+  private static final class RejectedCall<ReqT, RespT> extends ClientCall<ReqT, RespT> {
+    private static final Status REJECTED_STATUS =
+        Status.UNAVAILABLE.withDescription("Rejected by client-side adaptive throttling");
+
+    private final Executor callExecutor;
+
+    RejectedCall(Executor callExecutor) {
+      this.callExecutor = callExecutor;
+    }
+
+    @Override
+    public void start(final Listener<RespT> responseListener, Metadata headers) {
+      callExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          responseListener.onClose(REJECTED_STATUS, new Metadata());
+        }
+      });
+    }
+
+    @Override
+    public void request(int numMessages) {}
+
+    @Override
+    public void cancel(@Nullable String message, @Nullable Throwable cause) {}
+
+    @Override
+    public void halfClose() {}
+
+    @Override
+    public void sendMessage(ReqT message) {}
+  }
+}
@@ -40,6 +40,9 @@ final class AutoConfiguredLoadBalancerFactory extends LoadBalancer.Factory {
   static final String ROUND_ROUND_LOAD_BALANCER_FACTORY_NAME =
       "io.grpc.util.RoundRobinLoadBalancerFactory";
   @VisibleForTesting
+  static final String LEAST_REQUEST_LOAD_BALANCER_FACTORY_NAME =
+      "io.grpc.util.LeastRequestLoadBalancerFactory";
+  @VisibleForTesting
   static final String GRPCLB_LOAD_BALANCER_FACTORY_NAME =
       "io.grpc.grpclb.GrpclbLoadBalancerFactory";
 
@@ -130,6 +133,7 @@ final class AutoConfiguredLoadBalancerFactory extends LoadBalancer.Factory {
      *   <li>User provided lb on the channel.  This is a degenerate case and not handled here.</li>
      *   <li>gRPCLB if on the class path and any gRPC LB balancer addresses are present</li>
      *   <li>RoundRobin if on the class path and picked by the service config</li>
+     *   <li>LeastRequest if on the class path and picked by the service config</li>
      *   <li>PickFirst if the service config choice does not specify</li>
      * </ol>
      *
@@ -179,6 +183,17 @@ final class AutoConfiguredLoadBalancerFactory extends LoadBalancer.Factory {
             throw new RuntimeException("Can't get Round Robin LB", e);
           }
         }
+        if (serviceConfigChoiceBalancingPolicy.toUpperCase(Locale.ROOT).equals("LEAST_REQUEST")) {
+          try {
+            Class<?> lbFactoryClass = Class.forName(LEAST_REQUEST_LOAD_BALANCER_FACTORY_NAME);
+            Method getInstance = lbFactoryClass.getMethod("getInstance");
+            return (LoadBalancer.Factory) getInstance.invoke(null);
+          } catch (RuntimeException e) {
+            throw e;
+          } catch (Exception e) {
+            throw new RuntimeException("Can't get Least Request LB", e);
+          }
+        }
         throw new IllegalArgumentException(
             "Unknown service config policy: " + serviceConfigChoiceBalancingPolicy);
       }
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.internal.DnsNameResolver.DelegateResolver;
+import io.grpc.internal.DnsNameResolver.ResolutionResults;
+import java.security.Security;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link DelegateResolver} that caches the results of another resolver by host.
+ *
+ * <ul>
+ *   <li>Results are served from the cache for the TTL, which is taken from the
+ *   {@code networkaddress.cache.ttl} security property like the JDK's own address cache, since
+ *   neither the JDK nor JNDI expose the TTLs of individual records.</li>
+ *   <li>A lookup made after most of the TTL has passed returns the cached results and refreshes
+ *   the entry in the background, so that busy hosts never block on the delegate.</li>
+ *   <li>Concurrent lookups of the same host share a single delegate query.</li>
+ *   <li>If the delegate fails, the last results are returned for up to {@link #MAX_STALE_NANOS}
+ *   after they expired.</li>
+ * </ul>
+ */
+final class CachingDnsResolver extends DelegateResolver {
+  private static final Logger logger = Logger.getLogger(CachingDnsResolver.class.getName());
+
+  @VisibleForTesting
+  static final long DEFAULT_TTL_NANOS = TimeUnit.SECONDS.toNanos(30);
+  @VisibleForTesting
+  static final long MAX_STALE_NANOS = TimeUnit.MINUTES.toNanos(5);
+  /** Once the cache holds more entries than this, entries too old to be served are dropped. */
+  private static final int SWEEP_THRESHOLD = 1024;
+
+  private final DelegateResolver delegate;
+  private final Executor refreshExecutor;
+  private final Ticker ticker;
+  private final long ttlNanos;
+  private final long refreshNanos;
+  private final ConcurrentMap<String, CacheEntry> cache =
+      new ConcurrentHashMap<String, CacheEntry>();
+  private final ConcurrentMap<String, SettableFuture<ResolutionResults>> pendingLookups =
+      new ConcurrentHashMap<String, SettableFuture<ResolutionResults>>();
+
+  CachingDnsResolver(
+      DelegateResolver delegate, Executor refreshExecutor, Ticker ticker, long ttlNanos) {
+    checkArgument(ttlNanos >= 0, "ttlNanos must be non-negative");
+    this.delegate = checkNotNull(delegate, "delegate");
+    this.refreshExecutor = checkNotNull(refreshExecutor, "refreshExecutor");
+    this.ticker = checkNotNull(ticker, "ticker");
+    this.ttlNanos = ttlNanos;
+    this.refreshNanos = ttlNanos / 5 * 4;
+  }
+
+  @Override
+  ResolutionResults resolve(String host) throws Exception {
+    CacheEntry entry = cache.get(host);
+    if (entry != null) {
+      long ageNanos = ticker.read() - entry.loadedNanos;
+      if (ageNanos < ttlNanos) {
+        if (ageNanos >= refreshNanos) {
+          refreshInBackground(host);
+        }
+        return entry.results;
+      }
+    }
+    SettableFuture<ResolutionResults> lookup = SettableFuture.create();
+    SettableFuture<ResolutionResults> existing = pendingLookups.putIfAbsent(host, lookup);
+    if (existing == null) {
+      return load(host, lookup);
+    }
+    try {
+      return existing.get();
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), Exception.class);
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private void refreshInBackground(final String host) {
+    final SettableFuture<ResolutionResults> lookup = SettableFuture.create();
+    if (pendingLookups.putIfAbsent(host, lookup) != null) {
+      return;
+    }
+    try {
+      refreshExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              load(host, lookup);
+            } catch (Throwable t) {
+              logger.log(Level.FINE, "Background refresh of " + host + " failed", t);
+            }
+          }
+        });
+    } catch (RejectedExecutionException e) {
+      pendingLookups.remove(host, lookup);
+      lookup.setException(e);
+    }
+  }
+
+  /**
+   * Queries the delegate and completes {@code lookup}, which must have been registered in
+   * {@link #pendingLookups}, with the outcome.
+   */
+  private ResolutionResults load(String host, SettableFuture<ResolutionResults> lookup)
+      throws Exception {
+    try {
+      ResolutionResults results;
+      try {
+        results = delegate.resolve(host);
+        cache.put(host, new CacheEntry(results, ticker.read()));
+        if (cache.size() > SWEEP_THRESHOLD) {
+          sweep();
+        }
+      } catch (Exception e) {
+        CacheEntry stale = cache.get(host);
+        if (stale == null || ticker.read() - stale.loadedNanos >= ttlNanos + MAX_STALE_NANOS) {
+          throw e;
+        }
+        logger.log(Level.FINE, "Using stale results for " + host, e);
+        results = stale.results;
+      }
+      lookup.set(results);
+      return results;
+    } catch (Exception e) {
+      lookup.setException(e);
+      throw e;
+    } catch (Error e) {
+      lookup.setException(e);
+      throw e;
+    } finally {
+      pendingLookups.remove(host, lookup);
+    }
+  }
+
+  private void sweep() {
+    long nowNanos = ticker.read();
+    Iterator<CacheEntry> it = cache.values().iterator();
+    while (it.hasNext()) {
+      if (nowNanos - it.next().loadedNanos >= ttlNanos + MAX_STALE_NANOS) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Returns the TTL configured for the JDK's address cache, or {@link #DEFAULT_TTL_NANOS} if it is
+   * not set or is set to cache forever.
+   */
+  static long getConfiguredTtlNanos() {
+    String ttl;
+    try {
+      ttl = Security.getProperty("networkaddress.cache.ttl");
+    } catch (SecurityException e) {
+      return DEFAULT_TTL_NANOS;
+    }
+    if (ttl != null) {
+      try {
+        long ttlSeconds = Long.parseLong(ttl.trim());
+        if (ttlSeconds >= 0) {
+          return TimeUnit.SECONDS.toNanos(ttlSeconds);
+        }
+      } catch (NumberFormatException e) {
+        logger.log(Level.WARNING, "Ignoring invalid networkaddress.cache.ttl: {0}", ttl);
+      }
+    }
+    return DEFAULT_TTL_NANOS;
+  }
+
+  private static final class CacheEntry {
+    final ResolutionResults results;
+    final long loadedNanos;
+
+    CacheEntry(ResolutionResults results, long loadedNanos) {
+      this.results = results;
+      this.loadedNanos = loadedNanos;
+    }
+  }
+}
@@ -25,18 +25,17 @@ import io.grpc.internal.Channelz.ServerStats;
  */
 final class CallTracer {
   private final TimeProvider timeProvider;
-  private final LongCounter callsStarted = LongCounterFactory.create();
+  // the start time is recorded with the count, so that concurrent calls don't all write one field
+  private final StripedLongCounter callsStarted = new StripedLongCounter();
   private final LongCounter callsSucceeded = LongCounterFactory.create();
   private final LongCounter callsFailed = LongCounterFactory.create();
-  private volatile long lastCallStartedMillis;
 
   CallTracer(TimeProvider timeProvider) {
     this.timeProvider = timeProvider;
   }
 
   public void reportCallStarted() {
-    callsStarted.add(1);
-    lastCallStartedMillis = timeProvider.currentTimeMillis();
+    callsStarted.add(1, timeProvider.currentTimeMillis());
   }
 
   public void reportCallEnded(boolean success) {
@@ -52,7 +51,7 @@ final class CallTracer {
         .setCallsStarted(callsStarted.value())
         .setCallsSucceeded(callsSucceeded.value())
         .setCallsFailed(callsFailed.value())
-        .setLastCallStartedMillis(lastCallStartedMillis);
+        .setLastCallStartedMillis(callsStarted.latestTimestamp());
   }
 
   void updateBuilder(ServerStats.Builder builder) {
@@ -60,7 +59,7 @@ final class CallTracer {
         .setCallsStarted(callsStarted.value())
         .setCallsSucceeded(callsSucceeded.value())
         .setCallsFailed(callsFailed.value())
-        .setLastCallStartedMillis(lastCallStartedMillis);
+        .setLastCallStartedMillis(callsStarted.latestTimestamp());
   }
 
   @VisibleForTesting
@@ -271,6 +271,8 @@ public final class Channelz {
     public final long callsSucceeded;
     public final long callsFailed;
     public final long lastCallStartedMillis;
+    /** The current adaptive concurrency limit, or {@code 0} if calls are not limited. */
+    public final int concurrencyLimit;
     public final List<Instrumented<SocketStats>> listenSockets;
 
     /**
@@ -281,11 +283,13 @@ public final class Channelz {
         long callsSucceeded,
         long callsFailed,
         long lastCallStartedMillis,
+        int concurrencyLimit,
         List<Instrumented<SocketStats>> listenSockets) {
       this.callsStarted = callsStarted;
       this.callsSucceeded = callsSucceeded;
       this.callsFailed = callsFailed;
       this.lastCallStartedMillis = lastCallStartedMillis;
+      this.concurrencyLimit = concurrencyLimit;
       this.listenSockets = Preconditions.checkNotNull(listenSockets);
     }
 
@@ -294,6 +298,7 @@ public final class Channelz {
       private long callsSucceeded;
       private long callsFailed;
       private long lastCallStartedMillis;
+      private int concurrencyLimit;
       public List<Instrumented<SocketStats>> listenSockets = Collections.emptyList();
 
       public Builder setCallsStarted(long callsStarted) {
@@ -316,6 +321,11 @@ public final class Channelz {
         return this;
       }
 
+      public Builder setConcurrencyLimit(int concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+        return this;
+      }
+
       /** Sets the listen sockets. */
       public Builder setListenSockets(List<Instrumented<SocketStats>> listenSockets) {
         Preconditions.checkNotNull(listenSockets);
@@ -333,6 +343,7 @@ public final class Channelz {
             callsSucceeded,
             callsFailed,
             lastCallStartedMillis,
+            concurrencyLimit,
             listenSockets);
       }
     }
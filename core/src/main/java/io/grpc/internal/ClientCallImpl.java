@@ -79,7 +79,10 @@ final class ClientCallImpl<ReqT, RespT> extends ClientCall<ReqT, RespT> {
   private boolean cancelCalled;
   private boolean halfCloseCalled;
   private final ClientTransportProvider clientTransportProvider;
-  private final CancellationListener cancellationListener = new ContextCancellationListener();
+  // The stream listener doubles as the context cancellation listener, to save an allocation per
+  // call. Null until started.
+  @Nullable
+  private CancellationListener cancellationListener;
   private ScheduledExecutorService deadlineCancellationExecutor;
   private boolean fullStreamDecompression;
   private DecompressorRegistry decompressorRegistry = DecompressorRegistry.getDefaultInstance();
@@ -109,13 +112,6 @@ final class ClientCallImpl<ReqT, RespT> extends ClientCall<ReqT, RespT> {
     this.retryEnabled = retryEnabled;
   }
 
-  private final class ContextCancellationListener implements CancellationListener {
-    @Override
-    public void cancelled(Context context) {
-      stream.cancel(statusFromCancelled(context));
-    }
-  }
-
   /**
    * Provider of {@link ClientTransport}s.
    */
@@ -261,11 +257,18 @@ final class ClientCallImpl<ReqT, RespT> extends ClientCall<ReqT, RespT> {
     if (callOptions.getMaxOutboundMessageSize() != null) {
       stream.setMaxOutboundMessageSize(callOptions.getMaxOutboundMessageSize());
     }
+    if (callOptions.getFlushCoalescingDelayNanos() > 0 && !unaryRequest) {
+      stream.setFlushCoalescing(
+          callOptions.getFlushCoalescingDelayNanos(), callOptions.getFlushCoalescingMaxBytes(),
+          deadlineCancellationExecutor);
+    }
     stream.setCompressor(compressor);
     stream.setFullStreamDecompression(fullStreamDecompression);
     stream.setDecompressorRegistry(decompressorRegistry);
     channelCallsTracer.reportCallStarted();
-    stream.start(new ClientStreamListenerImpl(observer));
+    ClientStreamListenerImpl streamListener = new ClientStreamListenerImpl(observer);
+    cancellationListener = streamListener;
+    stream.start(streamListener);
 
     // Delay any sources of cancellation after start(), because most of the transports are broken if
     // they receive cancel before start. Issue #1343 has more details
@@ -327,7 +330,9 @@ final class ClientCallImpl<ReqT, RespT> extends ClientCall<ReqT, RespT> {
   }
 
   private void removeContextListenerAndCancelDeadlineFuture() {
-    context.removeListener(cancellationListener);
+    if (cancellationListener != null) {
+      context.removeListener(cancellationListener);
+    }
     ScheduledFuture<?> f = deadlineCancellationFuture;
     if (f != null) {
       f.cancel(false);
@@ -471,7 +476,7 @@ final class ClientCallImpl<ReqT, RespT> extends ClientCall<ReqT, RespT> {
     observer.onClose(status, trailers);
   }
 
-  private class ClientStreamListenerImpl implements ClientStreamListener {
+  private class ClientStreamListenerImpl implements ClientStreamListener, CancellationListener {
     private final Listener<RespT> observer;
     private boolean closed;
 
@@ -479,6 +484,14 @@ final class ClientCallImpl<ReqT, RespT> extends ClientCall<ReqT, RespT> {
       this.observer = checkNotNull(observer, "observer");
     }
 
+    /**
+     * Propagates Context cancellation to the remote side.
+     */
+    @Override
+    public void cancelled(Context context) {
+      stream.cancel(statusFromCancelled(context));
+    }
+
     @Override
     public void headersRead(final Metadata headers) {
       class HeadersRead extends ContextRunnable {
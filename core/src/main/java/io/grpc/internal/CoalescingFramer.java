@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.grpc.Compressor;
+import java.io.InputStream;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A {@link Framer} that holds back the flushes of a {@link MessageFramer}, so that messages written
+ * in quick succession share frames and transport flushes. A flush is performed once {@code
+ * maxBytes} of messages are unflushed, or at the latest {@code maxDelayNanos} after the first flush
+ * that was held back, so every message is still sent within the delay.
+ *
+ * <p>Delayed flushes run on the scheduler, concurrently with the application thread, so unlike
+ * other framers this one is thread-safe.
+ */
+final class CoalescingFramer implements Framer {
+  private final MessageFramer delegate;
+  private final long maxDelayNanos;
+  private final int maxBytes;
+  private final ScheduledExecutorService scheduler;
+  private final Runnable delayedFlush = new Runnable() {
+    @Override
+    public void run() {
+      delayedFlush();
+    }
+  };
+
+  @GuardedBy("this")
+  private ScheduledFuture<?> pendingFlush;
+
+  CoalescingFramer(
+      MessageFramer delegate, long maxDelayNanos, int maxBytes,
+      ScheduledExecutorService scheduler) {
+    checkArgument(maxDelayNanos > 0, "maxDelayNanos must be positive");
+    checkArgument(maxBytes > 0, "maxBytes must be positive");
+    this.delegate = checkNotNull(delegate, "delegate");
+    this.maxDelayNanos = maxDelayNanos;
+    this.maxBytes = maxBytes;
+    this.scheduler = checkNotNull(scheduler, "scheduler");
+  }
+
+  @Override
+  public synchronized void writePayload(InputStream message) {
+    delegate.writePayload(message);
+  }
+
+  @Override
+  public synchronized void flush() {
+    long unflushedBytes = delegate.getUnflushedBytes();
+    if (unflushedBytes >= maxBytes) {
+      cancelPendingFlush();
+      delegate.flush();
+    } else if (unflushedBytes > 0 && pendingFlush == null) {
+      pendingFlush = scheduler.schedule(delayedFlush, maxDelayNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private synchronized void delayedFlush() {
+    // A flush that was cancelled too late may still run, which only sends the messages early.
+    pendingFlush = null;
+    if (!delegate.isClosed()) {
+      delegate.flush();
+    }
+  }
+
+  @Override
+  public synchronized boolean isClosed() {
+    return delegate.isClosed();
+  }
+
+  @Override
+  public synchronized void close() {
+    cancelPendingFlush();
+    delegate.close();
+  }
+
+  @Override
+  public synchronized void dispose() {
+    cancelPendingFlush();
+    delegate.dispose();
+  }
+
+  @Override
+  public synchronized Framer setMessageCompression(boolean enable) {
+    delegate.setMessageCompression(enable);
+    return this;
+  }
+
+  @Override
+  public synchronized Framer setCompressor(Compressor compressor) {
+    delegate.setCompressor(compressor);
+    return this;
+  }
+
+  @Override
+  public synchronized void setMaxOutboundMessageSize(int maxSize) {
+    delegate.setMaxOutboundMessageSize(maxSize);
+  }
+
+  /**
+   * Cancels the delayed flush, if any, without flushing. Called when the stream is cancelled, as
+   * the held-back messages won't be sent anymore.
+   */
+  synchronized void cancelPendingFlush() {
+    if (pendingFlush != null) {
+      pendingFlush.cancel(false);
+      pendingFlush = null;
+    }
+  }
+}
@@ -152,6 +152,30 @@ public class CompositeReadableBuffer extends AbstractReadableBuffer {
     return newBuffer;
   }
 
+  @Override
+  public boolean byteBufferSupported() {
+    for (ReadableBuffer buffer : buffers) {
+      if (!buffer.byteBufferSupported()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the content of the first non-empty component buffer, which may hold fewer bytes than
+   * {@link #readableBytes}.
+   */
+  @Override
+  public ByteBuffer getByteBuffer() {
+    for (ReadableBuffer buffer : buffers) {
+      if (buffer.readableBytes() > 0) {
+        return buffer.getByteBuffer();
+      }
+    }
+    return null;
+  }
+
   @Override
   public void close() {
     while (!buffers.isEmpty()) {
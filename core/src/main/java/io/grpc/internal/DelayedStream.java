@@ -28,6 +28,7 @@ import io.grpc.Status;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
 import javax.annotation.concurrent.GuardedBy;
 
 /**
@@ -83,6 +84,21 @@ class DelayedStream implements ClientStream {
     }
   }
 
+  @Override
+  public void setFlushCoalescing(
+      final long maxDelayNanos, final int maxBytes, final ScheduledExecutorService scheduler) {
+    if (passThrough) {
+      realStream.setFlushCoalescing(maxDelayNanos, maxBytes, scheduler);
+    } else {
+      delayOrExecute(new Runnable() {
+        @Override
+        public void run() {
+          realStream.setFlushCoalescing(maxDelayNanos, maxBytes, scheduler);
+        }
+      });
+    }
+  }
+
   /**
    * Transfers all pending and future requests and mutations to the given stream.
    *
@@ -20,6 +20,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
 import com.google.common.base.Verify;
 import io.grpc.Attributes;
 import io.grpc.EquivalentAddressGroup;
@@ -39,6 +40,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -74,6 +76,16 @@ final class DnsNameResolver extends NameResolver {
   @VisibleForTesting
   static boolean enableJndi = Boolean.parseBoolean(JNDI_PROPERTY);
 
+  private static final String CACHING_PROPERTY =
+      System.getProperty("io.grpc.internal.DnsNameResolverProvider.enable_caching", "false");
+
+  @VisibleForTesting
+  static boolean enableCaching = Boolean.parseBoolean(CACHING_PROPERTY);
+
+  /** Shared by all resolvers in the process. Access through {@link #getCachingResolver}. */
+  @GuardedBy("DnsNameResolver.class")
+  private static CachingDnsResolver cachingResolver;
+
 
   @VisibleForTesting
   final ProxyDetector proxyDetector;
@@ -249,7 +261,14 @@ final class DnsNameResolver extends NameResolver {
     return port;
   }
 
-  private DelegateResolver pickDelegateResolver() {
+  private static DelegateResolver pickDelegateResolver() {
+    if (enableCaching) {
+      return getCachingResolver();
+    }
+    return newDelegateResolver();
+  }
+
+  private static DelegateResolver newDelegateResolver() {
     JdkResolver jdkResolver = new JdkResolver();
     if (JNDI_AVAILABLE && enableJndi) {
       return new CompositeResolver(jdkResolver, new JndiResolver());
@@ -257,6 +276,17 @@ final class DnsNameResolver extends NameResolver {
     return jdkResolver;
   }
 
+  private static synchronized DelegateResolver getCachingResolver() {
+    if (cachingResolver == null) {
+      cachingResolver = new CachingDnsResolver(
+          newDelegateResolver(),
+          Executors.newCachedThreadPool(GrpcUtil.getThreadFactory("grpc-dns-refresh-%d", true)),
+          Ticker.systemTicker(),
+          CachingDnsResolver.getConfiguredTtlNanos());
+    }
+    return cachingResolver;
+  }
+
   /**
    * Forces the resolver.  This should only be used by testing code.
    */
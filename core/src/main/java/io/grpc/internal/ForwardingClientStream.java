@@ -21,6 +21,7 @@ import io.grpc.Compressor;
 import io.grpc.DecompressorRegistry;
 import io.grpc.Status;
 import java.io.InputStream;
+import java.util.concurrent.ScheduledExecutorService;
 
 abstract class ForwardingClientStream implements ClientStream {
   protected abstract ClientStream delegate();
@@ -95,6 +96,12 @@ abstract class ForwardingClientStream implements ClientStream {
     delegate().setMaxOutboundMessageSize(maxSize);
   }
 
+  @Override
+  public void setFlushCoalescing(
+      long maxDelayNanos, int maxBytes, ScheduledExecutorService scheduler) {
+    delegate().setFlushCoalescing(maxDelayNanos, maxBytes, scheduler);
+  }
+
   @Override
   public Attributes getAttributes() {
     return delegate().getAttributes();
@@ -95,6 +95,16 @@ public abstract class ForwardingReadableBuffer implements ReadableBuffer {
     return buf.arrayOffset();
   }
 
+  @Override
+  public boolean byteBufferSupported() {
+    return buf.byteBufferSupported();
+  }
+
+  @Override
+  public ByteBuffer getByteBuffer() {
+    return buf.getByteBuffer();
+  }
+
   @Override
   public void close() {
     buf.close();
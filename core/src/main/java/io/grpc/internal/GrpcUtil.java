@@ -57,6 +57,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
@@ -503,6 +504,95 @@ public final class GrpcUtil {
         }
       };
 
+  /**
+   * Shared executor for servers that run each call on a virtual thread. Virtual threads are looked
+   * up reflectively; on JDKs without them, or if they cannot be created, this falls back to a
+   * cached thread pool like {@link #SHARED_CHANNEL_EXECUTOR}.
+   */
+  public static final Resource<ExecutorService> SHARED_VIRTUAL_THREAD_EXECUTOR =
+      new Resource<ExecutorService>() {
+        private static final String NAME = "grpc-virtual-thread-executor";
+        private final AtomicBoolean fallbackLogged = new AtomicBoolean();
+
+        @Override
+        public ExecutorService create() {
+          try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+          } catch (Exception e) {
+            // Includes InvocationTargetException, e.g. when the JDK does not enable virtual
+            // threads, and runtime failures such as SecurityException.
+            if (fallbackLogged.compareAndSet(false, true)) {
+              Level level = e instanceof NoSuchMethodException ? Level.FINE : Level.WARNING;
+              log.log(level, "Virtual threads are not available, using a cached thread pool", e);
+            }
+            return Executors.newCachedThreadPool(getThreadFactory(NAME + "-%d", true));
+          }
+        }
+
+        @Override
+        public void close(ExecutorService instance) {
+          instance.shutdown();
+        }
+
+        @Override
+        public String toString() {
+          return NAME;
+        }
+      };
+
+  /**
+   * Shared work-stealing executor for servers, with one worker per available processor. Each
+   * call's serialized callbacks run as a single task, and tasks submitted from a worker are queued
+   * on that worker first. {@code ForkJoinPool} is looked up reflectively because it is not
+   * available in Java 1.6; if it is missing, this falls back to a fixed thread pool of the same
+   * size.
+   */
+  public static final Resource<ExecutorService> SHARED_WORK_STEALING_EXECUTOR =
+      new Resource<ExecutorService>() {
+        private static final String NAME = "grpc-work-stealing-executor";
+        @Override
+        public ExecutorService create() {
+          int parallelism = Runtime.getRuntime().availableProcessors();
+          try {
+            Class<?> poolClass = Class.forName("java.util.concurrent.ForkJoinPool");
+            Class<?> factoryClass =
+                Class.forName("java.util.concurrent.ForkJoinPool$ForkJoinWorkerThreadFactory");
+            Object factory = poolClass.getField("defaultForkJoinWorkerThreadFactory").get(null);
+            return (ExecutorService) poolClass
+                .getConstructor(
+                    int.class, factoryClass, Thread.UncaughtExceptionHandler.class, boolean.class)
+                .newInstance(parallelism, factory, null, true /* asyncMode */);
+          } catch (ClassNotFoundException e) {
+            return Executors.newFixedThreadPool(
+                parallelism, getThreadFactory(NAME + "-%d", true));
+          } catch (RuntimeException e) {
+            throw e;
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+        }
+
+        @Override
+        public void close(ExecutorService instance) {
+          instance.shutdown();
+        }
+
+        @Override
+        public String toString() {
+          return NAME;
+        }
+      };
+
+  /**
+   * Whether {@link #TIMER_SERVICE} is backed by a {@link HashedWheelTimer} instead of a
+   * {@link java.util.concurrent.ScheduledThreadPoolExecutor}. The wheel schedules and cancels in
+   * constant time, which helps when there are very many concurrent deadlines, at the cost of up to
+   * a millisecond of timer imprecision.
+   */
+  private static final boolean ENABLE_HASHED_WHEEL_TIMER = Boolean.parseBoolean(
+      System.getProperty("io.grpc.internal.GrpcUtil.enable_hashed_wheel_timer"));
+
   /**
    * Shared single-threaded executor for managing channel timers.
    */
@@ -510,6 +600,9 @@ public final class GrpcUtil {
       new Resource<ScheduledExecutorService>() {
         @Override
         public ScheduledExecutorService create() {
+          if (ENABLE_HASHED_WHEEL_TIMER) {
+            return new HashedWheelTimer(getThreadFactory("grpc-timer-%d", true));
+          }
           // We don't use newSingleThreadScheduledExecutor because it doesn't return a
           // ScheduledThreadPoolExecutor.
           ScheduledExecutorService service = Executors.newScheduledThreadPool(
@@ -0,0 +1,400 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link ScheduledExecutorService} backed by a hashed timing wheel.
+ *
+ * <p>Scheduling and cancelling only enqueue onto lock-free queues, so they are O(1) and do not
+ * contend on a lock the way {@link java.util.concurrent.ScheduledThreadPoolExecutor}'s heap does.
+ * A single thread moves the queued timeouts into the wheel, removes cancelled ones and runs the
+ * expired ones. Tasks never run early, but may run up to one tick late, and they all run on the
+ * timer thread, so they must be short. Tasks that have not run yet are cancelled on {@link
+ * #shutdown}.
+ */
+final class HashedWheelTimer extends AbstractExecutorService implements ScheduledExecutorService {
+  private static final Logger logger = Logger.getLogger(HashedWheelTimer.class.getName());
+
+  static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  static final int DEFAULT_WHEEL_SIZE = 1024;
+
+  private final long tickNanos;
+  private final int mask;
+  private final Bucket[] wheel;
+  private final long startNanos = System.nanoTime();
+  private final Queue<Timeout<?>> pendingTimeouts = new ConcurrentLinkedQueue<Timeout<?>>();
+  private final Queue<Timeout<?>> cancelledTimeouts = new ConcurrentLinkedQueue<Timeout<?>>();
+  private final CountDownLatch terminated = new CountDownLatch(1);
+  private final Thread workerThread;
+  /** When the sleeping worker will wake up, or {@code Long.MAX_VALUE} if it sleeps until woken. */
+  private volatile long workerWakeUpNanos;
+  private volatile boolean workerSleeping;
+  private volatile boolean shutdown;
+  // Only accessed by the worker thread.
+  private final List<Timeout<?>> unprocessedTimeouts = new ArrayList<Timeout<?>>();
+
+  HashedWheelTimer(ThreadFactory threadFactory) {
+    this(threadFactory, DEFAULT_TICK_NANOS, DEFAULT_WHEEL_SIZE);
+  }
+
+  HashedWheelTimer(ThreadFactory threadFactory, long tickNanos, int wheelSize) {
+    checkArgument(tickNanos > 0, "tickNanos must be positive");
+    checkArgument(Integer.bitCount(wheelSize) == 1, "wheelSize must be a power of two");
+    this.tickNanos = tickNanos;
+    this.mask = wheelSize - 1;
+    this.wheel = new Bucket[wheelSize];
+    for (int i = 0; i < wheelSize; i++) {
+      wheel[i] = new Bucket();
+    }
+    workerThread = threadFactory.newThread(new Worker());
+    workerThread.start();
+  }
+
+  @Override
+  public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+    return add(
+        new Timeout<Void>(Executors.<Void>callable(command, null), deadline(delay, unit), 0));
+  }
+
+  @Override
+  public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+    return add(new Timeout<V>(checkNotNull(callable, "callable"), deadline(delay, unit), 0));
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleAtFixedRate(
+      Runnable command, long initialDelay, long period, TimeUnit unit) {
+    checkArgument(period > 0, "period must be positive");
+    return add(new Timeout<Void>(
+        Executors.<Void>callable(command, null), deadline(initialDelay, unit),
+        unit.toNanos(period)));
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleWithFixedDelay(
+      Runnable command, long initialDelay, long delay, TimeUnit unit) {
+    checkArgument(delay > 0, "delay must be positive");
+    // Like ScheduledThreadPoolExecutor, a negative period means a fixed delay.
+    return add(new Timeout<Void>(
+        Executors.<Void>callable(command, null), deadline(initialDelay, unit),
+        -unit.toNanos(delay)));
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    schedule(command, 0, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void shutdown() {
+    shutdown = true;
+    LockSupport.unpark(workerThread);
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    shutdown();
+    try {
+      awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    List<Runnable> tasks = new ArrayList<Runnable>(unprocessedTimeouts);
+    unprocessedTimeouts.clear();
+    return tasks;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return terminated.getCount() == 0;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return terminated.await(timeout, unit);
+  }
+
+  private static long deadline(long delay, TimeUnit unit) {
+    return System.nanoTime() + unit.toNanos(Math.max(delay, 0));
+  }
+
+  private <V> Timeout<V> add(Timeout<V> timeout) {
+    if (shutdown) {
+      throw new RejectedExecutionException("Timer has been shut down");
+    }
+    pendingTimeouts.add(timeout);
+    if (workerSleeping) {
+      long wakeUpNanos = workerWakeUpNanos;
+      if (wakeUpNanos == Long.MAX_VALUE || timeout.deadlineNanos - wakeUpNanos < 0) {
+        LockSupport.unpark(workerThread);
+      }
+    }
+    return timeout;
+  }
+
+  /** The first tick at which {@code deadlineNanos} has passed. */
+  private long tickOf(long deadlineNanos) {
+    long elapsed = Math.max(deadlineNanos - startNanos, 0);
+    return (elapsed + tickNanos - 1) / tickNanos;
+  }
+
+  private final class Worker implements Runnable {
+    /** All ticks up to and including this one have been expired. */
+    private long processedTick;
+    private int timeoutsInWheel;
+
+    @Override
+    public void run() {
+      try {
+        while (!shutdown) {
+          long currentTick = (System.nanoTime() - startNanos) / tickNanos;
+          removeCancelledTimeouts();
+          expireTimeouts(currentTick);
+          transferPendingTimeouts();
+          sleep();
+        }
+      } finally {
+        collectUnprocessedTimeouts();
+        terminated.countDown();
+      }
+    }
+
+    private void removeCancelledTimeouts() {
+      Timeout<?> timeout;
+      while ((timeout = cancelledTimeouts.poll()) != null) {
+        if (timeout.bucket != null) {
+          timeout.bucket.remove(timeout);
+          timeoutsInWheel--;
+        }
+      }
+    }
+
+    private void expireTimeouts(long currentTick) {
+      long ticks = Math.min(currentTick - processedTick, wheel.length);
+      for (long tick = processedTick + 1; tick <= processedTick + ticks; tick++) {
+        Bucket bucket = wheel[(int) tick & mask];
+        Timeout<?> timeout = bucket.head;
+        while (timeout != null) {
+          Timeout<?> next = timeout.next;
+          if (timeout.tick <= currentTick) {
+            bucket.remove(timeout);
+            timeoutsInWheel--;
+            runTimeout(timeout);
+          }
+          timeout = next;
+        }
+      }
+      processedTick = Math.max(processedTick, currentTick);
+    }
+
+    private void transferPendingTimeouts() {
+      Timeout<?> timeout;
+      while ((timeout = pendingTimeouts.poll()) != null) {
+        if (timeout.isCancelled()) {
+          continue;
+        }
+        long tick = tickOf(timeout.deadlineNanos);
+        if (tick <= processedTick) {
+          runTimeout(timeout);
+          continue;
+        }
+        timeout.tick = tick;
+        wheel[(int) tick & mask].add(timeout);
+        timeoutsInWheel++;
+      }
+    }
+
+    private void runTimeout(Timeout<?> timeout) {
+      try {
+        timeout.run();
+      } catch (Throwable t) {
+        // FutureTask captures the task's exceptions, so this is not expected.
+        logger.log(Level.SEVERE, "Timer task threw", t);
+      } finally {
+        // A task cancelled with cancel(true) interrupts the worker, which would otherwise keep
+        // parking for no time at all.
+        Thread.interrupted();
+      }
+    }
+
+    private void sleep() {
+      long wakeUpNanos = Long.MAX_VALUE;
+      if (timeoutsInWheel > 0) {
+        // Sleep until the next tick that has timeouts, but for no longer than a round.
+        long tick = processedTick + 1;
+        while (tick < processedTick + wheel.length && wheel[(int) tick & mask].head == null) {
+          tick++;
+        }
+        wakeUpNanos = startNanos + tick * tickNanos;
+      }
+      workerWakeUpNanos = wakeUpNanos;
+      workerSleeping = true;
+      // Pairs with the unpark in add(): either a new timeout is seen here, or add() sees that the
+      // worker is sleeping.
+      if (pendingTimeouts.isEmpty() && !shutdown) {
+        if (wakeUpNanos == Long.MAX_VALUE) {
+          LockSupport.park(this);
+        } else {
+          LockSupport.parkNanos(this, wakeUpNanos - System.nanoTime());
+        }
+      }
+      workerSleeping = false;
+    }
+
+    private void collectUnprocessedTimeouts() {
+      for (Bucket bucket : wheel) {
+        Timeout<?> timeout;
+        while ((timeout = bucket.head) != null) {
+          bucket.remove(timeout);
+          if (!timeout.isDone()) {
+            unprocessedTimeouts.add(timeout);
+          }
+        }
+      }
+      Timeout<?> timeout;
+      while ((timeout = pendingTimeouts.poll()) != null) {
+        if (!timeout.isDone()) {
+          unprocessedTimeouts.add(timeout);
+        }
+      }
+      for (Timeout<?> unprocessed : unprocessedTimeouts) {
+        unprocessed.cancelWithoutRemoval();
+      }
+      cancelledTimeouts.clear();
+    }
+  }
+
+  /** Timeouts hashed to the same slot of the wheel, only accessed by the worker thread. */
+  private static final class Bucket {
+    @Nullable
+    Timeout<?> head;
+
+    void add(Timeout<?> timeout) {
+      timeout.bucket = this;
+      timeout.next = head;
+      if (head != null) {
+        head.prev = timeout;
+      }
+      head = timeout;
+    }
+
+    void remove(Timeout<?> timeout) {
+      if (timeout.prev != null) {
+        timeout.prev.next = timeout.next;
+      } else {
+        head = timeout.next;
+      }
+      if (timeout.next != null) {
+        timeout.next.prev = timeout.prev;
+      }
+      timeout.bucket = null;
+      timeout.prev = null;
+      timeout.next = null;
+    }
+  }
+
+  private final class Timeout<V> extends FutureTask<V> implements ScheduledFuture<V> {
+    /**
+     * Zero for one-shot tasks, positive for a fixed rate and negative for a fixed delay.
+     */
+    private final long periodNanos;
+    private volatile long deadlineNanos;
+    // Only accessed by the worker thread.
+    long tick;
+    // Only accessed by the worker thread.
+    @Nullable
+    Bucket bucket;
+    // Only accessed by the worker thread.
+    @Nullable
+    Timeout<?> prev;
+    // Only accessed by the worker thread.
+    @Nullable
+    Timeout<?> next;
+
+    Timeout(Callable<V> callable, long deadlineNanos, long periodNanos) {
+      super(callable);
+      this.deadlineNanos = deadlineNanos;
+      this.periodNanos = periodNanos;
+    }
+
+    @Override
+    public void run() {
+      if (periodNanos == 0) {
+        super.run();
+      } else if (runAndReset() && !shutdown) {
+        deadlineNanos = periodNanos > 0
+            ? deadlineNanos + periodNanos : System.nanoTime() - periodNanos;
+        pendingTimeouts.add(this);
+      }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      boolean cancelled = super.cancel(mayInterruptIfRunning);
+      if (cancelled && !shutdown) {
+        cancelledTimeouts.add(this);
+      }
+      return cancelled;
+    }
+
+    void cancelWithoutRemoval() {
+      super.cancel(false);
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+      if (other == this) {
+        return 0;
+      }
+      long diff = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+      return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+    }
+  }
+}
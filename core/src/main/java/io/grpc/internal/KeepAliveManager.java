@@ -25,6 +25,7 @@ import io.grpc.Status;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages keepalive pings.
@@ -38,8 +39,18 @@ public class KeepAliveManager {
   private final Ticker ticker;
   private final KeepAlivePinger keepAlivePinger;
   private final boolean keepAliveDuringTransportIdle;
-  private State state = State.IDLE;
-  private long nextKeepaliveTime;
+  /**
+   * The earliest time a ping may be needed. Updated without holding the lock on every received
+   * frame. The scheduled tasks compare it with the value they were scheduled for to find out
+   * whether any data has been received in the meantime.
+   */
+  private final AtomicLong nextKeepaliveTime = new AtomicLong();
+  // Only written while holding the lock, but read without it by onDataReceived().
+  private volatile State state = State.IDLE;
+  /** The value of {@link #nextKeepaliveTime} when the pending ping task was scheduled. */
+  private long scheduledKeepaliveTime;
+  /** The value of {@link #nextKeepaliveTime} when the outstanding ping was sent. */
+  private long pingSentKeepaliveTime;
   private ScheduledFuture<?> shutdownFuture;
   private ScheduledFuture<?> pingFuture;
   private final Runnable shutdown = new LogExceptionRunnable(new Runnable() {
@@ -47,11 +58,17 @@ public class KeepAliveManager {
     public void run() {
       boolean shouldShutdown = false;
       synchronized (KeepAliveManager.this) {
-        if (state != State.DISCONNECTED) {
-          // We haven't received a ping response within the timeout. The connection is likely gone
-          // already. Shutdown the transport and fail all existing rpcs.
-          state = State.DISCONNECTED;
-          shouldShutdown = true;
+        if (state == State.PING_SENT || state == State.IDLE_AND_PING_SENT) {
+          if (nextKeepaliveTime.get() != pingSentKeepaliveTime) {
+            // Data arrived after the ping was sent, but was recorded too late for
+            // onDataReceived() to notice the outstanding ping. It is as good as a ping response.
+            onPingAckedLocked();
+          } else {
+            // We haven't received a ping response within the timeout. The connection is likely
+            // gone already. Shutdown the transport and fail all existing rpcs.
+            state = State.DISCONNECTED;
+            shouldShutdown = true;
+          }
         }
       }
       if (shouldShutdown) {
@@ -62,22 +79,23 @@ public class KeepAliveManager {
   private final Runnable sendPing = new LogExceptionRunnable(new Runnable() {
     @Override
     public void run() {
-      pingFuture = null;
       boolean shouldSendPing = false;
       synchronized (KeepAliveManager.this) {
+        pingFuture = null;
         if (state == State.PING_SCHEDULED) {
-          shouldSendPing = true;
-          state = State.PING_SENT;
-          // Schedule a shutdown. It fires if we don't receive the ping response within the timeout.
-          shutdownFuture = scheduler.schedule(shutdown, keepAliveTimeoutInNanos,
-              TimeUnit.NANOSECONDS);
-        } else if (state == State.PING_DELAYED) {
-          // We have received some data. Reschedule the ping with the new time.
-          pingFuture = scheduler.schedule(
-              sendPing,
-              nextKeepaliveTime - ticker.read(),
-              TimeUnit.NANOSECONDS);
-          state = State.PING_SCHEDULED;
+          long keepaliveTime = nextKeepaliveTime.get();
+          if (keepaliveTime != scheduledKeepaliveTime && keepaliveTime - ticker.read() > 0) {
+            // We have received some data. Reschedule the ping with the new time.
+            schedulePingLocked();
+          } else {
+            shouldSendPing = true;
+            state = State.PING_SENT;
+            pingSentKeepaliveTime = keepaliveTime;
+            // Schedule a shutdown. It fires if we don't receive the ping response within the
+            // timeout.
+            shutdownFuture = scheduler.schedule(shutdown, keepAliveTimeoutInNanos,
+                TimeUnit.NANOSECONDS);
+          }
         }
       }
       if (shouldSendPing) {
@@ -97,14 +115,10 @@ public class KeepAliveManager {
      */
     IDLE,
     /*
-     * We have scheduled a ping to be sent in the future. We may decide to delay it if we receive
-     * some data.
+     * We have scheduled a ping to be sent in the future. When the task runs it reschedules itself
+     * instead if some data has been received since.
      */
     PING_SCHEDULED,
-    /*
-     * We need to delay the scheduled keepalive ping.
-     */
-    PING_DELAYED,
     /*
      * The ping has been sent out. Waiting for a ping response.
      */
@@ -139,7 +153,7 @@ public class KeepAliveManager {
     this.keepAliveTimeInNanos = keepAliveTimeInNanos;
     this.keepAliveTimeoutInNanos = keepAliveTimeoutInNanos;
     this.keepAliveDuringTransportIdle = keepAliveDuringTransportIdle;
-    nextKeepaliveTime = ticker.read() + keepAliveTimeInNanos;
+    nextKeepaliveTime.set(ticker.read() + keepAliveTimeInNanos);
   }
 
   /** Start keepalive monitoring. */
@@ -151,32 +165,55 @@ public class KeepAliveManager {
 
   /**
    * Transport has received some data so that we can delay sending keepalives.
+   *
+   * <p>This is called for every received frame, so it does not take the lock unless a ping is
+   * outstanding. We do not cancel or reschedule the ping future here. This avoids constantly
+   * scheduling and cancellation in a busy transport. Instead, the scheduled ping task notices that
+   * {@code nextKeepaliveTime} has moved and reschedules itself. So we actually keep one sendPing
+   * task always in flight when there're active rpcs.
    */
-  public synchronized void onDataReceived() {
-    nextKeepaliveTime = ticker.read() + keepAliveTimeInNanos;
-    // We do not cancel the ping future here. This avoids constantly scheduling and cancellation in
-    // a busy transport. Instead, we update the status here and reschedule later. So we actually
-    // keep one sendPing task always in flight when there're active rpcs.
-    if (state == State.PING_SCHEDULED) {
-      state = State.PING_DELAYED;
-    } else if (state == State.PING_SENT || state == State.IDLE_AND_PING_SENT) {
-      // Ping acked or effectively ping acked. Cancel shutdown, and then if not idle,
-      // schedule a new keep-alive ping.
-      if (shutdownFuture != null) {
-        shutdownFuture.cancel(false);
-      }
-      if (state == State.IDLE_AND_PING_SENT) {
-        // not to schedule new pings until onTransportActive
-        state = State.IDLE;
-        return;
+  public void onDataReceived() {
+    // A lazySet is enough: at worst the ping task misses the latest frame and sends a ping that
+    // was not strictly needed.
+    nextKeepaliveTime.lazySet(ticker.read() + keepAliveTimeInNanos);
+    State state = this.state;
+    if (state == State.PING_SENT || state == State.IDLE_AND_PING_SENT) {
+      synchronized (this) {
+        if (this.state == State.PING_SENT || this.state == State.IDLE_AND_PING_SENT) {
+          onPingAckedLocked();
+        }
       }
-      // schedule a new ping
-      state = State.PING_SCHEDULED;
-      checkState(pingFuture == null, "There should be no outstanding pingFuture");
-      pingFuture = scheduler.schedule(sendPing, keepAliveTimeInNanos, TimeUnit.NANOSECONDS);
     }
   }
 
+  /**
+   * Ping acked or effectively ping acked. Cancel shutdown, and then if not idle, schedule a new
+   * keep-alive ping.
+   */
+  private void onPingAckedLocked() {
+    if (shutdownFuture != null) {
+      shutdownFuture.cancel(false);
+      shutdownFuture = null;
+    }
+    if (state == State.IDLE_AND_PING_SENT) {
+      // not to schedule new pings until onTransportActive
+      state = State.IDLE;
+      return;
+    }
+    // schedule a new ping
+    state = State.PING_SCHEDULED;
+    checkState(pingFuture == null, "There should be no outstanding pingFuture");
+    schedulePingLocked();
+  }
+
+  private void schedulePingLocked() {
+    scheduledKeepaliveTime = nextKeepaliveTime.get();
+    pingFuture = scheduler.schedule(
+        sendPing,
+        scheduledKeepaliveTime - ticker.read(),
+        TimeUnit.NANOSECONDS);
+  }
+
   /**
    * Transport has active streams. Start sending keepalives if necessary.
    */
@@ -186,10 +223,7 @@ public class KeepAliveManager {
       // quickly check whether the connection is still working.
       state = State.PING_SCHEDULED;
       if (pingFuture == null) {
-        pingFuture = scheduler.schedule(
-            sendPing,
-            nextKeepaliveTime - ticker.read(),
-            TimeUnit.NANOSECONDS);
+        schedulePingLocked();
       }
     } else if (state == State.IDLE_AND_PING_SENT) {
       state = State.PING_SENT;
@@ -203,7 +237,7 @@ public class KeepAliveManager {
     if (keepAliveDuringTransportIdle) {
       return;
     }
-    if (state == State.PING_SCHEDULED || state == State.PING_DELAYED) {
+    if (state == State.PING_SCHEDULED) {
       state = State.IDLE;
     }
     if (state == State.PING_SENT) {
@@ -17,18 +17,13 @@
 package io.grpc.internal;
 
 /**
- * A factory for creating {@link LongCounter} objects. The concrete implementation returned may
- * be platform dependent.
+ * A factory for creating {@link LongCounter} objects.
  */
 final class LongCounterFactory {
   /**
    * Creates a LongCounter.
    */
   public static LongCounter create() {
-    if (ReflectionLongAdderCounter.isAvailable()) {
-      return new ReflectionLongAdderCounter();
-    } else {
-      return new AtomicLongCounter();
-    }
+    return new StripedLongCounter();
   }
 }
@@ -55,6 +55,8 @@ import io.grpc.Status;
 import io.grpc.internal.Channelz.ChannelStats;
 import io.grpc.internal.ClientCallImpl.ClientTransportProvider;
 import io.grpc.internal.RetriableStream.ChannelBufferMeter;
+import io.grpc.internal.RetriableStream.HedgingPolicies;
+import io.grpc.internal.RetriableStream.HedgingPolicy;
 import io.grpc.internal.RetriableStream.RetryPolicies;
 import io.grpc.internal.RetriableStream.RetryPolicy;
 import io.grpc.internal.RetriableStream.Throttle;
@@ -216,6 +218,11 @@ final class ManagedChannelImpl extends ManagedChannel implements Instrumented<Ch
   private final long channelBufferLimit;
 
   private RetryPolicies retryPolicies;
+  private HedgingPolicies hedgingPolicies;
+  @Nullable
+  private final AdaptiveHedgingDelay adaptiveHedgingDelay;
+  @Nullable
+  private final AdaptiveThrottler throttler;
   // Temporary false flag that can skip the retry code path.
   private final boolean retryEnabled;
 
@@ -506,11 +513,35 @@ final class ManagedChannelImpl extends ManagedChannel implements Instrumented<Ch
         final Metadata headers,
         final Context context) {
       checkState(retryEnabled, "retry should be enabled");
-      RetryPolicy retryPolicy = retryPolicies == null ? DEFAULT : retryPolicies.get(method);
+      HedgingPolicy hedgingPolicy = hedgingPolicies == null ? null : hedgingPolicies.get(method);
+      // Hedging and retry are mutually exclusive for a method.
+      RetryPolicy retryPolicy = retryPolicies == null || hedgingPolicy != null
+          ? DEFAULT : retryPolicies.get(method);
+      if (hedgingPolicy != null && adaptiveHedgingDelay != null) {
+        hedgingPolicy = hedgingPolicy.withHedgingDelayNanos(adaptiveHedgingDelay.getDelayNanos(
+            method.getFullMethodName(), hedgingPolicy.hedgingDelayNanos()));
+      }
       return new RetriableStream<ReqT>(
           method, headers, channelBufferUsed, perRpcBufferLimit, channelBufferLimit,
           getCallExecutor(callOptions), transportFactory.getScheduledExecutorService(),
-          retryPolicy, throttle) {
+          retryPolicy, hedgingPolicy, throttle) {
+        @Override
+        void hedgedAttemptCommitted(long latencyNanos) {
+          if (adaptiveHedgingDelay != null) {
+            adaptiveHedgingDelay.record(method.getFullMethodName(), latencyNanos);
+          }
+        }
+
+        @Override
+        void originalAttemptCutOff(long elapsedNanos) {
+          // The slow original attempts are the ones outrun by hedges, so leaving them out would
+          // bias the percentile low. The time from the start of a hedge would be shorter than the
+          // latency of that hedge, so hedges are never recorded this way.
+          if (adaptiveHedgingDelay != null) {
+            adaptiveHedgingDelay.record(method.getFullMethodName(), elapsedNanos);
+          }
+        }
+
         @Override
         Status prestart() {
           return uncommittedRetriableStreamsRegistry.add(this);
@@ -587,6 +618,9 @@ final class ManagedChannelImpl extends ManagedChannel implements Instrumented<Ch
     this.channelBufferLimit = builder.retryBufferSize;
     this.perRpcBufferLimit = builder.perRpcBufferLimit;
     this.retryEnabled = !builder.retryDisabled;
+    this.adaptiveHedgingDelay = builder.hedgingDelayPercentile > 0
+        ? new AdaptiveHedgingDelay(builder.hedgingDelayPercentile) : null;
+    this.throttler = builder.throttlingK > 0 ? new AdaptiveThrottler(builder.throttlingK) : null;
 
     this.callTracerFactory = callTracerFactory;
     channelCallTracer = callTracerFactory.create();
@@ -766,9 +800,13 @@ final class ManagedChannelImpl extends ManagedChannel implements Instrumented<Ch
     @Override
     public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method,
         CallOptions callOptions) {
-      return new ClientCallImpl<ReqT, RespT>(
+      Executor callExecutor = getCallExecutor(callOptions);
+      if (throttler != null && !throttler.tryAcquire()) {
+        return AdaptiveThrottler.newRejectedCall(callExecutor);
+      }
+      ClientCall<ReqT, RespT> call = new ClientCallImpl<ReqT, RespT>(
               method,
-              getCallExecutor(callOptions),
+              callExecutor,
               callOptions,
               transportProvider,
               terminated ? null : transportFactory.getScheduledExecutorService(),
@@ -777,6 +815,7 @@ final class ManagedChannelImpl extends ManagedChannel implements Instrumented<Ch
           .setFullStreamDecompression(fullStreamDecompression)
           .setDecompressorRegistry(decompressorRegistry)
           .setCompressorRegistry(compressorRegistry);
+      return throttler != null ? throttler.track(call) : call;
     }
 
     @Override
@@ -1174,6 +1213,7 @@ final class ManagedChannelImpl extends ManagedChannel implements Instrumented<Ch
           try {
             if (retryEnabled) {
               retryPolicies = getRetryPolicies(config);
+              hedgingPolicies = getHedgingPolicies(config);
               throttle = getThrottle(config);
             }
           } catch (RuntimeException re) {
@@ -1239,6 +1279,11 @@ final class ManagedChannelImpl extends ManagedChannel implements Instrumented<Ch
         config.get(GrpcAttributes.NAME_RESOLVER_SERVICE_CONFIG), maxRetryAttempts);
   }
 
+  private HedgingPolicies getHedgingPolicies(Attributes config) {
+    return ServiceConfigUtil.getHedgingPolicies(
+        config.get(GrpcAttributes.NAME_RESOLVER_SERVICE_CONFIG), maxHedgedAttempts);
+  }
+
   @Nullable
   private static Throttle getThrottle(Attributes config) {
     return ServiceConfigUtil.getThrottlePolicy(
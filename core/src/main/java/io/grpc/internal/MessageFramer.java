@@ -21,6 +21,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Math.min;
 
+import com.google.common.annotations.VisibleForTesting;
 import io.grpc.Codec;
 import io.grpc.Compressor;
 import io.grpc.Drainable;
@@ -38,6 +39,11 @@ import javax.annotation.Nullable;
 /**
  * Encodes gRPC messages to be delivered via the transport layer which implements {@link
  * MessageFramer.Sink}.
+ *
+ * <p>Messages are appended to the current buffer until it is full or flushed, so back-to-back
+ * small messages share a buffer. Compressed messages and messages of unknown length are staged in
+ * a small scratch array while their length is unknown, and only need buffers of their own when
+ * they outgrow it.
  */
 public class MessageFramer implements Framer {
 
@@ -65,6 +71,9 @@ public class MessageFramer implements Framer {
   }
 
   private static final int HEADER_LENGTH = 5;
+  /** Serialized size up to which a message of unknown length is staged before being framed. */
+  @VisibleForTesting
+  static final int STAGING_SIZE = 1024;
   private static final byte UNCOMPRESSED = 0;
   private static final byte COMPRESSED = 1;
 
@@ -76,6 +85,8 @@ public class MessageFramer implements Framer {
   private boolean messageCompression = true;
   private final OutputStreamAdapter outputStreamAdapter = new OutputStreamAdapter();
   private final byte[] headerScratch = new byte[HEADER_LENGTH];
+  /** Allocated on the first message of unknown length. */
+  private byte[] stagingScratch;
   private final WritableBufferAllocator bufferAllocator;
   private final StatsTraceContext statsTraceCtx;
   // transportTracer is nullable until it is integrated with client transports
@@ -85,6 +96,8 @@ public class MessageFramer implements Framer {
   private int messagesBuffered;
   private int currentMessageSeqNo = -1;
   private long currentMessageWireSize;
+  /** Wire bytes of the messages written since the last flush. */
+  private long unflushedBytes;
 
   /**
    * Creates a {@code MessageFramer}.
@@ -156,6 +169,7 @@ public class MessageFramer implements Framer {
       String err = String.format("Message length inaccurate %s != %s", written, messageLength);
       throw Status.INTERNAL.withDescription(err).asRuntimeException();
     }
+    unflushedBytes += HEADER_LENGTH + currentMessageWireSize;
     statsTraceCtx.outboundUncompressedSize(written);
     statsTraceCtx.outboundWireSize(currentMessageWireSize);
     statsTraceCtx.outboundMessageSent(currentMessageSeqNo, currentMessageWireSize, written);
@@ -237,16 +251,29 @@ public class MessageFramer implements Framer {
     header.put(compressed ? COMPRESSED : UNCOMPRESSED);
     int messageLength = bufferChain.readableBytes();
     header.putInt(messageLength);
-    WritableBuffer writeableHeader = bufferAllocator.allocate(HEADER_LENGTH);
-    writeableHeader.write(headerScratch, 0, header.position());
-    if (messageLength == 0) {
-      // the payload had 0 length so make the header the current buffer.
-      buffer = writeableHeader;
+    currentMessageWireSize = messageLength;
+    if (bufferChain.bufferList.isEmpty()) {
+      // The message fit in the staging scratch, so it is framed like one of known length.
+      if (buffer == null) {
+        buffer = bufferAllocator.allocate(header.position() + messageLength);
+      }
+      writeRaw(headerScratch, 0, header.position());
+      writeRaw(stagingScratch, 0, messageLength);
       return;
     }
-    // Note that we are always delivering a small message to the transport here which
-    // may incur transport framing overhead as it may be sent separately to the contents
-    // of the GRPC frame.
+    // The header goes at the end of the current buffer if it fits.
+    WritableBuffer writeableHeader = buffer;
+    buffer = null;
+    if (writeableHeader == null || writeableHeader.writableBytes() < HEADER_LENGTH) {
+      if (writeableHeader != null) {
+        sink.deliverFrame(writeableHeader, false, false, messagesBuffered - 1);
+        messagesBuffered = 1;
+      }
+      writeableHeader = bufferAllocator.allocate(HEADER_LENGTH);
+    }
+    writeableHeader.write(headerScratch, 0, header.position());
+    // Note that the header may be delivered to the transport separately from the contents of the
+    // GRPC frame, which may incur transport framing overhead.
     // The final message may not be completely written because we do not flush the last buffer.
     // Do not report the last message as sent.
     sink.deliverFrame(writeableHeader, false, false, messagesBuffered - 1);
@@ -259,7 +286,6 @@ public class MessageFramer implements Framer {
     // Assign the current buffer to the last in the chain so it can be used
     // for future writes or written with end-of-stream=true on close.
     buffer = bufferList.get(bufferList.size() - 1);
-    currentMessageWireSize = messageLength;
   }
 
   private static int writeToOutputStream(InputStream message, OutputStream outputStream)
@@ -301,6 +327,14 @@ public class MessageFramer implements Framer {
     }
   }
 
+  /**
+   * Returns the number of wire bytes, headers included, of the messages written since the last
+   * flush. Some of them may have been delivered to the sink already, without a flush.
+   */
+  long getUnflushedBytes() {
+    return unflushedBytes;
+  }
+
   /**
    * Indicates whether or not this framer has been closed via a call to either
    * {@link #close()} or {@link #dispose()}.
@@ -349,6 +383,9 @@ public class MessageFramer implements Framer {
     buffer = null;
     sink.deliverFrame(buf, endOfStream, flush, messagesBuffered);
     messagesBuffered = 0;
+    if (flush) {
+      unflushedBytes = 0;
+    }
   }
 
   private void verifyNotClosed() {
@@ -382,8 +419,18 @@ public class MessageFramer implements Framer {
    */
   private final class BufferChainOutputStream extends OutputStream {
     private final List<WritableBuffer> bufferList = new ArrayList<WritableBuffer>();
+    private final byte[] staging;
+    /** Bytes in {@link #staging}, until the message outgrows it and moves to buffers. */
+    private int stagedBytes;
     private WritableBuffer current;
 
+    BufferChainOutputStream() {
+      if (stagingScratch == null) {
+        stagingScratch = new byte[STAGING_SIZE];
+      }
+      staging = stagingScratch;
+    }
+
     /**
      * This is slow, don't call it.  If you care about write overhead, use a BufferedOutputStream.
      * Better yet, you can use your own single byte buffer and call
@@ -391,6 +438,10 @@ public class MessageFramer implements Framer {
      */
     @Override
     public void write(int b) throws IOException {
+      if (current == null && stagedBytes < staging.length) {
+        staging[stagedBytes++] = (byte) b;
+        return;
+      }
       if (current != null && current.writableBytes() > 0) {
         current.write((byte)b);
         return;
@@ -402,9 +453,17 @@ public class MessageFramer implements Framer {
     @Override
     public void write(byte[] b, int off, int len) {
       if (current == null) {
-        // Request len bytes initially from the allocator, it may give us more.
-        current = bufferAllocator.allocate(len);
+        if (len <= staging.length - stagedBytes) {
+          System.arraycopy(b, off, staging, stagedBytes, len);
+          stagedBytes += len;
+          return;
+        }
+        // Request the bytes so far initially from the allocator, it may give us more.
+        current = bufferAllocator.allocate(stagedBytes + len);
         bufferList.add(current);
+        int staged = stagedBytes;
+        stagedBytes = 0;
+        write(staging, 0, staged);
       }
       while (len > 0) {
         int canWrite = Math.min(len, current.writableBytes());
@@ -423,7 +482,7 @@ public class MessageFramer implements Framer {
     }
 
     private int readableBytes() {
-      int readable = 0;
+      int readable = stagedBytes;
       for (WritableBuffer writableBuffer : bufferList) {
         readable += writableBuffer.readableBytes();
       }
@@ -21,6 +21,7 @@ import io.grpc.Compressor;
 import io.grpc.DecompressorRegistry;
 import io.grpc.Status;
 import java.io.InputStream;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * An implementation of {@link ClientStream} that silently does nothing for the operations.
@@ -78,4 +79,8 @@ public class NoopClientStream implements ClientStream {
 
   @Override
   public void setMaxOutboundMessageSize(int maxSize) {}
+
+  @Override
+  public void setFlushCoalescing(
+      long maxDelayNanos, int maxBytes, ScheduledExecutorService scheduler) {}
 }
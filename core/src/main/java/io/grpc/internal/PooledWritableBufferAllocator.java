@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * An allocator of heap {@link WritableBuffer}s whose arrays are reused once the buffers are
+ * {@link WritableBuffer#release released}, for transports that copy the content of a buffer
+ * before releasing it rather than handing the buffer to the wire.
+ *
+ * <p>Arrays are pooled by size class, powers of two from {@link #MIN_BUFFER} to {@link
+ * #MAX_BUFFER}, in a pool shared by all threads which is bounded in bytes for each class. Arrays
+ * are commonly released by a different thread than the one that allocated them, such as the writer
+ * of a transport, so there are no thread-local caches. This class is thread-safe.
+ */
+public final class PooledWritableBufferAllocator implements WritableBufferAllocator {
+  @VisibleForTesting
+  static final int MIN_BUFFER = 4096;
+  @VisibleForTesting
+  static final int MAX_BUFFER = 1024 * 1024;
+  private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_BUFFER);
+  private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_BUFFER) - MIN_SHIFT + 1;
+
+  private final int maxPooledBytesPerClass;
+  private final List<ConcurrentLinkedQueue<byte[]>> pools =
+      new ArrayList<ConcurrentLinkedQueue<byte[]>>(CLASSES);
+  /** Number of arrays in each pool, which a queue can't tell cheaply. */
+  private final AtomicIntegerArray poolCounts = new AtomicIntegerArray(CLASSES);
+
+  /**
+   * Creates an allocator whose pool keeps up to {@code maxPooledBytesPerClass} bytes of
+   * arrays of each size class, and at least one array of each.
+   */
+  public PooledWritableBufferAllocator(int maxPooledBytesPerClass) {
+    checkArgument(maxPooledBytesPerClass >= 0, "maxPooledBytesPerClass must be >= 0");
+    this.maxPooledBytesPerClass = maxPooledBytesPerClass;
+    for (int i = 0; i < CLASSES; i++) {
+      pools.add(new ConcurrentLinkedQueue<byte[]>());
+    }
+  }
+
+  /**
+   * Returns a buffer of at least {@code capacityHint} bytes, rounded up to a power of two between
+   * {@link #MIN_BUFFER} and {@link #MAX_BUFFER}. Larger messages are chunked over several buffers.
+   */
+  @Override
+  public Buffer allocate(int capacityHint) {
+    int sizeClass = sizeClass(capacityHint);
+    byte[] array = pools.get(sizeClass).poll();
+    if (array != null) {
+      poolCounts.decrementAndGet(sizeClass);
+    } else {
+      array = new byte[MIN_BUFFER << sizeClass];
+    }
+    return new Buffer(this, array);
+  }
+
+  private void recycle(byte[] array) {
+    int sizeClass = Integer.numberOfTrailingZeros(array.length) - MIN_SHIFT;
+    int maxCount = Math.max(1, maxPooledBytesPerClass / array.length);
+    if (poolCounts.incrementAndGet(sizeClass) <= maxCount) {
+      pools.get(sizeClass).offer(array);
+    } else {
+      poolCounts.decrementAndGet(sizeClass);
+    }
+  }
+
+  @VisibleForTesting
+  static int sizeClass(int capacityHint) {
+    if (capacityHint <= MIN_BUFFER) {
+      return 0;
+    }
+    if (capacityHint >= MAX_BUFFER) {
+      return CLASSES - 1;
+    }
+    return 32 - Integer.numberOfLeadingZeros(capacityHint - 1) - MIN_SHIFT;
+  }
+
+  /**
+   * A buffer backed by a pooled array. It must not be used once released, and the transport must
+   * not hold on to its {@link #array} after releasing it.
+   */
+  public static final class Buffer implements WritableBuffer {
+    private final PooledWritableBufferAllocator allocator;
+    private byte[] array;
+    private int size;
+
+    private Buffer(PooledWritableBufferAllocator allocator, byte[] array) {
+      this.allocator = allocator;
+      this.array = array;
+    }
+
+    @Override
+    public void write(byte[] src, int srcIndex, int length) {
+      System.arraycopy(src, srcIndex, array, size, length);
+      size += length;
+    }
+
+    @Override
+    public void write(byte b) {
+      array[size++] = b;
+    }
+
+    @Override
+    public int writableBytes() {
+      return array.length - size;
+    }
+
+    @Override
+    public int readableBytes() {
+      return size;
+    }
+
+    /**
+     * Returns the backing array, of which the first {@link #readableBytes} bytes are the content.
+     */
+    public byte[] array() {
+      return array;
+    }
+
+    @Override
+    public void release() {
+      if (array != null) {
+        allocator.recycle(array);
+        array = null;
+      }
+    }
+  }
+}
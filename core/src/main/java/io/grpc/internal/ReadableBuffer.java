@@ -20,6 +20,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import javax.annotation.Nullable;
 
 /**
  * Interface for an abstract byte buffer. Buffers are intended to be a read-only, except for the
@@ -123,6 +124,24 @@ public interface ReadableBuffer extends Closeable {
    */
   int arrayOffset();
 
+  /**
+   * Indicates whether or not {@link #getByteBuffer} is supported for this buffer.
+   */
+  boolean byteBufferSupported();
+
+  /**
+   * Gets a {@link ByteBuffer} that contains some of the bytes next to be read, or {@code null} if
+   * this buffer has been exhausted. How many bytes the returned buffer contains is implementation
+   * specific; it may be fewer than {@link #readableBytes}. The read position of this buffer is not
+   * changed. The returned buffer shares content with this buffer and must not be modified, nor used
+   * after this buffer is closed. This is an optional method, so callers should first check {@link
+   * #byteBufferSupported}.
+   *
+   * @throws UnsupportedOperationException the buffer does not support this method
+   */
+  @Nullable
+  ByteBuffer getByteBuffer();
+
   /**
    * Closes this buffer and releases any resources.
    */
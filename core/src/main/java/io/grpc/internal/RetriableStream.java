@@ -69,6 +69,8 @@ abstract class RetriableStream<ReqT> implements ClientStream {
   // Must not modify it.
   private final Metadata headers;
   private final RetryPolicy retryPolicy;
+  @Nullable
+  private final HedgingPolicy hedgingPolicy;
 
   /** Must be held when updating state, accessing state.buffer, or certain substream attributes. */
   private final Object lock = new Object();
@@ -96,11 +98,25 @@ abstract class RetriableStream<ReqT> implements ClientStream {
   private Future<?> scheduledRetry;
   private double nextBackoffIntervalInSeconds;
 
+  // Number of hedged attempts started or about to start, including the first one.
+  @GuardedBy("lock")
+  private int hedgingAttemptCount;
+  // Hedged attempts that are started or about to start, and not closed yet.
+  @GuardedBy("lock")
+  private int activeHedges;
+  // No more hedged attempts may start. Set on commit, throttling, or a negative pushback.
+  @GuardedBy("lock")
+  private boolean hedgingFrozen;
+  @GuardedBy("lock")
+  @Nullable
+  private Future<?> scheduledHedging;
+
   RetriableStream(
       MethodDescriptor<ReqT, ?> method, Metadata headers,
       ChannelBufferMeter channelBufferUsed, long perRpcBufferLimit, long channelBufferLimit,
       Executor callExecutor, ScheduledExecutorService scheduledExecutorService,
-      RetryPolicy retryPolicy, @Nullable Throttle throttle) {
+      RetryPolicy retryPolicy, @Nullable HedgingPolicy hedgingPolicy,
+      @Nullable Throttle throttle) {
     this.method = method;
     this.channelBufferUsed = channelBufferUsed;
     this.perRpcBufferLimit = perRpcBufferLimit;
@@ -110,6 +126,7 @@ abstract class RetriableStream<ReqT> implements ClientStream {
     this.headers = headers;
     this.retryPolicy = checkNotNull(retryPolicy, "retryPolicy");
     nextBackoffIntervalInSeconds = retryPolicy.initialBackoffInSeconds;
+    this.hedgingPolicy = hedgingPolicy;
     this.throttle = throttle;
   }
 
@@ -127,13 +144,27 @@ abstract class RetriableStream<ReqT> implements ClientStream {
       // subtract the share of this RPC from channelBufferUsed.
       channelBufferUsed.addAndGet(-perRpcBufferUsed);
 
+      hedgingFrozen = true;
+      final Future<?> savedScheduledHedging = scheduledHedging;
+      scheduledHedging = null;
+
       class CommitTask implements Runnable {
         @Override
         public void run() {
           // For hedging only, not needed for normal retry
-          // TODO(zdapeng): also cancel all the scheduled hedges.
+          if (savedScheduledHedging != null) {
+            savedScheduledHedging.cancel(false);
+          }
+          // A cancelled RPC commits to a substream that was never drained, and tells nothing about
+          // the latency of its attempts.
+          boolean attemptCommitted =
+              hedgingPolicy != null && savedDrainedSubstreams.contains(winningSubstream);
+          long nowNanos = attemptCommitted ? System.nanoTime() : 0;
           for (Substream substream : savedDrainedSubstreams) {
             if (substream != winningSubstream) {
+              if (attemptCommitted && substream.previousAttempts == 0) {
+                originalAttemptCutOff(nowNanos - substream.startNanos);
+              }
               substream.stream.cancel(CANCELLED_BECAUSE_COMMITTED);
             }
           }
@@ -162,6 +193,9 @@ abstract class RetriableStream<ReqT> implements ClientStream {
 
   private Substream createSubstream(int previousAttempts) {
     Substream sub = new Substream(previousAttempts);
+    if (hedgingPolicy != null) {
+      sub.startNanos = System.nanoTime();
+    }
     // one tracer per substream
     final ClientStreamTracer bufferSizeTracer = new BufferSizeTracer(sub);
     ClientStreamTracer.Factory tracerFactory = new ClientStreamTracer.Factory() {
@@ -277,10 +311,70 @@ abstract class RetriableStream<ReqT> implements ClientStream {
       state.buffer.add(new StartEntry());
     }
 
+    if (hedgingPolicy != null) {
+      synchronized (lock) {
+        hedgingAttemptCount = 1;
+        activeHedges = 1;
+      }
+    }
+
     Substream substream = createSubstream(0);
     drain(substream);
 
-    // TODO(zdapeng): schedule hedging if needed
+    if (hedgingPolicy != null) {
+      synchronized (lock) {
+        // A non-fatal failure while draining may have already scheduled the next hedge.
+        if (scheduledHedging == null) {
+          scheduleHedgingLocked(hedgingPolicy.hedgingDelayNanos);
+        }
+      }
+    }
+  }
+
+  /**
+   * Schedules the next hedged attempt, replacing any one already scheduled, unless no more attempts
+   * may start.
+   */
+  @GuardedBy("lock")
+  private void scheduleHedgingLocked(long delayNanos) {
+    if (scheduledHedging != null) {
+      scheduledHedging.cancel(false);
+      scheduledHedging = null;
+    }
+    if (hedgingFrozen || hedgingAttemptCount >= hedgingPolicy.maxAttempts) {
+      return;
+    }
+    HedgingRunnable hedgingRunnable = new HedgingRunnable();
+    scheduledHedging = hedgingRunnable.future =
+        scheduledExecutorService.schedule(hedgingRunnable, delayNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private final class HedgingRunnable implements Runnable {
+    @GuardedBy("lock")
+    Future<?> future;
+
+    @Override
+    public void run() {
+      callExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          int previousAttempts;
+          synchronized (lock) {
+            if (scheduledHedging != future) {
+              // Cancelled or replaced after it started running.
+              return;
+            }
+            scheduledHedging = null;
+            previousAttempts = hedgingAttemptCount++;
+            activeHedges++;
+            scheduleHedgingLocked(hedgingPolicy.hedgingDelayNanos);
+          }
+          // hedge
+          Substream newSubstream = createSubstream(previousAttempts);
+          drain(newSubstream);
+        }
+      });
+    }
   }
 
   @Override
@@ -489,6 +583,19 @@ abstract class RetriableStream<ReqT> implements ClientStream {
     delayOrExecute(new MaxOutboundMessageSizeEntry());
   }
 
+  @Override
+  public final void setFlushCoalescing(
+      final long maxDelayNanos, final int maxBytes, final ScheduledExecutorService scheduler) {
+    class FlushCoalescingEntry implements BufferEntry {
+      @Override
+      public void runWith(Substream substream) {
+        substream.stream.setFlushCoalescing(maxDelayNanos, maxBytes, scheduler);
+      }
+    }
+
+    delayOrExecute(new FlushCoalescingEntry());
+  }
+
   @Override
   public final Attributes getAttributes() {
     if (state.winningSubstream != null) {
@@ -504,9 +611,18 @@ abstract class RetriableStream<ReqT> implements ClientStream {
     RetriableStream.random = random;
   }
 
-  boolean hasHedging() {
-    return false;
-  }
+  /**
+   * Called when a hedged RPC commits to the attempt that first received response headers, with the
+   * time from the start of that attempt.
+   */
+  void hedgedAttemptCommitted(long latencyNanos) {}
+
+  /**
+   * Called when a hedged RPC commits to a hedge while its original attempt is still outstanding,
+   * with the time from the start of the original attempt. This is a lower bound of the latency of
+   * the original attempt. Not called when the RPC is cancelled.
+   */
+  void originalAttemptCutOff(long elapsedNanos) {}
 
   private interface BufferEntry {
     /** Replays the buffer entry with the given stream. */
@@ -528,6 +644,9 @@ abstract class RetriableStream<ReqT> implements ClientStream {
         if (throttle != null) {
           throttle.onSuccess();
         }
+        if (hedgingPolicy != null) {
+          hedgedAttemptCommitted(System.nanoTime() - substream.startNanos);
+        }
       }
     }
 
@@ -552,7 +671,11 @@ abstract class RetriableStream<ReqT> implements ClientStream {
         return;
       }
 
-      if (state.winningSubstream == null) {
+      if (state.winningSubstream == null && hedgingPolicy != null) {
+        if (!shouldCommitHedging(status, rpcProgress, trailers)) {
+          return;
+        }
+      } else if (state.winningSubstream == null) {
         if (rpcProgress == RpcProgress.REFUSED && !noMoreTransparentRetry) {
           // TODO(zdapeng): in hedging case noMoreTransparentRetry might need be synchronized.
           noMoreTransparentRetry = true;
@@ -568,8 +691,6 @@ abstract class RetriableStream<ReqT> implements ClientStream {
           return;
         } else if (rpcProgress == RpcProgress.DROPPED) {
           // For normal retry, nothing need be done here, will just commit.
-          // For hedging:
-          // TODO(zdapeng): cancel all scheduled hedges (TBD)
         } else {
           noMoreTransparentRetry = true;
           RetryPlan retryPlan = makeRetryDecision(retryPolicy, status, trailers);
@@ -598,15 +719,44 @@ abstract class RetriableStream<ReqT> implements ClientStream {
         }
       }
 
-      if (!hasHedging()) {
-        commitAndRun(substream);
-        if (state.winningSubstream == substream) {
-          masterListener.closed(status, trailers);
-        }
+      commitAndRun(substream);
+      if (state.winningSubstream == substream) {
+        masterListener.closed(status, trailers);
+      }
+    }
+
+    /**
+     * Handles a closed hedged attempt before commit. A fatal status commits right away. A non-fatal
+     * status starts the next hedged attempt without waiting for the hedging delay, and only commits
+     * once no other attempt is in flight and no more may start.
+     */
+    private boolean shouldCommitHedging(
+        Status status, RpcProgress rpcProgress, Metadata trailers) {
+      boolean isFatal = rpcProgress == RpcProgress.DROPPED
+          || !hedgingPolicy.nonFatalStatusCodes.contains(status.getCode());
+      Integer pushback = getPushbackMills(trailers);
+      boolean isThrottled = false;
+      if (throttle != null && (!isFatal || (pushback != null && pushback < 0))) {
+        isThrottled = !throttle.onQualifiedFailureThenCheckIsAboveThreshold();
       }
 
-      // TODO(zdapeng): in hedge case, if this is a fatal status, cancel all the other attempts, and
-      // close the masterListener.
+      synchronized (lock) {
+        activeHedges--;
+        if (isFatal) {
+          return true;
+        }
+        if (isThrottled || (pushback != null && pushback < 0)) {
+          hedgingFrozen = true;
+          if (scheduledHedging != null) {
+            scheduledHedging.cancel(false);
+            scheduledHedging = null;
+          }
+        } else {
+          scheduleHedgingLocked(
+              pushback == null ? 0 : TimeUnit.MILLISECONDS.toNanos(pushback));
+        }
+        return activeHedges == 0 && scheduledHedging == null;
+      }
     }
 
     /**
@@ -614,21 +764,12 @@ abstract class RetriableStream<ReqT> implements ClientStream {
      * long the backoff should be. The decision does not take the commitment status into account, so
      * caller should check it separately.
      */
-    // TODO(zdapeng): add HedgingPolicy as param
     private RetryPlan makeRetryDecision(RetryPolicy retryPolicy, Status status, Metadata trailer) {
       boolean shouldRetry = false;
       long backoffInMillis = 0L;
       boolean isRetryableStatusCode = retryPolicy.retryableStatusCodes.contains(status.getCode());
 
-      String pushbackStr = trailer.get(GRPC_RETRY_PUSHBACK_MS);
-      Integer pushback = null;
-      if (pushbackStr != null) {
-        try {
-          pushback = Integer.valueOf(pushbackStr);
-        } catch (NumberFormatException e) {
-          pushback = -1;
-        }
-      }
+      Integer pushback = getPushbackMills(trailer);
 
       boolean isThrottled = false;
       if (throttle != null) {
@@ -654,10 +795,24 @@ abstract class RetriableStream<ReqT> implements ClientStream {
       } // else no retry
 
       // TODO(zdapeng): transparent retry
-      // TODO(zdapeng): hedging
       return new RetryPlan(shouldRetry, backoffInMillis);
     }
 
+    /** Returns the server pushback, negative if it is malformed, or null if there is none. */
+    @Nullable
+    private Integer getPushbackMills(Metadata trailer) {
+      String pushbackStr = trailer.get(GRPC_RETRY_PUSHBACK_MS);
+      Integer pushback = null;
+      if (pushbackStr != null) {
+        try {
+          pushback = Integer.valueOf(pushbackStr);
+        } catch (NumberFormatException e) {
+          pushback = -1;
+        }
+      }
+      return pushback;
+    }
+
     @Override
     public void messagesAvailable(MessageProducer producer) {
       State savedState = state;
@@ -800,6 +955,9 @@ abstract class RetriableStream<ReqT> implements ClientStream {
 
     final int previousAttempts;
 
+    // Only set for hedged attempts.
+    long startNanos;
+
     Substream(int previousAttempts) {
       this.previousAttempts = previousAttempts;
     }
@@ -1030,9 +1188,62 @@ abstract class RetriableStream<ReqT> implements ClientStream {
     }
   }
 
+  interface HedgingPolicies {
+    /** Returns the hedging policy of the method, or {@code null} if it is not hedged. */
+    @Nullable
+    HedgingPolicy get(MethodDescriptor<?, ?> method);
+  }
+
+  @Immutable
+  static final class HedgingPolicy {
+    private final int maxAttempts;
+    private final long hedgingDelayNanos;
+    private final Collection<Status.Code> nonFatalStatusCodes;
+
+    HedgingPolicy(
+        int maxAttempts, long hedgingDelayNanos, Collection<Status.Code> nonFatalStatusCodes) {
+      checkArgument(maxAttempts >= 1, "maxAttempts");
+      this.maxAttempts = maxAttempts;
+      checkArgument(hedgingDelayNanos >= 0L, "hedgingDelayNanos");
+      this.hedgingDelayNanos = hedgingDelayNanos;
+      this.nonFatalStatusCodes = Collections.unmodifiableSet(
+          new HashSet<Status.Code>(checkNotNull(nonFatalStatusCodes, "nonFatalStatusCodes")));
+    }
+
+    long hedgingDelayNanos() {
+      return hedgingDelayNanos;
+    }
+
+    /** Returns a copy of this policy with a different hedging delay. */
+    HedgingPolicy withHedgingDelayNanos(long hedgingDelayNanos) {
+      if (hedgingDelayNanos == this.hedgingDelayNanos) {
+        return this;
+      }
+      return new HedgingPolicy(maxAttempts, hedgingDelayNanos, nonFatalStatusCodes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof HedgingPolicy)) {
+        return false;
+      }
+      HedgingPolicy that = (HedgingPolicy) o;
+      return maxAttempts == that.maxAttempts
+          && hedgingDelayNanos == that.hedgingDelayNanos
+          && Objects.equal(nonFatalStatusCodes, that.nonFatalStatusCodes);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(maxAttempts, hedgingDelayNanos, nonFatalStatusCodes);
+    }
+  }
+
   private static final class RetryPlan {
     final boolean shouldRetry;
-    // TODO(zdapeng) boolean hasHedging
     final long backoffInMillis;
 
     RetryPlan(boolean shouldRetry, long backoffInMillis) {
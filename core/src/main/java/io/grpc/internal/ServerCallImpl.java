@@ -37,6 +37,8 @@ import io.grpc.MethodDescriptor;
 import io.grpc.ServerCall;
 import io.grpc.Status;
 import java.io.InputStream;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -56,6 +58,7 @@ final class ServerCallImpl<ReqT, RespT> extends ServerCall<ReqT, RespT> {
   private final DecompressorRegistry decompressorRegistry;
   private final CompressorRegistry compressorRegistry;
   private CallTracer serverCallTracer;
+  private final ScheduledExecutorService scheduler;
 
   // state
   private volatile boolean cancelled;
@@ -67,7 +70,7 @@ final class ServerCallImpl<ReqT, RespT> extends ServerCall<ReqT, RespT> {
   ServerCallImpl(ServerStream stream, MethodDescriptor<ReqT, RespT> method,
       Metadata inboundHeaders, Context.CancellableContext context,
       DecompressorRegistry decompressorRegistry, CompressorRegistry compressorRegistry,
-      CallTracer serverCallTracer) {
+      CallTracer serverCallTracer, ScheduledExecutorService scheduler) {
     this.stream = stream;
     this.method = method;
     this.context = context;
@@ -75,6 +78,7 @@ final class ServerCallImpl<ReqT, RespT> extends ServerCall<ReqT, RespT> {
     this.decompressorRegistry = decompressorRegistry;
     this.compressorRegistry = compressorRegistry;
     this.serverCallTracer = serverCallTracer;
+    this.scheduler = scheduler;
     this.serverCallTracer.reportCallStarted();
   }
 
@@ -153,6 +157,16 @@ final class ServerCallImpl<ReqT, RespT> extends ServerCall<ReqT, RespT> {
     stream.setMessageCompression(enable);
   }
 
+  @Override
+  public void setFlushCoalescing(long maxDelay, TimeUnit unit, int maxBytes) {
+    checkArgument(maxDelay >= 0, "invalid maxDelay %s", maxDelay);
+    checkArgument(maxBytes > 0, "invalid maxBytes %s", maxBytes);
+    checkState(!messageSent, "sendMessage has been called");
+    if (maxDelay > 0 && !method.getType().serverSendsOneMessage()) {
+      stream.setFlushCoalescing(unit.toNanos(maxDelay), maxBytes, scheduler);
+    }
+  }
+
   @Override
   public void setCompression(String compressorName) {
     // Added here to give a better error message.
@@ -36,6 +36,7 @@ import io.grpc.DecompressorRegistry;
 import io.grpc.HandlerRegistry;
 import io.grpc.InternalServerInterceptors;
 import io.grpc.Metadata;
+import io.grpc.MethodDescriptor.MethodType;
 import io.grpc.ServerCall;
 import io.grpc.ServerCallHandler;
 import io.grpc.ServerInterceptor;
@@ -55,8 +56,10 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 
 /**
@@ -111,6 +114,8 @@ public final class ServerImpl extends io.grpc.Server implements Instrumented<Ser
 
   private final Channelz channelz;
   private final CallTracer serverCallTracer;
+  @Nullable
+  private final AdaptiveConcurrencyLimiter concurrencyLimiter;
 
   /**
    * Construct a server.
@@ -141,6 +146,10 @@ public final class ServerImpl extends io.grpc.Server implements Instrumented<Ser
     this.binlogProvider = builder.binlogProvider;
     this.channelz = builder.channelz;
     this.serverCallTracer = builder.callTracerFactory.create();
+    this.concurrencyLimiter = builder.maxConcurrencyLimit > 0
+        ? new AdaptiveConcurrencyLimiter(
+            builder.initialConcurrencyLimit, builder.maxConcurrencyLimit)
+        : null;
 
     channelz.addServer(this);
   }
@@ -425,6 +434,16 @@ public final class ServerImpl extends io.grpc.Server implements Instrumented<Ser
         stream.setDecompressor(decompressor);
       }
 
+      // Shed load here, before any work is queued on the executor.
+      if (concurrencyLimiter != null && !concurrencyLimiter.tryAcquire()) {
+        // The transport closes the listener once the stream completes, so it needs one.
+        stream.setListener(NOOP_LISTENER);
+        stream.close(
+            Status.RESOURCE_EXHAUSTED.withDescription("Server concurrency limit reached"),
+            new Metadata());
+        return;
+      }
+
       final StatsTraceContext statsTraceCtx = Preconditions.checkNotNull(
           stream.statsTraceContext(), "statsTraceCtx not present from stream");
 
@@ -441,7 +460,14 @@ public final class ServerImpl extends io.grpc.Server implements Instrumented<Ser
       final JumpToApplicationThreadServerStreamListener jumpListener
           = new JumpToApplicationThreadServerStreamListener(
               wrappedExecutor, executor, stream, context);
-      stream.setListener(jumpListener);
+      final ConcurrencyLimitedListener limitedListener;
+      if (concurrencyLimiter != null) {
+        limitedListener = new ConcurrencyLimitedListener(jumpListener, concurrencyLimiter);
+        stream.setListener(limitedListener);
+      } else {
+        limitedListener = null;
+        stream.setListener(jumpListener);
+      }
       // Run in wrappedExecutor so jumpListener.setListener() is called before any callbacks
       // are delivered, including any errors. Callbacks can still be triggered, but they will be
       // queued.
@@ -472,6 +498,12 @@ public final class ServerImpl extends io.grpc.Server implements Instrumented<Ser
               context.cancel(null);
               return;
             }
+            if (limitedListener != null
+                && method.getMethodDescriptor().getType() != MethodType.UNARY) {
+              // A streaming call lasts as long as its peer wants, so holding a slot for it would
+              // tell nothing about the load of the server, and its latency would skew the limit.
+              limitedListener.releaseUnsampled();
+            }
             listener = startCall(stream, methodName, method, headers, context, statsTraceCtx);
           } catch (RuntimeException e) {
             stream.close(Status.fromThrowable(e), new Metadata());
@@ -552,7 +584,8 @@ public final class ServerImpl extends io.grpc.Server implements Instrumented<Ser
           context,
           decompressorRegistry,
           compressorRegistry,
-          serverCallTracer);
+          serverCallTracer,
+          transport.getScheduledExecutorService());
 
       ServerCall.Listener<WReqT> listener =
           methodDef.getServerCallHandler().startCall(call, headers);
@@ -575,6 +608,9 @@ public final class ServerImpl extends io.grpc.Server implements Instrumented<Ser
         = new ServerStats.Builder()
         .setListenSockets(transportServer.getListenSockets());
     serverCallTracer.updateBuilder(builder);
+    if (concurrencyLimiter != null) {
+      builder.setConcurrencyLimit(concurrencyLimiter.getLimit());
+    }
     SettableFuture<ServerStats> ret = SettableFuture.create();
     ret.set(builder.build());
     return ret;
@@ -612,6 +648,57 @@ public final class ServerImpl extends io.grpc.Server implements Instrumented<Ser
     public void onReady() {}
   }
 
+  /**
+   * Releases the stream's slot in the concurrency limiter once it closes, along with how long it
+   * took. Only unary calls keep their slot until then.
+   */
+  private static final class ConcurrencyLimitedListener implements ServerStreamListener {
+    private final ServerStreamListener delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final long startNanos = System.nanoTime();
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    ConcurrencyLimitedListener(
+        ServerStreamListener delegate, AdaptiveConcurrencyLimiter limiter) {
+      this.delegate = delegate;
+      this.limiter = limiter;
+    }
+
+    @Override
+    public void messagesAvailable(MessageProducer producer) {
+      delegate.messagesAvailable(producer);
+    }
+
+    @Override
+    public void halfClosed() {
+      delegate.halfClosed();
+    }
+
+    @Override
+    public void closed(Status status) {
+      if (released.compareAndSet(false, true)) {
+        if (status.isOk()) {
+          limiter.release(System.nanoTime() - startNanos);
+        } else {
+          limiter.release();
+        }
+      }
+      delegate.closed(status);
+    }
+
+    /** Releases the slot without a latency sample, before the stream closes. */
+    void releaseUnsampled() {
+      if (released.compareAndSet(false, true)) {
+        limiter.release();
+      }
+    }
+
+    @Override
+    public void onReady() {
+      delegate.onReady();
+    }
+  }
+
   /**
    * Dispatches callbacks onto an application-provided executor and correctly propagates
    * exceptions.
@@ -22,6 +22,8 @@ import static com.google.common.base.Preconditions.checkState;
 import com.google.common.base.Verify;
 import io.grpc.MethodDescriptor;
 import io.grpc.Status.Code;
+import io.grpc.internal.RetriableStream.HedgingPolicies;
+import io.grpc.internal.RetriableStream.HedgingPolicy;
 import io.grpc.internal.RetriableStream.RetryPolicies;
 import io.grpc.internal.RetriableStream.RetryPolicy;
 import io.grpc.internal.RetriableStream.Throttle;
@@ -37,6 +39,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
@@ -169,6 +172,100 @@ final class ServiceConfigUtil {
     };
   }
 
+  /**
+   * Gets hedging policies from the service config.
+   *
+   * @throws ClassCastException if the service config doesn't parse properly
+   */
+  static HedgingPolicies getHedgingPolicies(
+      @Nullable Map<String, Object> serviceConfig, int maxAttemptsLimit) {
+    final Map<String, HedgingPolicy> fullMethodNameMap = new HashMap<String, HedgingPolicy>();
+    final Map<String, HedgingPolicy> serviceNameMap = new HashMap<String, HedgingPolicy>();
+
+    if (serviceConfig != null) {
+
+      /* schema as follows
+      {
+        "methodConfig": [
+          {
+            "name": [
+              {
+                "service": string,
+                "method": string,         // Optional
+              }
+            ],
+            "hedgingPolicy": {
+              "maxAttempts": number,
+              "hedgingDelay": string,     // Optional, long decimal with "s" appended
+              "nonFatalStatusCodes": []   // Optional
+            }
+          }
+        ]
+      }
+      */
+
+      if (serviceConfig.containsKey("methodConfig")) {
+        List<Object> methodConfigs = getList(serviceConfig, "methodConfig");
+        for (int i = 0; i < methodConfigs.size(); i++) {
+          Map<String, Object> methodConfig = getObject(methodConfigs, i);
+          if (methodConfig.containsKey("hedgingPolicy")) {
+            Map<String, Object> hedgingPolicy = getObject(methodConfig, "hedgingPolicy");
+
+            int maxAttempts = getDouble(hedgingPolicy, "maxAttempts").intValue();
+            maxAttempts = Math.min(maxAttempts, maxAttemptsLimit);
+
+            long hedgingDelayNanos = 0;
+            if (hedgingPolicy.containsKey("hedgingDelay")) {
+              String hedgingDelayStr = getString(hedgingPolicy, "hedgingDelay");
+              checkState(
+                  hedgingDelayStr.charAt(hedgingDelayStr.length() - 1) == 's',
+                  "invalid value of hedgingDelay");
+              double hedgingDelay =
+                  Double.parseDouble(hedgingDelayStr.substring(0, hedgingDelayStr.length() - 1));
+              hedgingDelayNanos = (long) (hedgingDelay * TimeUnit.SECONDS.toNanos(1));
+            }
+
+            Set<Code> codeSet = new HashSet<Code>();
+            if (hedgingPolicy.containsKey("nonFatalStatusCodes")) {
+              List<Object> nonFatalStatusCodes = getList(hedgingPolicy, "nonFatalStatusCodes");
+              for (int j = 0; j < nonFatalStatusCodes.size(); j++) {
+                String code = getString(nonFatalStatusCodes, j);
+                codeSet.add(Code.valueOf(code));
+              }
+            }
+
+            HedgingPolicy pojoPolicy = new HedgingPolicy(maxAttempts, hedgingDelayNanos, codeSet);
+
+            List<Object> names = getList(methodConfig, "name");
+            for (int j = 0; j < names.size(); j++) {
+              Map<String, Object> name = getObject(names, j);
+              String service = getString(name, "service");
+              if (name.containsKey("method")) {
+                String method = getString(name, "method");
+                fullMethodNameMap.put(
+                    MethodDescriptor.generateFullMethodName(service, method), pojoPolicy);
+              } else {
+                serviceNameMap.put(service, pojoPolicy);
+              }
+            }
+          }
+        }
+      }
+    }
+
+    return new HedgingPolicies() {
+      @Override
+      public HedgingPolicy get(MethodDescriptor<?, ?> method) {
+        HedgingPolicy hedgingPolicy = fullMethodNameMap.get(method.getFullMethodName());
+        if (hedgingPolicy == null) {
+          hedgingPolicy = serviceNameMap
+              .get(MethodDescriptor.extractFullServiceName(method.getFullMethodName()));
+        }
+        return hedgingPolicy;
+      }
+    };
+  }
+
   @Nullable
   static Throttle getThrottlePolicy(@Nullable Map<String, Object> serviceConfig) {
     String retryThrottlingKey = "retryThrottling";
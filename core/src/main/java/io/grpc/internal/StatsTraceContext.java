@@ -38,6 +38,9 @@ import javax.annotation.concurrent.ThreadSafe;
  */
 @ThreadSafe
 public final class StatsTraceContext {
+  /**
+   * Shared by all streams that have no tracers, so that such streams don't allocate a context.
+   */
   public static final StatsTraceContext NOOP = new StatsTraceContext(new StreamTracer[0]);
 
   private final StreamTracer[] tracers;
@@ -142,6 +145,10 @@ public final class StatsTraceContext {
    * <p>Called from abstract stream implementations.
    */
   public void streamClosed(Status status) {
+    if (tracers.length == 0) {
+      // Most likely NOOP, whose flag would be contended by every stream for nothing.
+      return;
+    }
     if (closed.compareAndSet(false, true)) {
       for (StreamTracer tracer : tracers) {
         tracer.streamClosed(status);
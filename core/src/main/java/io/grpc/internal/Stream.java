@@ -18,6 +18,7 @@ package io.grpc.internal;
 
 import io.grpc.Compressor;
 import java.io.InputStream;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * A single stream of communication between two end-points within a transport.
@@ -80,4 +81,16 @@ public interface Stream {
    * but may not have any effect if compression is not enabled on the call.
    */
   void setMessageCompression(boolean enable);
+
+  /**
+   * Holds back flushes so that messages written in quick succession share frames. A flush is
+   * performed once {@code maxBytes} of messages are unflushed, or at the latest {@code
+   * maxDelayNanos} after it was requested, from {@code scheduler}. Must be called before any
+   * message is written. Streams that don't frame messages may ignore it.
+   *
+   * @param maxDelayNanos the longest a message may wait to be flushed, positive
+   * @param maxBytes the unflushed bytes that trigger a flush right away, positive
+   * @param scheduler runs the delayed flushes
+   */
+  void setFlushCoalescing(long maxDelayNanos, int maxBytes, ScheduledExecutorService scheduler);
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link LongCounter} that spreads updates from different threads over padded stripes, so that
+ * threads on different cores don't contend on, or falsely share, a cache line. Along with each
+ * update it can record a timestamp, of which only the latest is kept.
+ *
+ * <p>Updates go to a single slot until two threads collide on it, and only then are the stripes
+ * allocated. Reading sums the stripes, so it is meant for infrequent queries like channelz.
+ */
+final class StripedLongCounter implements LongCounter {
+  @VisibleForTesting
+  static final int STRIPES = stripes();
+  /** Returned by {@link #latestTimestamp} when no timestamp has been recorded. */
+  static final long NO_TIMESTAMP = 0;
+
+  private static final int COUNT = 0;
+  private static final int LATEST = 1;
+  /** Longs from one stripe to the next, so that two stripes don't share a cache line. */
+  private static final int STRIPE_LENGTH = 8;
+  private static final long UNSET = Long.MIN_VALUE;
+
+  private final AtomicLongArray base = newStripes(1);
+  private final AtomicReference<AtomicLongArray> stripes = new AtomicReference<AtomicLongArray>();
+
+  @Override
+  public void add(long delta) {
+    add(delta, UNSET);
+  }
+
+  /**
+   * Adds {@code delta} and records {@code timestamp}, which is kept if it is the latest so far.
+   */
+  void add(long delta, long timestamp) {
+    AtomicLongArray stripes = this.stripes.get();
+    if (stripes == null) {
+      long current = base.get(COUNT);
+      if (base.compareAndSet(COUNT, current, current + delta)) {
+        recordTimestamp(base, 0, timestamp);
+        return;
+      }
+      stripes = inflate();
+    }
+    int offset = ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_LENGTH;
+    stripes.addAndGet(offset + COUNT, delta);
+    recordTimestamp(stripes, offset, timestamp);
+  }
+
+  @Override
+  public long value() {
+    long value = base.get(COUNT);
+    AtomicLongArray stripes = this.stripes.get();
+    if (stripes != null) {
+      for (int offset = 0; offset < stripes.length(); offset += STRIPE_LENGTH) {
+        value += stripes.get(offset + COUNT);
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Returns the latest timestamp recorded by {@link #add(long, long)}, or {@link #NO_TIMESTAMP}.
+   */
+  long latestTimestamp() {
+    long latest = base.get(LATEST);
+    AtomicLongArray stripes = this.stripes.get();
+    if (stripes != null) {
+      for (int offset = 0; offset < stripes.length(); offset += STRIPE_LENGTH) {
+        latest = Math.max(latest, stripes.get(offset + LATEST));
+      }
+    }
+    return latest == UNSET ? NO_TIMESTAMP : latest;
+  }
+
+  private AtomicLongArray inflate() {
+    if (STRIPES == 1) {
+      // Nothing to spread over, keep contending on the single slot.
+      return base;
+    }
+    AtomicLongArray stripes = newStripes(STRIPES);
+    if (!this.stripes.compareAndSet(null, stripes)) {
+      stripes = this.stripes.get();
+    }
+    return stripes;
+  }
+
+  private static void recordTimestamp(AtomicLongArray array, int offset, long timestamp) {
+    // Threads sharing a stripe may race here and keep a slightly older timestamp, which is fine for
+    // stats. The lazy write is enough as readers are rare and only need to see it eventually.
+    if (timestamp > array.get(offset + LATEST)) {
+      array.lazySet(offset + LATEST, timestamp);
+    }
+  }
+
+  private static AtomicLongArray newStripes(int count) {
+    AtomicLongArray stripes = new AtomicLongArray(count * STRIPE_LENGTH);
+    for (int offset = 0; offset < stripes.length(); offset += STRIPE_LENGTH) {
+      stripes.set(offset + LATEST, UNSET);
+    }
+    return stripes;
+  }
+
+  private static int stripes() {
+    // A power of two, so that a thread's stripe is a mask of its id.
+    int processors = Runtime.getRuntime().availableProcessors();
+    return Math.min(64, Integer.highestOneBit(Math.max(1, processors - 1)) << 1);
+  }
+}
@@ -45,9 +45,9 @@ public final class TransportTracer {
 
   private long messagesSent;
   private long lastMessageSentTimeNanos;
-  // deframing happens on the application thread, and there's no easy way to avoid synchronization
-  private final LongCounter messagesReceived = LongCounterFactory.create();
-  private volatile long lastMessageReceivedTimeNanos;
+  // deframing happens on the application thread, and there's no easy way to avoid synchronization,
+  // so the receive time is recorded along with the count in a striped slot
+  private final StripedLongCounter messagesReceived = new StripedLongCounter();
 
   public TransportTracer() {
     this.timeProvider = SYSTEM_TIME_PROVIDER;
@@ -75,7 +75,7 @@ public final class TransportTracer {
         messagesReceived.value(),
         keepAlivesSent,
         lastMessageSentTimeNanos,
-        lastMessageReceivedTimeNanos,
+        messagesReceived.latestTimestamp(),
         localFlowControlWindow,
         remoteFlowControlWindow);
   }
@@ -122,8 +122,7 @@ public final class TransportTracer {
    * Reports that a message was successfully received. This method is thread safe.
    */
   public void reportMessageReceived() {
-    messagesReceived.add(1);
-    lastMessageReceivedTimeNanos = currentTimeNanos();
+    messagesReceived.add(1, currentTimeNanos());
   }
 
   /**
@@ -0,0 +1,504 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Context;
+import io.grpc.ExperimentalApi;
+import io.grpc.ForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor.MethodType;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.internal.SerializingExecutor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A {@link ServerInterceptor} that coalesces identical unary calls that are in flight at the same
+ * time, so that the handler runs once and its result is sent to every caller. Calls are identical
+ * when they are for the same method and their serialized requests are equal. Request headers are
+ * not compared.
+ *
+ * <p>Only use this for methods whose result depends on nothing but the request, such as reads
+ * that fill a cache. {@link #interceptMethods} opts in individual methods of a service. Calls that
+ * are not unary are never coalesced.
+ *
+ * <p>The response message is sent to each waiting call as is, so it must not be mutated once
+ * sent. If the first call is cancelled or its handler throws, the calls waiting for it fail with
+ * {@code UNAVAILABLE}, so that their clients may retry them.
+ */
+@ExperimentalApi
+public final class CoalescingServerInterceptor implements ServerInterceptor {
+  private static final Logger logger =
+      Logger.getLogger(CoalescingServerInterceptor.class.getName());
+
+  private final int maxWaiters;
+  private final ConcurrentMap<Key, InFlightCall> inFlight =
+      new ConcurrentHashMap<Key, InFlightCall>();
+
+  /**
+   * Creates an interceptor that lets at most {@code maxWaiters} calls wait for each call in
+   * flight. Further identical calls run the handler on their own.
+   */
+  public static CoalescingServerInterceptor create(int maxWaiters) {
+    return new CoalescingServerInterceptor(maxWaiters);
+  }
+
+  private CoalescingServerInterceptor(int maxWaiters) {
+    checkArgument(maxWaiters > 0, "maxWaiters must be positive");
+    this.maxWaiters = maxWaiters;
+  }
+
+  /**
+   * Returns a copy of {@code serviceDef} where calls to the named unary methods are coalesced by
+   * this interceptor. The other methods are left as they are.
+   *
+   * @param fullMethodNames the full names of the methods, e.g. {@code "package.Service/Method"}
+   * @throws IllegalArgumentException if a method is not in the service or is not unary
+   */
+  public ServerServiceDefinition interceptMethods(
+      ServerServiceDefinition serviceDef, String... fullMethodNames) {
+    Set<String> names = new HashSet<String>(Arrays.asList(fullMethodNames));
+    ServerServiceDefinition.Builder builder =
+        ServerServiceDefinition.builder(serviceDef.getServiceDescriptor());
+    for (ServerMethodDefinition<?, ?> method : serviceDef.getMethods()) {
+      String name = method.getMethodDescriptor().getFullMethodName();
+      if (names.remove(name)) {
+        checkArgument(method.getMethodDescriptor().getType() == MethodType.UNARY,
+            "%s is not a unary method", name);
+        builder.addMethod(wrapMethod(method));
+      } else {
+        builder.addMethod(method);
+      }
+    }
+    checkArgument(names.isEmpty(), "Methods not in service: %s", names);
+    return builder.build();
+  }
+
+  private <ReqT, RespT> ServerMethodDefinition<ReqT, RespT> wrapMethod(
+      ServerMethodDefinition<ReqT, RespT> method) {
+    final ServerCallHandler<ReqT, RespT> handler = method.getServerCallHandler();
+    return method.withServerCallHandler(new ServerCallHandler<ReqT, RespT>() {
+      @Override
+      public ServerCall.Listener<ReqT> startCall(ServerCall<ReqT, RespT> call, Metadata headers) {
+        return interceptCall(call, headers, handler);
+      }
+    });
+  }
+
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+    if (call.getMethodDescriptor().getType() != MethodType.UNARY) {
+      return next.startCall(call, headers);
+    }
+    CoalescingListener<ReqT, RespT> listener =
+        new CoalescingListener<ReqT, RespT>(call, headers, next);
+    // Request one more message than needed, so that the handler sees any extra request.
+    call.request(2);
+    return listener;
+  }
+
+  @VisibleForTesting
+  int inFlightCalls() {
+    return inFlight.size();
+  }
+
+  @VisibleForTesting
+  int waitingCalls() {
+    int waiting = 0;
+    for (InFlightCall inFlightCall : inFlight.values()) {
+      waiting += inFlightCall.waitingCalls();
+    }
+    return waiting;
+  }
+
+  private static Metadata copyOf(@Nullable Metadata metadata) {
+    Metadata copy = new Metadata();
+    if (metadata != null) {
+      copy.merge(metadata);
+    }
+    return copy;
+  }
+
+  /**
+   * Decides whether its call runs the handler or waits for an identical call. Until the request
+   * is half-closed, callbacks arrive on the call's thread. Once the call waits for another one, it
+   * may be completed from the other call's thread, so from then on all work is serialized.
+   */
+  private final class CoalescingListener<ReqT, RespT> extends ServerCall.Listener<ReqT> {
+    private final ServerCall<ReqT, RespT> call;
+    private final Metadata headers;
+    private final ServerCallHandler<ReqT, RespT> next;
+    private final Context context = Context.current();
+    private final SerializingExecutor serializer =
+        new SerializingExecutor(MoreExecutors.directExecutor());
+
+    @Nullable
+    private ReqT request;
+    private boolean hasRequest;
+    /** The call this one is running the handler for, if it leads. */
+    @Nullable
+    private InFlightCall leading;
+    /** The call this one is waiting for, if it follows. */
+    @Nullable
+    private InFlightCall following;
+    /** The handler's listener, once the handler has been started. */
+    @Nullable
+    private ServerCall.Listener<ReqT> delegate;
+    private boolean cancelled;
+
+    CoalescingListener(
+        ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+      this.call = call;
+      this.headers = headers;
+      this.next = next;
+    }
+
+    @Override
+    public void onMessage(ReqT message) {
+      if (delegate != null) {
+        delegate.onMessage(message);
+      } else if (!hasRequest) {
+        request = message;
+        hasRequest = true;
+      } else {
+        // Not a valid unary call; let the handler report it.
+        startHandler(call);
+        delegate.onMessage(message);
+      }
+    }
+
+    @Override
+    public void onHalfClose() {
+      if (delegate != null) {
+        delegate.onHalfClose();
+        return;
+      }
+      byte[] requestBytes = hasRequest ? serialize(request) : null;
+      if (requestBytes == null) {
+        startHandler(call);
+        delegate.onHalfClose();
+        return;
+      }
+      Key key = new Key(call.getMethodDescriptor().getFullMethodName(), requestBytes);
+      while (true) {
+        InFlightCall newCall = new InFlightCall(key);
+        InFlightCall existing = inFlight.putIfAbsent(key, newCall);
+        if (existing == null) {
+          lead(newCall);
+          return;
+        }
+        following = existing;
+        AddResult result = existing.addFollower(this);
+        if (result == AddResult.ADDED) {
+          return;
+        }
+        following = null;
+        if (result == AddResult.FULL) {
+          startHandler(call);
+          delegate.onHalfClose();
+          return;
+        }
+        // The call completed before this one could wait for it. Try again.
+      }
+    }
+
+    @Override
+    public void onCancel() {
+      runSerialized(new Runnable() {
+        @Override
+        public void run() {
+          cancelled = true;
+          if (following != null) {
+            following.removeFollower(CoalescingListener.this);
+          }
+          if (leading != null) {
+            leading.complete(null);
+          }
+          if (delegate != null) {
+            delegate.onCancel();
+          }
+        }
+      });
+    }
+
+    @Override
+    public void onComplete() {
+      runSerialized(new Runnable() {
+        @Override
+        public void run() {
+          if (delegate != null) {
+            delegate.onComplete();
+          }
+        }
+      });
+    }
+
+    @Override
+    public void onReady() {
+      runSerialized(new Runnable() {
+        @Override
+        public void run() {
+          if (delegate != null) {
+            delegate.onReady();
+          }
+        }
+      });
+    }
+
+    private void lead(InFlightCall inFlightCall) {
+      leading = inFlightCall;
+      try {
+        startHandler(new LeaderCall<ReqT, RespT>(call, inFlightCall));
+        delegate.onHalfClose();
+      } catch (RuntimeException e) {
+        inFlightCall.complete(null);
+        throw e;
+      } catch (Error e) {
+        inFlightCall.complete(null);
+        throw e;
+      }
+    }
+
+    private void startHandler(ServerCall<ReqT, RespT> target) {
+      delegate = next.startCall(target, headers);
+      if (hasRequest) {
+        delegate.onMessage(request);
+        request = null;
+      }
+    }
+
+    /**
+     * Called when the call this one waits for has completed, with its result, or with {@code
+     * null} if it did not complete normally.
+     */
+    void onLeaderCompleted(@Nullable final Result result) {
+      runSerialized(new Runnable() {
+        @Override
+        public void run() {
+          following = null;
+          if (cancelled) {
+            return;
+          }
+          if (result == null) {
+            // Running the handler here would block the thread of the call that completed.
+            call.close(
+                Status.UNAVAILABLE.withDescription("Coalesced call did not complete"),
+                new Metadata());
+          } else {
+            sendResult(result);
+          }
+        }
+      });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void sendResult(Result result) {
+      if (result.headers != null || result.response != null) {
+        call.sendHeaders(copyOf(result.headers));
+      }
+      if (result.response != null) {
+        call.sendMessage((RespT) result.response);
+      }
+      call.close(result.status, copyOf(result.trailers));
+    }
+
+    private void runSerialized(Runnable runnable) {
+      serializer.execute(context.wrap(runnable));
+    }
+
+    @Nullable
+    private byte[] serialize(ReqT message) {
+      InputStream stream = call.getMethodDescriptor().streamRequest(message);
+      try {
+        try {
+          return ByteStreams.toByteArray(stream);
+        } finally {
+          stream.close();
+        }
+      } catch (IOException e) {
+        logger.log(Level.FINE, "Unable to serialize request, the call is not coalesced", e);
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Records what the handler sends on the leading call, and completes the in-flight call when the
+   * handler closes it.
+   */
+  private static final class LeaderCall<ReqT, RespT>
+      extends ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT> {
+    private final InFlightCall inFlightCall;
+    @Nullable
+    private Metadata sentHeaders;
+    @Nullable
+    private RespT response;
+
+    LeaderCall(ServerCall<ReqT, RespT> delegate, InFlightCall inFlightCall) {
+      super(delegate);
+      this.inFlightCall = inFlightCall;
+    }
+
+    @Override
+    public void sendHeaders(Metadata headers) {
+      // Transports may modify the headers, so keep a copy.
+      sentHeaders = copyOf(headers);
+      super.sendHeaders(headers);
+    }
+
+    @Override
+    public void sendMessage(RespT message) {
+      response = message;
+      super.sendMessage(message);
+    }
+
+    @Override
+    public void close(Status status, Metadata trailers) {
+      // Complete first, so that a client that sees this call close never joins it afterwards.
+      inFlightCall.complete(new Result(sentHeaders, response, status, copyOf(trailers)));
+      super.close(status, trailers);
+    }
+  }
+
+  private enum AddResult {
+    ADDED, FULL, COMPLETED
+  }
+
+  /**
+   * A call that is running the handler, and the calls waiting for its result.
+   */
+  private final class InFlightCall {
+    private final Key key;
+    @GuardedBy("this")
+    private List<CoalescingListener<?, ?>> followers = new ArrayList<CoalescingListener<?, ?>>();
+    @GuardedBy("this")
+    private boolean completed;
+
+    InFlightCall(Key key) {
+      this.key = key;
+    }
+
+    synchronized AddResult addFollower(CoalescingListener<?, ?> follower) {
+      if (completed) {
+        return AddResult.COMPLETED;
+      }
+      if (followers.size() >= maxWaiters) {
+        return AddResult.FULL;
+      }
+      followers.add(follower);
+      return AddResult.ADDED;
+    }
+
+    synchronized int waitingCalls() {
+      return completed ? 0 : followers.size();
+    }
+
+    synchronized void removeFollower(CoalescingListener<?, ?> follower) {
+      if (!completed) {
+        followers.remove(follower);
+      }
+    }
+
+    /**
+     * Completes the call with the handler's result, or with {@code null} if the handler did not
+     * complete normally. Only the first completion has an effect.
+     */
+    void complete(@Nullable Result result) {
+      inFlight.remove(key, this);
+      List<CoalescingListener<?, ?>> toComplete;
+      synchronized (this) {
+        if (completed) {
+          return;
+        }
+        completed = true;
+        toComplete = followers;
+        followers = null;
+      }
+      for (CoalescingListener<?, ?> follower : toComplete) {
+        follower.onLeaderCompleted(result);
+      }
+    }
+  }
+
+  private static final class Result {
+    @Nullable
+    final Metadata headers;
+    @Nullable
+    final Object response;
+    final Status status;
+    final Metadata trailers;
+
+    Result(@Nullable Metadata headers, @Nullable Object response, Status status,
+        Metadata trailers) {
+      this.headers = headers;
+      this.response = response;
+      this.status = checkNotNull(status, "status");
+      this.trailers = trailers;
+    }
+  }
+
+  private static final class Key {
+    private final String fullMethodName;
+    private final byte[] request;
+    private final int hashCode;
+
+    Key(String fullMethodName, byte[] request) {
+      this.fullMethodName = fullMethodName;
+      this.request = request;
+      this.hashCode = 31 * fullMethodName.hashCode() + Arrays.hashCode(request);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) other;
+      return hashCode == that.hashCode
+          && fullMethodName.equals(that.fullMethodName)
+          && Arrays.equals(request, that.request);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
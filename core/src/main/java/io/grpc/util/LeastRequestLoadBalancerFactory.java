@@ -0,0 +1,409 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.grpc.ConnectivityState.CONNECTING;
+import static io.grpc.ConnectivityState.IDLE;
+import static io.grpc.ConnectivityState.READY;
+import static io.grpc.ConnectivityState.TRANSIENT_FAILURE;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import io.grpc.Attributes;
+import io.grpc.CallOptions;
+import io.grpc.ClientStreamTracer;
+import io.grpc.ConnectivityState;
+import io.grpc.ConnectivityStateInfo;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.ExperimentalApi;
+import io.grpc.LoadBalancer;
+import io.grpc.LoadBalancer.PickResult;
+import io.grpc.LoadBalancer.PickSubchannelArgs;
+import io.grpc.LoadBalancer.Subchannel;
+import io.grpc.LoadBalancer.SubchannelPicker;
+import io.grpc.Metadata;
+import io.grpc.NameResolver;
+import io.grpc.Status;
+import io.grpc.util.RoundRobinLoadBalancerFactory.Ref;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link LoadBalancer} that balances across the addresses from the {@link NameResolver} by
+ * picking two random READY subchannels for each RPC and sending it to the one with the lower
+ * expected load. The load of a subchannel is its number of in-flight RPCs weighted by an
+ * exponentially-weighted moving average of its recent RPC latencies, so slow or overloaded
+ * backends receive less traffic than fast ones.
+ *
+ * <p>It can be selected with the {@code "least_request"} service config load balancing policy.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/1771")
+public final class LeastRequestLoadBalancerFactory extends LoadBalancer.Factory {
+
+  private static final LeastRequestLoadBalancerFactory INSTANCE =
+      new LeastRequestLoadBalancerFactory();
+
+  private LeastRequestLoadBalancerFactory() {}
+
+  /**
+   * Gets the singleton instance of this factory.
+   */
+  public static LeastRequestLoadBalancerFactory getInstance() {
+    return INSTANCE;
+  }
+
+  /** Pickers run concurrently on the callers' threads, so each thread has its own source. */
+  private static final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+    @Override
+    protected Random initialValue() {
+      return new Random();
+    }
+  };
+
+  @Override
+  public LoadBalancer newLoadBalancer(LoadBalancer.Helper helper) {
+    return new LeastRequestLoadBalancer(helper, random, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  static final class LeastRequestLoadBalancer extends LoadBalancer {
+    @VisibleForTesting
+    static final Attributes.Key<Ref<ConnectivityStateInfo>> STATE_INFO =
+        Attributes.Key.of("state-info");
+    @VisibleForTesting
+    static final Attributes.Key<SubchannelStats> STATS = Attributes.Key.of("stats");
+
+    private final Helper helper;
+    private final ThreadLocal<Random> random;
+    private final Ticker ticker;
+    private final Map<EquivalentAddressGroup, Subchannel> subchannels =
+        new HashMap<EquivalentAddressGroup, Subchannel>();
+
+    LeastRequestLoadBalancer(Helper helper, ThreadLocal<Random> random, Ticker ticker) {
+      this.helper = checkNotNull(helper, "helper");
+      this.random = checkNotNull(random, "random");
+      this.ticker = checkNotNull(ticker, "ticker");
+    }
+
+    @Override
+    public void handleResolvedAddressGroups(
+        List<EquivalentAddressGroup> servers, Attributes attributes) {
+      Set<EquivalentAddressGroup> latestAddrs = stripAttrs(servers);
+      Set<EquivalentAddressGroup> removedAddrs =
+          new HashSet<EquivalentAddressGroup>(subchannels.keySet());
+      removedAddrs.removeAll(latestAddrs);
+
+      // New subchannels start at the average latency of the existing ones, so that they are not
+      // flooded with RPCs before their first one completes.
+      double initialLatencyNanos = getMeanEwmaLatencyNanos();
+      // Create new subchannels for new addresses.
+      for (EquivalentAddressGroup addressGroup : latestAddrs) {
+        if (subchannels.containsKey(addressGroup)) {
+          continue;
+        }
+        Attributes subchannelAttrs = Attributes.newBuilder()
+            .set(
+                STATE_INFO, new Ref<ConnectivityStateInfo>(ConnectivityStateInfo.forNonError(IDLE)))
+            .set(STATS, new SubchannelStats(ticker, initialLatencyNanos))
+            .build();
+
+        Subchannel subchannel =
+            checkNotNull(helper.createSubchannel(addressGroup, subchannelAttrs), "subchannel");
+        subchannels.put(addressGroup, subchannel);
+        subchannel.requestConnection();
+      }
+
+      // Shutdown subchannels for removed addresses.
+      for (EquivalentAddressGroup addressGroup : removedAddrs) {
+        Subchannel subchannel = subchannels.remove(addressGroup);
+        subchannel.shutdown();
+      }
+
+      updateBalancingState(getAggregatedState(), getAggregatedError());
+    }
+
+    @Override
+    public void handleNameResolutionError(Status error) {
+      updateBalancingState(TRANSIENT_FAILURE, error);
+    }
+
+    @Override
+    public void handleSubchannelState(Subchannel subchannel, ConnectivityStateInfo stateInfo) {
+      if (subchannels.get(subchannel.getAddresses()) != subchannel) {
+        return;
+      }
+      if (stateInfo.getState() == IDLE) {
+        subchannel.requestConnection();
+      }
+      getSubchannelStateInfoRef(subchannel).value = stateInfo;
+      updateBalancingState(getAggregatedState(), getAggregatedError());
+    }
+
+    @Override
+    public void shutdown() {
+      for (Subchannel subchannel : getSubchannels()) {
+        subchannel.shutdown();
+      }
+    }
+
+    /**
+     * Updates picker with the list of active subchannels (state == READY).
+     */
+    private void updateBalancingState(ConnectivityState state, Status error) {
+      List<Subchannel> readySubchannels = new ArrayList<Subchannel>(subchannels.size());
+      for (Subchannel subchannel : getSubchannels()) {
+        if (getSubchannelStateInfoRef(subchannel).value.getState() == READY) {
+          readySubchannels.add(subchannel);
+        }
+      }
+      helper.updateBalancingState(state, new Picker(readySubchannels, error, random));
+    }
+
+    private static Set<EquivalentAddressGroup> stripAttrs(List<EquivalentAddressGroup> groupList) {
+      Set<EquivalentAddressGroup> addrs = new HashSet<EquivalentAddressGroup>(groupList.size());
+      for (EquivalentAddressGroup group : groupList) {
+        addrs.add(new EquivalentAddressGroup(group.getAddresses()));
+      }
+      return addrs;
+    }
+
+    /**
+     * If all subchannels are TRANSIENT_FAILURE, return the Status associated with an arbitrary
+     * subchannel otherwise, return null.
+     */
+    @Nullable
+    private Status getAggregatedError() {
+      Status status = null;
+      for (Subchannel subchannel : getSubchannels()) {
+        ConnectivityStateInfo stateInfo = getSubchannelStateInfoRef(subchannel).value;
+        if (stateInfo.getState() != TRANSIENT_FAILURE) {
+          return null;
+        }
+        status = stateInfo.getStatus();
+      }
+      return status;
+    }
+
+    private ConnectivityState getAggregatedState() {
+      Set<ConnectivityState> states = EnumSet.noneOf(ConnectivityState.class);
+      for (Subchannel subchannel : getSubchannels()) {
+        states.add(getSubchannelStateInfoRef(subchannel).value.getState());
+      }
+      if (states.contains(READY)) {
+        return READY;
+      }
+      if (states.contains(CONNECTING) || states.contains(IDLE)) {
+        // IDLE subchannels are asked to connect immediately.
+        return CONNECTING;
+      }
+      return TRANSIENT_FAILURE;
+    }
+
+    /** Returns the mean latency of the subchannels that have latency samples, or 0 if none do. */
+    private double getMeanEwmaLatencyNanos() {
+      double sum = 0;
+      int count = 0;
+      for (Subchannel subchannel : getSubchannels()) {
+        double latencyNanos = getStats(subchannel).getEwmaLatencyNanos();
+        if (latencyNanos > 0) {
+          sum += latencyNanos;
+          count++;
+        }
+      }
+      return count == 0 ? 0 : sum / count;
+    }
+
+    @VisibleForTesting
+    Collection<Subchannel> getSubchannels() {
+      return subchannels.values();
+    }
+
+    private static Ref<ConnectivityStateInfo> getSubchannelStateInfoRef(Subchannel subchannel) {
+      return checkNotNull(subchannel.getAttributes().get(STATE_INFO), "STATE_INFO");
+    }
+  }
+
+  private static SubchannelStats getStats(Subchannel subchannel) {
+    return checkNotNull(subchannel.getAttributes().get(LeastRequestLoadBalancer.STATS), "STATS");
+  }
+
+  /**
+   * The load of a subchannel, updated by the stream tracers of the RPCs sent on it.
+   */
+  @VisibleForTesting
+  static final class SubchannelStats extends ClientStreamTracer.Factory {
+    /** Time for the weight of a latency sample to decay to 1/e. */
+    @VisibleForTesting
+    static final long DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * Failed RPCs are recorded as taking at least this multiple of the current average, so that a
+     * backend failing fast does not look faster than the healthy ones.
+     */
+    @VisibleForTesting
+    static final double FAILURE_PENALTY = 2;
+
+    private final Ticker ticker;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Stored as Double.doubleToRawLongBits(), so that it can be updated without locking.
+    private final AtomicLong ewmaLatencyNanos;
+    private volatile long lastUpdateNanos;
+
+    SubchannelStats(Ticker ticker) {
+      this(ticker, 0);
+    }
+
+    /**
+     * Creates stats whose average latency starts at {@code initialLatencyNanos}, or without
+     * latency samples if it is 0.
+     */
+    SubchannelStats(Ticker ticker, double initialLatencyNanos) {
+      this.ticker = ticker;
+      this.ewmaLatencyNanos = new AtomicLong(Double.doubleToRawLongBits(initialLatencyNanos));
+      this.lastUpdateNanos = ticker.read();
+    }
+
+    @Override
+    public ClientStreamTracer newClientStreamTracer(CallOptions callOptions, Metadata headers) {
+      inFlight.incrementAndGet();
+      final long startNanos = ticker.read();
+      return new ClientStreamTracer() {
+        @Override
+        public void streamClosed(Status status) {
+          inFlight.decrementAndGet();
+          if (status.getCode() == Status.Code.CANCELLED) {
+            // Cancelled by the client, so the latency says nothing about the backend.
+            return;
+          }
+          long nowNanos = ticker.read();
+          long latencyNanos = nowNanos - startNanos;
+          if (!status.isOk()) {
+            latencyNanos = Math.max(latencyNanos, (long) (getEwmaLatencyNanos() * FAILURE_PENALTY));
+          }
+          recordLatency(nowNanos, latencyNanos);
+        }
+      };
+    }
+
+    @VisibleForTesting
+    void recordLatency(long nowNanos, long latencyNanos) {
+      long elapsedNanos = Math.max(nowNanos - lastUpdateNanos, 0);
+      lastUpdateNanos = nowNanos;
+      // A sample weighs more the longer it has been since the previous one, so the average
+      // adapts at the same pace regardless of the request rate.
+      double weight = 1 - Math.exp(-(double) elapsedNanos / DECAY_NANOS);
+      while (true) {
+        long oldBits = ewmaLatencyNanos.get();
+        double old = Double.longBitsToDouble(oldBits);
+        double updated = old == 0 ? latencyNanos : old + (latencyNanos - old) * weight;
+        if (ewmaLatencyNanos.compareAndSet(oldBits, Double.doubleToRawLongBits(updated))) {
+          return;
+        }
+      }
+    }
+
+    @VisibleForTesting
+    int getInFlight() {
+      return inFlight.get();
+    }
+
+    @VisibleForTesting
+    double getEwmaLatencyNanos() {
+      return Double.longBitsToDouble(ewmaLatencyNanos.get());
+    }
+
+    /**
+     * Returns the expected cost of sending one more RPC to the subchannel, assuming
+     * {@code defaultLatencyNanos} if the subchannel has no latency samples yet.
+     */
+    double cost(double defaultLatencyNanos) {
+      double latencyNanos = getEwmaLatencyNanos();
+      if (latencyNanos == 0) {
+        latencyNanos = defaultLatencyNanos;
+      }
+      return (inFlight.get() + 1) * Math.max(latencyNanos, 1);
+    }
+  }
+
+  @VisibleForTesting
+  static final class Picker extends SubchannelPicker {
+    @Nullable
+    private final Status status;
+    private final List<Subchannel> list;
+    private final ThreadLocal<Random> random;
+
+    Picker(List<Subchannel> list, @Nullable Status status, ThreadLocal<Random> random) {
+      this.list = list;
+      this.status = status;
+      this.random = random;
+    }
+
+    @Override
+    public PickResult pickSubchannel(PickSubchannelArgs args) {
+      int size = list.size();
+      if (size > 0) {
+        Random random = this.random.get();
+        int first = random.nextInt(size);
+        Subchannel subchannel = list.get(first);
+        if (size > 1) {
+          // Pick a second, distinct subchannel and keep the less loaded of the two.
+          int second = random.nextInt(size - 1);
+          if (second >= first) {
+            second++;
+          }
+          Subchannel otherSubchannel = list.get(second);
+          SubchannelStats stats = getStats(subchannel);
+          SubchannelStats otherStats = getStats(otherSubchannel);
+          // A subchannel without latency samples is assumed to be as fast as the other one.
+          if (otherStats.cost(stats.getEwmaLatencyNanos())
+              < stats.cost(otherStats.getEwmaLatencyNanos())) {
+            subchannel = otherSubchannel;
+          }
+        }
+        return PickResult.withSubchannel(subchannel, getStats(subchannel));
+      }
+
+      if (status != null) {
+        return PickResult.withError(status);
+      }
+
+      return PickResult.withNoResult();
+    }
+
+    @VisibleForTesting
+    List<Subchannel> getList() {
+      return list;
+    }
+
+    @VisibleForTesting
+    Status getStatus() {
+      return status;
+    }
+  }
+}
@@ -20,6 +20,7 @@ import static com.google.common.truth.Truth.assertAbout;
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static io.grpc.testing.DeadlineSubject.deadline;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
@@ -68,6 +69,21 @@ public class CallOptionsTest {
     assertThat(CallOptions.DEFAULT.getCompressor()).isNull();
     assertThat(CallOptions.DEFAULT.isWaitForReady()).isFalse();
     assertThat(CallOptions.DEFAULT.getStreamTracerFactories()).isEmpty();
+    assertThat(CallOptions.DEFAULT.getFlushCoalescingDelayNanos()).isEqualTo(0L);
+  }
+
+  @Test
+  public void withFlushCoalescing() {
+    CallOptions options = CallOptions.DEFAULT.withFlushCoalescing(50, MICROSECONDS, 8192);
+    assertThat(options.getFlushCoalescingDelayNanos()).isEqualTo(50000L);
+    assertThat(options.getFlushCoalescingMaxBytes()).isEqualTo(8192);
+    assertThat(options.withAuthority("blah").getFlushCoalescingDelayNanos()).isEqualTo(50000L);
+    assertThat(CallOptions.DEFAULT.getFlushCoalescingDelayNanos()).isEqualTo(0L);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void withFlushCoalescing_negativeDelay() {
+    CallOptions.DEFAULT.withFlushCoalescing(-1, MICROSECONDS, 8192);
   }
 
   @Test
@@ -144,6 +160,7 @@ public class CallOptionsTest {
         .withCallCredentials(null)
         .withMaxInboundMessageSize(44)
         .withMaxOutboundMessageSize(55)
+        .withFlushCoalescing(66, NANOSECONDS, 77)
         .toString();
 
     assertThat(actual).contains("deadline=null");
@@ -155,6 +172,8 @@ public class CallOptionsTest {
     assertThat(actual).contains("waitForReady=true");
     assertThat(actual).contains("maxInboundMessageSize=44");
     assertThat(actual).contains("maxOutboundMessageSize=55");
+    assertThat(actual).contains("flushCoalescingDelayNanos=66");
+    assertThat(actual).contains("flushCoalescingMaxBytes=77");
     assertThat(actual).contains("streamTracerFactories=[tracerFactory1, tracerFactory2]");
   }
 
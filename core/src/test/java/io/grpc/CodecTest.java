@@ -0,0 +1,194 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link Codec}. */
+@RunWith(JUnit4.class)
+public class CodecTest {
+  private final byte[] message = newMessage();
+
+  @Test
+  public void gzip_roundTrip() throws Exception {
+    Codec.Gzip gzip = new Codec.Gzip();
+    // Repeat so that pooled deflaters and inflaters are reused.
+    for (int i = 0; i < 3; i++) {
+      byte[] compressed = compress(gzip, message);
+      assertArrayEquals(message, ByteStreams.toByteArray(
+          gzip.decompress(new ByteArrayInputStream(compressed))));
+    }
+  }
+
+  @Test
+  public void gzip_interoperatesWithJdk() throws Exception {
+    Codec.Gzip gzip = new Codec.Gzip();
+    byte[] compressed = compress(gzip, message);
+    assertArrayEquals(message, ByteStreams.toByteArray(
+        new GZIPInputStream(new ByteArrayInputStream(compressed))));
+
+    ByteArrayOutputStream jdkCompressed = new ByteArrayOutputStream();
+    OutputStream os = new GZIPOutputStream(jdkCompressed);
+    os.write(message);
+    os.close();
+    assertArrayEquals(message, ByteStreams.toByteArray(
+        gzip.decompress(new ByteArrayInputStream(jdkCompressed.toByteArray()))));
+  }
+
+  @Test
+  public void gzip_optionalHeaderFields() throws Exception {
+    byte[] compressed = compress(new Codec.Gzip(), message);
+    ByteArrayOutputStream withHeaderFields = new ByteArrayOutputStream();
+    withHeaderFields.write(compressed, 0, 3);
+    // FEXTRA | FNAME | FCOMMENT
+    withHeaderFields.write(4 | 8 | 16);
+    withHeaderFields.write(compressed, 4, 6);
+    withHeaderFields.write(new byte[] {2, 0, 'x', 'y'});
+    withHeaderFields.write(new byte[] {'n', 'a', 'm', 'e', 0});
+    withHeaderFields.write(new byte[] {'c', 0});
+    withHeaderFields.write(compressed, 10, compressed.length - 10);
+
+    assertArrayEquals(message, ByteStreams.toByteArray(new Codec.Gzip().decompress(
+        new ByteArrayInputStream(withHeaderFields.toByteArray()))));
+  }
+
+  @Test
+  public void gzip_corruptTrailer() throws Exception {
+    byte[] compressed = compress(new Codec.Gzip(), message);
+    compressed[compressed.length - 5]++;
+    InputStream is = new Codec.Gzip().decompress(new ByteArrayInputStream(compressed));
+    try {
+      ByteStreams.toByteArray(is);
+      fail("Expected exception");
+    } catch (ZipException expected) {
+      assertEquals("Corrupt GZIP trailer", expected.getMessage());
+    }
+  }
+
+  @Test
+  public void gzip_notGzip() throws Exception {
+    try {
+      new Codec.Gzip().decompress(new ByteArrayInputStream(message));
+      fail("Expected exception");
+    } catch (ZipException expected) {
+      assertEquals("Not in GZIP format", expected.getMessage());
+    }
+  }
+
+  @Test
+  public void gzip_compressionLevels() throws Exception {
+    byte[] stored = compress(new Codec.Gzip(0), message);
+    byte[] best = compress(new Codec.Gzip(9), message);
+    assertTrue(stored.length > message.length);
+    assertTrue(best.length < stored.length);
+    assertArrayEquals(message, ByteStreams.toByteArray(
+        new Codec.Gzip().decompress(new ByteArrayInputStream(stored))));
+
+    try {
+      new Codec.Gzip(10);
+      fail("Expected exception");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void gzip_writeAfterClose() throws Exception {
+    OutputStream os = new Codec.Gzip().compress(new ByteArrayOutputStream());
+    os.close();
+    try {
+      os.write(message);
+      fail("Expected exception");
+    } catch (IOException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void optionalCodecs_notAvailable() {
+    // None of the optional libraries are test dependencies.
+    assertFalse(Codec.Zstd.isAvailable());
+    assertFalse(Codec.Lz4.isAvailable());
+    assertFalse(Codec.Snappy.isAvailable());
+    try {
+      new Codec.Zstd();
+      fail("Expected exception");
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void optionalStreams_reflectiveConstruction() throws Exception {
+    CodecStreams.OptionalStreams streams = new CodecStreams.OptionalStreams(
+        GZIPOutputStream.class.getName(), new Class<?>[] {OutputStream.class, int.class},
+        GZIPInputStream.class.getName());
+    assertTrue(streams.isAvailable());
+
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    OutputStream os = streams.newOutputStream(compressed, 1024);
+    os.write(message);
+    os.close();
+    assertArrayEquals(message, ByteStreams.toByteArray(
+        streams.newInputStream(new ByteArrayInputStream(compressed.toByteArray()))));
+
+    try {
+      streams.newInputStream(new ByteArrayInputStream(message));
+      fail("Expected exception");
+    } catch (ZipException expected) {
+      // Exceptions thrown by the constructor are unwrapped.
+    }
+  }
+
+  private static byte[] compress(Compressor compressor, byte[] data) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    OutputStream os = compressor.compress(compressed);
+    os.write(data, 0, data.length / 2);
+    os.write(data[data.length / 2]);
+    os.write(data, data.length / 2 + 1, data.length - data.length / 2 - 1);
+    os.close();
+    return compressed.toByteArray();
+  }
+
+  private static byte[] newMessage() {
+    Random random = new Random(1);
+    byte[] data = new byte[10000];
+    for (int i = 0; i < data.length; i++) {
+      // Compressible, but not trivially.
+      data[i] = (byte) ('a' + random.nextInt(8));
+    }
+    return data;
+  }
+}
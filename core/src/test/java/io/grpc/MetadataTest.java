@@ -22,7 +22,9 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -334,6 +336,105 @@ public class MetadataTest {
     }
   }
 
+  @Test
+  public void wellKnownKeysShareNameBytes() {
+    Key<String> k1 = Key.of("grpc-timeout", Metadata.ASCII_STRING_MARSHALLER);
+    Key<String> k2 = Key.of("Grpc-Timeout", Metadata.ASCII_STRING_MARSHALLER);
+    Key<String> k3 = Key.of("not-well-known", Metadata.ASCII_STRING_MARSHALLER);
+    Key<String> k4 = Key.of("not-well-known", Metadata.ASCII_STRING_MARSHALLER);
+
+    assertSame(k1.asciiName(), k2.asciiName());
+    assertNotSame(k3.asciiName(), k4.asciiName());
+    assertEquals(k3.nameHash(), k4.nameHash());
+  }
+
+  @Test
+  public void indexedLookups() {
+    Metadata m = new Metadata();
+    for (int i = 0; i < 20; i++) {
+      m.put(Key.of("key-" + i, Metadata.ASCII_STRING_MARSHALLER), "value-" + i);
+    }
+    Key<String> dup = Key.of("key-3", Metadata.ASCII_STRING_MARSHALLER);
+    m.put(dup, "value-3b");
+
+    assertEquals("value-3b", m.get(dup));
+    assertEquals("value-17", m.get(Key.of("key-17", Metadata.ASCII_STRING_MARSHALLER)));
+    assertEquals(Arrays.asList("value-3", "value-3b"), Lists.newArrayList(m.getAll(dup)));
+    Key<String> missing = Key.of("key-20", Metadata.ASCII_STRING_MARSHALLER);
+    assertFalse(m.containsKey(missing));
+    assertNull(m.get(missing));
+    assertNull(m.getAll(missing));
+
+    // Puts after the index is built must be visible.
+    m.put(missing, "value-20");
+    m.put(dup, "value-3c");
+    assertEquals("value-20", m.get(missing));
+    assertEquals("value-3c", m.get(dup));
+  }
+
+  @Test
+  public void indexedLookupsAfterMutation() {
+    Metadata m = new Metadata();
+    for (int i = 0; i < 20; i++) {
+      m.put(Key.of("key-" + i, Metadata.ASCII_STRING_MARSHALLER), "value-" + i);
+    }
+    Key<String> key5 = Key.of("key-5", Metadata.ASCII_STRING_MARSHALLER);
+    Key<String> key6 = Key.of("key-6", Metadata.ASCII_STRING_MARSHALLER);
+    Key<String> key7 = Key.of("key-7", Metadata.ASCII_STRING_MARSHALLER);
+    Key<String> key19 = Key.of("key-19", Metadata.ASCII_STRING_MARSHALLER);
+    assertEquals("value-19", m.get(key19));
+
+    assertTrue(m.remove(key5, "value-5"));
+    assertNull(m.get(key5));
+    assertEquals("value-19", m.get(key19));
+
+    m.discardAll(key6);
+    assertNull(m.get(key6));
+    assertEquals("value-19", m.get(key19));
+
+    assertEquals(Arrays.asList("value-7"), Lists.newArrayList(m.removeAll(key7)));
+    assertNull(m.get(key7));
+    assertEquals("value-19", m.get(key19));
+
+    Metadata other = new Metadata();
+    other.put(key19, "value-19b");
+    m.merge(other);
+    assertEquals("value-19b", m.get(key19));
+    assertEquals(18, m.headerCount());
+  }
+
+  @Test
+  public void indexedLookupsOnTransportMetadata() {
+    byte[][] namesAndValues = new byte[24][];
+    for (int i = 0; i < 12; i++) {
+      namesAndValues[i * 2] = ("key-" + i).getBytes(US_ASCII);
+      namesAndValues[i * 2 + 1] = ("value-" + i).getBytes(US_ASCII);
+    }
+    namesAndValues[22] = "grpc-timeout".getBytes(US_ASCII);
+    namesAndValues[23] = "1S".getBytes(US_ASCII);
+    Metadata m = new Metadata(namesAndValues);
+
+    assertEquals("value-4", m.get(Key.of("key-4", Metadata.ASCII_STRING_MARSHALLER)));
+    assertEquals("1S", m.get(Key.of("grpc-timeout", Metadata.ASCII_STRING_MARSHALLER)));
+    assertFalse(m.containsKey(Key.of("key-12", Metadata.ASCII_STRING_MARSHALLER)));
+  }
+
+  @Test
+  public void indexedLookupsLeaveNamesUntouched() {
+    byte[][] namesAndValues = new byte[24][];
+    for (int i = 0; i < 12; i++) {
+      namesAndValues[i * 2] = ("key-" + i).getBytes(US_ASCII);
+      namesAndValues[i * 2 + 1] = ("value-" + i).getBytes(US_ASCII);
+    }
+    byte[] timeoutName = "grpc-timeout".getBytes(US_ASCII);
+    namesAndValues[22] = timeoutName;
+    namesAndValues[23] = "1S".getBytes(US_ASCII);
+    Metadata m = new Metadata(namesAndValues);
+
+    assertEquals("1S", m.get(Key.of("grpc-timeout", Metadata.ASCII_STRING_MARSHALLER)));
+    assertSame(timeoutName, namesAndValues[22]);
+  }
+
   private static class Fish {
     private String name;
 
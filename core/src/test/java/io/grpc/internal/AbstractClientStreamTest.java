@@ -141,6 +141,22 @@ public class AbstractClientStreamTest {
     verify(mockListener).closed(any(Status.class), same(PROCESSED), any(Metadata.class));
   }
 
+  @Test
+  public void cancel_cancelsDelayedFlush() {
+    FakeClock fakeClock = new FakeClock();
+    AbstractClientStream stream =
+        new BaseAbstractClientStream(allocator, statsTraceCtx, transportTracer);
+    stream.setFlushCoalescing(1000, 8192, fakeClock.getScheduledExecutorService());
+    stream.start(mockListener);
+    stream.writeMessage(new ByteArrayInputStream(new byte[10]));
+    stream.flush();
+    assertEquals(1, fakeClock.numPendingTasks());
+
+    stream.cancel(Status.CANCELLED);
+
+    assertEquals(0, fakeClock.numPendingTasks());
+  }
+
   @Test
   public void startFailsOnNullListener() {
     AbstractClientStream stream =
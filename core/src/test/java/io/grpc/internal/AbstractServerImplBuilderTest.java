@@ -19,6 +19,7 @@ package io.grpc.internal;
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertEquals;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import io.grpc.Metadata;
 import io.grpc.ServerStreamTracer;
 import io.grpc.internal.testing.StatsTestUtils.FakeStatsRecorder;
@@ -26,6 +27,7 @@ import io.grpc.internal.testing.StatsTestUtils.FakeTagContextBinarySerializer;
 import io.grpc.internal.testing.StatsTestUtils.FakeTagger;
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.Executor;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -44,6 +46,22 @@ public class AbstractServerImplBuilderTest {
 
   private Builder builder = new Builder();
 
+  @Test
+  public void executorModes() {
+    builder.virtualThreadExecutor();
+    Executor virtualThreadExecutor = builder.executorPool.getObject();
+    builder.executorPool.returnObject(virtualThreadExecutor);
+    assertThat(virtualThreadExecutor).isNotNull();
+
+    builder.workStealingExecutor();
+    Executor workStealingExecutor = builder.executorPool.getObject();
+    builder.executorPool.returnObject(workStealingExecutor);
+    assertThat(workStealingExecutor).isNotSameAs(virtualThreadExecutor);
+
+    builder.directExecutor();
+    assertThat(builder.executorPool.getObject()).isSameAs(MoreExecutors.directExecutor());
+  }
+
   @Test
   public void getTracerFactories_default() {
     builder.addStreamTracerFactory(DUMMY_USER_TRACER);
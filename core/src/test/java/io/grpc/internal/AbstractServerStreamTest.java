@@ -330,6 +330,21 @@ public class AbstractServerStreamTest {
     assertEquals("bad", metadataCaptor.getValue().get(InternalStatus.MESSAGE_KEY));
   }
 
+  @Test
+  public void cancel_cancelsDelayedFlush() {
+    FakeClock fakeClock = new FakeClock();
+    stream.setFlushCoalescing(1000, 8192, fakeClock.getScheduledExecutorService());
+    stream.writeHeaders(new Metadata());
+    stream.writeMessage(new ByteArrayInputStream(new byte[10]));
+    stream.flush();
+    assertEquals(1, fakeClock.numPendingTasks());
+
+    stream.cancel(Status.CANCELLED);
+
+    verify(sink).cancel(Status.CANCELLED);
+    assertEquals(0, fakeClock.numPendingTasks());
+  }
+
   private static class ServerStreamListenerBase implements ServerStreamListener {
     @Override
     public void messagesAvailable(MessageProducer producer) {
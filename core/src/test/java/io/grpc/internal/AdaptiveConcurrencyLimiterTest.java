@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link AdaptiveConcurrencyLimiter}. */
+@RunWith(JUnit4.class)
+public class AdaptiveConcurrencyLimiterTest {
+  private static final int WINDOW_SIZE = 10;
+  private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final AdaptiveConcurrencyLimiter limiter =
+      new AdaptiveConcurrencyLimiter(10, 100, WINDOW_SIZE);
+
+  @Test
+  public void callsOverLimitAreRejected() {
+    for (int i = 0; i < 10; i++) {
+      assertTrue(limiter.tryAcquire());
+    }
+    assertFalse(limiter.tryAcquire());
+    assertEquals(1, limiter.getRejectedCalls());
+    assertEquals(10, limiter.getInFlight());
+
+    limiter.release();
+    assertEquals(9, limiter.getInFlight());
+    assertTrue(limiter.tryAcquire());
+  }
+
+  @Test
+  public void limitGrowsWhileLatencyIsSteady() {
+    runRounds(20, FAST_NANOS);
+    assertTrue(limiter.getLimit() > 10);
+  }
+
+  @Test
+  public void limitShrinksWhenLatencyRises() {
+    runRounds(20, FAST_NANOS);
+    int limit = limiter.getLimit();
+
+    runRounds(5, SLOW_NANOS);
+    assertTrue(limiter.getLimit() < limit);
+  }
+
+  @Test
+  public void limitStaysWithinMax() {
+    runRounds(1000, FAST_NANOS);
+    assertEquals(100, limiter.getLimit());
+  }
+
+  @Test
+  public void limitDoesNotGrowWhileUnused() {
+    for (int i = 0; i < 20 * WINDOW_SIZE; i++) {
+      assertTrue(limiter.tryAcquire());
+      limiter.release(FAST_NANOS);
+    }
+    assertEquals(10, limiter.getLimit());
+  }
+
+  @Test
+  public void failedCallsAreNotSampled() {
+    runRounds(20, FAST_NANOS);
+    int limit = limiter.getLimit();
+    for (int i = 0; i < 20 * WINDOW_SIZE; i++) {
+      assertTrue(limiter.tryAcquire());
+      limiter.release();
+    }
+    assertEquals(limit, limiter.getLimit());
+  }
+
+  /** Runs rounds of calls that use the whole limit, each call taking {@code rttNanos}. */
+  private void runRounds(int rounds, long rttNanos) {
+    for (int i = 0; i < rounds; i++) {
+      int acquired = 0;
+      while (limiter.tryAcquire()) {
+        acquired++;
+      }
+      for (int j = 0; j < acquired; j++) {
+        limiter.release(rttNanos);
+      }
+    }
+  }
+}
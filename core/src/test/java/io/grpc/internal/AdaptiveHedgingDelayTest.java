@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+
+import io.grpc.internal.AdaptiveHedgingDelay.LatencyHistogram;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link AdaptiveHedgingDelay}. */
+@RunWith(JUnit4.class)
+public class AdaptiveHedgingDelayTest {
+  private static final String METHOD = "service/method";
+
+  @Test
+  public void bucketBoundsContainLatency() {
+    long[] latenciesMicros = {1, 2, 3, 4, 5, 7, 8, 100, 1000, 12345, 1L << 30};
+    for (long micros : latenciesMicros) {
+      long nanos = MICROSECONDS.toNanos(micros);
+      int bucket = LatencyHistogram.bucketOf(nanos);
+      assertThat(LatencyHistogram.upperBoundNanos(bucket)).isAtLeast(nanos);
+      assertThat(LatencyHistogram.upperBoundNanos(bucket)).isAtMost(nanos + nanos / 4 + 1000);
+      if (bucket > 0) {
+        assertThat(LatencyHistogram.upperBoundNanos(bucket - 1)).isAtMost(nanos);
+      }
+    }
+  }
+
+  @Test
+  public void defaultDelayUntilEnoughSamples() {
+    AdaptiveHedgingDelay delay = new AdaptiveHedgingDelay(90);
+    assertEquals(123, delay.getDelayNanos(METHOD, 123));
+    for (int i = 0; i < AdaptiveHedgingDelay.MIN_SAMPLES - 1; i++) {
+      delay.record(METHOD, MILLISECONDS.toNanos(1));
+    }
+    assertEquals(123, delay.getDelayNanos(METHOD, 123));
+
+    delay.record(METHOD, MILLISECONDS.toNanos(1));
+    assertThat(delay.getDelayNanos(METHOD, 123)).isAtLeast(MILLISECONDS.toNanos(1));
+    assertEquals(123, delay.getDelayNanos("other/method", 123));
+  }
+
+  @Test
+  public void delayTracksPercentile() {
+    AdaptiveHedgingDelay delay = new AdaptiveHedgingDelay(90);
+    for (int i = 0; i < 90; i++) {
+      delay.record(METHOD, MILLISECONDS.toNanos(1));
+    }
+    for (int i = 0; i < 10; i++) {
+      delay.record(METHOD, MILLISECONDS.toNanos(100));
+    }
+    long delayNanos = delay.getDelayNanos(METHOD, 0);
+    assertThat(delayNanos).isAtLeast(MILLISECONDS.toNanos(1));
+    assertThat(delayNanos).isLessThan(MILLISECONDS.toNanos(2));
+
+    for (int i = 0; i < 100; i++) {
+      delay.record(METHOD, MILLISECONDS.toNanos(100));
+    }
+    assertThat(delay.getDelayNanos(METHOD, 0)).isAtLeast(MILLISECONDS.toNanos(100));
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+
+/** Unit tests for {@link AdaptiveThrottler}. */
+@RunWith(JUnit4.class)
+public class AdaptiveThrottlerTest {
+  private final FakeClock fakeClock = new FakeClock();
+  private final FixedRandom random = new FixedRandom();
+  private final AdaptiveThrottler throttler =
+      new AdaptiveThrottler(2, fakeClock.getTicker(), random);
+
+  @Test
+  public void acceptedCallsAreNotThrottled() {
+    record(100, 100);
+    nextBucket();
+    random.value = 0;
+    for (int i = 0; i < 100; i++) {
+      assertTrue(throttler.tryAcquire());
+    }
+  }
+
+  @Test
+  public void rejectsWithProbabilityFromWindow() {
+    // p = (30 - 2 * 10) / 31
+    record(30, 10);
+    nextBucket();
+    random.value = 0.32;
+    assertFalse(throttler.tryAcquire());
+    random.value = 0.33;
+    assertTrue(throttler.tryAcquire());
+  }
+
+  @Test
+  public void currentBucketIsNotUsed() {
+    record(100, 0);
+    random.value = 0;
+    assertTrue(throttler.tryAcquire());
+
+    nextBucket();
+    assertFalse(throttler.tryAcquire());
+  }
+
+  @Test
+  public void countsLeaveWindow() {
+    record(100, 0);
+    nextBucket();
+    random.value = 0.9;
+    assertFalse(throttler.tryAcquire());
+
+    fakeClock.forwardNanos(AdaptiveThrottler.BUCKET_NANOS * AdaptiveThrottler.BUCKETS);
+    random.value = 0;
+    assertTrue(throttler.tryAcquire());
+  }
+
+  @Test
+  public void bucketsAreReused() {
+    record(100, 0);
+    fakeClock.forwardNanos(AdaptiveThrottler.BUCKET_NANOS * AdaptiveThrottler.BUCKETS);
+    record(10, 10);
+    nextBucket();
+    random.value = 0;
+    assertTrue(throttler.tryAcquire());
+  }
+
+  @Test
+  public void rejectedCallsCount() {
+    record(10, 0);
+    nextBucket();
+    random.value = 0;
+    for (int i = 0; i < 50; i++) {
+      assertFalse(throttler.tryAcquire());
+    }
+    throttler.accepted();
+    nextBucket();
+    // (60 - 2 * 1) / 61
+    random.value = 0.95;
+    assertFalse(throttler.tryAcquire());
+    random.value = 0.96;
+    assertTrue(throttler.tryAcquire());
+  }
+
+  @Test
+  public void isAccepted() {
+    assertTrue(AdaptiveThrottler.isAccepted(Status.OK));
+    assertTrue(AdaptiveThrottler.isAccepted(Status.NOT_FOUND));
+    assertTrue(AdaptiveThrottler.isAccepted(Status.DEADLINE_EXCEEDED));
+    assertFalse(AdaptiveThrottler.isAccepted(Status.UNAVAILABLE));
+    assertFalse(AdaptiveThrottler.isAccepted(Status.RESOURCE_EXHAUSTED));
+  }
+
+  @Test
+  public void trackedCallCountsAccepts() {
+    NoopClientCall<Void, Void> delegate = new NoopClientCall<Void, Void>() {
+      @Override
+      public void start(ClientCall.Listener<Void> listener, Metadata headers) {
+        listener.onClose(Status.OK, new Metadata());
+      }
+    };
+    for (int i = 0; i < 10; i++) {
+      assertTrue(throttler.tryAcquire());
+      throttler.track(delegate).start(new ClientCall.Listener<Void>() {}, new Metadata());
+    }
+    nextBucket();
+    random.value = 0;
+    assertTrue(throttler.tryAcquire());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void rejectedCallFailsOnStart() {
+    ClientCall.Listener<Void> listener = mock(ClientCall.Listener.class);
+    ClientCall<Void, Void> call =
+        AdaptiveThrottler.newRejectedCall(MoreExecutors.directExecutor());
+    call.start(listener, new Metadata());
+
+    ArgumentCaptor<Status> statusCaptor = ArgumentCaptor.forClass(Status.class);
+    verify(listener).onClose(statusCaptor.capture(), any(Metadata.class));
+    assertEquals(Status.Code.UNAVAILABLE, statusCaptor.getValue().getCode());
+  }
+
+  private void record(int requests, int accepts) {
+    random.value = 0.999999;
+    for (int i = 0; i < requests; i++) {
+      throttler.tryAcquire();
+    }
+    for (int i = 0; i < accepts; i++) {
+      throttler.accepted();
+    }
+  }
+
+  private void nextBucket() {
+    fakeClock.forwardNanos(AdaptiveThrottler.BUCKET_NANOS);
+  }
+
+  private static final class FixedRandom extends Random {
+    double value;
+
+    @Override
+    public double nextDouble() {
+      return value;
+    }
+  }
+}
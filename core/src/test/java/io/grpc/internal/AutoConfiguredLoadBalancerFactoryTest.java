@@ -31,7 +31,10 @@ import io.grpc.NameResolver.Factory;
 import io.grpc.PickFirstBalancerFactory;
 import io.grpc.Status;
 import io.grpc.internal.AutoConfiguredLoadBalancerFactory.AutoConfiguredLoadBalancer;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nonnull;
 import org.junit.Test;
@@ -62,6 +65,18 @@ public class AutoConfiguredLoadBalancerFactoryTest {
     assertThat(lb.getDelegate().getClass().getName()).contains("PickFirst");
   }
 
+  @Test
+  public void decideLoadBalancerFactory_leastRequest() {
+    Map<String, Object> serviceConfig = new HashMap<String, Object>();
+    serviceConfig.put("loadBalancingPolicy", "least_request");
+
+    LoadBalancer.Factory factory = AutoConfiguredLoadBalancer.decideLoadBalancerFactory(
+        Collections.<EquivalentAddressGroup>emptyList(), serviceConfig);
+
+    assertThat(factory.getClass().getName())
+        .isEqualTo(AutoConfiguredLoadBalancerFactory.LEAST_REQUEST_LOAD_BALANCER_FACTORY_NAME);
+  }
+
   @Test
   public void forwardsCalls() {
     AutoConfiguredLoadBalancer lb =
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.internal.DnsNameResolver.DelegateResolver;
+import io.grpc.internal.DnsNameResolver.ResolutionResults;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link CachingDnsResolver}. */
+@RunWith(JUnit4.class)
+public class CachingDnsResolverTest {
+  private static final String HOST = "foo.googleapis.com";
+  private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final FakeClock fakeClock = new FakeClock();
+  private final FakeResolver delegate = new FakeResolver();
+  private final CachingDnsResolver resolver = new CachingDnsResolver(
+      delegate, fakeClock.getScheduledExecutorService(), fakeClock.getTicker(), TTL_NANOS);
+
+  @Test
+  public void cachesUntilTtl() throws Exception {
+    ResolutionResults first = resolver.resolve(HOST);
+    assertEquals(1, delegate.calls.get());
+
+    fakeClock.forwardTime(7, TimeUnit.SECONDS);
+    assertSame(first, resolver.resolve(HOST));
+    assertEquals(1, delegate.calls.get());
+    assertEquals(0, fakeClock.numPendingTasks());
+
+    fakeClock.forwardTime(3, TimeUnit.SECONDS);
+    ResolutionResults second = resolver.resolve(HOST);
+    assertEquals(2, delegate.calls.get());
+    assertEquals(0, fakeClock.numPendingTasks());
+    assertEquals(second.addresses, first.addresses);
+  }
+
+  @Test
+  public void refreshesInBackgroundBeforeExpiry() throws Exception {
+    ResolutionResults first = resolver.resolve(HOST);
+    fakeClock.forwardTime(9, TimeUnit.SECONDS);
+
+    // The cached results are returned right away, and only one refresh is started.
+    assertSame(first, resolver.resolve(HOST));
+    assertSame(first, resolver.resolve(HOST));
+    assertEquals(1, delegate.calls.get());
+    assertEquals(1, fakeClock.numPendingTasks());
+
+    fakeClock.runDueTasks();
+    assertEquals(2, delegate.calls.get());
+    ResolutionResults refreshed = resolver.resolve(HOST);
+    assertSame(delegate.lastResults, refreshed);
+
+    // The refreshed entry lives for a full TTL from the refresh.
+    fakeClock.forwardTime(7, TimeUnit.SECONDS);
+    assertSame(refreshed, resolver.resolve(HOST));
+    assertEquals(2, delegate.calls.get());
+  }
+
+  @Test
+  public void servesStaleResultsOnFailure() throws Exception {
+    ResolutionResults first = resolver.resolve(HOST);
+    delegate.failure = new UnknownHostException("injected");
+
+    fakeClock.forwardNanos(TTL_NANOS);
+    assertSame(first, resolver.resolve(HOST));
+    assertEquals(2, delegate.calls.get());
+
+    fakeClock.forwardNanos(CachingDnsResolver.MAX_STALE_NANOS);
+    try {
+      resolver.resolve(HOST);
+      fail("Expected exception");
+    } catch (UnknownHostException expected) {
+      assertSame(delegate.failure, expected);
+    }
+  }
+
+  @Test
+  public void failureWithoutCachedResults() throws Exception {
+    delegate.failure = new UnknownHostException("injected");
+    try {
+      resolver.resolve(HOST);
+      fail("Expected exception");
+    } catch (UnknownHostException expected) {
+      assertSame(delegate.failure, expected);
+    }
+
+    delegate.failure = null;
+    resolver.resolve(HOST);
+    assertEquals(2, delegate.calls.get());
+  }
+
+  @Test
+  public void concurrentLookupsAreCoalesced() throws Exception {
+    delegate.blockUntil = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<ResolutionResults> first = executor.submit(new ResolveCallable());
+      delegate.started.await(5, TimeUnit.SECONDS);
+      Future<ResolutionResults> second = executor.submit(new ResolveCallable());
+      // Give the second lookup time to find the pending one.
+      Thread.sleep(50);
+      delegate.blockUntil.countDown();
+
+      assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+      assertEquals(1, delegate.calls.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private final class ResolveCallable implements Callable<ResolutionResults> {
+    @Override
+    public ResolutionResults call() throws Exception {
+      return resolver.resolve(HOST);
+    }
+  }
+
+  private static final class FakeResolver extends DelegateResolver {
+    final AtomicInteger calls = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(1);
+    volatile CountDownLatch blockUntil;
+    volatile Exception failure;
+    volatile ResolutionResults lastResults;
+
+    @Override
+    ResolutionResults resolve(String host) throws Exception {
+      calls.incrementAndGet();
+      started.countDown();
+      if (blockUntil != null) {
+        blockUntil.await(5, TimeUnit.SECONDS);
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      lastResults = new ResolutionResults(
+          Collections.singletonList(InetAddress.getByAddress(host, new byte[] {127, 0, 0, 1})),
+          Collections.<String>emptyList(),
+          Collections.<EquivalentAddressGroup>emptyList());
+      return lastResults;
+    }
+  }
+}
@@ -164,6 +164,34 @@ public class ClientCallImplTest {
     verify(callListener).onClose(same(status), Matchers.isA(Metadata.class));
   }
 
+  @Test
+  public void flushCoalescingOnlyForStreamingRequests() {
+    CallOptions callOptions = baseCallOptions.withFlushCoalescing(50, TimeUnit.MICROSECONDS, 8192);
+    new ClientCallImpl<Void, Void>(
+        method,
+        MoreExecutors.directExecutor(),
+        callOptions,
+        provider,
+        deadlineCancellationExecutor,
+        channelCallTracer,
+        false /* retryEnabled */)
+        .start(callListener, new Metadata());
+    verify(stream, never()).setFlushCoalescing(
+        Matchers.anyLong(), Matchers.anyInt(), any(ScheduledExecutorService.class));
+
+    new ClientCallImpl<Void, Void>(
+        method.toBuilder().setType(MethodType.CLIENT_STREAMING).build(),
+        MoreExecutors.directExecutor(),
+        callOptions,
+        provider,
+        deadlineCancellationExecutor,
+        channelCallTracer,
+        false /* retryEnabled */)
+        .start(callListener, new Metadata());
+    verify(stream).setFlushCoalescing(
+        TimeUnit.MICROSECONDS.toNanos(50), 8192, deadlineCancellationExecutor);
+  }
+
   @Test
   public void exceptionInOnMessageTakesPrecedenceOverServer() {
     DelayedExecutor executor = new DelayedExecutor();
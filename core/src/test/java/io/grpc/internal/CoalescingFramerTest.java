@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import io.grpc.StreamTracer;
+import io.grpc.internal.MessageFramerTest.ByteWritableBuffer;
+import io.grpc.internal.MessageFramerTest.BytesWritableBufferAllocator;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+/** Unit tests for {@link CoalescingFramer}. */
+@RunWith(JUnit4.class)
+public class CoalescingFramerTest {
+  private static final long MAX_DELAY_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+  private static final int MAX_BYTES = 100;
+
+  @Mock
+  private MessageFramer.Sink sink;
+  @Captor
+  private ArgumentCaptor<ByteWritableBuffer> frameCaptor;
+
+  private final FakeClock fakeClock = new FakeClock();
+  private CoalescingFramer framer;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    MessageFramer messageFramer = new MessageFramer(
+        sink, new BytesWritableBufferAllocator(1000, 1000),
+        new StatsTraceContext(new StreamTracer[0]));
+    framer = new CoalescingFramer(
+        messageFramer, MAX_DELAY_NANOS, MAX_BYTES, fakeClock.getScheduledExecutorService());
+  }
+
+  @Test
+  public void flushIsDelayed() {
+    write(10);
+    framer.flush();
+    verifyZeroInteractions(sink);
+    assertEquals(1, fakeClock.numPendingTasks());
+
+    fakeClock.forwardNanos(MAX_DELAY_NANOS - 1);
+    verifyZeroInteractions(sink);
+    fakeClock.forwardNanos(1);
+    verify(sink).deliverFrame(frameCaptor.capture(), eq(false), eq(true), eq(1));
+    assertEquals(15, frameCaptor.getValue().size());
+  }
+
+  @Test
+  public void messagesShareDelayedFlush() {
+    write(10);
+    framer.flush();
+    fakeClock.forwardNanos(MAX_DELAY_NANOS / 2);
+    write(20);
+    framer.flush();
+    write(30);
+    framer.flush();
+    assertEquals(1, fakeClock.numPendingTasks());
+
+    // The deadline is kept from the first message
+    fakeClock.forwardNanos(MAX_DELAY_NANOS / 2);
+    verify(sink).deliverFrame(frameCaptor.capture(), eq(false), eq(true), eq(3));
+    assertEquals(75, frameCaptor.getValue().size());
+  }
+
+  @Test
+  public void flushesRightAwayAtMaxBytes() {
+    write(60);
+    framer.flush();
+    verifyZeroInteractions(sink);
+
+    write(40);
+    framer.flush();
+    verify(sink).deliverFrame(frameCaptor.capture(), eq(false), eq(true), eq(2));
+    assertEquals(110, frameCaptor.getValue().size());
+    assertEquals(0, fakeClock.numPendingTasks());
+
+    write(10);
+    framer.flush();
+    assertEquals(1, fakeClock.numPendingTasks());
+  }
+
+  @Test
+  public void flushWithoutMessagesIsNoop() {
+    framer.flush();
+    assertEquals(0, fakeClock.numPendingTasks());
+    verifyZeroInteractions(sink);
+  }
+
+  @Test
+  public void closeCancelsDelayedFlush() {
+    write(10);
+    framer.flush();
+    framer.close();
+    verify(sink).deliverFrame(frameCaptor.capture(), eq(true), eq(true), eq(1));
+    assertEquals(15, frameCaptor.getValue().size());
+    assertTrue(framer.isClosed());
+    assertEquals(0, fakeClock.numPendingTasks());
+  }
+
+  @Test
+  public void disposeCancelsDelayedFlush() {
+    write(10);
+    framer.flush();
+    framer.dispose();
+    fakeClock.forwardNanos(MAX_DELAY_NANOS);
+    assertEquals(0, fakeClock.numPendingTasks());
+    verifyZeroInteractions(sink);
+  }
+
+  @Test
+  public void cancelPendingFlushDropsDelayedFlush() {
+    write(10);
+    framer.flush();
+    framer.cancelPendingFlush();
+    fakeClock.forwardNanos(MAX_DELAY_NANOS);
+    assertEquals(0, fakeClock.numPendingTasks());
+    verifyZeroInteractions(sink);
+
+    // A later flush is delayed again
+    framer.flush();
+    assertEquals(1, fakeClock.numPendingTasks());
+  }
+
+  private void write(int length) {
+    framer.writePayload(new ByteArrayInputStream(new byte[length]));
+  }
+}
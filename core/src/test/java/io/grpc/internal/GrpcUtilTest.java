@@ -34,6 +34,9 @@ import io.grpc.Status;
 import io.grpc.internal.ClientStreamListener.RpcProgress;
 import io.grpc.internal.GrpcUtil.Http2Error;
 import io.grpc.testing.TestMethodDescriptors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -125,6 +128,34 @@ public class GrpcUtilTest {
     assertEquals(Long.MAX_VALUE, (long) marshaller.parseAsciiString("2562048H"));
   }
 
+  @Test
+  public void sharedVirtualThreadExecutorRunsTasks() throws Exception {
+    assertSharedExecutorRunsTasks(GrpcUtil.SHARED_VIRTUAL_THREAD_EXECUTOR);
+  }
+
+  @Test
+  public void sharedWorkStealingExecutorRunsTasks() throws Exception {
+    assertSharedExecutorRunsTasks(GrpcUtil.SHARED_WORK_STEALING_EXECUTOR);
+  }
+
+  private static void assertSharedExecutorRunsTasks(
+      SharedResourceHolder.Resource<ExecutorService> resource) throws Exception {
+    ExecutorService executor = resource.create();
+    try {
+      final CountDownLatch ran = new CountDownLatch(1);
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          ran.countDown();
+        }
+      });
+      assertTrue(resource.toString(), ran.await(5, TimeUnit.SECONDS));
+    } finally {
+      resource.close(executor);
+    }
+    assertTrue(executor.isShutdown());
+  }
+
   @Test
   public void grpcUserAgent() {
     assertTrue(GrpcUtil.getGrpcUserAgent("netty", null).startsWith("grpc-java-netty/"));
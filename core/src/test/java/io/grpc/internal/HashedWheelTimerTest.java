@@ -0,0 +1,231 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link HashedWheelTimer}. */
+@RunWith(JUnit4.class)
+public class HashedWheelTimerTest {
+  // A small wheel, so that the tests cover timeouts that are more than a round away.
+  private final HashedWheelTimer timer = new HashedWheelTimer(
+      GrpcUtil.getThreadFactory("test-timer-%d", true), TimeUnit.MILLISECONDS.toNanos(1), 8);
+
+  @After
+  public void tearDown() {
+    timer.shutdownNow();
+  }
+
+  @Test
+  public void runsTasksNoEarlierThanTheirDelay() throws Exception {
+    long[] delaysMillis = {0, 1, 5, 20, 50};
+    final CountDownLatch latch = new CountDownLatch(delaysMillis.length);
+    List<ScheduledFuture<Long>> futures = new ArrayList<ScheduledFuture<Long>>();
+    for (long delay : delaysMillis) {
+      final long start = System.nanoTime();
+      futures.add(timer.schedule(new Callable<Long>() {
+        @Override
+        public Long call() {
+          latch.countDown();
+          return System.nanoTime() - start;
+        }
+      }, delay, TimeUnit.MILLISECONDS));
+    }
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    for (int i = 0; i < delaysMillis.length; i++) {
+      long elapsed = futures.get(i).get();
+      assertTrue("ran early: " + elapsed,
+          elapsed >= TimeUnit.MILLISECONDS.toNanos(delaysMillis[i]));
+    }
+  }
+
+  @Test
+  public void cancelledTasksDoNotRun() throws Exception {
+    AtomicInteger runs = new AtomicInteger();
+    ScheduledFuture<?> cancelled = timer.schedule(new CountingRunnable(runs), 20,
+        TimeUnit.MILLISECONDS);
+    assertTrue(cancelled.cancel(false));
+    assertTrue(cancelled.isCancelled());
+
+    CountDownLatch latch = new CountDownLatch(1);
+    timer.schedule(new LatchRunnable(latch), 40, TimeUnit.MILLISECONDS);
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertEquals(0, runs.get());
+  }
+
+  @Test
+  public void interruptingCancelDoesNotLeaveWorkerInterrupted() throws Exception {
+    final CountDownLatch running = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    ScheduledFuture<?> blocking = timer.schedule(new Runnable() {
+      @Override
+      public void run() {
+        running.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          // Restores the flag from cancel(true), as well-behaved tasks do.
+          Thread.currentThread().interrupt();
+        }
+      }
+    }, 0, TimeUnit.MILLISECONDS);
+    assertTrue(running.await(5, TimeUnit.SECONDS));
+    assertTrue(blocking.cancel(true));
+
+    ScheduledFuture<Boolean> next = timer.schedule(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return Thread.currentThread().isInterrupted();
+      }
+    }, 5, TimeUnit.MILLISECONDS);
+    assertFalse(next.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void executeRunsTask() throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    timer.execute(new LatchRunnable(latch));
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void exceptionsAreReportedThroughFuture() throws Exception {
+    ScheduledFuture<?> future = timer.schedule(new Runnable() {
+      @Override
+      public void run() {
+        throw new IllegalStateException("injected");
+      }
+    }, 1, TimeUnit.MILLISECONDS);
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail("Expected exception");
+    } catch (ExecutionException expected) {
+      assertTrue(expected.getCause() instanceof IllegalStateException);
+    }
+
+    // The timer keeps working.
+    CountDownLatch latch = new CountDownLatch(1);
+    timer.execute(new LatchRunnable(latch));
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void periodicTasks() throws Exception {
+    CountDownLatch fixedRate = new CountDownLatch(3);
+    CountDownLatch fixedDelay = new CountDownLatch(3);
+    ScheduledFuture<?> fixedRateFuture = timer.scheduleAtFixedRate(
+        new LatchRunnable(fixedRate), 0, 5, TimeUnit.MILLISECONDS);
+    ScheduledFuture<?> fixedDelayFuture = timer.scheduleWithFixedDelay(
+        new LatchRunnable(fixedDelay), 0, 5, TimeUnit.MILLISECONDS);
+    assertTrue(fixedRate.await(5, TimeUnit.SECONDS));
+    assertTrue(fixedDelay.await(5, TimeUnit.SECONDS));
+    assertFalse(fixedRateFuture.isDone());
+    assertTrue(fixedRateFuture.cancel(false));
+    assertTrue(fixedDelayFuture.cancel(false));
+  }
+
+  @Test
+  public void shutdownNowReturnsPendingTasks() throws Exception {
+    AtomicInteger runs = new AtomicInteger();
+    ScheduledFuture<?> future = timer.schedule(new CountingRunnable(runs), 1, TimeUnit.HOURS);
+    List<Runnable> pending = timer.shutdownNow();
+
+    assertEquals(1, pending.size());
+    assertTrue(future.isCancelled());
+    assertTrue(timer.isShutdown());
+    assertTrue(timer.isTerminated());
+    assertEquals(0, runs.get());
+    try {
+      timer.execute(new CountingRunnable(runs));
+      fail("Expected exception");
+    } catch (RejectedExecutionException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void manySchedulesAndCancelsFromManyThreads() throws Exception {
+    final AtomicInteger runs = new AtomicInteger();
+    // Tasks may run before they are cancelled, if the thread is descheduled in between.
+    final AtomicInteger failedCancels = new AtomicInteger();
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 10000; j++) {
+            if (!timer.schedule(new CountingRunnable(runs), 1 + j % 100, TimeUnit.MILLISECONDS)
+                .cancel(false)) {
+              failedCancels.incrementAndGet();
+            }
+          }
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    CountDownLatch latch = new CountDownLatch(1);
+    timer.schedule(new LatchRunnable(latch), 150, TimeUnit.MILLISECONDS);
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertEquals(failedCancels.get(), runs.get());
+  }
+
+  private static final class CountingRunnable implements Runnable {
+    private final AtomicInteger runs;
+
+    CountingRunnable(AtomicInteger runs) {
+      this.runs = runs;
+    }
+
+    @Override
+    public void run() {
+      runs.incrementAndGet();
+    }
+  }
+
+  private static final class LatchRunnable implements Runnable {
+    private final CountDownLatch latch;
+
+    LatchRunnable(CountDownLatch latch) {
+      this.latch = latch;
+    }
+
+    @Override
+    public void run() {
+      latch.countDown();
+    }
+  }
+}
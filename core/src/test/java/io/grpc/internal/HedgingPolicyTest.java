@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.grpc.MethodDescriptor;
+import io.grpc.Status.Code;
+import io.grpc.internal.RetriableStream.HedgingPolicies;
+import io.grpc.internal.RetriableStream.HedgingPolicy;
+import io.grpc.testing.TestMethodDescriptors;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for HedgingPolicy. */
+@RunWith(JUnit4.class)
+public class HedgingPolicyTest {
+
+  @Test
+  public void getHedgingPolicies() throws Exception {
+    BufferedReader reader = null;
+    try {
+      reader = new BufferedReader(new InputStreamReader(HedgingPolicyTest.class.getResourceAsStream(
+          "/io/grpc/internal/test_hedging_service_config.json"), "UTF-8"));
+      StringBuilder sb = new StringBuilder();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        sb.append(line).append('\n');
+      }
+      Object serviceConfigObj = JsonParser.parse(sb.toString());
+      assertTrue(serviceConfigObj instanceof Map);
+
+      @SuppressWarnings("unchecked")
+      Map<String, Object> serviceConfig = (Map<String, Object>) serviceConfigObj;
+      HedgingPolicies hedgingPolicies = ServiceConfigUtil.getHedgingPolicies(serviceConfig, 4);
+      assertNotNull(hedgingPolicies);
+
+      MethodDescriptor.Builder<Void, Void> builder = TestMethodDescriptors.voidMethod().toBuilder();
+
+      assertNull(hedgingPolicies.get(builder.setFullMethodName("not/exist").build()));
+      assertNull(hedgingPolicies.get(builder.setFullMethodName("not_exist/Foo1").build()));
+
+      assertEquals(
+          new HedgingPolicy(
+              3, TimeUnit.MILLISECONDS.toNanos(2100),
+              Arrays.asList(Code.UNAVAILABLE, Code.RESOURCE_EXHAUSTED)),
+          hedgingPolicies.get(builder.setFullMethodName("SimpleService1/not_exist").build()));
+      assertEquals(
+          new HedgingPolicy(4, 0, Collections.<Code>emptyList()),
+          hedgingPolicies.get(builder.setFullMethodName("SimpleService1/Foo1").build()));
+
+      assertNull(
+          hedgingPolicies.get(builder.setFullMethodName("SimpleService2/not_exist").build()));
+      assertEquals(
+          new HedgingPolicy(4, 0, Collections.<Code>emptyList()),
+          hedgingPolicies.get(builder.setFullMethodName("SimpleService2/Foo2").build()));
+    } finally {
+      if (reader != null) {
+        reader.close();
+      }
+    }
+  }
+}
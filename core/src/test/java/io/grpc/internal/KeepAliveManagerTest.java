@@ -132,6 +132,41 @@ public final class KeepAliveManagerTest {
     assertEquals(1500 + 1000 - 1600, delay.longValue());
   }
 
+  @Test
+  public void incomingDataDoesNotRescheduleUntilPingTaskRuns() {
+    ScheduledFuture<?> future = mock(ScheduledFuture.class);
+    doReturn(future)
+        .when(scheduler).schedule(isA(Runnable.class), isA(Long.class), isA(TimeUnit.class));
+    keepAliveManager.onTransportActive();
+    ArgumentCaptor<Runnable> sendPingCaptor = ArgumentCaptor.forClass(Runnable.class);
+    verify(scheduler, times(1)).schedule(sendPingCaptor.capture(), isA(Long.class),
+        isA(TimeUnit.class));
+    Runnable sendPing = sendPingCaptor.getValue();
+
+    for (int i = 1; i <= 10; i++) {
+      ticker.time = i * 100;
+      keepAliveManager.onDataReceived();
+    }
+    // The ping task is neither cancelled nor rescheduled by incoming data.
+    verify(scheduler, times(1)).schedule(isA(Runnable.class), isA(Long.class),
+        isA(TimeUnit.class));
+    verify(future, times(0)).cancel(isA(Boolean.class));
+
+    // The task reschedules itself relative to the last received data.
+    ticker.time = 1100;
+    sendPing.run();
+    verify(keepAlivePinger, times(0)).ping();
+    ArgumentCaptor<Long> delayCaptor = ArgumentCaptor.forClass(Long.class);
+    verify(scheduler, times(2)).schedule(isA(Runnable.class), delayCaptor.capture(),
+        isA(TimeUnit.class));
+    assertEquals(1000 + 1000 - 1100, delayCaptor.getValue().longValue());
+
+    // Nothing else was received, so the ping is sent the next time around.
+    ticker.time = 2000;
+    sendPing.run();
+    verify(keepAlivePinger).ping();
+  }
+
   @Test
   public void clientKeepAlivePinger_pingTimeout() {
     keepAlivePinger = new ClientKeepAlivePinger(transport);
@@ -21,6 +21,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -34,6 +35,8 @@ import java.io.ByteArrayInputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -90,14 +93,47 @@ public class MessageFramerTest {
   public void simpleUnknownLengthPayload() {
     writeUnknownLength(framer, new byte[]{3, 14});
     framer.flush();
-    // Header is written first, then payload
-    verify(sink).deliverFrame(toWriteBuffer(new byte[] {0, 0, 0, 0, 2}), false, false, 0);
-    verify(sink).deliverFrame(toWriteBuffer(new byte[] {3, 14}), false, true, 1);
-    assertEquals(2, allocator.allocCount);
+    // Small enough to be staged, so header and payload share a buffer
+    verify(sink).deliverFrame(toWriteBuffer(new byte[] {0, 0, 0, 0, 2, 3, 14}), false, true, 1);
+    assertEquals(1, allocator.allocCount);
     verifyNoMoreInteractions(sink);
     checkStats(2, 2);
   }
 
+  @Test
+  public void smallUnknownLengthPayloadsShouldBeCombined() {
+    allocator = new BytesWritableBufferAllocator(100, 100);
+    framer = new MessageFramer(sink, allocator, statsTraceCtx);
+    writeUnknownLength(framer, new byte[]{3});
+    writeKnownLength(framer, new byte[]{14});
+    writeUnknownLength(framer, new byte[]{15});
+    framer.flush();
+    byte[] frames = new byte[] {0, 0, 0, 0, 1, 3, 0, 0, 0, 0, 1, 14, 0, 0, 0, 0, 1, 15};
+    verify(sink).deliverFrame(toWriteBufferWithMinSize(frames, 100), false, true, 3);
+    assertEquals(1, allocator.allocCount);
+    verifyNoMoreInteractions(sink);
+    checkStats(1, 1, 1, 1, 1, 1);
+  }
+
+  @Test
+  public void largeUnknownLengthPayloadHeaderSharesBuffer() {
+    allocator = new BytesWritableBufferAllocator(2000, 2000);
+    framer = new MessageFramer(sink, allocator, statsTraceCtx);
+    writeKnownLength(framer, new byte[]{3});
+    writeUnknownLength(framer, new byte[MessageFramer.STAGING_SIZE + 1]);
+    framer.flush();
+    // The header of the large message is delivered with the message before it
+    verify(sink).deliverFrame(frameCaptor.capture(), eq(false), eq(false), eq(1));
+    verify(sink).deliverFrame(frameCaptor.capture(), eq(false), eq(true), eq(1));
+    assertEquals(
+        toWriteBuffer(new byte[] {0, 0, 0, 0, 1, 3, 0, 0, 0, 4, 1}),
+        frameCaptor.getAllValues().get(0));
+    assertEquals(MessageFramer.STAGING_SIZE + 1, frameCaptor.getAllValues().get(1).size());
+    assertEquals(2, allocator.allocCount);
+    verifyNoMoreInteractions(sink);
+    checkStats(1, 1, MessageFramer.STAGING_SIZE + 1, MessageFramer.STAGING_SIZE + 1);
+  }
+
   @Test
   public void smallPayloadsShouldBeCombined() {
     writeKnownLength(framer, new byte[]{3});
@@ -220,9 +256,9 @@ public class MessageFramerTest {
   @Test
   public void largerFrameSizeUnknownLength() throws Exception {
     // Force payload to be split into two chunks
-    allocator = new BytesWritableBufferAllocator(500, 500);
+    allocator = new BytesWritableBufferAllocator(1000, 1000);
     framer = new MessageFramer(sink, allocator, statsTraceCtx);
-    writeUnknownLength(framer, new byte[1000]);
+    writeUnknownLength(framer, new byte[2000]);
     framer.flush();
     // Header and first chunk written with flush = false
     verify(sink, times(2)).deliverFrame(frameCaptor.capture(), eq(false), eq(false), eq(0));
@@ -233,16 +269,16 @@ public class MessageFramerTest {
     // header has fixed length of 5 and specifies correct length
     assertEquals(5, frameCaptor.getAllValues().get(0).readableBytes());
     byte[] data = new byte[5];
-    data[3] = 3;
-    data[4] = (byte) 232;
+    data[3] = 7;
+    data[4] = (byte) 208;
     assertEquals(toWriteBuffer(data), frameCaptor.getAllValues().get(0));
 
-    assertEquals(500, frameCaptor.getAllValues().get(1).readableBytes());
-    assertEquals(500, frameCaptor.getAllValues().get(2).readableBytes());
+    assertEquals(1000, frameCaptor.getAllValues().get(1).readableBytes());
+    assertEquals(1000, frameCaptor.getAllValues().get(2).readableBytes());
 
     verifyNoMoreInteractions(sink);
     assertEquals(3, allocator.allocCount);
-    checkStats(1000, 1000);
+    checkStats(2000, 2000);
   }
 
   @Test
@@ -253,13 +289,11 @@ public class MessageFramerTest {
         .setCompressor(new Codec.Gzip());
     writeKnownLength(framer, new byte[1000]);
     framer.flush();
-    // The GRPC header is written first as a separate frame.
-    // The message count is only bumped when a message is completely written.
-    verify(sink).deliverFrame(frameCaptor.capture(), eq(false), eq(false), eq(0));
+    // The compressed message is small enough to be staged, and then framed in a single buffer.
     verify(sink).deliverFrame(frameCaptor.capture(), eq(false), eq(true), eq(1));
 
     // Check the header
-    ByteWritableBuffer buffer = frameCaptor.getAllValues().get(0);
+    ByteWritableBuffer buffer = frameCaptor.getValue();
 
     assertEquals(0x1, buffer.data[0]);
     ByteBuffer byteBuf = ByteBuffer.wrap(buffer.data, 1, 4);
@@ -268,10 +302,38 @@ public class MessageFramerTest {
     // compressed data should be smaller than uncompressed data.
     assertTrue(length < 1000);
 
-    assertEquals(frameCaptor.getAllValues().get(1).size(), length);
+    assertEquals(5 + length, buffer.size());
+    assertEquals(1, allocator.allocCount);
     checkStats(length, 1000);
   }
 
+  @Test
+  public void compressedLargerThanStaging() throws Exception {
+    allocator = new BytesWritableBufferAllocator(100, Integer.MAX_VALUE);
+    framer = new MessageFramer(sink, allocator, statsTraceCtx)
+        .setCompressor(new Codec.Gzip());
+    byte[] payload = new byte[10 * MessageFramer.STAGING_SIZE];
+    new Random(1).nextBytes(payload);
+    writeKnownLength(framer, payload);
+    framer.flush();
+    // The GRPC header is written first as a separate frame, followed by the compressed chunks.
+    // The message count is only bumped when a message is completely written.
+    verify(sink, atLeast(2)).deliverFrame(frameCaptor.capture(), eq(false), eq(false), eq(0));
+    verify(sink).deliverFrame(frameCaptor.capture(), eq(false), eq(true), eq(1));
+
+    List<ByteWritableBuffer> frames = frameCaptor.getAllValues();
+    ByteWritableBuffer header = frames.get(0);
+    assertEquals(5, header.size());
+    assertEquals(0x1, header.data[0]);
+    int length = ByteBuffer.wrap(header.data, 1, 4).getInt();
+    int chunks = 0;
+    for (ByteWritableBuffer chunk : frames.subList(1, frames.size())) {
+      chunks += chunk.size();
+    }
+    assertEquals(length, chunks);
+    checkStats(length, payload.length);
+  }
+
   @Test
   public void dontCompressIfNoEncoding() throws Exception {
     allocator = new BytesWritableBufferAllocator(100, Integer.MAX_VALUE);
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link PooledWritableBufferAllocator}. */
+@RunWith(JUnit4.class)
+public class PooledWritableBufferAllocatorTest {
+  private static final int MIN = PooledWritableBufferAllocator.MIN_BUFFER;
+  private static final int MAX = PooledWritableBufferAllocator.MAX_BUFFER;
+
+  private final PooledWritableBufferAllocator allocator = new PooledWritableBufferAllocator(0);
+
+  @Test
+  public void capacityIsRoundedToSizeClass() {
+    assertEquals(MIN, allocator.allocate(1).writableBytes());
+    assertEquals(MIN, allocator.allocate(MIN).writableBytes());
+    assertEquals(2 * MIN, allocator.allocate(MIN + 1).writableBytes());
+    assertEquals(MAX, allocator.allocate(MAX - 1).writableBytes());
+    assertEquals(MAX, allocator.allocate(Integer.MAX_VALUE).writableBytes());
+  }
+
+  @Test
+  public void writesAreVisibleInArray() {
+    PooledWritableBufferAllocator.Buffer buffer = allocator.allocate(10);
+    buffer.write(new byte[] {1, 2, 3}, 1, 2);
+    buffer.write((byte) 4);
+    assertEquals(3, buffer.readableBytes());
+    assertEquals(MIN - 3, buffer.writableBytes());
+    assertEquals(2, buffer.array()[0]);
+    assertEquals(3, buffer.array()[1]);
+    assertEquals(4, buffer.array()[2]);
+  }
+
+  @Test
+  public void releasedArrayIsReused() {
+    PooledWritableBufferAllocator.Buffer buffer = allocator.allocate(10);
+    byte[] array = buffer.array();
+    buffer.release();
+    // Only released once.
+    buffer.release();
+
+    PooledWritableBufferAllocator.Buffer reused = allocator.allocate(100);
+    assertSame(array, reused.array());
+    assertEquals(0, reused.readableBytes());
+    assertNotSame(array, allocator.allocate(100).array());
+  }
+
+  @Test
+  public void poolIsBoundedInBytes() {
+    PooledWritableBufferAllocator allocator = new PooledWritableBufferAllocator(2 * MIN);
+    PooledWritableBufferAllocator.Buffer[] buffers = new PooledWritableBufferAllocator.Buffer[3];
+    byte[][] arrays = new byte[buffers.length][];
+    for (int i = 0; i < buffers.length; i++) {
+      buffers[i] = allocator.allocate(MIN);
+      arrays[i] = buffers[i].array();
+    }
+    for (PooledWritableBufferAllocator.Buffer buffer : buffers) {
+      buffer.release();
+    }
+    // The pool keeps the first two arrays, and drops the third.
+    assertSame(arrays[0], allocator.allocate(MIN).array());
+    assertSame(arrays[1], allocator.allocate(MIN).array());
+    byte[] fresh = allocator.allocate(MIN).array();
+    for (byte[] array : arrays) {
+      assertNotSame(array, fresh);
+    }
+  }
+
+  @Test
+  public void arrayReleasedByOtherThreadIsReused() throws Exception {
+    final PooledWritableBufferAllocator.Buffer buffer = allocator.allocate(MIN);
+    byte[] array = buffer.array();
+    // Like the writer of a transport releasing the buffers of the application threads.
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        buffer.release();
+      }
+    };
+    thread.start();
+    thread.join();
+
+    assertSame(array, allocator.allocate(MIN).array());
+  }
+
+  @Test
+  public void arrayAllocatedByOtherThreadIsReused() throws Exception {
+    final AtomicReference<PooledWritableBufferAllocator.Buffer> buffer =
+        new AtomicReference<PooledWritableBufferAllocator.Buffer>();
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        buffer.set(allocator.allocate(MAX));
+      }
+    };
+    thread.start();
+    thread.join();
+    byte[] array = buffer.get().array();
+    buffer.get().release();
+
+    assertSame(array, allocator.allocate(MAX).array());
+  }
+
+  @Test
+  public void poolKeepsAtLeastOneArray() {
+    PooledWritableBufferAllocator.Buffer first = allocator.allocate(MAX);
+    PooledWritableBufferAllocator.Buffer second = allocator.allocate(MAX);
+    byte[] firstArray = first.array();
+    byte[] secondArray = second.array();
+    first.release();
+    // Dropped, as the pool keeps a single array at this limit.
+    second.release();
+
+    assertSame(firstArray, allocator.allocate(MAX).array());
+    assertNotSame(secondArray, allocator.allocate(MAX).array());
+  }
+}
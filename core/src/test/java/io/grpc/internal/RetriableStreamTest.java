@@ -29,6 +29,7 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.AdditionalAnswers.delegatesTo;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.inOrder;
@@ -52,6 +53,7 @@ import io.grpc.Status;
 import io.grpc.Status.Code;
 import io.grpc.StringMarshaller;
 import io.grpc.internal.RetriableStream.ChannelBufferMeter;
+import io.grpc.internal.RetriableStream.HedgingPolicy;
 import io.grpc.internal.RetriableStream.RetryPolicy;
 import io.grpc.internal.RetriableStream.Throttle;
 import io.grpc.internal.StreamListener.MessageProducer;
@@ -110,6 +112,12 @@ public class RetriableStreamTest {
           MAX_ATTEMPTS, INITIAL_BACKOFF_IN_SECONDS, MAX_BACKOFF_IN_SECONDS, BACKOFF_MULTIPLIER,
           Arrays.asList(RETRIABLE_STATUS_CODE_1, RETRIABLE_STATUS_CODE_2));
 
+  private static final long HEDGING_DELAY_IN_SECONDS = 10L;
+  private static final HedgingPolicy HEDGING_POLICY =
+      new HedgingPolicy(
+          3, TimeUnit.SECONDS.toNanos(HEDGING_DELAY_IN_SECONDS),
+          Arrays.asList(RETRIABLE_STATUS_CODE_1, RETRIABLE_STATUS_CODE_2));
+
   private final RetriableStreamRecorder retriableStreamRecorder =
       mock(RetriableStreamRecorder.class);
   private final ClientStreamListener masterListener = mock(ClientStreamListener.class);
@@ -129,9 +137,10 @@ public class RetriableStreamTest {
         Executor callExecutor,
         ScheduledExecutorService scheduledExecutorService,
         RetryPolicy retryPolicy,
+        @Nullable HedgingPolicy hedgingPolicy,
         @Nullable Throttle throttle) {
       super(method, headers, channelBufferUsed, perRpcBufferLimit, channelBufferLimit, callExecutor,
-          scheduledExecutorService, retryPolicy, throttle);
+          scheduledExecutorService, retryPolicy, hedgingPolicy, throttle);
     }
 
     @Override
@@ -152,6 +161,16 @@ public class RetriableStreamTest {
     Status prestart() {
       return retriableStreamRecorder.prestart();
     }
+
+    @Override
+    void hedgedAttemptCommitted(long latencyNanos) {
+      retriableStreamRecorder.hedgedAttemptCommitted(latencyNanos);
+    }
+
+    @Override
+    void originalAttemptCutOff(long elapsedNanos) {
+      retriableStreamRecorder.originalAttemptCutOff(elapsedNanos);
+    }
   }
 
   private final RetriableStream<String> retriableStream =
@@ -163,7 +182,14 @@ public class RetriableStreamTest {
     return new RecordedRetriableStream(
         method, new Metadata(), channelBufferUsed, PER_RPC_BUFFER_LIMIT, CHANNEL_BUFFER_LIMIT,
         MoreExecutors.directExecutor(), fakeClock.getScheduledExecutorService(), RETRY_POLICY,
-        throttle);
+        null /* hedgingPolicy */, throttle);
+  }
+
+  private RetriableStream<String> newHedgingStream(@Nullable Throttle throttle) {
+    return new RecordedRetriableStream(
+        method, new Metadata(), channelBufferUsed, PER_RPC_BUFFER_LIMIT, CHANNEL_BUFFER_LIMIT,
+        MoreExecutors.directExecutor(), fakeClock.getScheduledExecutorService(),
+        RetryPolicy.DEFAULT, HEDGING_POLICY, throttle);
   }
 
   @After
@@ -1532,6 +1558,209 @@ public class RetriableStreamTest {
     verify(masterListener).closed(same(status), any(Metadata.class));
   }
 
+  @Test
+  public void hedging_hedgesAfterDelayAndCommitsFirstResponse() {
+    RetriableStream<String> hedgingStream = newHedgingStream(null);
+    ClientStream mockStream1 = mock(ClientStream.class);
+    ClientStream mockStream2 = mock(ClientStream.class);
+    ClientStream mockStream3 = mock(ClientStream.class);
+    doReturn(mockStream1).when(retriableStreamRecorder).newSubstream(0);
+    doReturn(mockStream2).when(retriableStreamRecorder).newSubstream(1);
+    doReturn(mockStream3).when(retriableStreamRecorder).newSubstream(2);
+    InOrder inOrder =
+        inOrder(retriableStreamRecorder, masterListener, mockStream1, mockStream2, mockStream3);
+
+    hedgingStream.start(masterListener);
+    hedgingStream.sendMessage("msg1");
+    inOrder.verify(retriableStreamRecorder).prestart();
+    inOrder.verify(retriableStreamRecorder).newSubstream(0);
+    inOrder.verify(mockStream1).start(any(ClientStreamListener.class));
+    inOrder.verify(mockStream1).writeMessage(any(InputStream.class));
+    inOrder.verifyNoMoreInteractions();
+    assertEquals(1, fakeClock.numPendingTasks());
+
+    // first hedge replays the buffered message
+    fakeClock.forwardTime(HEDGING_DELAY_IN_SECONDS - 1, TimeUnit.SECONDS);
+    inOrder.verifyNoMoreInteractions();
+    fakeClock.forwardTime(1, TimeUnit.SECONDS);
+    inOrder.verify(retriableStreamRecorder).newSubstream(1);
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor2 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    inOrder.verify(mockStream2).start(sublistenerCaptor2.capture());
+    inOrder.verify(mockStream2).writeMessage(any(InputStream.class));
+
+    // new messages go to both attempts
+    hedgingStream.sendMessage("msg2");
+    verify(mockStream1, times(2)).writeMessage(any(InputStream.class));
+    verify(mockStream2, times(2)).writeMessage(any(InputStream.class));
+
+    // second hedge, which is the last one
+    fakeClock.forwardTime(HEDGING_DELAY_IN_SECONDS, TimeUnit.SECONDS);
+    verify(retriableStreamRecorder).newSubstream(2);
+    verify(mockStream3).start(any(ClientStreamListener.class));
+    assertEquals(0, fakeClock.numPendingTasks());
+
+    // the first response commits, and the other attempts are cancelled
+    Metadata headers = new Metadata();
+    sublistenerCaptor2.getValue().headersRead(headers);
+    ArgumentCaptor<Status> statusCaptor = ArgumentCaptor.forClass(Status.class);
+    verify(mockStream1).cancel(statusCaptor.capture());
+    assertEquals(CANCELLED_BECAUSE_COMMITTED, statusCaptor.getValue().getDescription());
+    verify(mockStream3).cancel(statusCaptor.capture());
+    assertEquals(CANCELLED_BECAUSE_COMMITTED, statusCaptor.getValue().getDescription());
+    verify(mockStream2, never()).cancel(any(Status.class));
+    verify(retriableStreamRecorder).postCommit();
+    verify(masterListener).headersRead(headers);
+    verify(retriableStreamRecorder).hedgedAttemptCommitted(anyLong());
+    // only the original attempt is recorded, as a lower bound of its latency
+    verify(retriableStreamRecorder).originalAttemptCutOff(anyLong());
+
+    hedgingStream.sendMessage("msg3");
+    verify(mockStream2, times(3)).writeMessage(any(InputStream.class));
+    verify(mockStream1, times(2)).writeMessage(any(InputStream.class));
+  }
+
+  @Test
+  public void hedging_nonFatalStatusHedgesImmediately() {
+    RetriableStream<String> hedgingStream = newHedgingStream(null);
+    ClientStream mockStream1 = mock(ClientStream.class);
+    ClientStream mockStream2 = mock(ClientStream.class);
+    doReturn(mockStream1).when(retriableStreamRecorder).newSubstream(0);
+    doReturn(mockStream2).when(retriableStreamRecorder).newSubstream(1);
+
+    hedgingStream.start(masterListener);
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor1 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream1).start(sublistenerCaptor1.capture());
+
+    sublistenerCaptor1.getValue()
+        .closed(Status.fromCode(RETRIABLE_STATUS_CODE_1), PROCESSED, new Metadata());
+    fakeClock.runDueTasks();
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor2 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream2).start(sublistenerCaptor2.capture());
+    verify(retriableStreamRecorder, never()).postCommit();
+    assertEquals(1, fakeClock.numPendingTasks());
+
+    // a fatal status commits and cancels the scheduled hedge
+    Status fatalStatus = Status.fromCode(NON_RETRIABLE_STATUS_CODE);
+    sublistenerCaptor2.getValue().closed(fatalStatus, PROCESSED, new Metadata());
+    verify(retriableStreamRecorder).postCommit();
+    verify(masterListener).closed(same(fatalStatus), any(Metadata.class));
+    verify(retriableStreamRecorder, never()).newSubstream(2);
+    assertEquals(0, fakeClock.numPendingTasks());
+  }
+
+  @Test
+  public void hedging_allAttemptsFailNonFatal() {
+    RetriableStream<String> hedgingStream = newHedgingStream(null);
+    ClientStream mockStream1 = mock(ClientStream.class);
+    ClientStream mockStream2 = mock(ClientStream.class);
+    ClientStream mockStream3 = mock(ClientStream.class);
+    doReturn(mockStream1).when(retriableStreamRecorder).newSubstream(0);
+    doReturn(mockStream2).when(retriableStreamRecorder).newSubstream(1);
+    doReturn(mockStream3).when(retriableStreamRecorder).newSubstream(2);
+
+    hedgingStream.start(masterListener);
+    fakeClock.forwardTime(HEDGING_DELAY_IN_SECONDS, TimeUnit.SECONDS);
+    fakeClock.forwardTime(HEDGING_DELAY_IN_SECONDS, TimeUnit.SECONDS);
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor1 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream1).start(sublistenerCaptor1.capture());
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor2 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream2).start(sublistenerCaptor2.capture());
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor3 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream3).start(sublistenerCaptor3.capture());
+
+    sublistenerCaptor3.getValue()
+        .closed(Status.fromCode(RETRIABLE_STATUS_CODE_1), PROCESSED, new Metadata());
+    sublistenerCaptor1.getValue()
+        .closed(Status.fromCode(RETRIABLE_STATUS_CODE_2), PROCESSED, new Metadata());
+    verify(retriableStreamRecorder, never()).postCommit();
+
+    // the last attempt in flight decides the status
+    Status lastStatus = Status.fromCode(RETRIABLE_STATUS_CODE_1);
+    sublistenerCaptor2.getValue().closed(lastStatus, PROCESSED, new Metadata());
+    verify(retriableStreamRecorder).postCommit();
+    verify(masterListener).closed(same(lastStatus), any(Metadata.class));
+  }
+
+  @Test
+  public void hedging_pushback() {
+    RetriableStream<String> hedgingStream = newHedgingStream(null);
+    ClientStream mockStream1 = mock(ClientStream.class);
+    ClientStream mockStream2 = mock(ClientStream.class);
+    doReturn(mockStream1).when(retriableStreamRecorder).newSubstream(0);
+    doReturn(mockStream2).when(retriableStreamRecorder).newSubstream(1);
+
+    hedgingStream.start(masterListener);
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor1 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream1).start(sublistenerCaptor1.capture());
+
+    // a non-negative pushback delays the next hedge
+    Metadata pushbackTrailers = new Metadata();
+    pushbackTrailers.put(RetriableStream.GRPC_RETRY_PUSHBACK_MS, "3000");
+    sublistenerCaptor1.getValue()
+        .closed(Status.fromCode(RETRIABLE_STATUS_CODE_1), PROCESSED, pushbackTrailers);
+    fakeClock.forwardTime(2, TimeUnit.SECONDS);
+    verify(retriableStreamRecorder, never()).newSubstream(1);
+    fakeClock.forwardTime(1, TimeUnit.SECONDS);
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor2 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream2).start(sublistenerCaptor2.capture());
+
+    // a negative pushback stops hedging
+    Metadata stopTrailers = new Metadata();
+    stopTrailers.put(RetriableStream.GRPC_RETRY_PUSHBACK_MS, "-1");
+    Status status = Status.fromCode(RETRIABLE_STATUS_CODE_1);
+    sublistenerCaptor2.getValue().closed(status, PROCESSED, stopTrailers);
+    verify(retriableStreamRecorder).postCommit();
+    verify(masterListener).closed(same(status), any(Metadata.class));
+    verify(retriableStreamRecorder, never()).newSubstream(2);
+    assertEquals(0, fakeClock.numPendingTasks());
+  }
+
+  @Test
+  public void hedging_throttled() {
+    Throttle throttle = new Throttle(4f, 0.8f);
+    RetriableStream<String> hedgingStream = newHedgingStream(throttle);
+    ClientStream mockStream1 = mock(ClientStream.class);
+    doReturn(mockStream1).when(retriableStreamRecorder).newSubstream(0);
+    // leave exactly the threshold, so the next qualified failure throttles
+    throttle.onQualifiedFailureThenCheckIsAboveThreshold();
+
+    hedgingStream.start(masterListener);
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor1 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream1).start(sublistenerCaptor1.capture());
+
+    Status status = Status.fromCode(RETRIABLE_STATUS_CODE_1);
+    sublistenerCaptor1.getValue().closed(status, PROCESSED, new Metadata());
+    verify(retriableStreamRecorder).postCommit();
+    verify(masterListener).closed(same(status), any(Metadata.class));
+    verify(retriableStreamRecorder, never()).newSubstream(1);
+    assertEquals(0, fakeClock.numPendingTasks());
+  }
+
+  @Test
+  public void hedging_cancelStopsScheduledHedge() {
+    RetriableStream<String> hedgingStream = newHedgingStream(null);
+    ClientStream mockStream1 = mock(ClientStream.class);
+    doReturn(mockStream1).when(retriableStreamRecorder).newSubstream(0);
+
+    hedgingStream.start(masterListener);
+    assertEquals(1, fakeClock.numPendingTasks());
+
+    hedgingStream.cancel(Status.CANCELLED);
+    assertEquals(0, fakeClock.numPendingTasks());
+    verify(mockStream1).cancel(any(Status.class));
+    verify(retriableStreamRecorder).postCommit();
+    verify(retriableStreamRecorder, never()).originalAttemptCutOff(anyLong());
+  }
+
   /**
    * Used to stub a retriable stream as well as to record methods of the retriable stream being
    * called.
@@ -1542,5 +1771,9 @@ public class RetriableStreamTest {
     ClientStream newSubstream(int previousAttempts);
 
     Status prestart();
+
+    void hedgedAttemptCommitted(long latencyNanos);
+
+    void originalAttemptCutOff(long elapsedNanos);
   }
 }
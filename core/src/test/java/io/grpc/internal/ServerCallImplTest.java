@@ -22,6 +22,8 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.doThrow;
@@ -47,6 +49,8 @@ import io.grpc.internal.testing.SingleMessageProducer;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -62,6 +66,7 @@ public class ServerCallImplTest {
   @Rule public final ExpectedException thrown = ExpectedException.none();
   @Mock private ServerStream stream;
   @Mock private ServerCall.Listener<Long> callListener;
+  @Mock private ScheduledExecutorService scheduler;
 
   private final CallTracer serverCallTracer = CallTracer.getDefaultFactory().create();
   private ServerCallImpl<Long, Long> call;
@@ -91,7 +96,7 @@ public class ServerCallImplTest {
     context = Context.ROOT.withCancellation();
     call = new ServerCallImpl<Long, Long>(stream, UNARY_METHOD, requestHeaders, context,
         DecompressorRegistry.getDefaultInstance(), CompressorRegistry.getDefaultInstance(),
-        serverCallTracer);
+        serverCallTracer, scheduler);
   }
 
   @Test
@@ -114,7 +119,7 @@ public class ServerCallImplTest {
 
     call = new ServerCallImpl<Long, Long>(stream, UNARY_METHOD, requestHeaders, context,
         DecompressorRegistry.getDefaultInstance(), CompressorRegistry.getDefaultInstance(),
-        tracer);
+        tracer, scheduler);
 
     // required boilerplate
     call.sendHeaders(new Metadata());
@@ -225,7 +230,8 @@ public class ServerCallImplTest {
         context,
         DecompressorRegistry.getDefaultInstance(),
         CompressorRegistry.getDefaultInstance(),
-        serverCallTracer);
+        serverCallTracer,
+        scheduler);
     serverCall.sendHeaders(new Metadata());
     serverCall.sendMessage(1L);
     verify(stream, times(1)).writeMessage(any(InputStream.class));
@@ -259,7 +265,8 @@ public class ServerCallImplTest {
         context,
         DecompressorRegistry.getDefaultInstance(),
         CompressorRegistry.getDefaultInstance(),
-        serverCallTracer);
+        serverCallTracer,
+        scheduler);
     serverCall.sendHeaders(new Metadata());
     serverCall.sendMessage(1L);
     serverCall.sendMessage(1L);
@@ -296,7 +303,8 @@ public class ServerCallImplTest {
         context,
         DecompressorRegistry.getDefaultInstance(),
         CompressorRegistry.getDefaultInstance(),
-        serverCallTracer);
+        serverCallTracer,
+        scheduler);
     serverCall.close(Status.OK, new Metadata());
     ArgumentCaptor<Status> statusCaptor = ArgumentCaptor.forClass(Status.class);
     verify(stream, times(1)).cancel(statusCaptor.capture());
@@ -341,6 +349,57 @@ public class ServerCallImplTest {
     verify(stream).setMessageCompression(true);
   }
 
+  @Test
+  public void setFlushCoalescing() {
+    MethodDescriptor<Long, Long> method = UNARY_METHOD.toBuilder()
+        .setType(MethodType.SERVER_STREAMING)
+        .build();
+    ServerCallImpl<Long, Long> serverCall = new ServerCallImpl<Long, Long>(stream, method,
+        requestHeaders, context, DecompressorRegistry.getDefaultInstance(),
+        CompressorRegistry.getDefaultInstance(), serverCallTracer, scheduler);
+    serverCall.setFlushCoalescing(50, TimeUnit.MICROSECONDS, 8192);
+
+    verify(stream).setFlushCoalescing(TimeUnit.MICROSECONDS.toNanos(50), 8192, scheduler);
+  }
+
+  @Test
+  public void setFlushCoalescing_zeroDelayDisables() {
+    MethodDescriptor<Long, Long> method = UNARY_METHOD.toBuilder()
+        .setType(MethodType.SERVER_STREAMING)
+        .build();
+    ServerCallImpl<Long, Long> serverCall = new ServerCallImpl<Long, Long>(stream, method,
+        requestHeaders, context, DecompressorRegistry.getDefaultInstance(),
+        CompressorRegistry.getDefaultInstance(), serverCallTracer, scheduler);
+    serverCall.setFlushCoalescing(0, TimeUnit.MICROSECONDS, 8192);
+
+    verify(stream, never())
+        .setFlushCoalescing(anyLong(), anyInt(), any(ScheduledExecutorService.class));
+  }
+
+  @Test
+  public void setFlushCoalescing_negativeDelay() {
+    thrown.expect(IllegalArgumentException.class);
+
+    call.setFlushCoalescing(-1, TimeUnit.MICROSECONDS, 8192);
+  }
+
+  @Test
+  public void setFlushCoalescing_ignoredForSingleResponse() {
+    call.setFlushCoalescing(50, TimeUnit.MICROSECONDS, 8192);
+
+    verify(stream, never())
+        .setFlushCoalescing(anyLong(), anyInt(), any(ScheduledExecutorService.class));
+  }
+
+  @Test
+  public void setFlushCoalescing_failsAfterSendMessage() {
+    call.sendHeaders(new Metadata());
+    call.sendMessage(1L);
+    thrown.expect(IllegalStateException.class);
+
+    call.setFlushCoalescing(50, TimeUnit.MICROSECONDS, 8192);
+  }
+
   @Test
   public void streamListener_halfClosed() {
     ServerStreamListenerImpl<Long> streamListener =
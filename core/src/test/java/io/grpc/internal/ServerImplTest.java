@@ -449,6 +449,104 @@ public class ServerImplTest {
     verifyNoMoreInteractions(stream);
   }
 
+  @Test
+  public void adaptiveConcurrencyLimit_shedsCallsOverLimit() throws Exception {
+    builder.adaptiveConcurrencyLimit(1, 1);
+    createAndStartServer();
+    ServerTransportListener transportListener
+        = transportServer.registerNewServerTransport(new SimpleServerTransport());
+    transportListener.transportReady(Attributes.EMPTY);
+    Metadata requestHeaders = new Metadata();
+    StatsTraceContext statsTraceCtx =
+        StatsTraceContext.newServerContext(streamTracerFactories, "Waiter/serve", requestHeaders);
+    when(stream.statsTraceContext()).thenReturn(statsTraceCtx);
+    transportListener.streamCreated(stream, "Waiter/serve", requestHeaders);
+    verify(stream).setListener(streamListenerCaptor.capture());
+    assertEquals(1, server.getStats().get().concurrencyLimit);
+
+    ServerStream rejectedStream = mock(ServerStream.class);
+    transportListener.streamCreated(rejectedStream, "Waiter/serve", requestHeaders);
+    verify(rejectedStream).close(statusCaptor.capture(), any(Metadata.class));
+    assertEquals(Status.Code.RESOURCE_EXHAUSTED, statusCaptor.getValue().getCode());
+
+    // Once the first stream closes, another may start.
+    streamListenerCaptor.getValue().closed(Status.OK);
+    ServerStream nextStream = mock(ServerStream.class);
+    when(nextStream.statsTraceContext()).thenReturn(statsTraceCtx);
+    transportListener.streamCreated(nextStream, "Waiter/serve", requestHeaders);
+    verify(nextStream).setListener(any(ServerStreamListener.class));
+    verify(nextStream, never()).close(any(Status.class), any(Metadata.class));
+    executor.runDueTasks();
+  }
+
+  @Test
+  public void adaptiveConcurrencyLimit_rejectedStreamCompletes() throws Exception {
+    builder.adaptiveConcurrencyLimit(1, 1);
+    createAndStartServer();
+    ServerTransportListener transportListener
+        = transportServer.registerNewServerTransport(new SimpleServerTransport());
+    transportListener.transportReady(Attributes.EMPTY);
+    Metadata requestHeaders = new Metadata();
+    when(stream.statsTraceContext()).thenReturn(StatsTraceContext.NOOP);
+    transportListener.streamCreated(stream, "Waiter/serve", requestHeaders);
+    verify(stream).setListener(any(ServerStreamListener.class));
+
+    // Like a transport, the stream completes once its trailers are written, which closes the
+    // listener.
+    CompletingServerStream rejectedStream = new CompletingServerStream();
+    transportListener.streamCreated(rejectedStream, "Waiter/serve", requestHeaders);
+    assertEquals(Status.Code.RESOURCE_EXHAUSTED, rejectedStream.closedStatus.getCode());
+    executor.runDueTasks();
+  }
+
+  @Test
+  public void adaptiveConcurrencyLimit_streamingCallsDoNotHoldSlots() throws Exception {
+    MethodDescriptor<String, Integer> streamingMethod = METHOD.toBuilder()
+        .setType(MethodDescriptor.MethodType.BIDI_STREAMING)
+        .build();
+    mutableFallbackRegistry.addService(ServerServiceDefinition.builder(
+        new ServiceDescriptor("Waiter", streamingMethod))
+        .addMethod(streamingMethod, new ServerCallHandler<String, Integer>() {
+          @Override
+          public ServerCall.Listener<String> startCall(
+              ServerCall<String, Integer> call, Metadata headers) {
+            return callListener;
+          }
+        }).build());
+    builder.adaptiveConcurrencyLimit(1, 1);
+    createAndStartServer();
+    ServerTransportListener transportListener
+        = transportServer.registerNewServerTransport(new SimpleServerTransport());
+    transportListener.transportReady(Attributes.EMPTY);
+    Metadata requestHeaders = new Metadata();
+    StatsTraceContext statsTraceCtx =
+        StatsTraceContext.newServerContext(streamTracerFactories, "Waiter/serve", requestHeaders);
+    when(stream.statsTraceContext()).thenReturn(statsTraceCtx);
+    transportListener.streamCreated(stream, "Waiter/serve", requestHeaders);
+    verify(stream).setListener(streamListenerCaptor.capture());
+
+    // The slot is held until the method turns out to be streaming.
+    ServerStream rejectedStream = mock(ServerStream.class);
+    transportListener.streamCreated(rejectedStream, "Waiter/serve", requestHeaders);
+    verify(rejectedStream).close(statusCaptor.capture(), any(Metadata.class));
+    assertEquals(Status.Code.RESOURCE_EXHAUSTED, statusCaptor.getValue().getCode());
+
+    executor.runDueTasks();
+    ServerStream nextStream = mock(ServerStream.class);
+    when(nextStream.statsTraceContext()).thenReturn(StatsTraceContext.NOOP);
+    transportListener.streamCreated(nextStream, "Waiter/serve", requestHeaders);
+    verify(nextStream).setListener(any(ServerStreamListener.class));
+    verify(nextStream, never()).close(any(Status.class), any(Metadata.class));
+
+    // Closing the first stream does not release the slot of the second one.
+    streamListenerCaptor.getValue().closed(Status.OK);
+    ServerStream lastStream = mock(ServerStream.class);
+    transportListener.streamCreated(lastStream, "Waiter/serve", requestHeaders);
+    verify(lastStream).close(statusCaptor.capture(), any(Metadata.class));
+    assertEquals(Status.Code.RESOURCE_EXHAUSTED, statusCaptor.getValue().getCode());
+    executor.runDueTasks();
+  }
+
   @Test
   public void basicExchangeSuccessful() throws Exception {
     createAndStartServer();
@@ -1451,6 +1549,67 @@ public class ServerImplTest {
     assertTrue(metadataCaptor.getValue().keys().isEmpty());
   }
 
+  /** A stream that completes as soon as it is closed, as transports do once trailers are sent. */
+  private static final class CompletingServerStream extends AbstractServerStream {
+    private final TransportState state = new TransportState();
+    private Status closedStatus;
+    private final Sink sink = new Sink() {
+      @Override
+      public void writeHeaders(Metadata headers) {}
+
+      @Override
+      public void writeFrame(WritableBuffer frame, boolean flush, int numMessages) {}
+
+      @Override
+      public void writeTrailers(Metadata trailers, boolean headersSent, Status status) {
+        closedStatus = status;
+        state.complete();
+      }
+
+      @Override
+      public void request(int numMessages) {}
+
+      @Override
+      public void cancel(Status status) {}
+    };
+
+    CompletingServerStream() {
+      super(new WritableBufferAllocator() {
+        @Override
+        public WritableBuffer allocate(int capacityHint) {
+          return new MessageFramerTest.ByteWritableBuffer(capacityHint);
+        }
+      }, StatsTraceContext.NOOP);
+    }
+
+    @Override
+    protected Sink abstractServerStreamSink() {
+      return sink;
+    }
+
+    @Override
+    protected TransportState transportState() {
+      return state;
+    }
+
+    private static final class TransportState extends AbstractServerStream.TransportState {
+      TransportState() {
+        super(GrpcUtil.DEFAULT_MAX_MESSAGE_SIZE, StatsTraceContext.NOOP, new TransportTracer());
+      }
+
+      @Override
+      public void deframeFailed(Throwable cause) {}
+
+      @Override
+      public void bytesRead(int processedBytes) {}
+
+      @Override
+      public void runOnTransportThread(Runnable r) {
+        r.run();
+      }
+    }
+  }
+
   private static class SimpleServer implements io.grpc.internal.InternalServer {
     ServerListener listener;
 
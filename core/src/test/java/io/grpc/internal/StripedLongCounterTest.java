@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link StripedLongCounter}. */
+@RunWith(JUnit4.class)
+public class StripedLongCounterTest {
+  private final StripedLongCounter counter = new StripedLongCounter();
+
+  @Test
+  public void testInitialValue() {
+    assertEquals(0, counter.value());
+    assertEquals(StripedLongCounter.NO_TIMESTAMP, counter.latestTimestamp());
+  }
+
+  @Test
+  public void testIncrementMulti() {
+    counter.add(2);
+    counter.add(1);
+    assertEquals(3, counter.value());
+  }
+
+  @Test
+  public void testNegativeValue() {
+    counter.add(-2);
+    assertEquals(-2, counter.value());
+  }
+
+  @Test
+  public void keepsLatestTimestamp() {
+    counter.add(1, -10);
+    assertEquals(-10, counter.latestTimestamp());
+    counter.add(1, 20);
+    counter.add(1, 15);
+    assertEquals(20, counter.latestTimestamp());
+    counter.add(1);
+    assertEquals(20, counter.latestTimestamp());
+    assertEquals(4, counter.value());
+  }
+
+  @Test
+  public void concurrentAdds() throws Exception {
+    final int threadCount = 2 * StripedLongCounter.STRIPES + 1;
+    final int addsPerThread = 10000;
+    final CountDownLatch start = new CountDownLatch(1);
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      final long timestamp = i;
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            throw new AssertionError(e);
+          }
+          for (int j = 0; j < addsPerThread; j++) {
+            counter.add(1, timestamp);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals((long) threadCount * addsPerThread, counter.value());
+    // Threads sharing a stripe may race on the timestamp, but it is always one that was recorded.
+    long latest = counter.latestTimestamp();
+    assertTrue(latest >= 0 && latest < threadCount);
+  }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.IntegerMarshaller;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.ServiceDescriptor;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link CoalescingServerInterceptor}. */
+@RunWith(JUnit4.class)
+public class CoalescingServerInterceptorTest {
+  private static final MethodDescriptor<Integer, Integer> COALESCED_METHOD =
+      newMethod("service/coalesced");
+  private static final MethodDescriptor<Integer, Integer> OTHER_METHOD = newMethod("service/other");
+
+  private final AtomicInteger handlerCalls = new AtomicInteger();
+  private final CountDownLatch handlerLatch = new CountDownLatch(1);
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private volatile boolean failFirstCall;
+  private CoalescingServerInterceptor interceptor;
+  private Server server;
+  private ManagedChannel channel;
+
+  @After
+  public void tearDown() {
+    if (channel != null) {
+      channel.shutdownNow();
+    }
+    if (server != null) {
+      server.shutdownNow();
+    }
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void identicalCallsAreCoalesced() throws Exception {
+    startServer(10);
+    SettableFuture<Integer> first = call(COALESCED_METHOD, 1);
+    SettableFuture<Integer> second = call(COALESCED_METHOD, 1);
+    SettableFuture<Integer> different = call(COALESCED_METHOD, 2);
+    awaitHandlerCalls(2);
+    awaitWaitingCalls(1);
+    handlerLatch.countDown();
+
+    int response = first.get(5, TimeUnit.SECONDS);
+    assertEquals(response, (int) second.get(5, TimeUnit.SECONDS));
+    assertEquals(2, different.get(5, TimeUnit.SECONDS) / 10);
+    assertEquals(2, handlerCalls.get());
+    assertEquals(0, interceptor.inFlightCalls());
+
+    // Completed calls are not reused.
+    assertEquals(13, (int) call(COALESCED_METHOD, 1).get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void methodsNotOptedInAreNotCoalesced() throws Exception {
+    startServer(10);
+    SettableFuture<Integer> first = call(OTHER_METHOD, 1);
+    SettableFuture<Integer> second = call(OTHER_METHOD, 1);
+    awaitHandlerCalls(2);
+    handlerLatch.countDown();
+
+    assertEquals(3, first.get(5, TimeUnit.SECONDS) + second.get(5, TimeUnit.SECONDS) - 20);
+  }
+
+  @Test
+  public void waitersAreBounded() throws Exception {
+    startServer(1);
+    SettableFuture<Integer> first = call(COALESCED_METHOD, 1);
+    awaitHandlerCalls(1);
+    SettableFuture<Integer> second = call(COALESCED_METHOD, 1);
+    awaitWaitingCalls(1);
+    SettableFuture<Integer> third = call(COALESCED_METHOD, 1);
+    awaitHandlerCalls(2);
+    handlerLatch.countDown();
+
+    assertEquals(11, (int) first.get(5, TimeUnit.SECONDS));
+    assertEquals(11, (int) second.get(5, TimeUnit.SECONDS));
+    assertEquals(12, (int) third.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void errorsAreShared() throws Exception {
+    failFirstCall = true;
+    startServer(10);
+    SettableFuture<Integer> first = call(COALESCED_METHOD, 1);
+    awaitHandlerCalls(1);
+    SettableFuture<Integer> second = call(COALESCED_METHOD, 1);
+    awaitWaitingCalls(1);
+    handlerLatch.countDown();
+
+    assertFailsWith(Status.Code.UNAVAILABLE, first);
+    assertFailsWith(Status.Code.UNAVAILABLE, second);
+    assertEquals(1, handlerCalls.get());
+  }
+
+  @Test
+  public void waitersFailWhenFirstCallIsCancelled() throws Exception {
+    startServer(10);
+    ClientCall<Integer, Integer> first = channel.newCall(COALESCED_METHOD, CallOptions.DEFAULT);
+    SettableFuture<Integer> firstResponse = start(first, 1);
+    awaitHandlerCalls(1);
+    SettableFuture<Integer> second = call(COALESCED_METHOD, 1);
+    awaitWaitingCalls(1);
+    first.cancel("test", null);
+    assertFailsWith(Status.Code.CANCELLED, firstResponse);
+    assertFailsWith(Status.Code.UNAVAILABLE, second);
+    handlerLatch.countDown();
+
+    assertEquals(1, handlerCalls.get());
+    assertEquals(0, interceptor.inFlightCalls());
+  }
+
+  @Test
+  public void interceptMethods_rejectsUnknownMethods() {
+    interceptor = CoalescingServerInterceptor.create(1);
+    try {
+      interceptor.interceptMethods(newService(), "service/unknown");
+      fail("Should throw");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+  private void startServer(int maxWaiters) throws Exception {
+    interceptor = CoalescingServerInterceptor.create(maxWaiters);
+    String name = "coalescing-" + System.identityHashCode(this);
+    server = InProcessServerBuilder.forName(name)
+        .addService(interceptor.interceptMethods(newService(), "service/coalesced"))
+        .build()
+        .start();
+    channel = InProcessChannelBuilder.forName(name).build();
+  }
+
+  private ServerServiceDefinition newService() {
+    ServerCallHandler<Integer, Integer> handler = new ServerCallHandler<Integer, Integer>() {
+      @Override
+      public ServerCall.Listener<Integer> startCall(
+          final ServerCall<Integer, Integer> call, Metadata headers) {
+        call.request(1);
+        return new ServerCall.Listener<Integer>() {
+          private Integer request;
+
+          @Override
+          public void onMessage(Integer message) {
+            request = message;
+          }
+
+          @Override
+          public void onHalfClose() {
+            final int callNumber = handlerCalls.incrementAndGet();
+            // Respond from another thread, so that cancellation is delivered while waiting.
+            executor.execute(new Runnable() {
+              @Override
+              public void run() {
+                try {
+                  handlerLatch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                  throw new AssertionError(e);
+                }
+                if (failFirstCall && callNumber == 1) {
+                  call.close(Status.UNAVAILABLE, new Metadata());
+                  return;
+                }
+                call.sendHeaders(new Metadata());
+                call.sendMessage(request * 10 + callNumber);
+                call.close(Status.OK, new Metadata());
+              }
+            });
+          }
+        };
+      }
+    };
+    return ServerServiceDefinition.builder(
+        new ServiceDescriptor("service", COALESCED_METHOD, OTHER_METHOD))
+        .addMethod(COALESCED_METHOD, handler)
+        .addMethod(OTHER_METHOD, handler)
+        .build();
+  }
+
+  private SettableFuture<Integer> call(MethodDescriptor<Integer, Integer> method, int request) {
+    return start(channel.newCall(method, CallOptions.DEFAULT), request);
+  }
+
+  private static SettableFuture<Integer> start(ClientCall<Integer, Integer> call, int request) {
+    final SettableFuture<Integer> future = SettableFuture.create();
+    call.start(new ClientCall.Listener<Integer>() {
+      private Integer response;
+
+      @Override
+      public void onMessage(Integer message) {
+        response = message;
+      }
+
+      @Override
+      public void onClose(Status status, Metadata trailers) {
+        if (status.isOk()) {
+          future.set(response);
+        } else {
+          future.setException(status.asRuntimeException(trailers));
+        }
+      }
+    }, new Metadata());
+    call.request(1);
+    call.sendMessage(request);
+    call.halfClose();
+    return future;
+  }
+
+  private void awaitHandlerCalls(int count) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (handlerCalls.get() < count) {
+      if (System.nanoTime() > deadline) {
+        throw new AssertionError("Timed out waiting for " + count + " handler calls");
+      }
+      Thread.sleep(1);
+    }
+  }
+
+  private void awaitWaitingCalls(int count) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (interceptor.waitingCalls() < count) {
+      if (System.nanoTime() > deadline) {
+        throw new AssertionError("Timed out waiting for " + count + " waiting calls");
+      }
+      Thread.sleep(1);
+    }
+  }
+
+  private static void assertFailsWith(Status.Code code, SettableFuture<Integer> future)
+      throws Exception {
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail("Should fail");
+    } catch (ExecutionException e) {
+      assertEquals(code, Status.fromThrowable(e).getCode());
+    }
+  }
+
+  private static MethodDescriptor<Integer, Integer> newMethod(String name) {
+    return MethodDescriptor.<Integer, Integer>newBuilder()
+        .setType(MethodDescriptor.MethodType.UNARY)
+        .setFullMethodName(name)
+        .setRequestMarshaller(IntegerMarshaller.INSTANCE)
+        .setResponseMarshaller(IntegerMarshaller.INSTANCE)
+        .build();
+  }
+}
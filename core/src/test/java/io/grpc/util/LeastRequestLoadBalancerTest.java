@@ -0,0 +1,327 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static io.grpc.ConnectivityState.CONNECTING;
+import static io.grpc.ConnectivityState.READY;
+import static io.grpc.ConnectivityState.TRANSIENT_FAILURE;
+import static io.grpc.util.LeastRequestLoadBalancerFactory.LeastRequestLoadBalancer.STATE_INFO;
+import static io.grpc.util.LeastRequestLoadBalancerFactory.LeastRequestLoadBalancer.STATS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.grpc.Attributes;
+import io.grpc.CallOptions;
+import io.grpc.ClientStreamTracer;
+import io.grpc.ConnectivityState;
+import io.grpc.ConnectivityStateInfo;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.LoadBalancer.Helper;
+import io.grpc.LoadBalancer.PickResult;
+import io.grpc.LoadBalancer.PickSubchannelArgs;
+import io.grpc.LoadBalancer.Subchannel;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.util.LeastRequestLoadBalancerFactory.LeastRequestLoadBalancer;
+import io.grpc.util.LeastRequestLoadBalancerFactory.Picker;
+import io.grpc.util.LeastRequestLoadBalancerFactory.SubchannelStats;
+import io.grpc.util.RoundRobinLoadBalancerFactory.Ref;
+import java.net.SocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/** Unit test for {@link LeastRequestLoadBalancerFactory}. */
+@RunWith(JUnit4.class)
+public class LeastRequestLoadBalancerTest {
+  private LeastRequestLoadBalancer loadBalancer;
+  private final List<EquivalentAddressGroup> servers = Lists.newArrayList();
+  private final Map<EquivalentAddressGroup, Subchannel> subchannels = Maps.newLinkedHashMap();
+  private final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+    @Override
+    protected Random initialValue() {
+      return new Random(1);
+    }
+  };
+  private final FakeTicker ticker = new FakeTicker();
+
+  @Captor
+  private ArgumentCaptor<Picker> pickerCaptor;
+  @Captor
+  private ArgumentCaptor<ConnectivityState> stateCaptor;
+  @Mock
+  private Helper mockHelper;
+  @Mock
+  private PickSubchannelArgs mockArgs;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+
+    for (int i = 0; i < 3; i++) {
+      SocketAddress addr = new FakeSocketAddress("server" + i);
+      EquivalentAddressGroup eag = new EquivalentAddressGroup(addr);
+      servers.add(eag);
+      Subchannel sc = mock(Subchannel.class);
+      when(sc.getAddresses()).thenReturn(eag);
+      subchannels.put(eag, sc);
+    }
+
+    when(mockHelper.createSubchannel(any(EquivalentAddressGroup.class), any(Attributes.class)))
+        .then(new Answer<Subchannel>() {
+          @Override
+          public Subchannel answer(InvocationOnMock invocation) throws Throwable {
+            Object[] args = invocation.getArguments();
+            Subchannel subchannel = subchannels.get(args[0]);
+            when(subchannel.getAttributes()).thenReturn((Attributes) args[1]);
+            return subchannel;
+          }
+        });
+
+    loadBalancer = new LeastRequestLoadBalancer(mockHelper, random, ticker);
+  }
+
+  @Test
+  public void pickAfterResolved() {
+    Subchannel readySubchannel = subchannels.values().iterator().next();
+    loadBalancer.handleResolvedAddressGroups(servers, Attributes.EMPTY);
+    loadBalancer.handleSubchannelState(readySubchannel, ConnectivityStateInfo.forNonError(READY));
+
+    for (Subchannel subchannel : subchannels.values()) {
+      verify(subchannel).requestConnection();
+      assertThat(subchannel.getAttributes().get(STATS)).isNotNull();
+    }
+    verify(mockHelper, times(2))
+        .updateBalancingState(stateCaptor.capture(), pickerCaptor.capture());
+    assertEquals(CONNECTING, stateCaptor.getAllValues().get(0));
+    assertEquals(READY, stateCaptor.getAllValues().get(1));
+    assertThat(pickerCaptor.getValue().getList()).containsExactly(readySubchannel);
+
+    PickResult result = pickerCaptor.getValue().pickSubchannel(mockArgs);
+    assertSame(readySubchannel, result.getSubchannel());
+    assertSame(readySubchannel.getAttributes().get(STATS), result.getStreamTracerFactory());
+  }
+
+  @Test
+  public void removedAddressesAreShutdown() {
+    loadBalancer.handleResolvedAddressGroups(servers, Attributes.EMPTY);
+    Subchannel removed = subchannels.get(servers.get(0));
+
+    loadBalancer.handleResolvedAddressGroups(servers.subList(1, 3), Attributes.EMPTY);
+
+    verify(removed).shutdown();
+    verify(mockHelper, times(3))
+        .createSubchannel(any(EquivalentAddressGroup.class), any(Attributes.class));
+    assertThat(loadBalancer.getSubchannels()).doesNotContain(removed);
+  }
+
+  @Test
+  public void pickerPrefersFewerInFlightRpcs() {
+    Subchannel busy = newReadySubchannel();
+    Subchannel idle = newReadySubchannel();
+    SubchannelStats busyStats = busy.getAttributes().get(STATS);
+    for (int i = 0; i < 3; i++) {
+      busyStats.newClientStreamTracer(CallOptions.DEFAULT, new Metadata());
+    }
+    assertEquals(3, busyStats.getInFlight());
+
+    Picker picker = new Picker(Lists.newArrayList(busy, idle), null, random);
+    for (int i = 0; i < 10; i++) {
+      assertSame(idle, picker.pickSubchannel(mockArgs).getSubchannel());
+    }
+  }
+
+  @Test
+  public void pickerPrefersLowerLatency() {
+    Subchannel slow = newReadySubchannel();
+    Subchannel fast = newReadySubchannel();
+    slow.getAttributes().get(STATS).recordLatency(0, TimeUnit.MILLISECONDS.toNanos(100));
+    fast.getAttributes().get(STATS).recordLatency(0, TimeUnit.MILLISECONDS.toNanos(1));
+
+    Picker picker = new Picker(Lists.newArrayList(slow, fast), null, random);
+    for (int i = 0; i < 10; i++) {
+      assertSame(fast, picker.pickSubchannel(mockArgs).getSubchannel());
+    }
+  }
+
+  @Test
+  public void pickerSpreadsEqualLoad() {
+    Subchannel sc1 = newReadySubchannel();
+    Subchannel sc2 = newReadySubchannel();
+    Subchannel sc3 = newReadySubchannel();
+    Picker picker = new Picker(Lists.newArrayList(sc1, sc2, sc3), null, random);
+
+    Map<Subchannel, Integer> counts = Maps.newHashMap();
+    for (int i = 0; i < 300; i++) {
+      Subchannel picked = picker.pickSubchannel(mockArgs).getSubchannel();
+      Integer count = counts.get(picked);
+      counts.put(picked, count == null ? 1 : count + 1);
+    }
+    assertThat(counts.keySet()).containsExactly(sc1, sc2, sc3);
+  }
+
+  @Test
+  public void tracerTracksInFlightAndLatency() {
+    SubchannelStats stats = new SubchannelStats(ticker);
+    ClientStreamTracer tracer1 = stats.newClientStreamTracer(CallOptions.DEFAULT, new Metadata());
+    ClientStreamTracer tracer2 = stats.newClientStreamTracer(CallOptions.DEFAULT, new Metadata());
+    assertEquals(2, stats.getInFlight());
+
+    ticker.nanos += TimeUnit.MILLISECONDS.toNanos(20);
+    tracer1.streamClosed(Status.OK);
+    assertEquals(1, stats.getInFlight());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(20), stats.getEwmaLatencyNanos(), 0.1);
+
+    ticker.nanos += SubchannelStats.DECAY_NANOS;
+    tracer2.streamClosed(Status.OK);
+    assertEquals(0, stats.getInFlight());
+    // tracer2 took DECAY_NANOS + 20ms, and the old sample has decayed to 1/e of its weight.
+    double sample = SubchannelStats.DECAY_NANOS + TimeUnit.MILLISECONDS.toNanos(20);
+    double expected = sample + (TimeUnit.MILLISECONDS.toNanos(20) - sample) / Math.E;
+    assertEquals(expected, stats.getEwmaLatencyNanos(), 10);
+  }
+
+  @Test
+  public void tracerPenalizesFailuresAndIgnoresCancellations() {
+    SubchannelStats stats = new SubchannelStats(ticker, TimeUnit.MILLISECONDS.toNanos(20));
+    ClientStreamTracer cancelled =
+        stats.newClientStreamTracer(CallOptions.DEFAULT, new Metadata());
+    ClientStreamTracer failed = stats.newClientStreamTracer(CallOptions.DEFAULT, new Metadata());
+
+    ticker.nanos += SubchannelStats.DECAY_NANOS;
+    cancelled.streamClosed(Status.CANCELLED);
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(20), stats.getEwmaLatencyNanos(), 0.1);
+
+    failed.streamClosed(Status.UNAVAILABLE);
+    // The failure took longer than the penalty, so its own latency is recorded.
+    double expected = SubchannelStats.DECAY_NANOS
+        + (TimeUnit.MILLISECONDS.toNanos(20) - SubchannelStats.DECAY_NANOS) / Math.E;
+    assertEquals(expected, stats.getEwmaLatencyNanos(), 10);
+
+    ticker.nanos += SubchannelStats.DECAY_NANOS;
+    ClientStreamTracer fastFailure =
+        stats.newClientStreamTracer(CallOptions.DEFAULT, new Metadata());
+    fastFailure.streamClosed(Status.UNAVAILABLE);
+    // A failure that returned immediately still counts as slower than the average.
+    expected = expected * SubchannelStats.FAILURE_PENALTY
+        + (expected - expected * SubchannelStats.FAILURE_PENALTY) / Math.E;
+    assertEquals(expected, stats.getEwmaLatencyNanos(), 10);
+  }
+
+  @Test
+  public void newSubchannelsStartAtMeanLatency() {
+    loadBalancer.handleResolvedAddressGroups(servers.subList(0, 2), Attributes.EMPTY);
+    subchannels.get(servers.get(0)).getAttributes().get(STATS)
+        .recordLatency(0, TimeUnit.MILLISECONDS.toNanos(10));
+    subchannels.get(servers.get(1)).getAttributes().get(STATS)
+        .recordLatency(0, TimeUnit.MILLISECONDS.toNanos(30));
+
+    loadBalancer.handleResolvedAddressGroups(servers, Attributes.EMPTY);
+
+    SubchannelStats added = subchannels.get(servers.get(2)).getAttributes().get(STATS);
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(20), added.getEwmaLatencyNanos(), 0.1);
+  }
+
+  @Test
+  public void pickerDoesNotFloodUnsampledSubchannel() {
+    Subchannel sampled = newReadySubchannel();
+    Subchannel unsampled = newReadySubchannel();
+    sampled.getAttributes().get(STATS).recordLatency(0, TimeUnit.MILLISECONDS.toNanos(10));
+    SubchannelStats unsampledStats = unsampled.getAttributes().get(STATS);
+    for (int i = 0; i < 3; i++) {
+      unsampledStats.newClientStreamTracer(CallOptions.DEFAULT, new Metadata());
+    }
+
+    // Without samples it is assumed to be as fast as the other one, so its RPCs count.
+    Picker picker = new Picker(Lists.newArrayList(sampled, unsampled), null, random);
+    for (int i = 0; i < 10; i++) {
+      assertSame(sampled, picker.pickSubchannel(mockArgs).getSubchannel());
+    }
+  }
+
+  @Test
+  public void pickerEmptyList() {
+    Picker picker = new Picker(Collections.<Subchannel>emptyList(), Status.UNKNOWN, random);
+    assertNull(picker.pickSubchannel(mockArgs).getSubchannel());
+    assertEquals(Status.UNKNOWN, picker.pickSubchannel(mockArgs).getStatus());
+
+    picker = new Picker(Collections.<Subchannel>emptyList(), null, random);
+    assertSame(PickResult.withNoResult(), picker.pickSubchannel(mockArgs));
+  }
+
+  @Test
+  public void nameResolutionErrorWithNoChannels() {
+    Status error = Status.NOT_FOUND.withDescription("nameResolutionError");
+    loadBalancer.handleNameResolutionError(error);
+    verify(mockHelper).updateBalancingState(stateCaptor.capture(), pickerCaptor.capture());
+    assertEquals(TRANSIENT_FAILURE, stateCaptor.getValue());
+    assertEquals(error, pickerCaptor.getValue().pickSubchannel(mockArgs).getStatus());
+  }
+
+  private Subchannel newReadySubchannel() {
+    Subchannel subchannel = mock(Subchannel.class);
+    when(subchannel.getAttributes()).thenReturn(Attributes.newBuilder()
+        .set(STATE_INFO, new Ref<ConnectivityStateInfo>(ConnectivityStateInfo.forNonError(READY)))
+        .set(STATS, new SubchannelStats(ticker))
+        .build());
+    return subchannel;
+  }
+
+  private static final class FakeTicker extends Ticker {
+    long nanos;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+  }
+
+  private static class FakeSocketAddress extends SocketAddress {
+    final String name;
+
+    FakeSocketAddress(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String toString() {
+      return "FakeSocketAddress-" + name;
+    }
+  }
+}
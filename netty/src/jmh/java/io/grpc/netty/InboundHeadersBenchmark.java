@@ -20,6 +20,8 @@ import static io.grpc.netty.Utils.CONTENT_TYPE_HEADER;
 import static io.grpc.netty.Utils.TE_TRAILERS;
 import static io.netty.util.AsciiString.of;
 
+import io.grpc.Metadata;
+import io.grpc.internal.GrpcUtil;
 import io.grpc.netty.GrpcHttp2HeadersUtils.GrpcHttp2RequestHeaders;
 import io.grpc.netty.GrpcHttp2HeadersUtils.GrpcHttp2ResponseHeaders;
 import io.netty.handler.codec.http2.DefaultHttp2Headers;
@@ -41,6 +43,9 @@ import org.openjdk.jmh.infra.Blackhole;
 @State(Scope.Thread)
 public class InboundHeadersBenchmark {
 
+  private static final Metadata.Key<String> AUTHORIZATION_KEY =
+      Metadata.Key.of("authorization", Metadata.ASCII_STRING_MARSHALLER);
+
   private static AsciiString[] requestHeaders;
   private static AsciiString[] responseHeaders;
 
@@ -122,6 +127,28 @@ public class InboundHeadersBenchmark {
     clientHandler(bh, new DefaultHttp2Headers(true, 2));
   }
 
+  /**
+   * Converts the request headers to {@link Metadata} and reads the headers that the server looks up
+   * for every call.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public void grpcHeaders_serverMetadataLookups(Blackhole bh) {
+    Http2Headers headers = new GrpcHttp2RequestHeaders(4);
+    for (int i = 0; i < requestHeaders.length; i += 2) {
+      headers.add(requestHeaders[i], requestHeaders[i + 1]);
+    }
+    Metadata metadata = Utils.convertHeaders(headers);
+
+    // Sequence of headers accessed in ServerImpl and ServerCallImpl
+    bh.consume(metadata.get(GrpcUtil.TIMEOUT_KEY));
+    bh.consume(metadata.get(GrpcUtil.MESSAGE_ENCODING_KEY));
+    bh.consume(metadata.get(GrpcUtil.MESSAGE_ACCEPT_ENCODING_KEY));
+    bh.consume(metadata.get(GrpcUtil.USER_AGENT_KEY));
+    bh.consume(metadata.get(AUTHORIZATION_KEY));
+  }
+
   @CompilerControl(CompilerControl.Mode.INLINE)
   private static void serverHandler(Blackhole bh, Http2Headers headers) {
     for (int i = 0; i < requestHeaders.length; i += 2) {
@@ -18,6 +18,7 @@ package io.grpc.netty;
 
 import io.grpc.Metadata;
 import io.grpc.Metadata.AsciiMarshaller;
+import io.grpc.internal.GrpcUtil;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.handler.codec.http2.DefaultHttp2HeadersEncoder;
@@ -34,6 +35,7 @@ import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
 
 /**
  * Header encoding benchmark.
@@ -56,6 +58,7 @@ public class OutboundHeadersBenchmark {
   };
 
   private final Metadata metadata = new Metadata();
+  private Metadata.Key<String> lastKey;
   private final AsciiString scheme = new AsciiString("https");
   private final AsciiString defaultPath = new AsciiString("/Service.MethodMethodMethod");
   private final AsciiString authority = new AsciiString("authority.googleapis.bogus");
@@ -66,10 +69,22 @@ public class OutboundHeadersBenchmark {
   @Setup
   public void setUp() throws Exception {
     for (int i = 0; i < headerCount; i++) {
-      metadata.put(Metadata.Key.of("key-" + i, keyMarshaller), UUID.randomUUID().toString());
+      lastKey = Metadata.Key.of("key-" + i, keyMarshaller);
+      metadata.put(lastKey, UUID.randomUUID().toString());
     }
   }
 
+  /**
+   * Looks up one present and one absent header, as done before the headers are sent.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public void lookupHeaders(Blackhole bh) {
+    bh.consume(metadata.get(lastKey));
+    bh.consume(metadata.get(GrpcUtil.TIMEOUT_KEY));
+  }
+
   @Benchmark
   @BenchmarkMode(Mode.SampleTime)
   @OutputTimeUnit(TimeUnit.NANOSECONDS)
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.netty;
+
+import io.grpc.netty.WriteQueue.QueuedCommand;
+import io.netty.channel.Channel;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalChannel;
+import io.netty.util.internal.PlatformDependent;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Compares {@link WriteQueue} throughput when backed by a {@link ConcurrentLinkedQueue} against
+ * the default array-based MPSC queue, with a varying number of producer threads.
+ */
+@State(Scope.Benchmark)
+public class WriteQueueBenchmark {
+  private static final int BATCH_SIZE = 128;
+
+  public enum QueueType {
+    CONCURRENT_LINKED, MPSC
+  }
+
+  @Param
+  public QueueType queueType;
+
+  private EventLoopGroup group;
+  private Channel channel;
+  private WriteQueue writeQueue;
+
+  private final Runnable noop = new Runnable() {
+    @Override
+    public void run() {}
+  };
+
+  /**
+   * Per-thread producer state, used to wait for each batch to be drained by the event loop.
+   */
+  @State(Scope.Thread)
+  public static class Producer {
+    private final Semaphore drained = new Semaphore(0);
+    private final Runnable release = new Runnable() {
+      @Override
+      public void run() {
+        drained.release();
+      }
+    };
+  }
+
+  /**
+   * Setup.
+   */
+  @Setup
+  public void setUp() throws Exception {
+    group = new DefaultEventLoopGroup(1);
+    channel = new LocalChannel();
+    group.register(channel).sync();
+    Queue<QueuedCommand> queue;
+    switch (queueType) {
+      case CONCURRENT_LINKED:
+        queue = new ConcurrentLinkedQueue<QueuedCommand>();
+        break;
+      case MPSC:
+        queue = PlatformDependent.newMpscQueue();
+        break;
+      default:
+        throw new AssertionError();
+    }
+    writeQueue = new WriteQueue(channel, queue);
+  }
+
+  /**
+   * Tear down.
+   */
+  @TearDown
+  public void tearDown() throws Exception {
+    channel.close().sync();
+    group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(BATCH_SIZE)
+  @Threads(1)
+  public void enqueue1Producer(Producer producer) throws Exception {
+    enqueueBatch(producer);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(BATCH_SIZE)
+  @Threads(8)
+  public void enqueue8Producers(Producer producer) throws Exception {
+    enqueueBatch(producer);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(BATCH_SIZE)
+  @Threads(64)
+  public void enqueue64Producers(Producer producer) throws Exception {
+    enqueueBatch(producer);
+  }
+
+  private void enqueueBatch(Producer producer) throws InterruptedException {
+    for (int i = 0; i < BATCH_SIZE - 1; i++) {
+      writeQueue.enqueue(noop, false);
+    }
+    writeQueue.enqueue(producer.release, true);
+    producer.drained.acquire();
+  }
+}
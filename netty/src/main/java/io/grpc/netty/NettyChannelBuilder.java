@@ -70,7 +70,8 @@ public final class NettyChannelBuilder
 
   private NegotiationType negotiationType = NegotiationType.TLS;
   private OverrideAuthorityChecker authorityChecker;
-  private Class<? extends Channel> channelType = NioSocketChannel.class;
+  @Nullable
+  private Class<? extends Channel> channelType;
 
   @Nullable
   private EventLoopGroup eventLoopGroup;
@@ -136,7 +137,12 @@ public final class NettyChannelBuilder
   }
 
   /**
-   * Specifies the channel type to use, by default we use {@link NioSocketChannel}.
+   * Specifies the channel type to use. By default, if no event loop group is provided, we use
+   * Netty's native epoll transport when it is available and {@link NioSocketChannel} otherwise.
+   * If an event loop group is provided, the default is {@link NioSocketChannel}.
+   *
+   * <p>With an epoll channel type, connections to Unix domain socket addresses, such as those of
+   * {@code unix:} targets, use epoll's domain socket channel instead.
    */
   public NettyChannelBuilder channelType(Class<? extends Channel> channelType) {
     this.channelType = Preconditions.checkNotNull(channelType, "channelType");
@@ -331,6 +337,12 @@ public final class NettyChannelBuilder
   @CheckReturnValue
   @Internal
   protected ClientTransportFactory buildTransportFactory() {
+    Class<? extends Channel> channelType = this.channelType;
+    if (channelType == null) {
+      // An event loop group the user provided is most likely NIO.
+      channelType = eventLoopGroup == null
+          ? Utils.DEFAULT_CLIENT_CHANNEL_TYPE : NioSocketChannel.class;
+    }
     return new NettyTransportFactory(dynamicParamsFactory, channelType, channelOptions,
         negotiationType, sslContext, eventLoopGroup, flowControlWindow, maxInboundMessageSize(),
         maxHeaderListSize, keepAliveTimeNanos, keepAliveTimeoutNanos, keepAliveWithoutCalls,
@@ -500,7 +512,7 @@ public final class NettyChannelBuilder
       usingSharedGroup = group == null;
       if (usingSharedGroup) {
         // The group was unspecified, using the shared group.
-        this.group = SharedResourceHolder.get(Utils.DEFAULT_WORKER_EVENT_LOOP_GROUP);
+        this.group = SharedResourceHolder.get(Utils.defaultWorkerEventLoopGroup(channelType));
       } else {
         this.group = group;
       }
@@ -522,6 +534,13 @@ public final class NettyChannelBuilder
           keepAliveTimeNanosState.backoff();
         }
       };
+      Class<? extends Channel> channelType = this.channelType;
+      if (Utils.EPOLL_DOMAIN_SOCKETS_AVAILABLE && Utils.isEpollChannelType(channelType)
+          && Utils.isDomainSocketAddress(dparams.getTargetServerAddress())) {
+        // A unix: target resolves to domain socket addresses, which the epoll event loops serve
+        // just as well.
+        channelType = Utils.EPOLL_DOMAIN_SOCKET_CHANNEL_TYPE;
+      }
       NettyClientTransport transport = new NettyClientTransport(
           dparams.getTargetServerAddress(), channelType, channelOptions, group,
           dparams.getProtocolNegotiator(), flowControlWindow,
@@ -544,7 +563,7 @@ public final class NettyChannelBuilder
       closed = true;
 
       if (usingSharedGroup) {
-        SharedResourceHolder.release(Utils.DEFAULT_WORKER_EVENT_LOOP_GROUP, group);
+        SharedResourceHolder.release(Utils.defaultWorkerEventLoopGroup(channelType), group);
       }
     }
 
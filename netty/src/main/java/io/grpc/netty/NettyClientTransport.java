@@ -47,7 +47,7 @@ import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.http2.StreamBufferingEncoder.Http2ChannelClosedException;
 import io.netty.util.AsciiString;
 import io.netty.util.concurrent.Future;
@@ -203,7 +203,7 @@ class NettyClientTransport implements ConnectionClientTransport {
     Bootstrap b = new Bootstrap();
     b.group(eventLoop);
     b.channel(channelType);
-    if (NioSocketChannel.class.isAssignableFrom(channelType)) {
+    if (SocketChannel.class.isAssignableFrom(channelType)) {
       b.option(SO_KEEPALIVE, true);
     }
     for (Map.Entry<ChannelOption<?>, ?> entry : channelOptions.entrySet()) {
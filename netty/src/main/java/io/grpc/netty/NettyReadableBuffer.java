@@ -94,6 +94,17 @@ class NettyReadableBuffer extends AbstractReadableBuffer {
     return buffer.arrayOffset() + buffer.readerIndex();
   }
 
+  @Override
+  public boolean byteBufferSupported() {
+    // Multiple NIO buffers would need to be merged, which defeats the purpose.
+    return buffer.nioBufferCount() == 1;
+  }
+
+  @Override
+  public ByteBuffer getByteBuffer() {
+    return buffer.isReadable() ? buffer.nioBuffer() : null;
+  }
+
   /**
    * If the first call to close, calls {@link ByteBuf#release} to release the internal Netty buffer.
    */
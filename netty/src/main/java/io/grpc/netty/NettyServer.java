@@ -16,6 +16,7 @@
 
 package io.grpc.netty;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static io.grpc.netty.NettyServerBuilder.MAX_CONNECTION_AGE_NANOS_DISABLED;
 import static io.netty.channel.ChannelOption.SO_BACKLOG;
@@ -34,6 +35,7 @@ import io.grpc.internal.LogId;
 import io.grpc.internal.ServerListener;
 import io.grpc.internal.ServerTransportListener;
 import io.grpc.internal.SharedResourceHolder;
+import io.grpc.internal.SharedResourceHolder.Resource;
 import io.grpc.internal.TransportTracer;
 import io.grpc.internal.WithLogId;
 import io.netty.bootstrap.ServerBootstrap;
@@ -45,6 +47,7 @@ import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
+import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.util.AbstractReferenceCounted;
 import io.netty.util.ReferenceCounted;
@@ -53,9 +56,11 @@ import io.netty.util.concurrent.GenericFutureListener;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
@@ -72,12 +77,17 @@ class NettyServer implements InternalServer, WithLogId {
   private final Map<ChannelOption<?>, ?> channelOptions;
   private final ProtocolNegotiator protocolNegotiator;
   private final int maxStreamsPerConnection;
+  private final int reusePortAcceptors;
   private final boolean usingSharedBossGroup;
   private final boolean usingSharedWorkerGroup;
+  private final Resource<EventLoopGroup> bossGroupResource;
+  private final Resource<EventLoopGroup> workerGroupResource;
   private EventLoopGroup bossGroup;
   private EventLoopGroup workerGroup;
   private ServerListener listener;
   private Channel channel;
+  // All the listen channels, starting with channel. There is more than one only with SO_REUSEPORT.
+  private ImmutableList<Channel> channels;
   private final int flowControlWindow;
   private final int maxMessageSize;
   private final int maxHeaderListSize;
@@ -93,13 +103,14 @@ class NettyServer implements InternalServer, WithLogId {
   private final TransportTracer.Factory transportTracerFactory;
   private final Channelz channelz;
   // Only set once during start(). This code assumes all listen sockets are created at startup
-  // and never changed. In the future we may have >1 listen socket.
+  // and never changed.
   private ImmutableList<Instrumented<SocketStats>> listenSockets;
 
   NettyServer(
       SocketAddress address, Class<? extends ServerChannel> channelType,
       Map<ChannelOption<?>, ?> channelOptions,
       @Nullable EventLoopGroup bossGroup, @Nullable EventLoopGroup workerGroup,
+      int reusePortAcceptors,
       ProtocolNegotiator protocolNegotiator, List<ServerStreamTracer.Factory> streamTracerFactories,
       TransportTracer.Factory transportTracerFactory,
       int maxStreamsPerConnection, int flowControlWindow, int maxMessageSize, int maxHeaderListSize,
@@ -116,8 +127,15 @@ class NettyServer implements InternalServer, WithLogId {
     this.workerGroup = workerGroup;
     this.protocolNegotiator = checkNotNull(protocolNegotiator, "protocolNegotiator");
     this.streamTracerFactories = checkNotNull(streamTracerFactories, "streamTracerFactories");
+    checkArgument(reusePortAcceptors > 0, "reusePortAcceptors must be positive");
+    this.reusePortAcceptors = reusePortAcceptors;
     this.usingSharedBossGroup = bossGroup == null;
     this.usingSharedWorkerGroup = workerGroup == null;
+    // Each acceptor needs its own boss event loop, which the shared group doesn't have.
+    this.bossGroupResource = reusePortAcceptors > 1
+        ? Utils.newEpollBossEventLoopGroup(reusePortAcceptors)
+        : Utils.defaultBossEventLoopGroup(channelType);
+    this.workerGroupResource = Utils.defaultWorkerEventLoopGroup(channelType);
     this.transportTracerFactory = transportTracerFactory;
     this.maxStreamsPerConnection = maxStreamsPerConnection;
     this.flowControlWindow = flowControlWindow;
@@ -162,8 +180,13 @@ class NettyServer implements InternalServer, WithLogId {
     b.channel(channelType);
     if (NioServerSocketChannel.class.isAssignableFrom(channelType)) {
       b.option(SO_BACKLOG, 128);
+    }
+    if (ServerSocketChannel.class.isAssignableFrom(channelType)) {
       b.childOption(SO_KEEPALIVE, true);
     }
+    if (reusePortAcceptors > 1) {
+      b.option(Utils.EPOLL_SO_REUSEPORT, true);
+    }
 
     if (channelOptions != null) {
       for (Map.Entry<ChannelOption<?>, ?> entry : channelOptions.entrySet()) {
@@ -239,25 +262,37 @@ class NettyServer implements InternalServer, WithLogId {
         ch.closeFuture().addListener(loopReleaser);
       }
     });
-    // Bind and start to accept incoming connections.
-    ChannelFuture future = b.bind(address).addListener(new ChannelFutureListener() {
-      @Override
-      public void operationComplete(ChannelFuture f) throws Exception {
-        Instrumented<SocketStats> listenSocket = new ListenSocket(f.channel());
-        listenSockets = ImmutableList.of(listenSocket);
-        channelz.addListenSocket(listenSocket);
+    // Bind and start to accept incoming connections. Each listen channel is registered with the
+    // next boss event loop, so that with SO_REUSEPORT every acceptor has a loop of its own.
+    List<Channel> boundChannels = new ArrayList<Channel>(reusePortAcceptors);
+    SocketAddress bindAddress = address;
+    for (int i = 0; i < reusePortAcceptors; i++) {
+      ChannelFuture future = b.bind(bindAddress);
+      try {
+        future.await();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted waiting for bind");
       }
-    });
-    try {
-      future.await();
-    } catch (InterruptedException ex) {
-      Thread.currentThread().interrupt();
-      throw new RuntimeException("Interrupted waiting for bind");
+      if (!future.isSuccess()) {
+        for (Channel boundChannel : boundChannels) {
+          boundChannel.close();
+        }
+        throw new IOException("Failed to bind", future.cause());
+      }
+      boundChannels.add(future.channel());
+      // The other acceptors must share the port of the first, which may have been picked by the OS
+      bindAddress = future.channel().localAddress();
     }
-    if (!future.isSuccess()) {
-      throw new IOException("Failed to bind", future.cause());
+    ImmutableList.Builder<Instrumented<SocketStats>> listenSocketsBuilder = ImmutableList.builder();
+    for (Channel boundChannel : boundChannels) {
+      Instrumented<SocketStats> listenSocket = new ListenSocket(boundChannel);
+      listenSocketsBuilder.add(listenSocket);
+      channelz.addListenSocket(listenSocket);
     }
-    channel = future.channel();
+    listenSockets = listenSocketsBuilder.build();
+    channels = ImmutableList.copyOf(boundChannels);
+    channel = channels.get(0);
   }
 
   @Override
@@ -266,12 +301,16 @@ class NettyServer implements InternalServer, WithLogId {
       // Already closed.
       return;
     }
-    channel.close().addListener(new ChannelFutureListener() {
+    final AtomicInteger openChannels = new AtomicInteger(channels.size());
+    ChannelFutureListener closeListener = new ChannelFutureListener() {
       @Override
       public void operationComplete(ChannelFuture future) throws Exception {
         if (!future.isSuccess()) {
           log.log(Level.WARNING, "Error shutting down server", future.cause());
         }
+        if (openChannels.decrementAndGet() > 0) {
+          return;
+        }
         for (Instrumented<SocketStats> listenSocket : listenSockets) {
           channelz.removeListenSocket(listenSocket);
         }
@@ -281,15 +320,18 @@ class NettyServer implements InternalServer, WithLogId {
         }
         eventLoopReferenceCounter.release();
       }
-    });
+    };
+    for (Channel listenChannel : channels) {
+      listenChannel.close().addListener(closeListener);
+    }
   }
 
   private void allocateSharedGroups() {
     if (bossGroup == null) {
-      bossGroup = SharedResourceHolder.get(Utils.DEFAULT_BOSS_EVENT_LOOP_GROUP);
+      bossGroup = SharedResourceHolder.get(bossGroupResource);
     }
     if (workerGroup == null) {
-      workerGroup = SharedResourceHolder.get(Utils.DEFAULT_WORKER_EVENT_LOOP_GROUP);
+      workerGroup = SharedResourceHolder.get(workerGroupResource);
     }
   }
 
@@ -303,13 +345,13 @@ class NettyServer implements InternalServer, WithLogId {
     protected void deallocate() {
       try {
         if (usingSharedBossGroup && bossGroup != null) {
-          SharedResourceHolder.release(Utils.DEFAULT_BOSS_EVENT_LOOP_GROUP, bossGroup);
+          SharedResourceHolder.release(bossGroupResource, bossGroup);
         }
       } finally {
         bossGroup = null;
         try {
           if (usingSharedWorkerGroup && workerGroup != null) {
-            SharedResourceHolder.release(Utils.DEFAULT_WORKER_EVENT_LOOP_GROUP, workerGroup);
+            SharedResourceHolder.release(workerGroupResource, workerGroup);
           }
         } finally {
           workerGroup = null;
@@ -17,6 +17,7 @@
 package io.grpc.netty;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
 import static io.grpc.internal.GrpcUtil.DEFAULT_MAX_MESSAGE_SIZE;
 import static io.grpc.internal.GrpcUtil.DEFAULT_SERVER_KEEPALIVE_TIMEOUT_NANOS;
 import static io.grpc.internal.GrpcUtil.DEFAULT_SERVER_KEEPALIVE_TIME_NANOS;
@@ -67,13 +68,15 @@ public final class NettyServerBuilder extends AbstractServerImplBuilder<NettySer
   private static final long AS_LARGE_AS_INFINITE = TimeUnit.DAYS.toNanos(1000L);
 
   private final SocketAddress address;
-  private Class<? extends ServerChannel> channelType = NioServerSocketChannel.class;
+  @Nullable
+  private Class<? extends ServerChannel> channelType;
   private final Map<ChannelOption<?>, Object> channelOptions =
       new HashMap<ChannelOption<?>, Object>();
   @Nullable
   private EventLoopGroup bossEventLoopGroup;
   @Nullable
   private EventLoopGroup workerEventLoopGroup;
+  private int reusePortAcceptors = 1;
   private SslContext sslContext;
   private ProtocolNegotiator protocolNegotiator;
   private int maxConcurrentCallsPerConnection = Integer.MAX_VALUE;
@@ -110,6 +113,22 @@ public final class NettyServerBuilder extends AbstractServerImplBuilder<NettySer
     return new NettyServerBuilder(address);
   }
 
+  /**
+   * Creates a server builder that will listen on the Unix domain socket at {@code path}, which
+   * clients can reach with a {@code "unix:" + path} target. This requires Netty's native epoll
+   * transport.
+   *
+   * @param path the file system path of the socket, which must not exist yet.
+   * @return the server builder
+   * @since 1.12.0
+   */
+  @CheckReturnValue
+  public static NettyServerBuilder forUnixDomainSocket(String path) {
+    checkState(Utils.EPOLL_DOMAIN_SOCKETS_AVAILABLE,
+        "Unix domain sockets require the native epoll transport");
+    return new NettyServerBuilder(Utils.newDomainSocketAddress(path));
+  }
+
   @CheckReturnValue
   private NettyServerBuilder(int port) {
     this.address = new InetSocketAddress(port);
@@ -121,7 +140,10 @@ public final class NettyServerBuilder extends AbstractServerImplBuilder<NettySer
   }
 
   /**
-   * Specify the channel type to use, by default we use {@link NioServerSocketChannel}.
+   * Specify the channel type to use. By default, if neither event loop group is provided, we use
+   * Netty's native epoll transport when it is available and {@link NioServerSocketChannel}
+   * otherwise. If an event loop group is provided, the default is {@link NioServerSocketChannel}.
+   * For a Unix domain socket address, the default is always epoll's domain socket channel.
    */
   public NettyServerBuilder channelType(Class<? extends ServerChannel> channelType) {
     this.channelType = Preconditions.checkNotNull(channelType, "channelType");
@@ -185,6 +207,23 @@ public final class NettyServerBuilder extends AbstractServerImplBuilder<NettySer
     return this;
   }
 
+  /**
+   * Binds {@code acceptors} listen sockets to the address with {@code SO_REUSEPORT}, each accepting
+   * connections on its own boss event loop, so that the kernel spreads incoming connections
+   * across them. This requires Netty's native epoll transport and an {@link InetSocketAddress}.
+   * Defaults to 1, which binds a single socket without {@code SO_REUSEPORT}.
+   *
+   * <p>If a boss event loop group is provided, it should have at least {@code acceptors} event
+   * loops. Otherwise the server creates one of that size for itself.
+   *
+   * @since 1.12.0
+   */
+  public NettyServerBuilder reusePortAcceptors(int acceptors) {
+    checkArgument(acceptors > 0, "acceptors must be positive");
+    this.reusePortAcceptors = acceptors;
+    return this;
+  }
+
   /**
    * Sets the TLS context to use for encryption. Providing a context enables encryption. It must
    * have been configured with {@link GrpcSslContexts}, but options could have been overridden.
@@ -418,9 +457,28 @@ public final class NettyServerBuilder extends AbstractServerImplBuilder<NettySer
               ProtocolNegotiators.serverPlaintext();
     }
 
+    Class<? extends ServerChannel> channelType = this.channelType;
+    if (channelType == null) {
+      if (Utils.isDomainSocketAddress(address)) {
+        checkState(Utils.EPOLL_DOMAIN_SOCKETS_AVAILABLE,
+            "Unix domain sockets require the native epoll transport");
+        channelType = Utils.EPOLL_SERVER_DOMAIN_SOCKET_CHANNEL_TYPE;
+      } else {
+        // Event loop groups the user provided are most likely NIO.
+        channelType = bossEventLoopGroup == null && workerEventLoopGroup == null
+            ? Utils.DEFAULT_SERVER_CHANNEL_TYPE : NioServerSocketChannel.class;
+      }
+    }
+    if (reusePortAcceptors > 1) {
+      checkState(Utils.EPOLL_AVAILABLE && Utils.isEpollChannelType(channelType),
+          "reusePortAcceptors requires the native epoll transport");
+      checkState(address instanceof InetSocketAddress,
+          "reusePortAcceptors requires an InetSocketAddress");
+    }
+
     return new NettyServer(
         address, channelType, channelOptions, bossEventLoopGroup, workerEventLoopGroup,
-        negotiator, streamTracerFactories, transportTracerFactory,
+        reusePortAcceptors, negotiator, streamTracerFactories, transportTracerFactory,
         maxConcurrentCallsPerConnection, flowControlWindow,
         maxMessageSize, maxHeaderListSize, keepAliveTimeInNanos, keepAliveTimeoutInNanos,
         maxConnectionIdleInNanos,
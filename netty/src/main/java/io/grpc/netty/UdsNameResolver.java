@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.netty;
+
+import io.grpc.Attributes;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.NameResolver;
+import java.net.SocketAddress;
+import java.util.Collections;
+
+/**
+ * A {@link NameResolver} that resolves to the Unix domain socket at a file system path.
+ */
+final class UdsNameResolver extends NameResolver {
+  // There is no host to name, and "localhost" is what other gRPC implementations use for unix:
+  // targets.
+  private static final String AUTHORITY = "localhost";
+
+  private final SocketAddress address;
+
+  UdsNameResolver(String path) {
+    this.address = Utils.newDomainSocketAddress(path);
+  }
+
+  @Override
+  public String getServiceAuthority() {
+    return AUTHORITY;
+  }
+
+  @Override
+  public void start(Listener listener) {
+    listener.onAddresses(
+        Collections.singletonList(new EquivalentAddressGroup(address)), Attributes.EMPTY);
+  }
+
+  @Override
+  public void shutdown() {}
+}
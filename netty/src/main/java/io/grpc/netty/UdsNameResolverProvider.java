@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.netty;
+
+import com.google.common.base.Preconditions;
+import io.grpc.Attributes;
+import io.grpc.ExperimentalApi;
+import io.grpc.NameResolverProvider;
+import java.net.URI;
+
+/**
+ * A provider for {@link UdsNameResolver}.
+ *
+ * <p>It resolves a target URI whose scheme is {@code "unix"} to the Unix domain socket at the path
+ * of the URI, for talking to a server on the same host without going through TCP. Channels built
+ * with {@link NettyChannelBuilder} then use Netty's native epoll transport, which must be
+ * available. Example target URIs:
+ *
+ * <ul>
+ *   <li>{@code "unix:///var/run/app.sock"} (absolute path)</li>
+ *   <li>{@code "unix:/var/run/app.sock"} (absolute path)</li>
+ *   <li>{@code "unix:app.sock"} (path relative to the working directory)</li>
+ * </ul>
+ */
+@ExperimentalApi
+public final class UdsNameResolverProvider extends NameResolverProvider {
+
+  private static final String SCHEME = "unix";
+
+  @Override
+  public UdsNameResolver newNameResolver(URI targetUri, Attributes params) {
+    if (!SCHEME.equals(targetUri.getScheme())) {
+      return null;
+    }
+    Preconditions.checkArgument(targetUri.getAuthority() == null,
+        "the target (%s) must not have an authority", targetUri);
+    String path = targetUri.isOpaque() ? targetUri.getSchemeSpecificPart() : targetUri.getPath();
+    Preconditions.checkArgument(path != null && !path.isEmpty(),
+        "the target (%s) must have a path", targetUri);
+    return new UdsNameResolver(path);
+  }
+
+  @Override
+  public String getDefaultScheme() {
+    return SCHEME;
+  }
+
+  @Override
+  protected boolean isAvailable() {
+    return Utils.EPOLL_DOMAIN_SOCKETS_AVAILABLE;
+  }
+
+  @Override
+  protected int priority() {
+    // Lower than DNS, so that DNS stays the default scheme for targets without one.
+    return 3;
+  }
+}
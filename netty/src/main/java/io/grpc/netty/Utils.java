@@ -36,23 +36,31 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelConfig;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.http2.Http2Exception;
 import io.netty.handler.codec.http2.Http2Headers;
 import io.netty.util.AsciiString;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.IOException;
+import java.net.SocketAddress;
 import java.nio.channels.ClosedChannelException;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
 
 /**
  * Common utility methods.
  */
 @VisibleForTesting
 class Utils {
+  private static final Logger logger = Logger.getLogger(Utils.class.getName());
 
   public static final AsciiString STATUS_OK = AsciiString.of("200");
   public static final AsciiString HTTP_METHOD = AsciiString.of(GrpcUtil.HTTP_METHOD);
@@ -66,10 +74,74 @@ class Utils {
   public static final AsciiString USER_AGENT = AsciiString.of(GrpcUtil.USER_AGENT_KEY.name());
 
   public static final Resource<EventLoopGroup> DEFAULT_BOSS_EVENT_LOOP_GROUP =
-      new DefaultEventLoopGroupResource(1, "grpc-default-boss-ELG");
+      new DefaultEventLoopGroupResource(1, "grpc-default-boss-ELG", false);
 
   public static final Resource<EventLoopGroup> DEFAULT_WORKER_EVENT_LOOP_GROUP =
-      new DefaultEventLoopGroupResource(0, "grpc-default-worker-ELG");
+      new DefaultEventLoopGroupResource(0, "grpc-default-worker-ELG", false);
+
+  private static final Resource<EventLoopGroup> EPOLL_BOSS_EVENT_LOOP_GROUP =
+      new DefaultEventLoopGroupResource(1, "grpc-epoll-boss-ELG", true);
+
+  private static final Resource<EventLoopGroup> EPOLL_WORKER_EVENT_LOOP_GROUP =
+      new DefaultEventLoopGroupResource(0, "grpc-epoll-worker-ELG", true);
+
+  private static final String EPOLL_PACKAGE = "io.netty.channel.epoll.";
+
+  /**
+   * Whether Netty's native epoll transport is on the classpath and works on this platform.
+   */
+  static final boolean EPOLL_AVAILABLE = isEpollAvailable();
+
+  /**
+   * The channel type used when neither a channel type nor event loop groups are given: native
+   * epoll when available, unless disabled with the {@code io.grpc.netty.Utils.enable_epoll}
+   * system property, otherwise NIO.
+   */
+  static final Class<? extends ServerChannel> DEFAULT_SERVER_CHANNEL_TYPE;
+  static final Class<? extends Channel> DEFAULT_CLIENT_CHANNEL_TYPE;
+
+  /**
+   * Native epoll's {@code SO_REUSEPORT} option, or {@code null} if epoll is not available.
+   */
+  @Nullable
+  static final ChannelOption<Boolean> EPOLL_SO_REUSEPORT;
+
+  /**
+   * Native epoll's Unix domain socket channel types, or {@code null} if epoll or its domain socket
+   * channels are not available.
+   */
+  @Nullable
+  static final Class<? extends ServerChannel> EPOLL_SERVER_DOMAIN_SOCKET_CHANNEL_TYPE;
+  @Nullable
+  static final Class<? extends Channel> EPOLL_DOMAIN_SOCKET_CHANNEL_TYPE;
+
+  /**
+   * Whether native epoll's Unix domain socket channels can be loaded.
+   */
+  static final boolean EPOLL_DOMAIN_SOCKETS_AVAILABLE;
+
+  private static final String DOMAIN_SOCKET_ADDRESS_CLASS_NAME =
+      "io.netty.channel.unix.DomainSocketAddress";
+
+  static {
+    boolean useEpoll = EPOLL_AVAILABLE
+        && Boolean.parseBoolean(System.getProperty("io.grpc.netty.Utils.enable_epoll", "true"));
+    DEFAULT_SERVER_CHANNEL_TYPE = useEpoll
+        ? epollClass("EpollServerSocketChannel", ServerChannel.class)
+        : NioServerSocketChannel.class;
+    DEFAULT_CLIENT_CHANNEL_TYPE = useEpoll
+        ? epollClass("EpollSocketChannel", Channel.class)
+        : NioSocketChannel.class;
+    EPOLL_SO_REUSEPORT = EPOLL_AVAILABLE ? epollSoReusePort() : null;
+    EPOLL_SERVER_DOMAIN_SOCKET_CHANNEL_TYPE = EPOLL_AVAILABLE
+        ? optionalEpollClass("EpollServerDomainSocketChannel", ServerChannel.class)
+        : null;
+    EPOLL_DOMAIN_SOCKET_CHANNEL_TYPE = EPOLL_AVAILABLE
+        ? optionalEpollClass("EpollDomainSocketChannel", Channel.class)
+        : null;
+    EPOLL_DOMAIN_SOCKETS_AVAILABLE = EPOLL_SERVER_DOMAIN_SOCKET_CHANNEL_TYPE != null
+        && EPOLL_DOMAIN_SOCKET_CHANNEL_TYPE != null;
+  }
 
   @VisibleForTesting
   static boolean validateHeaders = false;
@@ -178,13 +250,119 @@ class Utils {
     return s;
   }
 
+  /**
+   * Returns whether {@code channelType} is one of native epoll's channels, which need epoll event
+   * loops.
+   */
+  static boolean isEpollChannelType(Class<?> channelType) {
+    return channelType.getName().startsWith(EPOLL_PACKAGE);
+  }
+
+  /**
+   * Returns whether {@code address} is a Unix domain socket address, without requiring the class to
+   * be on the classpath.
+   */
+  static boolean isDomainSocketAddress(SocketAddress address) {
+    return address.getClass().getName().equals(DOMAIN_SOCKET_ADDRESS_CLASS_NAME);
+  }
+
+  /**
+   * Creates a Unix domain socket address for {@code path}. Requires native epoll to be available.
+   */
+  static SocketAddress newDomainSocketAddress(String path) {
+    try {
+      return Class.forName(DOMAIN_SOCKET_ADDRESS_CLASS_NAME, true, Utils.class.getClassLoader())
+          .asSubclass(SocketAddress.class)
+          .getConstructor(String.class)
+          .newInstance(path);
+    } catch (Exception e) {
+      throw new RuntimeException("Unable to create a domain socket address", e);
+    }
+  }
+
+  /**
+   * Returns the shared boss event loop group that can serve {@code channelType}.
+   */
+  static Resource<EventLoopGroup> defaultBossEventLoopGroup(Class<?> channelType) {
+    return isEpollChannelType(channelType)
+        ? EPOLL_BOSS_EVENT_LOOP_GROUP : DEFAULT_BOSS_EVENT_LOOP_GROUP;
+  }
+
+  /**
+   * Returns the shared worker event loop group that can serve {@code channelType}.
+   */
+  static Resource<EventLoopGroup> defaultWorkerEventLoopGroup(Class<?> channelType) {
+    return isEpollChannelType(channelType)
+        ? EPOLL_WORKER_EVENT_LOOP_GROUP : DEFAULT_WORKER_EVENT_LOOP_GROUP;
+  }
+
+  /**
+   * Returns a resource for an unshared epoll boss event loop group with {@code numEventLoops}
+   * loops.
+   */
+  static Resource<EventLoopGroup> newEpollBossEventLoopGroup(int numEventLoops) {
+    return new DefaultEventLoopGroupResource(numEventLoops, "grpc-epoll-boss-ELG", true);
+  }
+
+  private static boolean isEpollAvailable() {
+    try {
+      Class<?> epoll = Class.forName(EPOLL_PACKAGE + "Epoll", false, Utils.class.getClassLoader());
+      return (Boolean) epoll.getDeclaredMethod("isAvailable").invoke(null);
+    } catch (ClassNotFoundException e) {
+      // netty-transport-native-epoll is not on the classpath
+      return false;
+    } catch (Exception e) {
+      logger.log(Level.FINE, "Unable to check whether native epoll is available", e);
+      return false;
+    }
+  }
+
+  private static <T> Class<? extends T> epollClass(String simpleName, Class<T> type) {
+    try {
+      return Class.forName(EPOLL_PACKAGE + simpleName, false, Utils.class.getClassLoader())
+          .asSubclass(type);
+    } catch (ClassNotFoundException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * Like {@link #epollClass}, but returns {@code null} if the class cannot be loaded, e.g. because
+   * the epoll version on the classpath does not have it.
+   */
+  @Nullable
+  private static <T> Class<? extends T> optionalEpollClass(String simpleName, Class<T> type) {
+    try {
+      return Class.forName(EPOLL_PACKAGE + simpleName, false, Utils.class.getClassLoader())
+          .asSubclass(type);
+    } catch (ClassNotFoundException e) {
+      logger.log(Level.FINE, "Unable to load " + simpleName, e);
+      return null;
+    } catch (LinkageError e) {
+      logger.log(Level.FINE, "Unable to load " + simpleName, e);
+      return null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ChannelOption<Boolean> epollSoReusePort() {
+    try {
+      return (ChannelOption<Boolean>) epollClass("EpollChannelOption", ChannelOption.class)
+          .getField("SO_REUSEPORT").get(null);
+    } catch (Exception e) {
+      throw new AssertionError(e);
+    }
+  }
+
   private static class DefaultEventLoopGroupResource implements Resource<EventLoopGroup> {
     private final String name;
     private final int numEventLoops;
+    private final boolean epoll;
 
-    DefaultEventLoopGroupResource(int numEventLoops, String name) {
+    DefaultEventLoopGroupResource(int numEventLoops, String name, boolean epoll) {
       this.name = name;
       this.numEventLoops = numEventLoops;
+      this.epoll = epoll;
     }
 
     @Override
@@ -194,6 +372,15 @@ class Utils {
       ThreadFactory threadFactory = new DefaultThreadFactory(name, useDaemonThreads);
       int parallelism = numEventLoops == 0
           ? Runtime.getRuntime().availableProcessors() * 2 : numEventLoops;
+      if (epoll) {
+        try {
+          return epollClass("EpollEventLoopGroup", EventLoopGroup.class)
+              .getConstructor(Integer.TYPE, ThreadFactory.class)
+              .newInstance(parallelism, threadFactory);
+        } catch (Exception e) {
+          throw new RuntimeException("Unable to create epoll event loop group", e);
+        }
+      }
       return new NioEventLoopGroup(parallelism, threadFactory);
     }
 
@@ -19,11 +19,12 @@ package io.grpc.netty;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import io.netty.buffer.ByteBufHolder;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelPromise;
+import io.netty.util.internal.PlatformDependent;
 import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -35,6 +36,12 @@ class WriteQueue {
   @VisibleForTesting
   static final int DEQUE_CHUNK_SIZE = 128;
 
+  // Flush as soon as this many bytes of frame data have been written since the last flush, even if
+  // fewer than DEQUE_CHUNK_SIZE commands have been dequeued. Large messages release their buffers
+  // early, while runs of small messages are still coalesced into a single flush.
+  @VisibleForTesting
+  static final int FLUSH_BYTES_THRESHOLD = 64 * 1024;
+
   /**
    * {@link Runnable} used to schedule work onto the tail of the event loop.
    */
@@ -50,8 +57,19 @@ class WriteQueue {
   private final AtomicBoolean scheduled = new AtomicBoolean();
 
   public WriteQueue(Channel channel) {
+    // Commands are produced by many application threads but only ever consumed by the event loop,
+    // so an array-backed MPSC queue avoids the per-node allocation of a ConcurrentLinkedQueue.
+    this(channel, PlatformDependent.<QueuedCommand>newMpscQueue());
+  }
+
+  /**
+   * Creates a write queue backed by the given queue. The queue must support concurrent producers
+   * and a single consumer.
+   */
+  @VisibleForTesting
+  WriteQueue(Channel channel, Queue<QueuedCommand> queue) {
     this.channel = Preconditions.checkNotNull(channel, "channel");
-    queue = new ConcurrentLinkedQueue<QueuedCommand>();
+    this.queue = Preconditions.checkNotNull(queue, "queue");
   }
 
   /**
@@ -119,11 +137,17 @@ class WriteQueue {
     try {
       QueuedCommand cmd;
       int i = 0;
+      int pendingBytes = 0;
       boolean flushedOnce = false;
       while ((cmd = queue.poll()) != null) {
+        if (cmd instanceof ByteBufHolder) {
+          // Must be read before running the command, as the write may release the buffer.
+          pendingBytes += ((ByteBufHolder) cmd).content().readableBytes();
+        }
         cmd.run(channel);
-        if (++i == DEQUE_CHUNK_SIZE) {
+        if (++i == DEQUE_CHUNK_SIZE || pendingBytes >= FLUSH_BYTES_THRESHOLD) {
           i = 0;
+          pendingBytes = 0;
           // Flush each chunk so we are releasing buffers periodically. In theory this loop
           // might never end as new events are continuously added to the queue, if we never
           // flushed in that case we would be guaranteed to OOM.
@@ -191,16 +191,9 @@ public class NettyClientStreamTest extends NettyStreamTestBase<NettyClientStream
     byte[] msg = smallMessage();
     stream.writeMessage(new BufferedInputStream(new ByteArrayInputStream(msg)));
     stream.flush();
-    // Two writes occur, one for the GRPC frame header and the second with the payload
-    // The framer reports the message count when the payload is completely written
+    // The small message is staged until its length is known, and then framed in a single write
     verify(writeQueue).enqueue(
-            eq(new SendGrpcFrameCommand(
-                stream.transportState(), messageFrame(MESSAGE).slice(0, 5), false)),
-            any(ChannelPromise.class),
-            eq(false));
-    verify(writeQueue).enqueue(
-        eq(new SendGrpcFrameCommand(
-            stream.transportState(), messageFrame(MESSAGE).slice(5, 11), false)),
+        eq(new SendGrpcFrameCommand(stream.transportState(), messageFrame(MESSAGE), false)),
         any(ChannelPromise.class),
         eq(true));
   }
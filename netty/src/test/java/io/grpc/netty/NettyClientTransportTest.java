@@ -599,7 +599,7 @@ public class NettyClientTransportTest {
         TestUtils.testServerAddress(0),
         NioServerSocketChannel.class,
         new HashMap<ChannelOption<?>, Object>(),
-        group, group, negotiator,
+        group, group, 1, negotiator,
         Collections.<ServerStreamTracer.Factory>emptyList(),
         TransportTracer.getDefaultFactory(),
         maxStreamsPerConnection,
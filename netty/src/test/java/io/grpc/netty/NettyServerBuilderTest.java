@@ -19,6 +19,7 @@ package io.grpc.netty;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.ssl.SslContext;
 import java.util.concurrent.TimeUnit;
 import org.junit.Rule;
@@ -53,6 +54,23 @@ public class NettyServerBuilderTest {
     builder.sslContext(sslContext);
   }
 
+  @Test
+  public void failIfReusePortAcceptorsNotPositive() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("acceptors must be positive");
+
+    builder.reusePortAcceptors(0);
+  }
+
+  @Test
+  public void failIfReusePortAcceptorsWithNio() {
+    builder.reusePortAcceptors(2).channelType(NioServerSocketChannel.class);
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("reusePortAcceptors requires the native epoll transport");
+    builder.build();
+  }
+
   @Test
   public void failIfKeepAliveTimeNegative() {
     thrown.expect(IllegalArgumentException.class);
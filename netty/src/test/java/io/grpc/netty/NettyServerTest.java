@@ -22,6 +22,7 @@ import static io.grpc.internal.Channelz.id;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assume.assumeTrue;
 
 import com.google.common.util.concurrent.SettableFuture;
 import io.grpc.ServerStreamTracer;
@@ -40,6 +41,7 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -61,6 +63,7 @@ public class NettyServerTest {
         new HashMap<ChannelOption<?>, Object>(),
         null, // no boss group
         null, // no event group
+        1, // one acceptor
         new ProtocolNegotiators.PlaintextNegotiator(),
         Collections.<ServerStreamTracer.Factory>emptyList(),
         TransportTracer.getDefaultFactory(),
@@ -99,6 +102,7 @@ public class NettyServerTest {
         new HashMap<ChannelOption<?>, Object>(),
         null, // no boss group
         null, // no event group
+        1, // one acceptor
         new ProtocolNegotiators.PlaintextNegotiator(),
         Collections.<ServerStreamTracer.Factory>emptyList(),
         TransportTracer.getDefaultFactory(),
@@ -137,6 +141,7 @@ public class NettyServerTest {
         channelOptions,
         null, // no boss group
         null, // no event group
+        1, // one acceptor
         new ProtocolNegotiators.PlaintextNegotiator(),
         Collections.<ServerStreamTracer.Factory>emptyList(),
         TransportTracer.getDefaultFactory(),
@@ -187,6 +192,7 @@ public class NettyServerTest {
         new HashMap<ChannelOption<?>, Object>(),
         null, // no boss group
         null, // no event group
+        1, // one acceptor
         new ProtocolNegotiators.PlaintextNegotiator(),
         Collections.<ServerStreamTracer.Factory>emptyList(),
         TransportTracer.getDefaultFactory(),
@@ -232,4 +238,54 @@ public class NettyServerTest {
     // listen socket is removed
     assertNull(channelz.getSocket(id(listenSocket)));
   }
+
+  @Test
+  public void reusePortAcceptors() throws Exception {
+    assumeTrue(Utils.EPOLL_AVAILABLE);
+    InetSocketAddress addr = new InetSocketAddress(0);
+    NettyServer ns = new NettyServer(
+        addr,
+        Utils.DEFAULT_SERVER_CHANNEL_TYPE,
+        new HashMap<ChannelOption<?>, Object>(),
+        null, // no boss group
+        null, // no event group
+        3, // acceptors
+        new ProtocolNegotiators.PlaintextNegotiator(),
+        Collections.<ServerStreamTracer.Factory>emptyList(),
+        TransportTracer.getDefaultFactory(),
+        1, // ignore
+        1, // ignore
+        1, // ignore
+        1, // ignore
+        1, // ignore
+        1, 1, // ignore
+        1, 1, // ignore
+        true, 0, // ignore
+        channelz);
+    final SettableFuture<Void> shutdownCompleted = SettableFuture.create();
+    ns.start(new ServerListener() {
+      @Override
+      public ServerTransportListener transportCreated(ServerTransport transport) {
+        return null;
+      }
+
+      @Override
+      public void serverShutdown() {
+        shutdownCompleted.set(null);
+      }
+    });
+
+    List<Instrumented<SocketStats>> listenSockets = ns.getListenSockets();
+    assertEquals(3, listenSockets.size());
+    for (Instrumented<SocketStats> listenSocket : listenSockets) {
+      SocketStats socketStats = listenSocket.getStats().get();
+      assertEquals(ns.getPort(), ((InetSocketAddress) socketStats.local).getPort());
+    }
+
+    ns.shutdown();
+    shutdownCompleted.get();
+    for (Instrumented<SocketStats> listenSocket : listenSockets) {
+      assertNull(channelz.getSocket(id(listenSocket)));
+    }
+  }
 }
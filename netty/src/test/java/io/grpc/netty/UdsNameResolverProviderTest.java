@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.netty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import io.grpc.Attributes;
+import io.grpc.CallOptions;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.ManagedChannel;
+import io.grpc.NameResolver;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCalls;
+import io.grpc.testing.TestMethodDescriptors;
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link UdsNameResolverProvider}. */
+@RunWith(JUnit4.class)
+public class UdsNameResolverProviderTest {
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final UdsNameResolverProvider provider = new UdsNameResolverProvider();
+
+  @Before
+  public void setUp() {
+    assumeTrue(provider.isAvailable());
+  }
+
+  @Test
+  public void resolvesPath() {
+    assertEquals("/tmp/test.sock", resolve("unix:///tmp/test.sock"));
+    assertEquals("/tmp/test.sock", resolve("unix:/tmp/test.sock"));
+    assertEquals("test.sock", resolve("unix:test.sock"));
+  }
+
+  @Test
+  public void otherSchemeNotResolved() {
+    assertNull(provider.newNameResolver(URI.create("dns:///localhost:443"), Attributes.EMPTY));
+  }
+
+  @Test
+  public void authorityNotAllowed() {
+    try {
+      provider.newNameResolver(URI.create("unix://localhost/tmp/test.sock"), Attributes.EMPTY);
+      fail("Expected exception");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void callOverUnixDomainSocket() throws Exception {
+    String path = new File(tempFolder.getRoot(), "test.sock").getAbsolutePath();
+    Server server = NettyServerBuilder.forUnixDomainSocket(path).build().start();
+    ManagedChannel channel = NettyChannelBuilder.forTarget("unix://" + path)
+        .negotiationType(NegotiationType.PLAINTEXT)
+        .build();
+    try {
+      ClientCalls.blockingUnaryCall(
+          channel, TestMethodDescriptors.voidMethod(), CallOptions.DEFAULT, null);
+      fail("Expected exception");
+    } catch (StatusRuntimeException e) {
+      // The server has no services, so reaching it at all is the point.
+      assertEquals(Status.Code.UNIMPLEMENTED, e.getStatus().getCode());
+    } finally {
+      channel.shutdownNow();
+      server.shutdownNow();
+    }
+  }
+
+  private String resolve(String target) {
+    NameResolver resolver = provider.newNameResolver(URI.create(target), Attributes.EMPTY);
+    assertEquals("localhost", resolver.getServiceAuthority());
+    final List<EquivalentAddressGroup> servers = new ArrayList<EquivalentAddressGroup>();
+    resolver.start(new NameResolver.Listener() {
+      @Override
+      public void onAddresses(List<EquivalentAddressGroup> addresses, Attributes attributes) {
+        servers.addAll(addresses);
+      }
+
+      @Override
+      public void onError(Status error) {
+        throw new AssertionError(error);
+      }
+    });
+    resolver.shutdown();
+    assertEquals(1, servers.size());
+    assertEquals(1, servers.get(0).getAddresses().size());
+    return servers.get(0).getAddresses().get(0).toString();
+  }
+}
@@ -26,6 +26,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import io.grpc.netty.WriteQueue.QueuedCommand;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelPromise;
@@ -58,6 +59,13 @@ public class WriteQueueTest {
   @Mock
   public ChannelPromise promise;
 
+  private final StreamIdHolder streamIdHolder = new StreamIdHolder() {
+    @Override
+    public int id() {
+      return 3;
+    }
+  };
+
   private long writeCalledNanos;
   private long flushCalledNanos = writeCalledNanos;
 
@@ -143,6 +151,20 @@ public class WriteQueueTest {
     verify(channel, times(2)).flush();
   }
 
+  @Test
+  public void maxBytesBeforeFlushShouldBeEnforced() {
+    WriteQueue queue = new WriteQueue(channel);
+    int frameSize = WriteQueue.FLUSH_BYTES_THRESHOLD / 2;
+    for (int i = 0; i < 3; i++) {
+      queue.enqueue(new SendGrpcFrameCommand(streamIdHolder, Unpooled.buffer(frameSize)
+          .writerIndex(frameSize), false), false);
+    }
+    queue.scheduleFlush();
+
+    verify(channel, times(3)).write(isA(QueuedCommand.class), eq(promise));
+    verify(channel, times(2)).flush();
+  }
+
   @Test
   public void concurrentWriteAndFlush() throws Throwable {
     final WriteQueue queue = new WriteQueue(channel);
@@ -25,6 +25,9 @@ import io.grpc.okhttp.internal.framed.Settings;
 import java.io.IOException;
 import java.net.Socket;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import okio.Buffer;
@@ -37,10 +40,44 @@ class AsyncFrameWriter implements FrameWriter {
   // just waiting on each other.
   private final SerializingExecutor executor;
   private final OkHttpClientTransport transport;
+  private final int maxWriteBatchBytes;
 
-  public AsyncFrameWriter(OkHttpClientTransport transport, SerializingExecutor executor) {
+  // Writes are queued here and drained in batches on the executor, rather than each being
+  // submitted to the executor individually. Same approach as Netty's WriteQueue.
+  private final Queue<Runnable> queue = new ConcurrentLinkedQueue<Runnable>();
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+  private final Runnable drain = new Runnable() {
+    @Override
+    public void run() {
+      drain();
+    }
+  };
+
+  // Only accessed from the executor.
+  private boolean flushPending;
+  private long bytesSinceFlush;
+
+  private final Runnable flushRequest = new Runnable() {
+    @Override
+    public void run() {
+      flushPending = true;
+    }
+  };
+  private final WriteRunnable flushWrite = new WriteRunnable() {
+    @Override
+    public void doRun() throws IOException {
+      flushPending = false;
+      bytesSinceFlush = 0;
+      frameWriter.flush();
+    }
+  };
+
+  public AsyncFrameWriter(
+      OkHttpClientTransport transport, SerializingExecutor executor, int maxWriteBatchBytes) {
+    Preconditions.checkArgument(maxWriteBatchBytes > 0, "maxWriteBatchBytes must be positive");
     this.transport = transport;
     this.executor = executor;
+    this.maxWriteBatchBytes = maxWriteBatchBytes;
   }
 
   /**
@@ -58,7 +95,7 @@ class AsyncFrameWriter implements FrameWriter {
 
   @Override
   public void connectionPreface() {
-    executor.execute(new WriteRunnable() {
+    enqueue(new WriteRunnable() {
       @Override
       public void doRun() throws IOException {
         frameWriter.connectionPreface();
@@ -68,7 +105,7 @@ class AsyncFrameWriter implements FrameWriter {
 
   @Override
   public void ackSettings(final Settings peerSettings) {
-    executor.execute(new WriteRunnable() {
+    enqueue(new WriteRunnable() {
       @Override
       public void doRun() throws IOException {
         frameWriter.ackSettings(peerSettings);
@@ -79,7 +116,7 @@ class AsyncFrameWriter implements FrameWriter {
   @Override
   public void pushPromise(final int streamId, final int promisedStreamId,
       final List<Header> requestHeaders) {
-    executor.execute(new WriteRunnable() {
+    enqueue(new WriteRunnable() {
       @Override
       public void doRun() throws IOException {
         frameWriter.pushPromise(streamId, promisedStreamId, requestHeaders);
@@ -87,20 +124,19 @@ class AsyncFrameWriter implements FrameWriter {
     });
   }
 
+  /**
+   * Requests a flush. Flushes are coalesced: frames queued by the time the writer drains the queue
+   * are written out and flushed once, rather than once per call.
+   */
   @Override
   public void flush() {
-    executor.execute(new WriteRunnable() {
-      @Override
-      public void doRun() throws IOException {
-        frameWriter.flush();
-      }
-    });
+    enqueue(flushRequest);
   }
 
   @Override
   public void synStream(final boolean outFinished, final boolean inFinished, final int streamId,
       final int associatedStreamId, final List<Header> headerBlock) {
-    executor.execute(new WriteRunnable() {
+    enqueue(new WriteRunnable() {
       @Override
       public void doRun() throws IOException {
         frameWriter.synStream(outFinished, inFinished, streamId, associatedStreamId, headerBlock);
@@ -111,7 +147,7 @@ class AsyncFrameWriter implements FrameWriter {
   @Override
   public void synReply(final boolean outFinished, final int streamId,
       final List<Header> headerBlock) {
-    executor.execute(new WriteRunnable() {
+    enqueue(new WriteRunnable() {
       @Override
       public void doRun() throws IOException {
         frameWriter.synReply(outFinished, streamId, headerBlock);
@@ -121,7 +157,7 @@ class AsyncFrameWriter implements FrameWriter {
 
   @Override
   public void headers(final int streamId, final List<Header> headerBlock) {
-    executor.execute(new WriteRunnable() {
+    enqueue(new WriteRunnable() {
       @Override
       public void doRun() throws IOException {
         frameWriter.headers(streamId, headerBlock);
@@ -131,7 +167,7 @@ class AsyncFrameWriter implements FrameWriter {
 
   @Override
   public void rstStream(final int streamId, final ErrorCode errorCode) {
-    executor.execute(new WriteRunnable() {
+    enqueue(new WriteRunnable() {
       @Override
       public void doRun() throws IOException {
         frameWriter.rstStream(streamId, errorCode);
@@ -142,17 +178,18 @@ class AsyncFrameWriter implements FrameWriter {
   @Override
   public void data(final boolean outFinished, final int streamId, final Buffer source,
       final int byteCount) {
-    executor.execute(new WriteRunnable() {
+    enqueue(new WriteRunnable() {
       @Override
       public void doRun() throws IOException {
         frameWriter.data(outFinished, streamId, source, byteCount);
+        bytesSinceFlush += byteCount;
       }
     });
   }
 
   @Override
   public void settings(final Settings okHttpSettings) {
-    executor.execute(new WriteRunnable() {
+    enqueue(new WriteRunnable() {
       @Override
       public void doRun() throws IOException {
         frameWriter.settings(okHttpSettings);
@@ -162,7 +199,7 @@ class AsyncFrameWriter implements FrameWriter {
 
   @Override
   public void ping(final boolean ack, final int payload1, final int payload2) {
-    executor.execute(new WriteRunnable() {
+    enqueue(new WriteRunnable() {
       @Override
       public void doRun() throws IOException {
         frameWriter.ping(ack, payload1, payload2);
@@ -173,19 +210,21 @@ class AsyncFrameWriter implements FrameWriter {
   @Override
   public void goAway(final int lastGoodStreamId, final ErrorCode errorCode,
       final byte[] debugData) {
-    executor.execute(new WriteRunnable() {
+    enqueue(new WriteRunnable() {
       @Override
       public void doRun() throws IOException {
         frameWriter.goAway(lastGoodStreamId, errorCode, debugData);
         // Flush it since after goAway, we are likely to close this writer.
         frameWriter.flush();
+        flushPending = false;
+        bytesSinceFlush = 0;
       }
     });
   }
 
   @Override
   public void windowUpdate(final int streamId, final long windowSizeIncrement) {
-    executor.execute(new WriteRunnable() {
+    enqueue(new WriteRunnable() {
       @Override
       public void doRun() throws IOException {
         frameWriter.windowUpdate(streamId, windowSizeIncrement);
@@ -195,7 +234,7 @@ class AsyncFrameWriter implements FrameWriter {
 
   @Override
   public void close() {
-    executor.execute(new Runnable() {
+    enqueue(new Runnable() {
       @Override
       public void run() {
         if (frameWriter != null) {
@@ -210,6 +249,38 @@ class AsyncFrameWriter implements FrameWriter {
     });
   }
 
+  private void enqueue(Runnable command) {
+    queue.add(command);
+    if (drainScheduled.compareAndSet(false, true)) {
+      executor.execute(drain);
+    }
+  }
+
+  /**
+   * Runs all queued commands. A requested flush is deferred until the queue is empty, or until
+   * {@code maxWriteBatchBytes} have been written since the last flush, so that a burst of small
+   * frames results in a single socket write.
+   */
+  private void drain() {
+    try {
+      Runnable command;
+      while ((command = queue.poll()) != null) {
+        command.run();
+        if (flushPending && bytesSinceFlush >= maxWriteBatchBytes) {
+          flushWrite.run();
+        }
+      }
+      if (flushPending) {
+        flushWrite.run();
+      }
+    } finally {
+      drainScheduled.set(false);
+      if (!queue.isEmpty() && drainScheduled.compareAndSet(false, true)) {
+        executor.execute(drain);
+      }
+    }
+  }
+
   private abstract class WriteRunnable implements Runnable {
     @Override
     public final void run() {
@@ -182,6 +182,7 @@ class OkHttpClientTransport implements ConnectionClientTransport {
   private long keepAliveTimeNanos;
   private long keepAliveTimeoutNanos;
   private boolean keepAliveWithoutCalls;
+  private int maxWriteBatchBytes = Utils.DEFAULT_MAX_WRITE_BATCH_BYTES;
   private final Runnable tooManyPingsRunnable;
   @GuardedBy("lock")
   private final TransportTracer transportTracer;
@@ -284,6 +285,14 @@ class OkHttpClientTransport implements ConnectionClientTransport {
     this.keepAliveWithoutCalls = keepAliveWithoutCalls;
   }
 
+  /**
+   * Sets the number of bytes after which a batch of queued writes is flushed early. Must be called
+   * before {@link #start}.
+   */
+  void setMaxWriteBatchBytes(int maxWriteBatchBytes) {
+    this.maxWriteBatchBytes = maxWriteBatchBytes;
+  }
+
   private boolean isForTest() {
     return address == null;
   }
@@ -414,7 +423,7 @@ class OkHttpClientTransport implements ConnectionClientTransport {
       keepAliveManager.onTransportStarted();
     }
 
-    frameWriter = new AsyncFrameWriter(this, serializingExecutor);
+    frameWriter = new AsyncFrameWriter(this, serializingExecutor, maxWriteBatchBytes);
     outboundFlow = new OutboundFlowController(this, frameWriter);
     // Connecting in the serializingExecutor, so that some stream operations like synStream
     // will be executed after connected.
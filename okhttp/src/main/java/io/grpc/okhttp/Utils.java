@@ -37,6 +37,7 @@ class Utils {
   private static final Logger log = Logger.getLogger(Utils.class.getName());
 
   static final int DEFAULT_WINDOW_SIZE = 65535;
+  static final int DEFAULT_MAX_WRITE_BATCH_BYTES = 64 * 1024;
   static final int CONNECTION_STREAM_ID = 0;
 
   public static Metadata convertHeaders(List<Header> http2Headers) {
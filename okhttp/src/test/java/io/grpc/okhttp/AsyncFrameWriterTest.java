@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.okhttp;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.grpc.internal.SerializingExecutor;
+import io.grpc.okhttp.internal.framed.FrameWriter;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import okio.Buffer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+/** Tests for {@link AsyncFrameWriter}. */
+@RunWith(JUnit4.class)
+public class AsyncFrameWriterTest {
+
+  @Mock private OkHttpClientTransport transport;
+  @Mock private FrameWriter frameWriter;
+  @Mock private Socket socket;
+
+  private final Queue<Runnable> queuedTasks = new ArrayDeque<Runnable>();
+  private final Executor queueingExecutor = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      queuedTasks.add(command);
+    }
+  };
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+  }
+
+  @Test
+  public void flushesWithinBatchAreCoalesced() throws Exception {
+    AsyncFrameWriter writer = newConnectedWriter(Utils.DEFAULT_MAX_WRITE_BATCH_BYTES);
+    for (int i = 0; i < 3; i++) {
+      writer.data(false, 3, dataBuffer(10), 10);
+      writer.flush();
+    }
+    runQueuedTasks();
+
+    InOrder inOrder = inOrder(frameWriter);
+    inOrder.verify(frameWriter, times(3)).data(eq(false), eq(3), any(Buffer.class), eq(10));
+    inOrder.verify(frameWriter).flush();
+    inOrder.verifyNoMoreInteractions();
+  }
+
+  @Test
+  public void maxWriteBatchBytesFlushesEarly() throws Exception {
+    AsyncFrameWriter writer = newConnectedWriter(15);
+    for (int i = 0; i < 3; i++) {
+      writer.data(false, 3, dataBuffer(10), 10);
+      writer.flush();
+    }
+    runQueuedTasks();
+
+    InOrder inOrder = inOrder(frameWriter);
+    inOrder.verify(frameWriter, times(2)).data(eq(false), eq(3), any(Buffer.class), eq(10));
+    inOrder.verify(frameWriter).flush();
+    inOrder.verify(frameWriter).data(eq(false), eq(3), any(Buffer.class), eq(10));
+    inOrder.verify(frameWriter).flush();
+    inOrder.verifyNoMoreInteractions();
+  }
+
+  @Test
+  public void noFlushUnlessRequested() throws Exception {
+    AsyncFrameWriter writer = newConnectedWriter(Utils.DEFAULT_MAX_WRITE_BATCH_BYTES);
+    writer.windowUpdate(3, 100);
+    runQueuedTasks();
+
+    verify(frameWriter).windowUpdate(3, 100);
+    verify(frameWriter, times(0)).flush();
+  }
+
+  @Test
+  public void writesQueuedBeforeCloseAreWrittenFirst() throws Exception {
+    AsyncFrameWriter writer = newConnectedWriter(Utils.DEFAULT_MAX_WRITE_BATCH_BYTES);
+    writer.windowUpdate(3, 100);
+    writer.close();
+    runQueuedTasks();
+
+    InOrder inOrder = inOrder(frameWriter, socket);
+    inOrder.verify(frameWriter).windowUpdate(anyInt(), anyLong());
+    inOrder.verify(frameWriter).close();
+    inOrder.verify(socket).close();
+  }
+
+  private AsyncFrameWriter newConnectedWriter(int maxWriteBatchBytes) {
+    AsyncFrameWriter writer = new AsyncFrameWriter(transport,
+        new SerializingExecutor(queueingExecutor), maxWriteBatchBytes);
+    writer.becomeConnected(frameWriter, socket);
+    return writer;
+  }
+
+  private static Buffer dataBuffer(int size) {
+    Buffer buffer = new Buffer();
+    buffer.write(new byte[size]);
+    return buffer;
+  }
+
+  private void runQueuedTasks() {
+    Runnable task;
+    while ((task = queuedTasks.poll()) != null) {
+      task.run();
+    }
+  }
+}
@@ -25,6 +25,7 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.MessageLite;
 import com.google.protobuf.Parser;
 import io.grpc.ExperimentalApi;
+import io.grpc.HasByteBuffer;
 import io.grpc.KnownLength;
 import io.grpc.Metadata;
 import io.grpc.MethodDescriptor.Marshaller;
@@ -35,6 +36,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
 
 /**
  * Utility methods for using protobuf with grpc.
@@ -130,7 +132,20 @@ public class ProtoLiteUtils {
         try {
           if (stream instanceof KnownLength) {
             int size = stream.available();
-            if (size > 0 && size <= DEFAULT_MAX_MESSAGE_SIZE) {
+            if (size > 0 && stream instanceof HasByteBuffer
+                && ((HasByteBuffer) stream).byteBufferSupported()) {
+              ByteBuffer buffer = ((HasByteBuffer) stream).getByteBuffer();
+              // Only heap buffers are parsed in place, as protobuf copies a direct buffer into a
+              // new array, which is worse than the thread-local buffer below.
+              if (buffer != null && buffer.hasArray() && buffer.remaining() == size) {
+                // The whole message is held in a single transport buffer, so parse it in place
+                // instead of copying it out first. Aliasing is not enabled, so the parsed message
+                // does not reference the buffer after the stream is closed.
+                cis = CodedInputStream.newInstance(
+                    buffer.array(), buffer.arrayOffset() + buffer.position(), size);
+              }
+            }
+            if (cis == null && size > 0 && size <= DEFAULT_MAX_MESSAGE_SIZE) {
               // buf should not be used after this method has returned.
               byte[] buf = bufs.get().get();
               if (buf == null || buf.length < size) {
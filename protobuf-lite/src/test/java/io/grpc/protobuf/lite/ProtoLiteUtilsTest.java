@@ -36,10 +36,12 @@ import io.grpc.MethodDescriptor.PrototypeMarshaller;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import io.grpc.internal.GrpcUtil;
+import io.grpc.internal.ReadableBuffers;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import org.junit.Rule;
 import org.junit.Test;
@@ -68,6 +70,26 @@ public class ProtoLiteUtilsTest {
     assertEquals(proto, marshaller.parse(is));
   }
 
+  @Test
+  public void testRoundtrip_heapByteBuffer() throws Exception {
+    byte[] bytes = ByteStreams.toByteArray(marshaller.stream(proto));
+    byte[] padded = new byte[bytes.length + 4];
+    System.arraycopy(bytes, 0, padded, 2, bytes.length);
+    ByteBuffer buffer = ByteBuffer.wrap(padded, 2, bytes.length).slice();
+    InputStream is = ReadableBuffers.openStream(ReadableBuffers.wrap(buffer), true);
+    assertEquals(proto, marshaller.parse(is));
+  }
+
+  @Test
+  public void testRoundtrip_directByteBuffer() throws Exception {
+    byte[] bytes = ByteStreams.toByteArray(marshaller.stream(proto));
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes);
+    buffer.flip();
+    InputStream is = ReadableBuffers.openStream(ReadableBuffers.wrap(buffer), true);
+    assertEquals(proto, marshaller.parse(is));
+  }
+
   @Test
   public void testInvalidatedMessage() throws Exception {
     InputStream is = marshaller.stream(proto);
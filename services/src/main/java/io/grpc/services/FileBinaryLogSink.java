@@ -0,0 +1,329 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.services;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.protobuf.MessageLite;
+import io.grpc.ExperimentalApi;
+import io.grpc.internal.GrpcUtil;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * A binary log sink that appends length-delimited {@code GrpcLogEntry} records to rolling files.
+ *
+ * <p>{@link #write} never blocks: entries are handed to a preallocated ring buffer and a dedicated
+ * thread writes them out in batches. When the buffer is full the entry is dropped and counted.
+ *
+ * <p>The sink is available when the {@code io.grpc.services.FileBinaryLogSink.path} system
+ * property names the file to write. Once the file reaches
+ * {@code io.grpc.services.FileBinaryLogSink.max_file_bytes} (64 MiB by default) it is renamed to
+ * {@code <path>.1}, older files are shifted up by one, and at most {@link #MAX_ROLLED_FILES}
+ * rolled files are kept.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/4017")
+public final class FileBinaryLogSink extends BinaryLogSink {
+  private static final Logger logger = Logger.getLogger(FileBinaryLogSink.class.getName());
+
+  private static final String PATH_PROPERTY = "io.grpc.services.FileBinaryLogSink.path";
+  private static final String MAX_FILE_BYTES_PROPERTY =
+      "io.grpc.services.FileBinaryLogSink.max_file_bytes";
+  private static final long DEFAULT_MAX_FILE_BYTES = 64 * 1024 * 1024;
+  private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+  @VisibleForTesting
+  static final int MAX_ROLLED_FILES = 10;
+  /** Entries are written to the file once this many bytes have been serialized. */
+  private static final int BATCH_BYTES = 256 * 1024;
+  /** How long the writer waits for entries before flushing a partial batch. */
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long DROP_REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  @Nullable
+  private final File file;
+  private final long maxFileBytes;
+  private final int mask;
+  private final AtomicReferenceArray<MessageLite> ring;
+  private final AtomicLong producerIndex = new AtomicLong();
+  // Only written by the writer thread.
+  private final AtomicLong consumerIndex = new AtomicLong();
+  private final AtomicLong droppedEntries = new AtomicLong();
+  private final AtomicBoolean writerParked = new AtomicBoolean();
+  private final Object lock = new Object();
+  // Written under lock.
+  private volatile Thread writerThread;
+  private volatile boolean closed;
+
+  /**
+   * Creates a sink configured from system properties. Used by the service loader.
+   */
+  public FileBinaryLogSink() {
+    this(getPathProperty(), DEFAULT_BUFFER_SIZE, getMaxFileBytesProperty());
+  }
+
+  @VisibleForTesting
+  FileBinaryLogSink(@Nullable File file, int bufferSize, long maxFileBytes) {
+    checkArgument(Integer.bitCount(bufferSize) == 1, "bufferSize must be a power of two");
+    checkArgument(maxFileBytes > 0, "maxFileBytes must be positive");
+    this.file = file;
+    this.maxFileBytes = maxFileBytes;
+    this.mask = bufferSize - 1;
+    this.ring = new AtomicReferenceArray<MessageLite>(bufferSize);
+  }
+
+  @Override
+  public void write(MessageLite message) {
+    checkNotNull(message, "message");
+    if (closed) {
+      droppedEntries.incrementAndGet();
+      return;
+    }
+    if (writerThread == null) {
+      startWriter();
+    }
+    while (true) {
+      long index = producerIndex.get();
+      if (index - consumerIndex.get() > mask) {
+        droppedEntries.incrementAndGet();
+        return;
+      }
+      if (producerIndex.compareAndSet(index, index + 1)) {
+        // A volatile write, so that the writer either sees the entry or is seen parked below.
+        ring.set((int) index & mask, message);
+        break;
+      }
+    }
+    if (writerParked.get() && writerParked.compareAndSet(true, false)) {
+      LockSupport.unpark(writerThread);
+    }
+  }
+
+  /**
+   * Returns the number of entries dropped because the buffer was full or the sink was closed.
+   */
+  long getDroppedEntries() {
+    return droppedEntries.get();
+  }
+
+  @Override
+  protected boolean isAvailable() {
+    return file != null;
+  }
+
+  @Override
+  protected int priority() {
+    return 5;
+  }
+
+  /**
+   * Stops accepting entries and waits for the buffered ones to be written.
+   */
+  @Override
+  public void close() throws IOException {
+    Thread writer;
+    synchronized (lock) {
+      closed = true;
+      writer = writerThread;
+    }
+    if (writer == null) {
+      return;
+    }
+    LockSupport.unpark(writer);
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void startWriter() {
+    synchronized (lock) {
+      if (writerThread != null || closed) {
+        return;
+      }
+      checkNotNull(file, "file");
+      writerThread = GrpcUtil.getThreadFactory("grpc-binary-log-writer-%d", true)
+          .newThread(new Writer());
+      writerThread.start();
+    }
+  }
+
+  @Nullable
+  private MessageLite poll() {
+    long index = consumerIndex.get();
+    int slot = (int) index & mask;
+    MessageLite message = ring.get(slot);
+    if (message != null) {
+      ring.lazySet(slot, null);
+      consumerIndex.lazySet(index + 1);
+    }
+    return message;
+  }
+
+  private boolean isEmpty() {
+    return ring.get((int) consumerIndex.get() & mask) == null;
+  }
+
+  private final class Writer implements Runnable {
+    private final BatchBuffer batch = new BatchBuffer(BATCH_BYTES * 2);
+    private FileChannel channel;
+    private long fileBytes;
+    private long reportedDrops;
+    private long lastDropReportNanos;
+
+    @Override
+    public void run() {
+      try {
+        openFile();
+        while (true) {
+          boolean wasClosed = closed;
+          MessageLite message;
+          while ((message = poll()) != null) {
+            message.writeDelimitedTo(batch);
+            if (batch.size() >= BATCH_BYTES) {
+              writeBatch();
+            }
+          }
+          writeBatch();
+          reportDrops();
+          if (wasClosed) {
+            if (consumerIndex.get() == producerIndex.get()) {
+              break;
+            }
+            // A producer claimed a slot before close() but has not published the entry yet.
+            Thread.yield();
+            continue;
+          }
+          writerParked.set(true);
+          if (isEmpty() && !closed) {
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+          }
+          writerParked.set(false);
+        }
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, "Binary log writer failed, disabling binary logging", e);
+        closed = true;
+      } finally {
+        closeFile();
+      }
+    }
+
+    private void writeBatch() throws IOException {
+      if (batch.size() == 0) {
+        return;
+      }
+      if (fileBytes > 0 && fileBytes + batch.size() > maxFileBytes) {
+        rollFile();
+      }
+      ByteBuffer buffer = batch.asByteBuffer();
+      while (buffer.hasRemaining()) {
+        fileBytes += channel.write(buffer);
+      }
+      batch.reset();
+    }
+
+    private void openFile() throws IOException {
+      channel = new FileOutputStream(file, true).getChannel();
+      fileBytes = channel.size();
+    }
+
+    private void rollFile() throws IOException {
+      channel.close();
+      File oldest = rolledFile(MAX_ROLLED_FILES);
+      if (oldest.exists() && !oldest.delete()) {
+        logger.log(Level.WARNING, "Unable to delete {0}", oldest);
+      }
+      for (int i = MAX_ROLLED_FILES - 1; i >= 1; i--) {
+        File rolled = rolledFile(i);
+        if (rolled.exists()) {
+          rolled.renameTo(rolledFile(i + 1));
+        }
+      }
+      if (!file.renameTo(rolledFile(1))) {
+        logger.log(Level.WARNING, "Unable to roll {0}", file);
+      }
+      openFile();
+    }
+
+    private File rolledFile(int generation) {
+      return new File(file.getPath() + "." + generation);
+    }
+
+    private void closeFile() {
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException e) {
+          logger.log(Level.WARNING, "Unable to close " + file, e);
+        }
+      }
+    }
+
+    private void reportDrops() {
+      long drops = droppedEntries.get();
+      long now = System.nanoTime();
+      if (drops != reportedDrops && now - lastDropReportNanos >= DROP_REPORT_INTERVAL_NANOS) {
+        logger.log(Level.WARNING, "Binary log buffer full, dropped {0} entries so far", drops);
+        reportedDrops = drops;
+        lastDropReportNanos = now;
+      }
+    }
+  }
+
+  /** Exposes its bytes without copying them. */
+  private static final class BatchBuffer extends ByteArrayOutputStream {
+    BatchBuffer(int size) {
+      super(size);
+    }
+
+    ByteBuffer asByteBuffer() {
+      return ByteBuffer.wrap(buf, 0, count);
+    }
+  }
+
+  @Nullable
+  private static File getPathProperty() {
+    String path = System.getProperty(PATH_PROPERTY);
+    return path == null || path.isEmpty() ? null : new File(path);
+  }
+
+  private static long getMaxFileBytesProperty() {
+    String maxFileBytes = System.getProperty(MAX_FILE_BYTES_PROPERTY);
+    if (maxFileBytes != null) {
+      try {
+        return Long.parseLong(maxFileBytes);
+      } catch (NumberFormatException e) {
+        logger.log(Level.WARNING, "Ignoring invalid " + MAX_FILE_BYTES_PROPERTY, e);
+      }
+    }
+    return DEFAULT_MAX_FILE_BYTES;
+  }
+}
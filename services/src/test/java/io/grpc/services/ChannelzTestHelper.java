@@ -107,6 +107,7 @@ final class ChannelzTestHelper {
         /*callsSucceeded=*/ 2,
         /*callsFailed=*/ 3,
         /*lastCallStartedMillis=*/ 4,
+        /*concurrencyLimit=*/ 0,
         Collections.<Instrumented<SocketStats>>emptyList());
 
     @Override
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.grpc.binarylog.GrpcLogEntry;
+import io.grpc.binarylog.Uint128;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link FileBinaryLogSink}. */
+@RunWith(JUnit4.class)
+public class FileBinaryLogSinkTest {
+  @Rule
+  public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void entriesAreWrittenInOrder() throws Exception {
+    File file = new File(tempFolder.getRoot(), "binlog");
+    FileBinaryLogSink sink = new FileBinaryLogSink(file, 1024, Long.MAX_VALUE);
+    for (int i = 0; i < 100; i++) {
+      sink.write(entry(i));
+    }
+    sink.close();
+
+    List<GrpcLogEntry> entries = readEntries(file);
+    assertEquals(100 - sink.getDroppedEntries(), entries.size());
+    long previous = -1;
+    for (GrpcLogEntry entry : entries) {
+      assertTrue(entry.getCallId().getLow() > previous);
+      previous = entry.getCallId().getLow();
+    }
+  }
+
+  @Test
+  public void writesAfterCloseAreDropped() throws Exception {
+    File file = new File(tempFolder.getRoot(), "binlog");
+    FileBinaryLogSink sink = new FileBinaryLogSink(file, 16, Long.MAX_VALUE);
+    sink.write(entry(0));
+    sink.close();
+
+    sink.write(entry(1));
+    assertEquals(1, sink.getDroppedEntries());
+    assertEquals(1, readEntries(file).size());
+  }
+
+  @Test
+  public void filesAreRolled() throws Exception {
+    File file = new File(tempFolder.getRoot(), "binlog");
+    int entrySize = entry(0).getSerializedSize() + 1;
+    FileBinaryLogSink sink = new FileBinaryLogSink(file, 1024, entrySize);
+    for (int i = 0; i < FileBinaryLogSink.MAX_ROLLED_FILES + 5; i++) {
+      sink.write(entry(i));
+      // Wait for each entry to be written, so that each lands in its own file.
+      waitForEntry(file, i);
+    }
+    sink.close();
+
+    assertEquals(1, readEntries(file).size());
+    for (int i = 1; i <= FileBinaryLogSink.MAX_ROLLED_FILES; i++) {
+      assertEquals(1, readEntries(new File(file.getPath() + "." + i)).size());
+    }
+    assertFalse(new File(file.getPath() + "." + (FileBinaryLogSink.MAX_ROLLED_FILES + 1)).exists());
+  }
+
+  @Test
+  public void unavailableWithoutPath() {
+    assertFalse(new FileBinaryLogSink(null, 16, Long.MAX_VALUE).isAvailable());
+    assertTrue(new FileBinaryLogSink(new File("binlog"), 16, Long.MAX_VALUE).isAvailable());
+  }
+
+  private static GrpcLogEntry entry(long callId) {
+    return GrpcLogEntry.newBuilder()
+        .setType(GrpcLogEntry.Type.SEND_MESSAGE)
+        .setCallId(Uint128.newBuilder().setLow(callId))
+        .build();
+  }
+
+  private static void waitForEntry(File file, long callId) throws Exception {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (System.nanoTime() < deadline) {
+      try {
+        List<GrpcLogEntry> entries = readEntries(file);
+        if (!entries.isEmpty() && entries.get(entries.size() - 1).getCallId().getLow() == callId) {
+          return;
+        }
+      } catch (IOException e) {
+        // The file is being rolled or written, try again.
+      }
+      Thread.sleep(1);
+    }
+    throw new AssertionError("Timed out waiting for entry " + callId);
+  }
+
+  private static List<GrpcLogEntry> readEntries(File file) throws IOException {
+    List<GrpcLogEntry> entries = new ArrayList<GrpcLogEntry>();
+    InputStream in = new FileInputStream(file);
+    try {
+      GrpcLogEntry entry;
+      while ((entry = GrpcLogEntry.parseDelimitedFrom(in)) != null) {
+        entries.add(entry);
+      }
+    } finally {
+      in.close();
+    }
+    return entries;
+  }
+}
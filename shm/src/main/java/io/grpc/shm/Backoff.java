@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Waits for another process, which has no way to wake this one up, by spinning at first, then
+ * yielding, and then parking for growing intervals. Not thread-safe.
+ */
+final class Backoff {
+  private static final int SPINS = 1000;
+  private static final int YIELDS = 100;
+  private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+
+  private final long maxParkNanos;
+  private int idleCount;
+  private long parkNanos = MIN_PARK_NANOS;
+
+  /**
+   * Creates an instance.
+   *
+   * @param maxParkNanos the longest a single wait parks, which bounds the latency once idle
+   */
+  Backoff(long maxParkNanos) {
+    this.maxParkNanos = maxParkNanos;
+  }
+
+  /** Waits a little, and longer the more times it was called since the last {@link #reset}. */
+  void idle() {
+    if (idleCount < SPINS) {
+      idleCount++;
+    } else if (idleCount < SPINS + YIELDS) {
+      idleCount++;
+      Thread.yield();
+    } else {
+      LockSupport.parkNanos(parkNanos);
+      parkNanos = Math.min(parkNanos * 2, maxParkNanos);
+    }
+  }
+
+  void reset() {
+    idleCount = 0;
+    parkNanos = MIN_PARK_NANOS;
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The memory-mapped file shared by the two ends of a connection. It holds the state of each end and
+ * a ring for each direction:
+ *
+ * <pre>
+ *   0    magic, ring capacity
+ *   64   client state, client heartbeat
+ *   128  server state, server heartbeat
+ *   192  client to server ring
+ *   ...  server to client ring
+ * </pre>
+ *
+ * <p>The client creates the file and the server deletes it once it has mapped it, so that the
+ * connection is gone from the file system as soon as both ends are.
+ */
+final class ConnectionFile {
+  static final int NEW = 0;
+  static final int OPEN = 1;
+  static final int CLOSED = 2;
+
+  private static final long MAGIC = 0x6772706353484d31L; // grpcSHM1
+  private static final int MAGIC_OFFSET = 0;
+  private static final int CAPACITY_OFFSET = 8;
+  private static final int CLIENT_OFFSET = 64;
+  private static final int SERVER_OFFSET = 128;
+  private static final int HEARTBEAT = 8;
+  private static final int RINGS_OFFSET = 192;
+
+  private final ByteBuffer buffer;
+  private final int capacity;
+  private final MappedRing clientToServer;
+  private final MappedRing serverToClient;
+  private volatile int fence;
+
+  private ConnectionFile(ByteBuffer buffer, int capacity) {
+    this.buffer = buffer;
+    this.capacity = capacity;
+    int ringSize = MappedRing.regionSize(capacity);
+    clientToServer = new MappedRing(region(buffer, RINGS_OFFSET, ringSize));
+    serverToClient = new MappedRing(region(buffer, RINGS_OFFSET + ringSize, ringSize));
+  }
+
+  /**
+   * Creates the file for a new connection, with the state of the client set to {@link #OPEN}.
+   *
+   * @param capacity the capacity of each ring, a power of two
+   */
+  static ConnectionFile create(File file, int capacity) throws IOException {
+    MappedByteBuffer buffer = map(file, RINGS_OFFSET + 2L * MappedRing.regionSize(capacity));
+    buffer.putInt(CAPACITY_OFFSET, capacity);
+    buffer.putLong(MAGIC_OFFSET, MAGIC);
+    ConnectionFile connection = new ConnectionFile(buffer, capacity);
+    connection.heartbeat(true, System.currentTimeMillis());
+    connection.setState(true, OPEN);
+    return connection;
+  }
+
+  /** Maps the file of a connection created by a client. */
+  static ConnectionFile open(File file) throws IOException {
+    long length = file.length();
+    if (length < RINGS_OFFSET) {
+      throw new IOException("Not a connection file: " + file);
+    }
+    MappedByteBuffer buffer = map(file, length);
+    int capacity = buffer.getInt(CAPACITY_OFFSET);
+    if (buffer.getLong(MAGIC_OFFSET) != MAGIC
+        || capacity <= 0
+        || length != RINGS_OFFSET + 2L * MappedRing.regionSize(capacity)) {
+      throw new IOException("Not a connection file: " + file);
+    }
+    return new ConnectionFile(buffer, capacity);
+  }
+
+  /** Returns the capacity of each ring. */
+  int capacity() {
+    return capacity;
+  }
+
+  /** Returns the ring that {@code client} writes to. */
+  MappedRing outbound(boolean client) {
+    return client ? clientToServer : serverToClient;
+  }
+
+  /** Returns the ring that {@code client} reads from. */
+  MappedRing inbound(boolean client) {
+    return client ? serverToClient : clientToServer;
+  }
+
+  int state(boolean client) {
+    int state = buffer.getInt(offset(client));
+    fence();
+    return state;
+  }
+
+  /** Sets the state of one end, after what it wrote to the rings so far. */
+  void setState(boolean client, int state) {
+    fence();
+    buffer.putInt(offset(client), state);
+  }
+
+  long heartbeat(boolean client) {
+    return buffer.getLong(offset(client) + HEARTBEAT);
+  }
+
+  void heartbeat(boolean client, long timeMillis) {
+    buffer.putLong(offset(client) + HEARTBEAT, timeMillis);
+  }
+
+  /** See {@code MappedRing#fence}. */
+  private void fence() {
+    fence = 1;
+    if (fence != 1) {
+      throw new AssertionError();
+    }
+  }
+
+  private static int offset(boolean client) {
+    return client ? CLIENT_OFFSET : SERVER_OFFSET;
+  }
+
+  private static MappedByteBuffer map(File file, long length) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      // A new file is zero-filled, the state of each end starting as NEW.
+      raf.setLength(length);
+      MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+      buffer.order(ByteOrder.nativeOrder());
+      return buffer;
+    } finally {
+      // The mapping stays valid once the file is closed.
+      raf.close();
+    }
+  }
+
+  private static ByteBuffer region(ByteBuffer buffer, int offset, int length) {
+    ByteBuffer duplicate = buffer.duplicate();
+    duplicate.position(offset);
+    duplicate.limit(offset + length);
+    return duplicate.slice();
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import com.google.common.base.Charsets;
+import io.grpc.InternalMetadata;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.internal.AbstractStream;
+import io.grpc.internal.PooledWritableBufferAllocator;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import javax.annotation.Nullable;
+
+/**
+ * A frame queued for the writer of a connection, and the encoding of the frames' payloads.
+ *
+ * <p>The frames mirror those of HTTP/2: a stream is opened by the client's {@link #HEADERS}, and
+ * ends with the client's {@link #HALF_CLOSE} and the server's {@link #TRAILERS}, or with a
+ * {@link #RST_STREAM} from either end. Each end may only send as much {@link #DATA} on a stream as
+ * the other has granted with {@link #WINDOW_UPDATE}, beyond an initial window.
+ */
+final class Frame {
+  static final byte HEADERS = 1;
+  static final byte DATA = 2;
+  static final byte HALF_CLOSE = 3;
+  static final byte TRAILERS = 4;
+  static final byte RST_STREAM = 5;
+  static final byte WINDOW_UPDATE = 6;
+  static final byte PING = 7;
+  static final byte PING_ACK = 8;
+  static final byte GO_AWAY = 9;
+
+  // Commands for the writer, which are not written to the ring.
+  /** Starts tracking the window of a stream that the peer opened. */
+  static final byte OPEN_WINDOW = -1;
+  /** Grows the window of a stream by the int payload, once the peer granted it. */
+  static final byte CREDIT = -2;
+  /** Stops tracking the window of a stream that the peer ended, dropping its pending data. */
+  static final byte FORGET = -3;
+  /** Marks the end of the frames, after which the writer closes the connection. */
+  static final byte CLOSE = -4;
+
+  private static final byte[] EMPTY = new byte[0];
+
+  final int streamId;
+  final byte type;
+  final byte[] payload;
+  final int end;
+  int offset;
+  /** The stream to notify of the bytes sent, for {@link #DATA}. */
+  @Nullable
+  final AbstractStream.TransportState sender;
+  /** The buffer holding the payload of {@link #DATA}, released once it is written. */
+  @Nullable
+  private final PooledWritableBufferAllocator.Buffer buffer;
+
+  private Frame(
+      int streamId, byte type, byte[] payload, int length,
+      @Nullable AbstractStream.TransportState sender,
+      @Nullable PooledWritableBufferAllocator.Buffer buffer) {
+    this.streamId = streamId;
+    this.type = type;
+    this.payload = payload;
+    this.end = length;
+    this.sender = sender;
+    this.buffer = buffer;
+  }
+
+  static Frame of(int streamId, byte type) {
+    return new Frame(streamId, type, EMPTY, 0, null, null);
+  }
+
+  static Frame of(int streamId, byte type, byte[] payload) {
+    return new Frame(streamId, type, payload, payload.length, null, null);
+  }
+
+  static Frame data(
+      int streamId, PooledWritableBufferAllocator.Buffer buffer,
+      AbstractStream.TransportState sender) {
+    return new Frame(streamId, DATA, buffer.array(), buffer.readableBytes(), sender, buffer);
+  }
+
+  int remaining() {
+    return end - offset;
+  }
+
+  /** Lets the buffer of the payload be reused, once the writer is done with the frame. */
+  void release() {
+    if (buffer != null) {
+      buffer.release();
+    }
+  }
+
+  static byte[] encodeRequestHeaders(String method, String authority, Metadata headers) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      writeString(out, method);
+      writeString(out, authority);
+      writeMetadata(out, headers);
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  static byte[] encodeMetadata(Metadata metadata) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      writeMetadata(out, metadata);
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  static byte[] encodeStatus(Status status) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeInt(status.getCode().value());
+      writeString(out, status.getDescription() == null ? "" : status.getDescription());
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  static byte[] encodeInt(int value) {
+    return new byte[] {
+        (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+  }
+
+  static byte[] encodeLong(long value) {
+    byte[] bytes = new byte[8];
+    for (int i = 7; i >= 0; i--) {
+      bytes[i] = (byte) value;
+      value >>>= 8;
+    }
+    return bytes;
+  }
+
+  static DataInputStream decoder(byte[] payload) {
+    return new DataInputStream(new ByteArrayInputStream(payload));
+  }
+
+  static Metadata decodeMetadata(byte[] payload) throws IOException {
+    return readMetadata(decoder(payload));
+  }
+
+  static Status decodeStatus(byte[] payload) throws IOException {
+    DataInputStream in = decoder(payload);
+    Status status = Status.fromCodeValue(in.readInt());
+    String description = readString(in);
+    return description.isEmpty() ? status : status.withDescription(description);
+  }
+
+  static int decodeInt(byte[] payload) {
+    return (payload[0] & 0xff) << 24
+        | (payload[1] & 0xff) << 16
+        | (payload[2] & 0xff) << 8
+        | (payload[3] & 0xff);
+  }
+
+  static long decodeLong(byte[] payload) {
+    long value = 0;
+    for (int i = 0; i < 8; i++) {
+      value = value << 8 | (payload[i] & 0xff);
+    }
+    return value;
+  }
+
+  static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, Charsets.UTF_8);
+  }
+
+  static Metadata readMetadata(DataInputStream in) throws IOException {
+    byte[][] serialized = new byte[in.readInt()][];
+    for (int i = 0; i < serialized.length; i++) {
+      serialized[i] = new byte[in.readInt()];
+      in.readFully(serialized[i]);
+    }
+    return InternalMetadata.newMetadata(serialized);
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(Charsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static void writeMetadata(DataOutputStream out, Metadata metadata) throws IOException {
+    byte[][] serialized = InternalMetadata.serialize(metadata);
+    if (serialized == null) {
+      // Empty metadata.
+      out.writeInt(0);
+      return;
+    }
+    out.writeInt(serialized.length);
+    for (byte[] bytes : serialized) {
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A single-producer, single-consumer queue of records in a region of a memory-mapped file, through
+ * which one process sends frames to another without system calls. Each process has its own
+ * instance over the same region, and uses it either as the producer or as the consumer, from a
+ * single thread.
+ *
+ * <p>The region starts with the positions of the consumer and the producer, each on its own cache
+ * line, followed by the data. A record is its payload length, a stream id, a type and the payload,
+ * and may wrap around the end of the data.
+ */
+final class MappedRing {
+  static final int HEADER_SIZE = 128;
+  static final int RECORD_HEADER_SIZE = 9;
+
+  private static final int HEAD_OFFSET = 0;
+  private static final int TAIL_OFFSET = 64;
+
+  private final ByteBuffer region;
+  private final int capacity;
+  private final int mask;
+  private final byte[] recordHeader = new byte[RECORD_HEADER_SIZE];
+  /** The producer's position, only published as the tail once records are complete. */
+  private long tail;
+  /** The consumer's position, only published as the head once records have been read. */
+  private long head;
+  /** The other side's position when last read, which is behind or at its actual position. */
+  private long cachedTail;
+  private long cachedHead;
+  private volatile int fence;
+
+  /**
+   * Creates a ring over {@code region}, which must be {@link #regionSize} bytes for a power of two
+   * capacity, and is zeroed for a new ring.
+   */
+  MappedRing(ByteBuffer region) {
+    this.region = region.slice().order(ByteOrder.nativeOrder());
+    this.capacity = this.region.capacity() - HEADER_SIZE;
+    checkArgument(capacity > 0 && Integer.bitCount(capacity) == 1,
+        "capacity must be a power of two");
+    this.mask = capacity - 1;
+    this.head = this.region.getLong(HEAD_OFFSET);
+    this.tail = this.region.getLong(TAIL_OFFSET);
+    this.cachedHead = head;
+    this.cachedTail = tail;
+  }
+
+  static int regionSize(int capacity) {
+    return HEADER_SIZE + capacity;
+  }
+
+  /** The largest payload that fits in a record. */
+  int maxPayload() {
+    return maxPayload(capacity);
+  }
+
+  /** The largest payload that fits in a record of a ring with the given capacity. */
+  static int maxPayload(int capacity) {
+    return capacity - RECORD_HEADER_SIZE;
+  }
+
+  /**
+   * Writes a record if there is room for it, without making it visible to the consumer until
+   * {@link #publish}. Records are published anyway when the ring is found full.
+   *
+   * @return {@code false} if the consumer has yet to make room for the record
+   */
+  boolean offer(int streamId, byte type, byte[] payload, int offset, int length) {
+    checkArgument(length <= maxPayload(), "payload too large: %s", length);
+    long size = RECORD_HEADER_SIZE + length;
+    if (tail + size - cachedHead > capacity) {
+      cachedHead = region.getLong(HEAD_OFFSET);
+      // The consumer is done reading the space before the head.
+      fence();
+      if (tail + size - cachedHead > capacity) {
+        publish();
+        return false;
+      }
+    }
+    putInt(recordHeader, 0, length);
+    putInt(recordHeader, 4, streamId);
+    recordHeader[8] = type;
+    write(tail, recordHeader, 0, RECORD_HEADER_SIZE);
+    write(tail + RECORD_HEADER_SIZE, payload, offset, length);
+    tail += size;
+    return true;
+  }
+
+  /** Makes the records offered so far visible to the consumer. */
+  void publish() {
+    if (region.getLong(TAIL_OFFSET) != tail) {
+      fence();
+      region.putLong(TAIL_OFFSET, tail);
+    }
+  }
+
+  /** Returns whether the producer has published records that were not read yet. */
+  boolean isEmpty() {
+    return head == cachedTail && head == region.getLong(TAIL_OFFSET);
+  }
+
+  /**
+   * Reads the published records, passing each to {@code handler} and then making their space
+   * available to the producer.
+   *
+   * @return the number of records read
+   */
+  int drain(Handler handler) {
+    if (head == cachedTail) {
+      cachedTail = region.getLong(TAIL_OFFSET);
+      if (head == cachedTail) {
+        return 0;
+      }
+      // The producer is done writing the records before the tail.
+      fence();
+    }
+    int records = 0;
+    long end = cachedTail;
+    while (head < end) {
+      read(head, recordHeader, 0, RECORD_HEADER_SIZE);
+      int length = getInt(recordHeader, 0);
+      int streamId = getInt(recordHeader, 4);
+      byte type = recordHeader[8];
+      byte[] payload = new byte[length];
+      read(head + RECORD_HEADER_SIZE, payload, 0, length);
+      head += RECORD_HEADER_SIZE + length;
+      records++;
+      handler.record(streamId, type, payload);
+    }
+    fence();
+    region.putLong(HEAD_OFFSET, head);
+    return records;
+  }
+
+  /**
+   * Orders the accesses to the mapped memory before this with those after it, as the producer and
+   * the consumer only communicate through the head and the tail. Java 6 has no fences for memory
+   * outside the heap, but ordinary accesses may not be reordered across a volatile write followed
+   * by a volatile read.
+   */
+  private void fence() {
+    fence = 1;
+    if (fence != 1) {
+      throw new AssertionError();
+    }
+  }
+
+  private void write(long position, byte[] src, int offset, int length) {
+    int index = (int) (position & mask);
+    int first = Math.min(length, capacity - index);
+    region.position(HEADER_SIZE + index);
+    region.put(src, offset, first);
+    if (first < length) {
+      region.position(HEADER_SIZE);
+      region.put(src, offset + first, length - first);
+    }
+  }
+
+  private void read(long position, byte[] dst, int offset, int length) {
+    int index = (int) (position & mask);
+    int first = Math.min(length, capacity - index);
+    region.position(HEADER_SIZE + index);
+    region.get(dst, offset, first);
+    if (first < length) {
+      region.position(HEADER_SIZE);
+      region.get(dst, offset + first, length - first);
+    }
+  }
+
+  private static void putInt(byte[] array, int index, int value) {
+    array[index] = (byte) (value >>> 24);
+    array[index + 1] = (byte) (value >>> 16);
+    array[index + 2] = (byte) (value >>> 8);
+    array[index + 3] = (byte) value;
+  }
+
+  private static int getInt(byte[] array, int index) {
+    return (array[index] & 0xff) << 24
+        | (array[index + 1] & 0xff) << 16
+        | (array[index + 2] & 0xff) << 8
+        | (array[index + 3] & 0xff);
+  }
+
+  /** Receives the records read from the ring. */
+  interface Handler {
+    /**
+     * Called for each record. The payload is a copy that the handler owns.
+     */
+    void record(int streamId, byte type, byte[] payload);
+  }
+}
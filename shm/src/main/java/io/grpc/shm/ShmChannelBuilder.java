@@ -0,0 +1,207 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.grpc.ExperimentalApi;
+import io.grpc.Internal;
+import io.grpc.internal.AbstractManagedChannelImplBuilder;
+import io.grpc.internal.ClientTransportFactory;
+import io.grpc.internal.ConnectionClientTransport;
+import io.grpc.internal.GrpcUtil;
+import io.grpc.internal.ProxyParameters;
+import io.grpc.internal.SharedResourceHolder;
+import java.io.File;
+import java.net.SocketAddress;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Builder for a channel that issues requests to a server in another process on the same host
+ * through shared memory. Clients identify the server by the directory it listens in.
+ *
+ * <p>For more details, see {@link ShmServerBuilder}.
+ *
+ * @since 1.12.0
+ */
+@ExperimentalApi
+public final class ShmChannelBuilder extends AbstractManagedChannelImplBuilder<ShmChannelBuilder> {
+  private static final int DEFAULT_RING_CAPACITY = 1 << 20;
+
+  /**
+   * Creates a channel builder that will connect to the server listening in the given directory.
+   *
+   * @param directory the directory the server listens in
+   * @return a new builder
+   */
+  public static ShmChannelBuilder forDirectory(File directory) {
+    return new ShmChannelBuilder(directory);
+  }
+
+  /**
+   * Always fails.  Call {@link #forDirectory} instead.
+   */
+  public static ShmChannelBuilder forTarget(String target) {
+    throw new UnsupportedOperationException("call forDirectory() instead");
+  }
+
+  /**
+   * Always fails.  Call {@link #forDirectory} instead.
+   */
+  public static ShmChannelBuilder forAddress(String name, int port) {
+    throw new UnsupportedOperationException("call forDirectory() instead");
+  }
+
+  private final ShmSocketAddress address;
+  private ScheduledExecutorService scheduledExecutorService;
+  private int ringCapacity = DEFAULT_RING_CAPACITY;
+
+  private ShmChannelBuilder(File directory) {
+    this(new ShmSocketAddress(directory));
+  }
+
+  private ShmChannelBuilder(ShmSocketAddress address) {
+    super(address, "localhost");
+    this.address = address;
+  }
+
+  /**
+   * Does nothing.
+   */
+  @Override
+  public ShmChannelBuilder useTransportSecurity() {
+    return this;
+  }
+
+  /**
+   * Does nothing.
+   *
+   * @deprecated use {@link #usePlaintext()} instead.
+   */
+  @Override
+  @Deprecated
+  public ShmChannelBuilder usePlaintext(boolean skipNegotiation) {
+    return this;
+  }
+
+  /**
+   * Does nothing.
+   */
+  @Override
+  public ShmChannelBuilder usePlaintext() {
+    return this;
+  }
+
+  /** Does nothing. */
+  @Override
+  public ShmChannelBuilder keepAliveTime(long keepAliveTime, TimeUnit timeUnit) {
+    return this;
+  }
+
+  /** Does nothing. */
+  @Override
+  public ShmChannelBuilder keepAliveTimeout(long keepAliveTimeout, TimeUnit timeUnit) {
+    return this;
+  }
+
+  /** Does nothing. */
+  @Override
+  public ShmChannelBuilder keepAliveWithoutCalls(boolean enable) {
+    return this;
+  }
+
+  /**
+   * Sets the size in bytes of each of the two rings of a connection, which bounds how much a
+   * connection buffers in each direction. Must be a power of two, and defaults to 1 MiB.
+   */
+  public ShmChannelBuilder ringCapacity(int ringCapacity) {
+    checkArgument(ringCapacity >= 4096 && Integer.bitCount(ringCapacity) == 1,
+        "ringCapacity must be a power of two of at least 4096");
+    this.ringCapacity = ringCapacity;
+    return this;
+  }
+
+  /**
+   * Provides a custom scheduled executor service.
+   *
+   * <p>It's an optional parameter. If the user has not provided a scheduled executor service when
+   * the channel is built, the builder will use a static cached thread pool.
+   *
+   * @return this
+   */
+  public ShmChannelBuilder scheduledExecutorService(
+      ScheduledExecutorService scheduledExecutorService) {
+    this.scheduledExecutorService =
+        checkNotNull(scheduledExecutorService, "scheduledExecutorService");
+    return this;
+  }
+
+  @Override
+  @Internal
+  protected ClientTransportFactory buildTransportFactory() {
+    return new ShmClientTransportFactory(address, ringCapacity, scheduledExecutorService);
+  }
+
+  /**
+   * Creates shared-memory transports. Exposed for internal use, as it should be private.
+   */
+  static final class ShmClientTransportFactory implements ClientTransportFactory {
+    private final ShmSocketAddress address;
+    private final int ringCapacity;
+    private final ScheduledExecutorService timerService;
+    private final boolean useSharedTimer;
+    private boolean closed;
+
+    ShmClientTransportFactory(
+        ShmSocketAddress address, int ringCapacity,
+        @Nullable ScheduledExecutorService scheduledExecutorService) {
+      this.address = address;
+      this.ringCapacity = ringCapacity;
+      useSharedTimer = scheduledExecutorService == null;
+      timerService = useSharedTimer
+          ? SharedResourceHolder.get(GrpcUtil.TIMER_SERVICE) : scheduledExecutorService;
+    }
+
+    @Override
+    public ConnectionClientTransport newClientTransport(
+        SocketAddress addr, String authority, String userAgent, ProxyParameters proxy) {
+      if (closed) {
+        throw new IllegalStateException("The transport factory is closed.");
+      }
+      return new ShmClientTransport(address, authority, userAgent, ringCapacity, timerService);
+    }
+
+    @Override
+    public ScheduledExecutorService getScheduledExecutorService() {
+      return timerService;
+    }
+
+    @Override
+    public void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      if (useSharedTimer) {
+        SharedResourceHolder.release(GrpcUtil.TIMER_SERVICE, timerService);
+      }
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.grpc.Attributes;
+import io.grpc.InternalStatus;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.internal.AbstractClientStream;
+import io.grpc.internal.GrpcUtil;
+import io.grpc.internal.PooledWritableBufferAllocator;
+import io.grpc.internal.ReadableBuffers;
+import io.grpc.internal.StatsTraceContext;
+import io.grpc.internal.WritableBuffer;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Client stream for the shared-memory transport.
+ */
+final class ShmClientStream extends AbstractClientStream {
+  private final ShmClientTransport transport;
+  private final MethodDescriptor<?, ?> method;
+  private final TransportState state;
+  private final Sink sink = new Sink();
+  private String authority;
+
+  ShmClientStream(
+      ShmClientTransport transport,
+      MethodDescriptor<?, ?> method,
+      Metadata headers,
+      String authority,
+      StatsTraceContext statsTraceCtx) {
+    super(ShmTransport.BUFFER_ALLOCATOR, statsTraceCtx, transport.transportTracer, headers, false);
+    this.transport = transport;
+    this.method = method;
+    this.authority = authority;
+    this.state = new TransportState(statsTraceCtx);
+  }
+
+  @Override
+  protected TransportState transportState() {
+    return state;
+  }
+
+  @Override
+  protected Sink abstractClientStreamSink() {
+    return sink;
+  }
+
+  @Override
+  public void setAuthority(String authority) {
+    this.authority = checkNotNull(authority, "authority");
+  }
+
+  @Override
+  public Attributes getAttributes() {
+    return transport.getAttributes();
+  }
+
+  private final class Sink implements AbstractClientStream.Sink {
+    @Override
+    public void writeHeaders(Metadata metadata, @Nullable byte[] payload) {
+      byte[] headers = Frame.encodeRequestHeaders(method.getFullMethodName(), authority, metadata);
+      synchronized (transport.lock) {
+        transport.startStream(ShmClientStream.this, headers);
+      }
+    }
+
+    @Override
+    public void writeFrame(
+        @Nullable WritableBuffer frame, boolean endOfStream, boolean flush, int numMessages) {
+      if (frame != null) {
+        int size = frame.readableBytes();
+        if (size > 0) {
+          onSendingBytes(size);
+          transport.send(
+              Frame.data(state.id, (PooledWritableBufferAllocator.Buffer) frame, state));
+        }
+        getTransportTracer().reportMessageSent(numMessages);
+      }
+      if (endOfStream) {
+        transport.send(Frame.of(state.id, Frame.HALF_CLOSE));
+      }
+    }
+
+    @Override
+    public void request(int numMessages) {
+      synchronized (transport.lock) {
+        state.requestMessagesFromDeframer(numMessages);
+      }
+    }
+
+    @Override
+    public void cancel(Status status) {
+      synchronized (transport.lock) {
+        transport.cancelStream(ShmClientStream.this, status);
+      }
+    }
+  }
+
+  final class TransportState extends AbstractClientStream.TransportState {
+    /** Assigned once the stream is started, zero before. */
+    @GuardedBy("transport.lock")
+    int id;
+    @GuardedBy("transport.lock")
+    private int unacknowledgedBytes;
+
+    private TransportState(StatsTraceContext statsTraceCtx) {
+      super(GrpcUtil.DEFAULT_MAX_MESSAGE_SIZE, statsTraceCtx, transport.transportTracer);
+    }
+
+    @Override
+    @GuardedBy("transport.lock")
+    public void bytesRead(int processedBytes) {
+      unacknowledgedBytes += processedBytes;
+      if (unacknowledgedBytes >= ShmTransport.WINDOW_UPDATE_THRESHOLD) {
+        transport.send(Frame.of(id, Frame.WINDOW_UPDATE, Frame.encodeInt(unacknowledgedBytes)));
+        unacknowledgedBytes = 0;
+      }
+    }
+
+    @Override
+    @GuardedBy("transport.lock")
+    public void deframeFailed(Throwable cause) {
+      transport.cancelStream(ShmClientStream.this, Status.fromThrowable(cause));
+    }
+
+    @Override
+    public void runOnTransportThread(Runnable r) {
+      synchronized (transport.lock) {
+        r.run();
+      }
+    }
+
+    @GuardedBy("transport.lock")
+    void headersReceived(Metadata headers) {
+      inboundHeadersReceived(headers);
+    }
+
+    @GuardedBy("transport.lock")
+    void dataReceived(byte[] data) {
+      inboundDataReceived(ReadableBuffers.wrap(data));
+    }
+
+    @GuardedBy("transport.lock")
+    void trailersReceived(Metadata trailers) {
+      Status status = trailers.get(InternalStatus.CODE_KEY);
+      if (status == null) {
+        status = Status.UNKNOWN.withDescription("missing GRPC status in response");
+      } else {
+        String message = trailers.get(InternalStatus.MESSAGE_KEY);
+        if (message != null) {
+          status = status.withDescription(message);
+        }
+      }
+      trailers.discardAll(InternalStatus.CODE_KEY);
+      trailers.discardAll(InternalStatus.MESSAGE_KEY);
+      inboundTrailersReceived(trailers, status);
+    }
+
+    @GuardedBy("transport.lock")
+    void started() {
+      onStreamAllocated();
+    }
+  }
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Stopwatch;
+import io.grpc.Attributes;
+import io.grpc.CallOptions;
+import io.grpc.Grpc;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.internal.ClientStream;
+import io.grpc.internal.ClientStreamListener;
+import io.grpc.internal.ConnectionClientTransport;
+import io.grpc.internal.GrpcUtil;
+import io.grpc.internal.Http2Ping;
+import io.grpc.internal.ManagedClientTransport;
+import io.grpc.internal.NoopClientStream;
+import io.grpc.internal.StatsTraceContext;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Client transport for the shared-memory transport. It creates a connection file in the directory
+ * of the server and waits for the server to accept it, from the thread that then reads the
+ * connection.
+ */
+@ThreadSafe
+final class ShmClientTransport extends ShmTransport implements ConnectionClientTransport {
+  private static final long CONNECT_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(20);
+  private static final long LISTENING_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final ShmSocketAddress address;
+  private final String authority;
+  private final String userAgent;
+  private final int ringCapacity;
+  private final ScheduledExecutorService scheduler;
+  private final Attributes attributes;
+  private final Random random = new Random();
+  private ManagedClientTransport.Listener listener;
+  private volatile boolean connectAborted;
+
+  @GuardedBy("lock")
+  private final Map<Integer, ShmClientStream> streams = new HashMap<Integer, ShmClientStream>();
+  @GuardedBy("lock")
+  private int nextStreamId = 1;
+  @GuardedBy("lock")
+  private boolean connected;
+  @GuardedBy("lock")
+  private Status shutdownStatus;
+  @GuardedBy("lock")
+  private boolean terminated;
+  @GuardedBy("lock")
+  private Http2Ping ping;
+
+  ShmClientTransport(
+      ShmSocketAddress address, String authority, @Nullable String userAgent, int ringCapacity,
+      ScheduledExecutorService scheduler) {
+    super(true, ringCapacity);
+    this.address = checkNotNull(address, "address");
+    this.authority = checkNotNull(authority, "authority");
+    this.userAgent = GrpcUtil.getGrpcUserAgent("shm", userAgent);
+    this.ringCapacity = ringCapacity;
+    this.scheduler = checkNotNull(scheduler, "scheduler");
+    this.attributes = Attributes.newBuilder()
+        .set(Grpc.TRANSPORT_ATTR_REMOTE_ADDR, address)
+        .build();
+  }
+
+  @Override
+  public Runnable start(ManagedClientTransport.Listener listener) {
+    this.listener = checkNotNull(listener, "listener");
+    Thread reader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        connectAndRead();
+      }
+    }, "grpc-shm-reader-" + address);
+    reader.setDaemon(true);
+    reader.start();
+    return null;
+  }
+
+  private void connectAndRead() {
+    File directory = address.getPath();
+    File file = null;
+    ConnectionFile connection = null;
+    Status failure;
+    try {
+      if (!ShmServer.isListening(directory)) {
+        failure = Status.UNAVAILABLE.withDescription("No server listening at " + directory);
+      } else {
+        String name = UUID.randomUUID().toString();
+        File temp = new File(directory, name + ".tmp");
+        file = new File(directory, name + ShmServer.CONNECTION_SUFFIX);
+        connection = ConnectionFile.create(temp, ringCapacity);
+        // The server only sees the file once it is complete.
+        if (!temp.renameTo(file)) {
+          temp.delete();
+          throw new IOException("Failed to rename " + temp + " to " + file);
+        }
+        failure = awaitAccept(connection, directory);
+      }
+    } catch (IOException e) {
+      failure = Status.UNAVAILABLE.withDescription("Failed to connect to " + directory)
+          .withCause(e);
+    }
+    if (failure != null) {
+      if (connection != null) {
+        connection.setState(true, ConnectionFile.CLOSED);
+      }
+      if (file != null) {
+        // Unless the server accepted it meanwhile, and then saw it closed.
+        file.delete();
+      }
+      synchronized (lock) {
+        shutdown(failure);
+        terminated = true;
+      }
+      listener.transportTerminated();
+      return;
+    }
+    startConnection(connection, scheduler, new ShmSocketAddress(file), address);
+    synchronized (lock) {
+      connected = true;
+      if (shutdownStatus != null) {
+        closeConnection();
+      } else {
+        listener.transportReady();
+      }
+    }
+    read();
+  }
+
+  @Nullable
+  private Status awaitAccept(ConnectionFile connection, File directory) {
+    Backoff backoff = new Backoff(MAX_PARK_NANOS);
+    long start = System.nanoTime();
+    long lastListeningCheck = start;
+    while (true) {
+      int state = connection.state(false);
+      if (state == ConnectionFile.OPEN) {
+        return null;
+      }
+      if (state == ConnectionFile.CLOSED) {
+        return Status.UNAVAILABLE.withDescription("Server refused the connection");
+      }
+      if (connectAborted) {
+        synchronized (lock) {
+          return shutdownStatus;
+        }
+      }
+      long now = System.nanoTime();
+      if (now - start > CONNECT_TIMEOUT_NANOS) {
+        return Status.UNAVAILABLE.withDescription(
+            "Timed out waiting for the server at " + directory + " to accept the connection");
+      }
+      if (now - lastListeningCheck > LISTENING_CHECK_NANOS) {
+        if (!ShmServer.isListening(directory)) {
+          return Status.UNAVAILABLE.withDescription("Server at " + directory + " shut down");
+        }
+        lastListeningCheck = now;
+      }
+      backoff.idle();
+    }
+  }
+
+  @Override
+  public ClientStream newStream(
+      MethodDescriptor<?, ?> method, Metadata headers, CallOptions callOptions) {
+    checkNotNull(method, "method");
+    checkNotNull(headers, "headers");
+    final StatsTraceContext statsTraceCtx =
+        StatsTraceContext.newClientContext(callOptions, headers);
+    synchronized (lock) {
+      if (shutdownStatus != null) {
+        final Status capturedStatus = shutdownStatus;
+        return new NoopClientStream() {
+          @Override
+          public void start(ClientStreamListener listener) {
+            statsTraceCtx.clientOutboundHeaders();
+            statsTraceCtx.streamClosed(capturedStatus);
+            listener.closed(capturedStatus, new Metadata());
+          }
+        };
+      }
+    }
+    headers.discardAll(GrpcUtil.USER_AGENT_KEY);
+    headers.put(GrpcUtil.USER_AGENT_KEY, userAgent);
+    return new ShmClientStream(this, method, headers, authority, statsTraceCtx);
+  }
+
+  @GuardedBy("lock")
+  void startStream(ShmClientStream stream, byte[] headers) {
+    ShmClientStream.TransportState state = stream.transportState();
+    if (shutdownStatus != null) {
+      state.transportReportStatus(shutdownStatus, true, new Metadata());
+      return;
+    }
+    Status tooLarge = checkFrameSize("Request headers", headers.length);
+    if (tooLarge != null) {
+      state.transportReportStatus(tooLarge, true, new Metadata());
+      return;
+    }
+    state.id = nextStreamId;
+    nextStreamId += 2;
+    streams.put(state.id, stream);
+    if (streams.size() == 1) {
+      listener.transportInUse(true);
+    }
+    transportTracer.reportLocalStreamStarted();
+    send(Frame.of(state.id, Frame.HEADERS, headers));
+    state.getStatsTraceContext().clientOutboundHeaders();
+    state.started();
+  }
+
+  @GuardedBy("lock")
+  void cancelStream(ShmClientStream stream, Status status) {
+    ShmClientStream.TransportState state = stream.transportState();
+    if (state.id != 0 && streams.remove(state.id) != null) {
+      send(Frame.of(state.id, Frame.RST_STREAM, Frame.encodeStatus(Status.CANCELLED)));
+      streamRemoved();
+    }
+    state.transportReportStatus(status, true, new Metadata());
+  }
+
+  @GuardedBy("lock")
+  private void streamRemoved() {
+    if (streams.isEmpty()) {
+      listener.transportInUse(false);
+      if (shutdownStatus != null) {
+        closeConnection();
+      }
+    }
+  }
+
+  @Override
+  void handleFrame(int streamId, byte type, byte[] payload) throws IOException {
+    ShmClientStream stream;
+    switch (type) {
+      case Frame.HEADERS:
+        stream = streams.get(streamId);
+        if (stream != null) {
+          stream.transportState().headersReceived(Frame.decodeMetadata(payload));
+        }
+        break;
+      case Frame.DATA:
+        stream = streams.get(streamId);
+        if (stream != null) {
+          stream.transportState().dataReceived(payload);
+        }
+        break;
+      case Frame.TRAILERS:
+        stream = streams.remove(streamId);
+        if (stream != null) {
+          send(Frame.of(streamId, Frame.FORGET));
+          stream.transportState().trailersReceived(Frame.decodeMetadata(payload));
+          streamRemoved();
+        }
+        break;
+      case Frame.RST_STREAM:
+        stream = streams.remove(streamId);
+        if (stream != null) {
+          send(Frame.of(streamId, Frame.FORGET));
+          stream.transportState().transportReportStatus(
+              Frame.decodeStatus(payload), false, new Metadata());
+          streamRemoved();
+        }
+        break;
+      case Frame.PING_ACK:
+        if (ping != null && ping.payload() == Frame.decodeLong(payload)) {
+          ping.complete();
+          ping = null;
+        }
+        break;
+      case Frame.GO_AWAY:
+        shutdown(Status.UNAVAILABLE.withDescription("Server shut down the connection"));
+        break;
+      default:
+        throw new IOException("Unexpected frame type " + type);
+    }
+  }
+
+  @Override
+  public void ping(PingCallback callback, Executor executor) {
+    Http2Ping p;
+    synchronized (lock) {
+      if (terminated) {
+        Http2Ping.notifyFailed(callback, executor, shutdownStatus.asException());
+        return;
+      }
+      if (ping != null) {
+        // Only one ping is outstanding at a time, which the callback waits for.
+        p = ping;
+      } else {
+        long data = random.nextLong();
+        p = ping = new Http2Ping(data, Stopwatch.createStarted());
+        transportTracer.reportKeepAliveSent();
+        send(Frame.of(0, Frame.PING, Frame.encodeLong(data)));
+      }
+    }
+    p.addCallback(callback, executor);
+  }
+
+  @Override
+  public void shutdown(Status reason) {
+    checkNotNull(reason, "reason");
+    synchronized (lock) {
+      if (shutdownStatus != null) {
+        return;
+      }
+      shutdownStatus = reason;
+      listener.transportShutdown(reason);
+      if (!connected) {
+        connectAborted = true;
+      } else if (streams.isEmpty()) {
+        closeConnection();
+      }
+    }
+  }
+
+  @Override
+  public void shutdownNow(Status reason) {
+    synchronized (lock) {
+      shutdown(reason);
+      failStreams(reason);
+    }
+  }
+
+  @Override
+  @GuardedBy("lock")
+  void abandon(Status status) {
+    shutdown(status);
+    failStreams(status);
+    closeConnection();
+  }
+
+  @GuardedBy("lock")
+  private void failStreams(Status status) {
+    List<ShmClientStream> failed = new ArrayList<ShmClientStream>(streams.values());
+    streams.clear();
+    for (ShmClientStream stream : failed) {
+      int id = stream.transportState().id;
+      send(Frame.of(id, Frame.RST_STREAM, Frame.encodeStatus(Status.CANCELLED)));
+      stream.transportState().transportReportStatus(status, true, new Metadata());
+    }
+    if (!failed.isEmpty()) {
+      streamRemoved();
+    }
+  }
+
+  @Override
+  void connectionClosed() {
+    synchronized (lock) {
+      terminated = true;
+      if (ping != null) {
+        ping.failed(shutdownStatus.asException());
+        ping = null;
+      }
+    }
+    listener.transportTerminated();
+  }
+
+  @Override
+  public Attributes getAttributes() {
+    return attributes;
+  }
+
+  @Override
+  public String toString() {
+    return getLogId() + "(" + address + ")";
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.grpc.ServerStreamTracer;
+import io.grpc.internal.Channelz.SocketStats;
+import io.grpc.internal.Instrumented;
+import io.grpc.internal.InternalServer;
+import io.grpc.internal.ObjectPool;
+import io.grpc.internal.ServerListener;
+import io.grpc.internal.ServerTransportListener;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Server for the shared-memory transport. It holds a lock on a file in its directory while it
+ * listens, and accepts the connection files that clients create there.
+ */
+@ThreadSafe
+final class ShmServer implements InternalServer {
+  private static final Logger log = Logger.getLogger(ShmServer.class.getName());
+
+  static final String CONNECTION_SUFFIX = ".conn";
+  static final String LOCK_FILE = "server.lock";
+  /** How long the acceptor parks at most while no client connects. */
+  private static final long MAX_ACCEPT_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private static final FileFilter CONNECTION_FILTER = new FileFilter() {
+    @Override
+    public boolean accept(File file) {
+      return file.getName().endsWith(CONNECTION_SUFFIX);
+    }
+  };
+
+  /** Returns whether a server is listening in {@code directory}. */
+  static boolean isListening(File directory) {
+    return new File(directory, LOCK_FILE).exists();
+  }
+
+  private final File directory;
+  private final List<ServerStreamTracer.Factory> streamTracerFactories;
+  private final ObjectPool<ScheduledExecutorService> schedulerPool;
+  private final int maxInboundMessageSize;
+  private ServerListener listener;
+  /**
+   * Only used to make sure the scheduler has at least one reference. Since child transports can
+   * outlive this server, they must get their own reference.
+   */
+  private ScheduledExecutorService scheduler;
+  private RandomAccessFile lockFile;
+  private FileLock lock;
+  private Thread acceptor;
+  private volatile boolean shutdown;
+
+  ShmServer(
+      File directory, ObjectPool<ScheduledExecutorService> schedulerPool,
+      List<ServerStreamTracer.Factory> streamTracerFactories, int maxInboundMessageSize) {
+    this.directory = checkNotNull(directory, "directory");
+    this.schedulerPool = checkNotNull(schedulerPool, "schedulerPool");
+    this.streamTracerFactories =
+        Collections.unmodifiableList(checkNotNull(streamTracerFactories, "streamTracerFactories"));
+    this.maxInboundMessageSize = maxInboundMessageSize;
+  }
+
+  @Override
+  public void start(ServerListener serverListener) throws IOException {
+    this.listener = checkNotNull(serverListener, "serverListener");
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Failed to create " + directory);
+    }
+    lockFile = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+    try {
+      lock = lockFile.getChannel().tryLock();
+    } catch (OverlappingFileLockException e) {
+      lock = null;
+    }
+    if (lock == null) {
+      lockFile.close();
+      throw new IOException("A server is already listening at " + directory);
+    }
+    scheduler = schedulerPool.getObject();
+    acceptor = new Thread(new Acceptor(), "grpc-shm-acceptor-" + directory);
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  @Override
+  public int getPort() {
+    return -1;
+  }
+
+  @Override
+  public List<Instrumented<SocketStats>> getListenSockets() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public void shutdown() {
+    shutdown = true;
+    boolean interrupted = false;
+    while (true) {
+      try {
+        // The server is only shut down once no more transports are created.
+        acceptor.join();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    // Clients stop connecting before the lock is released, so a new server may listen right away.
+    new File(directory, LOCK_FILE).delete();
+    try {
+      lock.release();
+      lockFile.close();
+    } catch (IOException e) {
+      log.log(Level.WARNING, "Failed to release the lock of " + directory, e);
+    }
+    scheduler = schedulerPool.returnObject(scheduler);
+    listener.serverShutdown();
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void accept(File file) {
+    ConnectionFile connection;
+    try {
+      connection = ConnectionFile.open(file);
+    } catch (IOException e) {
+      log.log(Level.WARNING, "Failed to accept " + file, e);
+      file.delete();
+      return;
+    }
+    // The mapping stays valid, and nobody else accepts the connection.
+    file.delete();
+    if (connection.state(true) != ConnectionFile.OPEN) {
+      // The client gave up already.
+      return;
+    }
+    ShmServerTransport transport = new ShmServerTransport(
+        connection, new ShmSocketAddress(directory), new ShmSocketAddress(file),
+        streamTracerFactories, schedulerPool, maxInboundMessageSize);
+    ServerTransportListener transportListener = listener.transportCreated(transport);
+    transport.start(transportListener);
+  }
+
+  private final class Acceptor implements Runnable {
+    @Override
+    public void run() {
+      Backoff backoff = new Backoff(MAX_ACCEPT_PARK_NANOS);
+      while (!shutdown) {
+        File[] files = directory.listFiles(CONNECTION_FILTER);
+        if (files == null || files.length == 0) {
+          backoff.idle();
+          continue;
+        }
+        for (File file : files) {
+          try {
+            accept(file);
+          } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Failed to accept " + file, e);
+          }
+        }
+        backoff.reset();
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ShmServer(" + directory + ")";
+  }
+}
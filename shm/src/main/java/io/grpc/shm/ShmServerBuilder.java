@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.grpc.ExperimentalApi;
+import io.grpc.ServerStreamTracer;
+import io.grpc.internal.AbstractServerImplBuilder;
+import io.grpc.internal.FixedObjectPool;
+import io.grpc.internal.GrpcUtil;
+import io.grpc.internal.ObjectPool;
+import io.grpc.internal.SharedResourcePool;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Builder for a server that services requests from other processes on the same host through
+ * shared memory. The server listens in a directory, which clients connect to with {@link
+ * ShmChannelBuilder#forDirectory}. The directory must be on a local filesystem, ideally one backed
+ * by memory like {@code /dev/shm}, and only one server may listen in it at a time.
+ *
+ * <p>Idle connections poll for frames, so a request may take up to a millisecond longer to be
+ * noticed after a quiet period than with a socket.
+ *
+ * @since 1.12.0
+ */
+@ExperimentalApi
+public final class ShmServerBuilder extends AbstractServerImplBuilder<ShmServerBuilder> {
+  /**
+   * Creates a server builder that will listen in the given directory, creating it if needed.
+   *
+   * @param directory the directory for clients to connect to
+   * @return a new builder
+   */
+  public static ShmServerBuilder forDirectory(File directory) {
+    return new ShmServerBuilder(directory);
+  }
+
+  /**
+   * Always fails.  Call {@link #forDirectory} instead.
+   */
+  public static ShmServerBuilder forPort(int port) {
+    throw new UnsupportedOperationException("call forDirectory() instead");
+  }
+
+  private final File directory;
+  private ObjectPool<ScheduledExecutorService> schedulerPool =
+      SharedResourcePool.forResource(GrpcUtil.TIMER_SERVICE);
+  private int maxMessageSize = GrpcUtil.DEFAULT_MAX_MESSAGE_SIZE;
+
+  private ShmServerBuilder(File directory) {
+    this.directory = checkNotNull(directory, "directory");
+  }
+
+  /**
+   * Provides a custom scheduled executor service.
+   *
+   * <p>It's an optional parameter. If the user has not provided a scheduled executor service when
+   * the server is built, the builder will use a static cached thread pool.
+   *
+   * @return this
+   */
+  public ShmServerBuilder scheduledExecutorService(
+      ScheduledExecutorService scheduledExecutorService) {
+    schedulerPool = new FixedObjectPool<ScheduledExecutorService>(
+        checkNotNull(scheduledExecutorService, "scheduledExecutorService"));
+    return this;
+  }
+
+  /**
+   * Sets the maximum message size allowed to be received on the server. If not called,
+   * defaults to 4 MiB.
+   */
+  public ShmServerBuilder maxMessageSize(int maxMessageSize) {
+    checkArgument(maxMessageSize >= 0, "maxMessageSize must be >= 0");
+    this.maxMessageSize = maxMessageSize;
+    return this;
+  }
+
+  @Override
+  protected ShmServer buildTransportServer(
+      List<ServerStreamTracer.Factory> streamTracerFactories) {
+    return new ShmServer(directory, schedulerPool, streamTracerFactories, maxMessageSize);
+  }
+
+  @Override
+  public ShmServerBuilder useTransportSecurity(File certChain, File privateKey) {
+    throw new UnsupportedOperationException("TLS not supported in ShmServer");
+  }
+}
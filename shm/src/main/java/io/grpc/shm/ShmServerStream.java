@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import io.grpc.Attributes;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.internal.AbstractServerStream;
+import io.grpc.internal.PooledWritableBufferAllocator;
+import io.grpc.internal.ReadableBuffers;
+import io.grpc.internal.StatsTraceContext;
+import io.grpc.internal.WritableBuffer;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Server stream for the shared-memory transport.
+ */
+final class ShmServerStream extends AbstractServerStream {
+  private final ShmServerTransport transport;
+  private final int id;
+  private final String authority;
+  private final TransportState state;
+  private final Sink sink = new Sink();
+
+  ShmServerStream(
+      ShmServerTransport transport,
+      int id,
+      @Nullable String authority,
+      int maxMessageSize,
+      StatsTraceContext statsTraceCtx) {
+    super(ShmTransport.BUFFER_ALLOCATOR, statsTraceCtx);
+    this.transport = transport;
+    this.id = id;
+    this.authority = authority;
+    this.state = new TransportState(maxMessageSize, statsTraceCtx);
+  }
+
+  @Override
+  protected TransportState transportState() {
+    return state;
+  }
+
+  @Override
+  protected Sink abstractServerStreamSink() {
+    return sink;
+  }
+
+  @Override
+  public Attributes getAttributes() {
+    return transport.getAttributes();
+  }
+
+  @Override
+  public String getAuthority() {
+    return authority;
+  }
+
+  int id() {
+    return id;
+  }
+
+  private final class Sink implements AbstractServerStream.Sink {
+    @Override
+    public void writeHeaders(Metadata headers) {
+      byte[] payload = Frame.encodeMetadata(headers);
+      Status tooLarge = transport.checkFrameSize("Response headers", payload.length);
+      if (tooLarge != null) {
+        synchronized (transport.lock) {
+          transport.failStream(ShmServerStream.this, tooLarge);
+        }
+        return;
+      }
+      transport.send(Frame.of(id, Frame.HEADERS, payload));
+    }
+
+    @Override
+    public void writeFrame(@Nullable WritableBuffer frame, boolean flush, int numMessages) {
+      if (frame == null) {
+        return;
+      }
+      int size = frame.readableBytes();
+      if (size > 0) {
+        onSendingBytes(size);
+        transport.send(Frame.data(id, (PooledWritableBufferAllocator.Buffer) frame, state));
+      }
+      transport.transportTracer.reportMessageSent(numMessages);
+    }
+
+    @Override
+    public void writeTrailers(Metadata trailers, boolean headersSent, Status status) {
+      byte[] payload = Frame.encodeMetadata(trailers);
+      Status tooLarge = transport.checkFrameSize("Trailers", payload.length);
+      synchronized (transport.lock) {
+        if (tooLarge != null) {
+          transport.failStream(ShmServerStream.this, tooLarge);
+          return;
+        }
+        transport.streamClosed(ShmServerStream.this, Frame.of(id, Frame.TRAILERS, payload));
+        state.complete();
+      }
+    }
+
+    @Override
+    public void request(int numMessages) {
+      synchronized (transport.lock) {
+        state.requestMessagesFromDeframer(numMessages);
+      }
+    }
+
+    @Override
+    public void cancel(Status status) {
+      synchronized (transport.lock) {
+        transport.cancelStream(ShmServerStream.this, status);
+      }
+    }
+  }
+
+  final class TransportState extends AbstractServerStream.TransportState {
+    @GuardedBy("transport.lock")
+    private int unacknowledgedBytes;
+
+    private TransportState(int maxMessageSize, StatsTraceContext statsTraceCtx) {
+      super(maxMessageSize, statsTraceCtx, transport.transportTracer);
+    }
+
+    @Override
+    @GuardedBy("transport.lock")
+    public void bytesRead(int processedBytes) {
+      unacknowledgedBytes += processedBytes;
+      if (unacknowledgedBytes >= ShmTransport.WINDOW_UPDATE_THRESHOLD) {
+        transport.send(Frame.of(id, Frame.WINDOW_UPDATE, Frame.encodeInt(unacknowledgedBytes)));
+        unacknowledgedBytes = 0;
+      }
+    }
+
+    @Override
+    @GuardedBy("transport.lock")
+    public void deframeFailed(Throwable cause) {
+      transport.cancelStream(ShmServerStream.this, Status.fromThrowable(cause));
+    }
+
+    @Override
+    public void runOnTransportThread(Runnable r) {
+      synchronized (transport.lock) {
+        r.run();
+      }
+    }
+
+    @GuardedBy("transport.lock")
+    void dataReceived(byte[] data) {
+      inboundDataReceived(ReadableBuffers.wrap(data), false);
+    }
+
+    @GuardedBy("transport.lock")
+    void halfClosed() {
+      inboundDataReceived(ReadableBuffers.empty(), true);
+    }
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.grpc.Attributes;
+import io.grpc.Grpc;
+import io.grpc.Metadata;
+import io.grpc.ServerStreamTracer;
+import io.grpc.Status;
+import io.grpc.internal.ObjectPool;
+import io.grpc.internal.ServerTransport;
+import io.grpc.internal.ServerTransportListener;
+import io.grpc.internal.StatsTraceContext;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Server transport for a connection accepted by a {@link ShmServer}.
+ */
+@ThreadSafe
+final class ShmServerTransport extends ShmTransport implements ServerTransport {
+  private final ConnectionFile connection;
+  private final ShmSocketAddress localAddress;
+  private final ShmSocketAddress remoteAddress;
+  private final List<ServerStreamTracer.Factory> streamTracerFactories;
+  private final ObjectPool<ScheduledExecutorService> schedulerPool;
+  private final int maxInboundMessageSize;
+  private ScheduledExecutorService scheduler;
+  private ServerTransportListener listener;
+  private volatile Attributes attributes;
+
+  @GuardedBy("lock")
+  private final Map<Integer, ShmServerStream> streams = new HashMap<Integer, ShmServerStream>();
+  @GuardedBy("lock")
+  private boolean shutdown;
+
+  ShmServerTransport(
+      ConnectionFile connection, ShmSocketAddress localAddress, ShmSocketAddress remoteAddress,
+      List<ServerStreamTracer.Factory> streamTracerFactories,
+      ObjectPool<ScheduledExecutorService> schedulerPool, int maxInboundMessageSize) {
+    super(false, connection.capacity());
+    this.connection = checkNotNull(connection, "connection");
+    this.localAddress = checkNotNull(localAddress, "localAddress");
+    this.remoteAddress = checkNotNull(remoteAddress, "remoteAddress");
+    this.streamTracerFactories = checkNotNull(streamTracerFactories, "streamTracerFactories");
+    this.schedulerPool = checkNotNull(schedulerPool, "schedulerPool");
+    this.maxInboundMessageSize = maxInboundMessageSize;
+    // The server asks for the scheduler as soon as the transport is created, before start().
+    scheduler = schedulerPool.getObject();
+  }
+
+  /**
+   * Starts the transport and accepts the connection, which lets the client start its streams.
+   */
+  void start(ServerTransportListener listener) {
+    this.listener = checkNotNull(listener, "listener");
+    attributes = listener.transportReady(Attributes.newBuilder()
+        .set(Grpc.TRANSPORT_ATTR_REMOTE_ADDR, remoteAddress)
+        .build());
+    startConnection(connection, scheduler, localAddress, remoteAddress);
+    Thread reader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        read();
+      }
+    }, "grpc-shm-reader-" + remoteAddress);
+    reader.setDaemon(true);
+    reader.start();
+    connection.setState(false, ConnectionFile.OPEN);
+  }
+
+  Attributes getAttributes() {
+    return attributes;
+  }
+
+  @Override
+  void handleFrame(int streamId, byte type, byte[] payload) throws IOException {
+    ShmServerStream stream;
+    switch (type) {
+      case Frame.HEADERS:
+        if (shutdown) {
+          send(Frame.of(streamId, Frame.RST_STREAM, Frame.encodeStatus(
+              Status.UNAVAILABLE.withDescription("Server is shutting down"))));
+          break;
+        }
+        DataInputStream in = Frame.decoder(payload);
+        String method = Frame.readString(in);
+        String authority = Frame.readString(in);
+        Metadata headers = Frame.readMetadata(in);
+        StatsTraceContext statsTraceCtx =
+            StatsTraceContext.newServerContext(streamTracerFactories, method, headers);
+        stream = new ShmServerStream(
+            this, streamId, authority, maxInboundMessageSize, statsTraceCtx);
+        streams.put(streamId, stream);
+        send(Frame.of(streamId, Frame.OPEN_WINDOW));
+        listener.streamCreated(stream, method, headers);
+        stream.transportState().onStreamAllocated();
+        break;
+      case Frame.DATA:
+        stream = streams.get(streamId);
+        if (stream != null) {
+          stream.transportState().dataReceived(payload);
+        }
+        break;
+      case Frame.HALF_CLOSE:
+        stream = streams.get(streamId);
+        if (stream != null) {
+          stream.transportState().halfClosed();
+        }
+        break;
+      case Frame.RST_STREAM:
+        stream = streams.remove(streamId);
+        if (stream != null) {
+          send(Frame.of(streamId, Frame.FORGET));
+          stream.transportState().transportReportStatus(
+              Status.CANCELLED.withDescription("Cancelled by client"));
+          streamRemoved();
+        }
+        break;
+      default:
+        throw new IOException("Unexpected frame type " + type);
+    }
+  }
+
+  /** Ends a stream that the application closed with {@code trailers}. */
+  @GuardedBy("lock")
+  void streamClosed(ShmServerStream stream, Frame trailers) {
+    if (streams.remove(stream.id()) != null) {
+      send(trailers);
+      streamRemoved();
+    }
+  }
+
+  /**
+   * Ends a stream that cannot go on, such as one whose metadata does not fit in a frame, telling
+   * the client why.
+   */
+  @GuardedBy("lock")
+  void failStream(ShmServerStream stream, Status status) {
+    if (streams.remove(stream.id()) != null) {
+      send(Frame.of(stream.id(), Frame.RST_STREAM, Frame.encodeStatus(status)));
+      streamRemoved();
+    }
+    stream.transportState().transportReportStatus(status);
+  }
+
+  @GuardedBy("lock")
+  void cancelStream(ShmServerStream stream, Status status) {
+    if (streams.remove(stream.id()) != null) {
+      // Like an HTTP/2 RST_STREAM, only tells the client that the stream was cancelled.
+      send(Frame.of(stream.id(), Frame.RST_STREAM, Frame.encodeStatus(Status.CANCELLED)));
+      streamRemoved();
+    }
+    stream.transportState().transportReportStatus(status);
+  }
+
+  @GuardedBy("lock")
+  private void streamRemoved() {
+    if (shutdown && streams.isEmpty()) {
+      closeConnection();
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    synchronized (lock) {
+      if (shutdown) {
+        return;
+      }
+      shutdown = true;
+      send(Frame.of(0, Frame.GO_AWAY));
+      if (streams.isEmpty()) {
+        closeConnection();
+      }
+    }
+  }
+
+  @Override
+  public void shutdownNow(Status reason) {
+    synchronized (lock) {
+      abandon(reason);
+    }
+  }
+
+  @Override
+  @GuardedBy("lock")
+  void abandon(Status status) {
+    shutdown = true;
+    List<ShmServerStream> failed = new ArrayList<ShmServerStream>(streams.values());
+    streams.clear();
+    for (ShmServerStream stream : failed) {
+      send(Frame.of(stream.id(), Frame.RST_STREAM, Frame.encodeStatus(status)));
+      stream.transportState().transportReportStatus(status);
+    }
+    closeConnection();
+  }
+
+  @Override
+  void connectionClosed() {
+    listener.transportTerminated();
+    synchronized (lock) {
+      scheduler = schedulerPool.returnObject(scheduler);
+    }
+  }
+
+  @Override
+  public ScheduledExecutorService getScheduledExecutorService() {
+    return scheduler;
+  }
+
+  @Override
+  public String toString() {
+    return getLogId() + "(" + remoteAddress + ")";
+  }
+}
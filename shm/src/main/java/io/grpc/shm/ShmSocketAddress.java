@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.grpc.ExperimentalApi;
+import java.io.File;
+import java.net.SocketAddress;
+
+/**
+ * Custom SocketAddress class for the shared-memory transport. A server listens in a directory, and
+ * each connection is identified by the file it was made through.
+ *
+ * @since 1.12.0
+ */
+@ExperimentalApi
+public final class ShmSocketAddress extends SocketAddress {
+  private static final long serialVersionUID = 4612806011725407325L;
+
+  private final File path;
+
+  public ShmSocketAddress(File path) {
+    this.path = checkNotNull(path, "path");
+  }
+
+  public File getPath() {
+    return path;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof ShmSocketAddress && path.equals(((ShmSocketAddress) other).path);
+  }
+
+  @Override
+  public int hashCode() {
+    return path.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "shm:" + path;
+  }
+}
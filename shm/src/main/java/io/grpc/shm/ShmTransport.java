@@ -0,0 +1,437 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.Status;
+import io.grpc.internal.AbstractStream;
+import io.grpc.internal.Channelz.SocketOptions;
+import io.grpc.internal.Channelz.SocketStats;
+import io.grpc.internal.LogId;
+import io.grpc.internal.PooledWritableBufferAllocator;
+import io.grpc.internal.TransportTracer;
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * The part of the client and server transports that moves frames through a {@link
+ * ConnectionFile}.
+ *
+ * <p>A reader thread polls the inbound ring and handles the frames with {@link #lock} held, which
+ * stands for the transport thread of the streams. Frames to send are queued for a writer thread,
+ * which applies the flow control of the streams and copies the frames to the outbound ring, so
+ * that application threads never wait for the peer. Neither end can wake the other up, so both
+ * threads spin, then yield and then park for up to {@link #MAX_PARK_NANOS} while idle.
+ */
+abstract class ShmTransport {
+  private static final Logger log = Logger.getLogger(ShmTransport.class.getName());
+
+  static final int INITIAL_WINDOW = 1024 * 1024;
+  static final int WINDOW_UPDATE_THRESHOLD = INITIAL_WINDOW / 2;
+  static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long HEARTBEAT_INTERVAL_MILLIS = 1000;
+  private static final long PEER_TIMEOUT_MILLIS = 10000;
+  private static final int WRITER_SPINS = 100;
+  /**
+   * Allocates the buffers of outbound messages for all connections. The writer releases a buffer
+   * once it has copied it to the ring.
+   */
+  static final PooledWritableBufferAllocator BUFFER_ALLOCATOR =
+      new PooledWritableBufferAllocator(4 * 1024 * 1024);
+
+  final Object lock = new Object();
+  final LogId logId = LogId.allocate(getClass().getName());
+  final TransportTracer transportTracer = new TransportTracer();
+  private final boolean client;
+  /** The largest frame payload the outbound ring holds, known before the connection starts. */
+  private final int maxPayload;
+  private final ConcurrentLinkedQueue<Frame> writeQueue = new ConcurrentLinkedQueue<Frame>();
+  private final MappedRing.Handler handler = new MappedRing.Handler() {
+    @Override
+    public void record(int streamId, byte type, byte[] payload) {
+      handle(streamId, type, payload);
+    }
+  };
+
+  // Set before the threads start.
+  private ConnectionFile connection;
+  private MappedRing inbound;
+  private MappedRing outbound;
+  private SocketAddress localAddress;
+  private SocketAddress remoteAddress;
+  private Thread writer;
+  private ScheduledFuture<?> heartbeat;
+
+  private volatile boolean writerParked;
+  private volatile boolean peerStale;
+  /** Whether the connection is closing, after which the reader stops. */
+  private volatile boolean closing;
+
+  // Only used by the writer.
+  private final Map<Integer, Window> windows = new HashMap<Integer, Window>();
+  private boolean peerGone;
+
+  ShmTransport(boolean client, int ringCapacity) {
+    this.client = client;
+    this.maxPayload = MappedRing.maxPayload(ringCapacity);
+  }
+
+  /**
+   * Starts the writer and the heartbeat of the connection. The caller then runs {@link #read} in
+   * a thread of its own.
+   */
+  final void startConnection(
+      ConnectionFile connection, ScheduledExecutorService scheduler,
+      SocketAddress localAddress, SocketAddress remoteAddress) {
+    this.connection = connection;
+    this.inbound = connection.inbound(client);
+    this.outbound = connection.outbound(client);
+    this.localAddress = localAddress;
+    this.remoteAddress = remoteAddress;
+    connection.heartbeat(client, System.currentTimeMillis());
+    heartbeat = scheduler.scheduleAtFixedRate(
+        new Heartbeat(), HEARTBEAT_INTERVAL_MILLIS, HEARTBEAT_INTERVAL_MILLIS,
+        TimeUnit.MILLISECONDS);
+    writer = new Thread(new Writer(), "grpc-shm-writer-" + remoteAddress);
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Handles the inbound frames until the connection closes, or until the peer closes it or stops
+   * responding.
+   */
+  final void read() {
+    Backoff backoff = new Backoff(MAX_PARK_NANOS);
+    try {
+      while (!closing) {
+        if (!inbound.isEmpty()) {
+          synchronized (lock) {
+            inbound.drain(handler);
+          }
+          backoff.reset();
+        } else if (connection.state(!client) == ConnectionFile.CLOSED) {
+          synchronized (lock) {
+            // The frames the peer sent before closing still apply.
+            inbound.drain(handler);
+            abandon(Status.UNAVAILABLE.withDescription("Peer closed the connection"));
+          }
+        } else if (peerStale) {
+          synchronized (lock) {
+            abandon(Status.UNAVAILABLE.withDescription("Peer stopped responding"));
+          }
+        } else {
+          backoff.idle();
+        }
+      }
+    } catch (Throwable t) {
+      log.log(Level.WARNING, "Failed to read from " + remoteAddress, t);
+      synchronized (lock) {
+        abandon(Status.INTERNAL.withDescription("Failed to read from the connection").withCause(t));
+      }
+    }
+  }
+
+  /** Queues a frame for the writer. May be called from any thread. */
+  final void send(Frame frame) {
+    writeQueue.add(frame);
+    if (writerParked) {
+      LockSupport.unpark(writer);
+    }
+  }
+
+  /**
+   * Closes the connection once the frames sent so far are written, and then calls {@link
+   * #connectionClosed}. Must be called with {@link #lock} held.
+   */
+  final void closeConnection() {
+    if (closing) {
+      return;
+    }
+    closing = true;
+    send(Frame.of(0, Frame.CLOSE));
+  }
+
+  /**
+   * Returns the status of a stream whose {@code what} does not fit in a frame, or {@code null} if
+   * the {@code length} bytes of its payload fit.
+   */
+  @Nullable
+  final Status checkFrameSize(String what, int length) {
+    if (length <= maxPayload) {
+      return null;
+    }
+    return Status.INTERNAL.withDescription(String.format(
+        "%s of %d bytes do not fit in a frame of at most %d bytes", what, length, maxPayload));
+  }
+
+  /**
+   * Handles a frame that is specific to the client or the server. Called with {@link #lock} held.
+   */
+  abstract void handleFrame(int streamId, byte type, byte[] payload) throws Exception;
+
+  /**
+   * Fails the streams and closes the connection, as the peer is gone. Called with {@link #lock}
+   * held.
+   */
+  abstract void abandon(Status status);
+
+  /** Called from the writer once it closed the connection. */
+  abstract void connectionClosed();
+
+  public final ListenableFuture<SocketStats> getStats() {
+    SettableFuture<SocketStats> ret = SettableFuture.create();
+    ret.set(new SocketStats(
+        transportTracer.getStats(),
+        localAddress,
+        remoteAddress,
+        new SocketOptions(null, null, Collections.<String, String>emptyMap()),
+        null));
+    return ret;
+  }
+
+  public final LogId getLogId() {
+    return logId;
+  }
+
+  private void handle(int streamId, byte type, byte[] payload) {
+    if (closing) {
+      return;
+    }
+    try {
+      switch (type) {
+        case Frame.WINDOW_UPDATE:
+          send(Frame.of(streamId, Frame.CREDIT, payload));
+          break;
+        case Frame.PING:
+          send(Frame.of(streamId, Frame.PING_ACK, payload));
+          break;
+        default:
+          handleFrame(streamId, type, payload);
+      }
+    } catch (Exception e) {
+      log.log(Level.WARNING, "Failed to handle frame from " + remoteAddress, e);
+      abandon(Status.INTERNAL.withDescription("Failed to handle frame").withCause(e));
+    }
+  }
+
+  private final class Writer implements Runnable {
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          Frame frame = writeQueue.poll();
+          if (frame == null) {
+            outbound.publish();
+            awaitFrame();
+          } else if (frame.type == Frame.CLOSE) {
+            break;
+          } else {
+            process(frame);
+          }
+        }
+        outbound.publish();
+        connection.setState(client, ConnectionFile.CLOSED);
+      } catch (Throwable t) {
+        log.log(Level.WARNING, "Failed to write to " + remoteAddress, t);
+        synchronized (lock) {
+          abandon(Status.INTERNAL.withDescription("Failed to write to the connection")
+              .withCause(t));
+        }
+        connection.setState(client, ConnectionFile.CLOSED);
+      } finally {
+        heartbeat.cancel(false);
+        connectionClosed();
+      }
+    }
+
+    private void awaitFrame() {
+      for (int i = 0; i < WRITER_SPINS; i++) {
+        if (!writeQueue.isEmpty()) {
+          return;
+        }
+      }
+      writerParked = true;
+      try {
+        // Checked again after setting writerParked, so that a frame sent meanwhile unparks.
+        if (writeQueue.isEmpty()) {
+          LockSupport.park(this);
+        }
+      } finally {
+        writerParked = false;
+      }
+    }
+
+    private void process(Frame frame) {
+      Window window;
+      switch (frame.type) {
+        case Frame.OPEN_WINDOW:
+          windows.put(frame.streamId, new Window());
+          break;
+        case Frame.CREDIT:
+          window = windows.get(frame.streamId);
+          if (window != null) {
+            window.size += Frame.decodeInt(frame.payload);
+            writePending(frame.streamId, window);
+          }
+          break;
+        case Frame.FORGET:
+          windows.remove(frame.streamId);
+          break;
+        case Frame.HEADERS:
+          if (client) {
+            windows.put(frame.streamId, new Window());
+          }
+          write(frame);
+          break;
+        case Frame.DATA:
+          window = windows.get(frame.streamId);
+          if (window == null) {
+            // The stream is gone.
+            frame.release();
+            break;
+          }
+          if (!window.pending.isEmpty()) {
+            window.pending.add(frame);
+          } else if (!writeData(frame, window)) {
+            window.pending.add(frame);
+          }
+          break;
+        case Frame.HALF_CLOSE:
+        case Frame.TRAILERS:
+          window = windows.get(frame.streamId);
+          if (window != null && !window.pending.isEmpty()) {
+            // Ends the stream after its pending data.
+            window.pending.add(frame);
+          } else {
+            windows.remove(frame.streamId);
+            write(frame);
+          }
+          break;
+        case Frame.RST_STREAM:
+          windows.remove(frame.streamId);
+          write(frame);
+          break;
+        default:
+          write(frame);
+      }
+    }
+
+    private void writePending(int streamId, Window window) {
+      Frame frame;
+      while ((frame = window.pending.peek()) != null) {
+        if (frame.type == Frame.DATA) {
+          if (!writeData(frame, window)) {
+            return;
+          }
+          window.pending.poll();
+        } else {
+          window.pending.poll();
+          windows.remove(streamId);
+          write(frame);
+          return;
+        }
+      }
+    }
+
+    /** Writes as much of a DATA frame as the window allows, returning whether it was all. */
+    private boolean writeData(Frame frame, Window window) {
+      int maxChunk = outbound.maxPayload() / 4;
+      int written = 0;
+      while (frame.remaining() > 0 && window.size > 0) {
+        int length = Math.min(Math.min(frame.remaining(), window.size), maxChunk);
+        write(frame.streamId, Frame.DATA, frame.payload, frame.offset, length);
+        frame.offset += length;
+        window.size -= length;
+        written += length;
+      }
+      if (written > 0) {
+        AbstractStream.TransportState sender = frame.sender;
+        synchronized (lock) {
+          sender.onSentBytes(written);
+        }
+      }
+      if (frame.remaining() > 0) {
+        return false;
+      }
+      frame.release();
+      return true;
+    }
+
+    private void write(Frame frame) {
+      write(frame.streamId, frame.type, frame.payload, frame.offset, frame.remaining());
+    }
+
+    private void write(int streamId, byte type, byte[] payload, int offset, int length) {
+      if (peerGone) {
+        return;
+      }
+      if (length > outbound.maxPayload()) {
+        // The streams check the size of their metadata before sending it, so this is not expected.
+        // Resets the stream instead of dropping the frame, which would leave the peer waiting.
+        log.log(Level.WARNING, "Frame of {0} bytes does not fit in the ring, resetting its stream",
+            length);
+        if (streamId != 0) {
+          byte[] status = Frame.encodeStatus(Status.INTERNAL.withDescription("Frame too large"));
+          write(streamId, Frame.RST_STREAM, status, 0, status.length);
+        }
+        return;
+      }
+      Backoff backoff = null;
+      while (!outbound.offer(streamId, type, payload, offset, length)) {
+        if (peerStale || connection.state(!client) == ConnectionFile.CLOSED) {
+          // Nobody is left to read the frames. The reader fails the streams.
+          peerGone = true;
+          return;
+        }
+        if (backoff == null) {
+          backoff = new Backoff(MAX_PARK_NANOS);
+        }
+        backoff.idle();
+      }
+    }
+  }
+
+  /** The flow control window of a stream, as granted by the peer. Only used by the writer. */
+  private static final class Window {
+    int size = INITIAL_WINDOW;
+    final ArrayDeque<Frame> pending = new ArrayDeque<Frame>();
+  }
+
+  private final class Heartbeat implements Runnable {
+    @Override
+    public void run() {
+      long now = System.currentTimeMillis();
+      connection.heartbeat(client, now);
+      if (now - connection.heartbeat(!client) > PEER_TIMEOUT_MILLIS) {
+        peerStale = true;
+      }
+    }
+  }
+}
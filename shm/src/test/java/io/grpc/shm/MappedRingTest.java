@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link MappedRing}. */
+@RunWith(JUnit4.class)
+public class MappedRingTest {
+  private static final int CAPACITY = 64;
+
+  private final ByteBuffer region = ByteBuffer.allocateDirect(MappedRing.regionSize(CAPACITY));
+  private final MappedRing producer = new MappedRing(region);
+  private final MappedRing consumer = new MappedRing(region);
+  private final List<byte[]> payloads = new ArrayList<byte[]>();
+  private final MappedRing.Handler handler = new MappedRing.Handler() {
+    @Override
+    public void record(int streamId, byte type, byte[] payload) {
+      assertEquals(3, streamId);
+      assertEquals(Frame.DATA, type);
+      payloads.add(payload);
+    }
+  };
+
+  @Test
+  public void recordsOnlyVisibleOncePublished() {
+    assertTrue(producer.offer(3, Frame.DATA, new byte[] {1, 2, 3}, 0, 3));
+    assertTrue(consumer.isEmpty());
+    assertEquals(0, consumer.drain(handler));
+
+    producer.publish();
+    assertFalse(consumer.isEmpty());
+    assertEquals(1, consumer.drain(handler));
+    assertArrayEquals(new byte[] {1, 2, 3}, payloads.get(0));
+    assertTrue(consumer.isEmpty());
+  }
+
+  @Test
+  public void offerFailsWhenFull() {
+    byte[] payload = new byte[CAPACITY / 2 - MappedRing.RECORD_HEADER_SIZE];
+    assertTrue(producer.offer(3, Frame.DATA, payload, 0, payload.length));
+    assertTrue(producer.offer(3, Frame.DATA, payload, 0, payload.length));
+    assertFalse(producer.offer(3, Frame.DATA, payload, 0, 1));
+    // Published when found full.
+    assertEquals(2, consumer.drain(handler));
+    assertTrue(producer.offer(3, Frame.DATA, payload, 0, 1));
+  }
+
+  @Test
+  public void recordsWrapAround() {
+    byte[] payload = new byte[20];
+    for (int i = 0; i < payload.length; i++) {
+      payload[i] = (byte) i;
+    }
+    for (int i = 0; i < 10; i++) {
+      assertTrue(producer.offer(3, Frame.DATA, payload, i, payload.length - i));
+      producer.publish();
+      assertEquals(1, consumer.drain(handler));
+      byte[] expected = new byte[payload.length - i];
+      System.arraycopy(payload, i, expected, 0, expected.length);
+      assertArrayEquals(expected, payloads.get(i));
+    }
+  }
+
+  @Test
+  public void reopenedRingKeepsPositions() {
+    assertTrue(producer.offer(3, Frame.DATA, new byte[] {1}, 0, 1));
+    producer.publish();
+    MappedRing reopened = new MappedRing(region);
+    assertEquals(1, reopened.drain(handler));
+    assertArrayEquals(new byte[] {1}, payloads.get(0));
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.StringMarshaller;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests calls whose metadata does not fit in the rings of a connection, which must fail rather
+ * than hang.
+ */
+@RunWith(JUnit4.class)
+public class ShmOversizedMetadataTest {
+  private static final int RING_CAPACITY = 4096;
+  private static final Metadata.Key<String> LARGE_KEY =
+      Metadata.Key.of("large", Metadata.ASCII_STRING_MARSHALLER);
+  private static final MethodDescriptor<String, String> METHOD =
+      MethodDescriptor.<String, String>newBuilder()
+          .setType(MethodDescriptor.MethodType.UNARY)
+          .setFullMethodName("service/method")
+          .setRequestMarshaller(StringMarshaller.INSTANCE)
+          .setResponseMarshaller(StringMarshaller.INSTANCE)
+          .build();
+
+  @Rule
+  public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private volatile Metadata responseHeaders = new Metadata();
+  private volatile Metadata trailers = new Metadata();
+  private Server server;
+  private ManagedChannel channel;
+
+  @Before
+  public void setUp() throws Exception {
+    ServerServiceDefinition service = ServerServiceDefinition.builder("service")
+        .addMethod(METHOD, new ServerCallHandler<String, String>() {
+          @Override
+          public ServerCall.Listener<String> startCall(
+              ServerCall<String, String> call, Metadata headers) {
+            call.sendHeaders(responseHeaders);
+            call.sendMessage("response");
+            call.close(Status.OK, trailers);
+            return new ServerCall.Listener<String>() {};
+          }
+        })
+        .build();
+    server = ShmServerBuilder.forDirectory(tempFolder.getRoot()).addService(service).build()
+        .start();
+    channel = ShmChannelBuilder.forDirectory(tempFolder.getRoot())
+        .ringCapacity(RING_CAPACITY)
+        .build();
+  }
+
+  @After
+  public void tearDown() {
+    channel.shutdownNow();
+    server.shutdownNow();
+  }
+
+  @Test
+  public void smallMetadata() throws Exception {
+    assertEquals(Status.Code.OK, call(new Metadata()).getCode());
+  }
+
+  @Test
+  public void requestHeadersLargerThanRing() throws Exception {
+    assertEquals(Status.Code.INTERNAL, call(largeMetadata()).getCode());
+  }
+
+  @Test
+  public void responseHeadersLargerThanRing() throws Exception {
+    responseHeaders = largeMetadata();
+    assertEquals(Status.Code.INTERNAL, call(new Metadata()).getCode());
+  }
+
+  @Test
+  public void trailersLargerThanRing() throws Exception {
+    trailers = largeMetadata();
+    assertEquals(Status.Code.INTERNAL, call(new Metadata()).getCode());
+  }
+
+  private static Metadata largeMetadata() {
+    Metadata metadata = new Metadata();
+    metadata.put(LARGE_KEY, Strings.repeat("x", 2 * RING_CAPACITY));
+    return metadata;
+  }
+
+  /** Makes a call with the given request headers, and returns the status it closed with. */
+  private Status call(Metadata headers) throws Exception {
+    final SettableFuture<Status> closed = SettableFuture.create();
+    ClientCall<String, String> call = channel.newCall(METHOD, CallOptions.DEFAULT);
+    call.start(new ClientCall.Listener<String>() {
+      @Override
+      public void onClose(Status status, Metadata trailers) {
+        closed.set(status);
+      }
+    }, headers);
+    call.request(1);
+    call.sendMessage("request");
+    call.halfClose();
+    return closed.get(5, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import io.grpc.ServerStreamTracer;
+import io.grpc.internal.GrpcUtil;
+import io.grpc.internal.InternalServer;
+import io.grpc.internal.ManagedClientTransport;
+import io.grpc.internal.SharedResourceHolder;
+import io.grpc.internal.SharedResourcePool;
+import io.grpc.internal.testing.AbstractTransportTest;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for the shared-memory transport. */
+@RunWith(JUnit4.class)
+public class ShmTransportTest extends AbstractTransportTest {
+  private static final String AUTHORITY = "a-testing-authority";
+  private static final String USER_AGENT = "a-testing-user-agent";
+  private static final int RING_CAPACITY = 64 * 1024;
+
+  @Rule
+  public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final ScheduledExecutorService timer = SharedResourceHolder.get(GrpcUtil.TIMER_SERVICE);
+  private File directory;
+
+  @After
+  public void releaseTimer() {
+    SharedResourceHolder.release(GrpcUtil.TIMER_SERVICE, timer);
+  }
+
+  @Override
+  protected InternalServer newServer(List<ServerStreamTracer.Factory> streamTracerFactories) {
+    directory = new File(tempFolder.getRoot(), "server");
+    return newServer(null, streamTracerFactories);
+  }
+
+  @Override
+  protected InternalServer newServer(
+      InternalServer server, List<ServerStreamTracer.Factory> streamTracerFactories) {
+    return new ShmServer(
+        directory, SharedResourcePool.forResource(GrpcUtil.TIMER_SERVICE), streamTracerFactories,
+        GrpcUtil.DEFAULT_MAX_MESSAGE_SIZE);
+  }
+
+  @Override
+  protected String testAuthority(InternalServer server) {
+    return AUTHORITY;
+  }
+
+  @Override
+  protected ManagedClientTransport newClientTransport(InternalServer server) {
+    return new ShmClientTransport(
+        new ShmSocketAddress(directory), testAuthority(server), USER_AGENT, RING_CAPACITY, timer);
+  }
+
+  @Test
+  @Ignore
+  @Override
+  public void socketStats() throws Exception {
+    // test does not apply to shared memory
+  }
+}
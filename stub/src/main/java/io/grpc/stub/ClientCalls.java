@@ -31,12 +31,14 @@ import io.grpc.StatusException;
 import io.grpc.StatusRuntimeException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
@@ -116,8 +118,11 @@ public final class ClientCalls {
     ThreadlessExecutor executor = new ThreadlessExecutor();
     ClientCall<ReqT, RespT> call = channel.newCall(method, callOptions.withExecutor(executor));
     try {
-      ListenableFuture<RespT> responseFuture = futureUnaryCall(call, param);
-      while (!responseFuture.isDone()) {
+      // All callbacks run on this thread, so the listener holds the response itself instead of
+      // completing a future.
+      BlockingUnaryListener<RespT> listener = new BlockingUnaryListener<RespT>();
+      asyncUnaryRequestCall(call, param, listener, false);
+      while (!listener.closed) {
         try {
           executor.waitAndDrain();
         } catch (InterruptedException e) {
@@ -128,7 +133,7 @@ public final class ClientCalls {
               .asRuntimeException();
         }
       }
-      return getUnchecked(responseFuture);
+      return listener.getResponse();
     } catch (RuntimeException e) {
       throw cancelThrow(call, e);
     } catch (Error e) {
@@ -469,6 +474,50 @@ public final class ClientCalls {
     }
   }
 
+  /**
+   * Holds the response of a unary call whose callbacks run on the blocked caller's thread.
+   */
+  private static final class BlockingUnaryListener<RespT> extends ClientCall.Listener<RespT> {
+    private RespT value;
+    private Status status;
+    private Metadata trailers;
+    boolean closed;
+
+    // Non private to avoid synthetic class
+    BlockingUnaryListener() {}
+
+    @Override
+    public void onHeaders(Metadata headers) {
+    }
+
+    @Override
+    public void onMessage(RespT value) {
+      if (this.value != null) {
+        throw Status.INTERNAL.withDescription("More than one value received for unary call")
+            .asRuntimeException();
+      }
+      this.value = value;
+    }
+
+    @Override
+    public void onClose(Status status, Metadata trailers) {
+      this.status = status;
+      this.trailers = trailers;
+      closed = true;
+    }
+
+    RespT getResponse() {
+      if (!status.isOk()) {
+        throw status.asRuntimeException(trailers);
+      }
+      if (value == null) {
+        throw Status.INTERNAL.withDescription("No value received for unary call")
+            .asRuntimeException(trailers);
+      }
+      return value;
+    }
+  }
+
   private static final class GrpcFuture<RespT> extends AbstractFuture<RespT> {
     private final ClientCall<?, RespT> call;
 
@@ -611,7 +660,10 @@ public final class ClientCalls {
   private static final class ThreadlessExecutor implements Executor {
     private static final Logger log = Logger.getLogger(ThreadlessExecutor.class.getName());
 
-    private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<Runnable>();
+    // Lighter than a LinkedBlockingQueue, which allocates two locks and their conditions up front.
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<Runnable>();
+    @Nullable
+    private volatile Thread waiter;
 
     // Non private to avoid synthetic class
     ThreadlessExecutor() {}
@@ -620,20 +672,39 @@ public final class ClientCalls {
      * Waits until there is a Runnable, then executes it and all queued Runnables after it.
      */
     public void waitAndDrain() throws InterruptedException {
-      Runnable runnable = queue.take();
-      while (runnable != null) {
+      throwIfInterrupted();
+      Runnable runnable = queue.poll();
+      if (runnable == null) {
+        waiter = Thread.currentThread();
+        try {
+          // Pairs with execute(): either the runnable is seen here, or execute() sees the waiter.
+          while ((runnable = queue.poll()) == null) {
+            LockSupport.park(this);
+            throwIfInterrupted();
+          }
+        } finally {
+          waiter = null;
+        }
+      }
+      do {
         try {
           runnable.run();
         } catch (Throwable t) {
           log.log(Level.WARNING, "Runnable threw exception", t);
         }
-        runnable = queue.poll();
+      } while ((runnable = queue.poll()) != null);
+    }
+
+    private static void throwIfInterrupted() throws InterruptedException {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
       }
     }
 
     @Override
     public void execute(Runnable runnable) {
       queue.add(runnable);
+      LockSupport.unpark(waiter); // no-op if null
     }
   }
 }
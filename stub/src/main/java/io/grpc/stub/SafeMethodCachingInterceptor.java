@@ -0,0 +1,822 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.stub;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Attributes;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Deadline;
+import io.grpc.ExperimentalApi;
+import io.grpc.ForwardingClientCallListener.SimpleForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A {@link ClientInterceptor} that caches the responses of unary methods marked as
+ * {@linkplain MethodDescriptor#isSafe() safe}, keyed by method and serialized request.
+ *
+ * <p>While a request is in flight, identical requests wait for its response instead of issuing
+ * their own RPC. If that RPC fails, each waiting request is sent on its own. Only successful
+ * responses are cached, for a fixed time to live. Calls of other methods pass through unchanged.
+ *
+ * <p>Responses served without an RPC carry no headers or trailers, and are delivered on the call's
+ * {@linkplain CallOptions#getExecutor() executor} if it has one, otherwise on the thread that
+ * completes the call, which is the caller's thread on a cache hit. Such calls still honor their
+ * deadline and the cancellation of their {@link Context}.
+ *
+ * <p>Responses are shared by all the calls made through the interceptor. Calls that carry their own
+ * credentials, either as {@linkplain CallOptions#getCredentials() call credentials} or as an
+ * {@code authorization} header, therefore bypass the cache and are sent unchanged. Credentials of
+ * the channel apply to all of its calls alike, but an interceptor, or its {@link Cache}, must not
+ * be shared by channels with different credentials.
+ */
+@ExperimentalApi
+public final class SafeMethodCachingInterceptor implements ClientInterceptor {
+  private static final Logger logger =
+      Logger.getLogger(SafeMethodCachingInterceptor.class.getName());
+
+  private static final Metadata.Key<String> AUTHORIZATION_KEY =
+      Metadata.Key.of("authorization", Metadata.ASCII_STRING_MARSHALLER);
+
+  /**
+   * Stores serialized responses. Implementations must be thread-safe.
+   */
+  public interface Cache {
+    /** Returns the cached value for {@code key}, or {@code null} if there is none. */
+    @Nullable
+    Value get(Key key);
+
+    /** Stores a value, possibly evicting others. */
+    void put(Key key, Value value);
+
+    /** Removes the value for {@code key}, if any. */
+    void remove(Key key);
+  }
+
+  /**
+   * Identifies a request: the full method name and the serialized request message.
+   */
+  public static final class Key {
+    private final String fullMethodName;
+    private final byte[] request;
+    private final int hashCode;
+
+    /**
+     * Creates a key for a request of the given method.
+     *
+     * @param fullMethodName the {@linkplain MethodDescriptor#getFullMethodName() full name} of the
+     *     method
+     * @param request the serialized request message, which must not be modified afterwards
+     */
+    public Key(String fullMethodName, byte[] request) {
+      this.fullMethodName = checkNotNull(fullMethodName, "fullMethodName");
+      this.request = checkNotNull(request, "request");
+      this.hashCode = 31 * fullMethodName.hashCode() + Arrays.hashCode(request);
+    }
+
+    /** Returns the approximate number of bytes used by this key. */
+    long getSize() {
+      return 2L * fullMethodName.length() + request.length;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) other;
+      return hashCode == that.hashCode
+          && fullMethodName.equals(that.fullMethodName)
+          && Arrays.equals(request, that.request);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * A serialized response and when it expires, in {@link System#nanoTime} terms.
+   */
+  public static final class Value {
+    private final byte[] response;
+    private final long expirationNanos;
+
+    public Value(byte[] response, long expirationNanos) {
+      this.response = checkNotNull(response, "response");
+      this.expirationNanos = expirationNanos;
+    }
+
+    public byte[] getResponse() {
+      return response;
+    }
+
+    public long getExpirationNanos() {
+      return expirationNanos;
+    }
+  }
+
+  /**
+   * Returns an interceptor that caches responses in {@code cache} for {@code timeToLive}.
+   *
+   * @param scheduler runs the deadline timers of calls waiting for an identical call in flight. It
+   *     is not shut down by the interceptor.
+   */
+  public static SafeMethodCachingInterceptor newSafeMethodCachingInterceptor(
+      Cache cache, long timeToLive, TimeUnit unit, ScheduledExecutorService scheduler) {
+    return new SafeMethodCachingInterceptor(
+        cache, unit.toNanos(timeToLive), Ticker.systemTicker(), scheduler);
+  }
+
+  /**
+   * Returns a least recently used cache that holds up to about {@code maxBytes} of keys and
+   * responses on the Java heap.
+   */
+  public static Cache newLruCache(long maxBytes) {
+    return new LruCache(maxBytes, false);
+  }
+
+  /**
+   * Returns a least recently used cache like {@link #newLruCache}, but which keeps the responses
+   * in direct buffers outside of the Java heap. This keeps large caches from adding to garbage
+   * collection work, at the cost of a copy on every hit.
+   */
+  public static Cache newOffHeapLruCache(long maxBytes) {
+    return new LruCache(maxBytes, true);
+  }
+
+  private final Cache cache;
+  private final long timeToLiveNanos;
+  private final Ticker ticker;
+  private final ScheduledExecutorService scheduler;
+  private final ConcurrentMap<Key, CachingCall<?, ?>> inFlight =
+      new ConcurrentHashMap<Key, CachingCall<?, ?>>();
+
+  @VisibleForTesting
+  SafeMethodCachingInterceptor(
+      Cache cache, long timeToLiveNanos, Ticker ticker, ScheduledExecutorService scheduler) {
+    checkArgument(timeToLiveNanos > 0, "timeToLive must be positive");
+    this.cache = checkNotNull(cache, "cache");
+    this.timeToLiveNanos = timeToLiveNanos;
+    this.ticker = checkNotNull(ticker, "ticker");
+    this.scheduler = checkNotNull(scheduler, "scheduler");
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+      MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+    if (!method.isSafe() || method.getType() != MethodDescriptor.MethodType.UNARY
+        || callOptions.getCredentials() != null) {
+      return next.newCall(method, callOptions);
+    }
+    return new CachingCall<ReqT, RespT>(method, callOptions, next);
+  }
+
+  @Nullable
+  private byte[] getCachedResponse(Key key) {
+    Value value = cache.get(key);
+    if (value == null) {
+      return null;
+    }
+    if (value.getExpirationNanos() - ticker.read() <= 0) {
+      cache.remove(key);
+      return null;
+    }
+    return value.getResponse();
+  }
+
+  /**
+   * A unary call that is answered from the cache, by an identical call in flight, or by the
+   * channel. Nothing is sent until the request message is known.
+   */
+  private final class CachingCall<ReqT, RespT> extends ClientCall<ReqT, RespT> {
+    private final MethodDescriptor<ReqT, RespT> method;
+    private final CallOptions callOptions;
+    private final Channel next;
+    private final Executor callbackExecutor;
+    private final Context context;
+    private final Context.CancellationListener cancellationListener =
+        new Context.CancellationListener() {
+          @Override
+          public void cancelled(Context context) {
+            closeWaiting(Contexts.statusFromCancelled(context));
+          }
+        };
+    private final Object lock = new Object();
+    @GuardedBy("lock")
+    private Listener<RespT> listener;
+    @GuardedBy("lock")
+    private Metadata headers;
+    @GuardedBy("lock")
+    private int pendingRequests;
+    @GuardedBy("lock")
+    private Boolean messageCompression;
+    @GuardedBy("lock")
+    private ReqT message;
+    @GuardedBy("lock")
+    private boolean halfClosed;
+    @GuardedBy("lock")
+    private boolean closed;
+    /** Set if the headers carry credentials, so that the call must not share responses. */
+    @GuardedBy("lock")
+    private boolean bypassCache;
+    /** Set while the call watches its deadline and context, because nothing else does. */
+    @GuardedBy("lock")
+    private boolean waiting;
+    @GuardedBy("lock")
+    @Nullable
+    private ScheduledFuture<?> deadlineTimer;
+    /** Set once the call is sent to the channel, by this call or on behalf of a failed leader. */
+    @GuardedBy("lock")
+    @Nullable
+    private ClientCall<ReqT, RespT> delegate;
+    /** The response to deliver once half-closed. */
+    @GuardedBy("lock")
+    @Nullable
+    private byte[] response;
+    /** The identical call in flight that this call waits for. */
+    @GuardedBy("lock")
+    @Nullable
+    private CachingCall<?, ?> leader;
+    /** Calls waiting for this one, which is in flight. Guarded by this call's lock. */
+    @GuardedBy("lock")
+    @Nullable
+    private List<CachingCall<?, ?>> followers;
+
+    CachingCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+      this.method = method;
+      this.callOptions = callOptions;
+      this.next = next;
+      this.callbackExecutor = callOptions.getExecutor() != null
+          ? callOptions.getExecutor() : MoreExecutors.directExecutor();
+      this.context = Context.current();
+    }
+
+    @Override
+    public void start(Listener<RespT> listener, Metadata headers) {
+      synchronized (lock) {
+        checkState(this.listener == null, "Already started");
+        this.listener = checkNotNull(listener, "listener");
+        this.headers = checkNotNull(headers, "headers");
+        this.bypassCache = headers.containsKey(AUTHORIZATION_KEY);
+      }
+    }
+
+    @Override
+    public void request(int numMessages) {
+      ClientCall<ReqT, RespT> call;
+      synchronized (lock) {
+        call = delegate;
+        if (call == null) {
+          pendingRequests += numMessages;
+          return;
+        }
+      }
+      call.request(numMessages);
+    }
+
+    @Override
+    public void setMessageCompression(boolean enabled) {
+      ClientCall<ReqT, RespT> call;
+      synchronized (lock) {
+        call = delegate;
+        if (call == null) {
+          messageCompression = enabled;
+          return;
+        }
+      }
+      call.setMessageCompression(enabled);
+    }
+
+    @Override
+    public void sendMessage(ReqT message) {
+      boolean bypass;
+      synchronized (lock) {
+        checkState(listener != null, "Not started");
+        bypass = bypassCache;
+      }
+      if (bypass) {
+        synchronized (lock) {
+          checkState(this.message == null, "Too many messages for a unary call");
+          this.message = message;
+        }
+        startDelegate(null);
+        return;
+      }
+      Key key = new Key(method.getFullMethodName(), serialize(method.streamRequest(message)));
+      byte[] cached = getCachedResponse(key);
+      synchronized (lock) {
+        checkState(this.message == null, "Too many messages for a unary call");
+        this.message = message;
+        if (closed) {
+          return;
+        }
+        if (cached != null) {
+          response = cached;
+          return;
+        }
+      }
+      while (true) {
+        CachingCall<?, ?> existing = inFlight.putIfAbsent(key, this);
+        if (existing == null) {
+          break;
+        }
+        if (existing.addFollower(this)) {
+          synchronized (lock) {
+            leader = existing;
+          }
+          startWaiting();
+          return;
+        }
+        // The call in flight just completed. Its response may now be cached.
+        inFlight.remove(key, existing);
+        cached = getCachedResponse(key);
+        if (cached != null) {
+          synchronized (lock) {
+            response = cached;
+          }
+          return;
+        }
+      }
+      startDelegate(key);
+    }
+
+    @Override
+    public void halfClose() {
+      ClientCall<ReqT, RespT> call;
+      byte[] toDeliver;
+      synchronized (lock) {
+        checkState(message != null, "No message was sent");
+        halfClosed = true;
+        call = delegate;
+        toDeliver = response;
+      }
+      if (call != null) {
+        call.halfClose();
+      } else if (toDeliver != null) {
+        deliver(toDeliver);
+      }
+    }
+
+    @Override
+    public void cancel(@Nullable String message, @Nullable Throwable cause) {
+      ClientCall<ReqT, RespT> call;
+      synchronized (lock) {
+        call = delegate;
+      }
+      if (call != null) {
+        call.cancel(message, cause);
+        return;
+      }
+      Status status = Status.CANCELLED;
+      if (message != null) {
+        status = status.withDescription(message);
+      }
+      if (cause != null) {
+        status = status.withCause(cause);
+      }
+      closeWaiting(status);
+    }
+
+    @Override
+    public boolean isReady() {
+      ClientCall<ReqT, RespT> call;
+      synchronized (lock) {
+        call = delegate;
+      }
+      return call != null && call.isReady();
+    }
+
+    @Override
+    public Attributes getAttributes() {
+      ClientCall<ReqT, RespT> call;
+      synchronized (lock) {
+        call = delegate;
+      }
+      return call != null ? call.getAttributes() : Attributes.EMPTY;
+    }
+
+    private boolean addFollower(CachingCall<?, ?> follower) {
+      synchronized (lock) {
+        if (closed) {
+          return false;
+        }
+        if (followers == null) {
+          followers = new ArrayList<CachingCall<?, ?>>();
+        }
+        followers.add(follower);
+        return true;
+      }
+    }
+
+    private void removeFollower(CachingCall<?, ?> follower) {
+      synchronized (lock) {
+        if (followers != null) {
+          followers.remove(follower);
+        }
+      }
+    }
+
+    /**
+     * Closes the call with {@code status} unless it was sent to the channel, which then closes it.
+     */
+    private void closeWaiting(Status status) {
+      CachingCall<?, ?> leaderToLeave;
+      synchronized (lock) {
+        if (delegate != null || listener == null) {
+          return;
+        }
+        leaderToLeave = leader;
+        leader = null;
+      }
+      if (leaderToLeave != null) {
+        leaderToLeave.removeFollower(this);
+      }
+      closeListener(status);
+    }
+
+    /**
+     * Watches the deadline and the context of a call that waits for another one, as no call of the
+     * channel does it.
+     */
+    private void startWaiting() {
+      context.addListener(cancellationListener, MoreExecutors.directExecutor());
+      Deadline deadline = callOptions.getDeadline();
+      ScheduledFuture<?> timer = null;
+      if (deadline != null) {
+        timer = deadline.runOnExpiration(new Runnable() {
+          @Override
+          public void run() {
+            closeWaiting(Status.DEADLINE_EXCEEDED.withDescription(
+                "deadline exceeded while waiting for an identical call"));
+          }
+        }, scheduler);
+      }
+      synchronized (lock) {
+        if (!closed && delegate == null) {
+          waiting = true;
+          deadlineTimer = timer;
+          return;
+        }
+      }
+      // Completed in the meantime.
+      stopWaiting(timer);
+    }
+
+    /** Stops watching once the call is closed or sent to the channel. */
+    private void stopWaiting() {
+      ScheduledFuture<?> timer;
+      synchronized (lock) {
+        if (!waiting) {
+          return;
+        }
+        waiting = false;
+        timer = deadlineTimer;
+        deadlineTimer = null;
+      }
+      stopWaiting(timer);
+    }
+
+    private void stopWaiting(@Nullable ScheduledFuture<?> timer) {
+      context.removeListener(cancellationListener);
+      if (timer != null) {
+        timer.cancel(false);
+      }
+    }
+
+    /** Called by the leader once it completed. {@code result} is null if it failed. */
+    private void onLeaderCompleted(@Nullable byte[] result) {
+      boolean deliverNow;
+      synchronized (lock) {
+        if (leader == null) {
+          // Cancelled in the meantime.
+          return;
+        }
+        leader = null;
+        if (result == null) {
+          deliverNow = false;
+        } else {
+          response = result;
+          deliverNow = halfClosed;
+        }
+      }
+      if (result == null) {
+        startDelegate(null);
+      } else if (deliverNow) {
+        deliver(result);
+      }
+    }
+
+    /**
+     * Sends the call to the channel. A {@code null} key means the response is not shared, as for a
+     * follower whose leader failed. Otherwise this call is the one in flight for {@code leaderKey}.
+     */
+    private void startDelegate(@Nullable Key leaderKey) {
+      ClientCall<ReqT, RespT> call;
+      // A follower is sent from its leader's callback, so restore the context of this call.
+      Context previous = context.attach();
+      try {
+        call = next.newCall(method, callOptions);
+      } finally {
+        context.detach(previous);
+      }
+      boolean sent;
+      List<CachingCall<?, ?>> abandoned = null;
+      synchronized (lock) {
+        sent = !closed;
+        if (sent) {
+          delegate = call;
+          Listener<RespT> callListener =
+              leaderKey != null ? new LeaderListener(listener, leaderKey) : listener;
+          call.start(callListener, headers);
+          if (messageCompression != null) {
+            call.setMessageCompression(messageCompression);
+          }
+          if (pendingRequests > 0) {
+            call.request(pendingRequests);
+          }
+          call.sendMessage(message);
+          if (halfClosed) {
+            call.halfClose();
+          }
+        } else {
+          // Cancelled before it was sent. The calls that joined it must be sent on their own.
+          abandoned = followers;
+          followers = null;
+        }
+      }
+      if (sent) {
+        stopWaiting();
+        return;
+      }
+      call.cancel("Call was cancelled before it was sent", null);
+      if (leaderKey != null) {
+        inFlight.remove(leaderKey, this);
+      }
+      if (abandoned != null) {
+        for (CachingCall<?, ?> follower : abandoned) {
+          follower.onLeaderCompleted(null);
+        }
+      }
+    }
+
+    private void deliver(final byte[] bytes) {
+      callbackExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          if (context.isCancelled()) {
+            closeListener(Contexts.statusFromCancelled(context));
+            return;
+          }
+          Deadline deadline = callOptions.getDeadline();
+          if (deadline != null && deadline.isExpired()) {
+            closeListener(Status.DEADLINE_EXCEEDED.withDescription(
+                "deadline exceeded before the response was delivered"));
+            return;
+          }
+          RespT parsed;
+          try {
+            parsed = method.parseResponse(new ByteArrayInputStream(bytes));
+          } catch (Throwable t) {
+            closeListener(Status.INTERNAL.withDescription("Failed to parse cached response")
+                .withCause(t));
+            return;
+          }
+          Listener<RespT> target;
+          synchronized (lock) {
+            if (closed) {
+              return;
+            }
+            closed = true;
+            target = listener;
+          }
+          stopWaiting();
+          target.onHeaders(new Metadata());
+          target.onMessage(parsed);
+          target.onClose(Status.OK, new Metadata());
+        }
+      });
+    }
+
+    private void closeListener(final Status status) {
+      final Listener<RespT> target;
+      synchronized (lock) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        target = listener;
+      }
+      stopWaiting();
+      callbackExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          target.onClose(status, new Metadata());
+        }
+      });
+    }
+
+    /** Passes the response through, and shares it with the followers. */
+    private final class LeaderListener extends SimpleForwardingClientCallListener<RespT> {
+      private final Key key;
+      @Nullable
+      private byte[] responseBytes;
+
+      // Non private to avoid synthetic class
+      LeaderListener(Listener<RespT> delegate, Key key) {
+        super(delegate);
+        this.key = key;
+      }
+
+      @Override
+      public void onMessage(RespT message) {
+        try {
+          responseBytes = serialize(method.streamResponse(message));
+        } catch (RuntimeException e) {
+          logger.log(Level.FINE, "Unable to serialize response, not caching it", e);
+        }
+        super.onMessage(message);
+      }
+
+      @Override
+      public void onClose(Status status, Metadata trailers) {
+        byte[] result = status.isOk() ? responseBytes : null;
+        if (result != null) {
+          cache.put(key, new Value(result, ticker.read() + timeToLiveNanos));
+        }
+        inFlight.remove(key, CachingCall.this);
+        List<CachingCall<?, ?>> waiting;
+        synchronized (lock) {
+          closed = true;
+          waiting = followers;
+          followers = null;
+        }
+        try {
+          super.onClose(status, trailers);
+        } finally {
+          if (waiting != null) {
+            for (CachingCall<?, ?> follower : waiting) {
+              follower.onLeaderCompleted(result);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private static byte[] serialize(InputStream stream) {
+    try {
+      try {
+        return ByteStreams.toByteArray(stream);
+      } finally {
+        stream.close();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * A cache bounded by the total size of its keys and values, evicting the least recently used
+   * entries first.
+   */
+  private static final class LruCache implements Cache {
+    /** Rough per-entry overhead of the map entry, key and value objects. */
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final long maxBytes;
+    private final boolean offHeap;
+    @GuardedBy("this")
+    private final LinkedHashMap<Key, Entry> entries =
+        new LinkedHashMap<Key, Entry>(16, 0.75f, true /* accessOrder */);
+    @GuardedBy("this")
+    private long totalBytes;
+
+    LruCache(long maxBytes, boolean offHeap) {
+      checkArgument(maxBytes > 0, "maxBytes must be positive");
+      this.maxBytes = maxBytes;
+      this.offHeap = offHeap;
+    }
+
+    @Override
+    @Nullable
+    public Value get(Key key) {
+      Entry entry;
+      synchronized (this) {
+        entry = entries.get(key);
+      }
+      return entry == null ? null : entry.toValue();
+    }
+
+    @Override
+    public void put(Key key, Value value) {
+      Entry entry = new Entry(key, value, offHeap);
+      if (entry.size > maxBytes) {
+        return;
+      }
+      synchronized (this) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+          totalBytes -= previous.size;
+        }
+        totalBytes += entry.size;
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+          totalBytes -= it.next().getValue().size;
+          it.remove();
+        }
+      }
+    }
+
+    @Override
+    public void remove(Key key) {
+      synchronized (this) {
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+          totalBytes -= previous.size;
+        }
+      }
+    }
+
+    private static final class Entry {
+      @Nullable
+      final byte[] heapResponse;
+      @Nullable
+      final ByteBuffer directResponse;
+      final long expirationNanos;
+      final long size;
+
+      Entry(Key key, Value value, boolean offHeap) {
+        byte[] response = value.getResponse();
+        if (offHeap) {
+          heapResponse = null;
+          directResponse = ByteBuffer.allocateDirect(response.length);
+          directResponse.put(response).flip();
+        } else {
+          heapResponse = response;
+          directResponse = null;
+        }
+        expirationNanos = value.getExpirationNanos();
+        size = key.getSize() + response.length + ENTRY_OVERHEAD_BYTES;
+      }
+
+      Value toValue() {
+        if (heapResponse != null) {
+          return new Value(heapResponse, expirationNanos);
+        }
+        byte[] response = new byte[directResponse.remaining()];
+        // Read through a duplicate, so that concurrent readers don't share a position.
+        directResponse.duplicate().get(response);
+        return new Value(response, expirationNanos);
+      }
+    }
+  }
+}
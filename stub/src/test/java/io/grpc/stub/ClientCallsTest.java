@@ -71,6 +71,14 @@ public class ClientCallsTest {
           .setResponseMarshaller(new IntegerMarshaller())
           .build();
 
+  private static final MethodDescriptor<Integer, Integer> UNARY_METHOD =
+      MethodDescriptor.<Integer, Integer>newBuilder()
+          .setType(MethodDescriptor.MethodType.UNARY)
+          .setFullMethodName("some/unary")
+          .setRequestMarshaller(new IntegerMarshaller())
+          .setResponseMarshaller(new IntegerMarshaller())
+          .build();
+
   private Server server;
   private ManagedChannel channel;
 
@@ -130,6 +138,65 @@ public class ClientCallsTest {
     }
   }
 
+  @Test
+  public void unaryBlockingCallWithChannel() throws Exception {
+    startUnaryServer(new ServerCalls.UnaryMethod<Integer, Integer>() {
+      @Override
+      public void invoke(Integer req, StreamObserver<Integer> responseObserver) {
+        if (req < 0) {
+          responseObserver.onError(Status.INVALID_ARGUMENT.asRuntimeException());
+          return;
+        }
+        responseObserver.onNext(req + 1);
+        responseObserver.onCompleted();
+      }
+    });
+
+    assertEquals(3, (int) ClientCalls.blockingUnaryCall(channel, UNARY_METHOD,
+        CallOptions.DEFAULT, 2));
+    try {
+      ClientCalls.blockingUnaryCall(channel, UNARY_METHOD, CallOptions.DEFAULT, -1);
+      fail("Should fail");
+    } catch (StatusRuntimeException e) {
+      assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode());
+    }
+  }
+
+  @Test
+  public void unaryBlockingCallWithChannel_interrupted() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    startUnaryServer(new ServerCalls.UnaryMethod<Integer, Integer>() {
+      @Override
+      public void invoke(Integer req, StreamObserver<Integer> responseObserver) {
+        // Never respond.
+        started.countDown();
+      }
+    });
+
+    final Thread caller = Thread.currentThread();
+    Thread interrupter = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          started.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          throw new AssertionError(e);
+        }
+        caller.interrupt();
+      }
+    });
+    interrupter.start();
+    try {
+      ClientCalls.blockingUnaryCall(channel, UNARY_METHOD, CallOptions.DEFAULT, 2);
+      fail("Should fail");
+    } catch (StatusRuntimeException e) {
+      assertEquals(Status.Code.CANCELLED, e.getStatus().getCode());
+      assertTrue(Thread.interrupted());
+    } finally {
+      interrupter.join();
+    }
+  }
+
   @Test
   public void unaryFutureCallSuccess() throws Exception {
     final AtomicReference<ClientCall.Listener<String>> listener =
@@ -564,4 +631,16 @@ public class ClientCallsTest {
       assertSame(trailers, metadata);
     }
   }
+
+  private void startUnaryServer(ServerCalls.UnaryMethod<Integer, Integer> method)
+      throws Exception {
+    ServerServiceDefinition service = ServerServiceDefinition.builder(
+        new ServiceDescriptor("some", UNARY_METHOD))
+        .addMethod(UNARY_METHOD, ServerCalls.asyncUnaryCall(method))
+        .build();
+    String name = "unary-" + System.identityHashCode(this);
+    server = InProcessServerBuilder.forName(name).directExecutor()
+        .addService(service).build().start();
+    channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+  }
 }
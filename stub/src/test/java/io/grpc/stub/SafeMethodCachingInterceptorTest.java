@@ -0,0 +1,430 @@
+/*
+ * Copyright 2018, gRPC Authors All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.stub;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.Attributes;
+import io.grpc.CallCredentials;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptors;
+import io.grpc.Context;
+import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.ServiceDescriptor;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.SafeMethodCachingInterceptor.Cache;
+import io.grpc.stub.SafeMethodCachingInterceptor.Key;
+import io.grpc.stub.SafeMethodCachingInterceptor.Value;
+import io.grpc.stub.ServerCallsTest.IntegerMarshaller;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link SafeMethodCachingInterceptor}. */
+@RunWith(JUnit4.class)
+public class SafeMethodCachingInterceptorTest {
+  private static final MethodDescriptor<Integer, Integer> SAFE_METHOD =
+      newMethod("service/safe", true);
+  private static final MethodDescriptor<Integer, Integer> UNSAFE_METHOD =
+      newMethod("service/unsafe", false);
+
+  private final AtomicInteger serverCalls = new AtomicInteger();
+  private volatile CountDownLatch serverLatch;
+  private volatile boolean serverFailsOnce;
+  private final FakeTicker ticker = new FakeTicker();
+  private final Cache cache = SafeMethodCachingInterceptor.newLruCache(1024 * 1024);
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+  private ManagedChannel channel;
+  private Server server;
+  private SafeMethodCachingInterceptor interceptor;
+  private Channel cachingChannel;
+
+  @Before
+  public void setUp() throws Exception {
+    ServerCalls.UnaryMethod<Integer, Integer> handler =
+        new ServerCalls.UnaryMethod<Integer, Integer>() {
+          @Override
+          public void invoke(Integer request, StreamObserver<Integer> responseObserver) {
+            int call = serverCalls.incrementAndGet();
+            if (serverLatch != null) {
+              try {
+                serverLatch.await(5, TimeUnit.SECONDS);
+              } catch (InterruptedException e) {
+                throw new AssertionError(e);
+              }
+            }
+            if (serverFailsOnce && call == 1) {
+              responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+              return;
+            }
+            responseObserver.onNext(request * 10 + call);
+            responseObserver.onCompleted();
+          }
+        };
+    ServerServiceDefinition service = ServerServiceDefinition.builder(
+        new ServiceDescriptor("service", SAFE_METHOD, UNSAFE_METHOD))
+        .addMethod(SAFE_METHOD, ServerCalls.asyncUnaryCall(handler))
+        .addMethod(UNSAFE_METHOD, ServerCalls.asyncUnaryCall(handler))
+        .build();
+    String name = "caching-" + System.identityHashCode(this);
+    // The server runs handlers on its own threads, so they can block.
+    server = InProcessServerBuilder.forName(name).addService(service).build().start();
+    channel = InProcessChannelBuilder.forName(name).build();
+    interceptor = new SafeMethodCachingInterceptor(
+        cache, TimeUnit.SECONDS.toNanos(10), ticker, scheduler);
+    cachingChannel = ClientInterceptors.intercept(channel, interceptor);
+  }
+
+  @After
+  public void tearDown() {
+    channel.shutdownNow();
+    server.shutdownNow();
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void safeMethodIsCachedUntilExpiry() {
+    assertEquals(11, call(SAFE_METHOD, 1));
+    assertEquals(11, call(SAFE_METHOD, 1));
+    assertEquals(22, call(SAFE_METHOD, 2));
+    assertEquals(2, serverCalls.get());
+
+    ticker.nanos += TimeUnit.SECONDS.toNanos(10);
+    assertEquals(13, call(SAFE_METHOD, 1));
+    assertEquals(3, serverCalls.get());
+  }
+
+  @Test
+  public void unsafeMethodIsNotCached() {
+    assertEquals(11, call(UNSAFE_METHOD, 1));
+    assertEquals(12, call(UNSAFE_METHOD, 1));
+  }
+
+  @Test
+  public void failuresAreNotCached() {
+    serverFailsOnce = true;
+    try {
+      call(SAFE_METHOD, 1);
+      fail("Should fail");
+    } catch (StatusRuntimeException e) {
+      assertEquals(Status.Code.UNAVAILABLE, e.getStatus().getCode());
+    }
+    assertEquals(12, call(SAFE_METHOD, 1));
+    assertEquals(12, call(SAFE_METHOD, 1));
+  }
+
+  @Test
+  public void identicalInFlightCallsAreCoalesced() throws Exception {
+    serverLatch = new CountDownLatch(1);
+    ListenableFuture<Integer> first = futureCall(SAFE_METHOD, 1);
+    ListenableFuture<Integer> second = futureCall(SAFE_METHOD, 1);
+    ListenableFuture<Integer> other = futureCall(SAFE_METHOD, 2);
+    serverLatch.countDown();
+
+    // The server may handle the other call first, so only the tens are known.
+    int firstResponse = first.get(5, TimeUnit.SECONDS);
+    assertEquals(1, firstResponse / 10);
+    assertEquals(firstResponse, (int) second.get(5, TimeUnit.SECONDS));
+    assertEquals(2, other.get(5, TimeUnit.SECONDS) / 10);
+    assertEquals(2, serverCalls.get());
+  }
+
+  @Test
+  public void followersAreSentWhenLeaderFails() throws Exception {
+    serverFailsOnce = true;
+    serverLatch = new CountDownLatch(1);
+    ListenableFuture<Integer> leader = futureCall(SAFE_METHOD, 1);
+    ListenableFuture<Integer> follower = futureCall(SAFE_METHOD, 1);
+    serverLatch.countDown();
+
+    try {
+      leader.get(5, TimeUnit.SECONDS);
+      fail("Should fail");
+    } catch (ExecutionException e) {
+      assertEquals(Status.Code.UNAVAILABLE, Status.fromThrowable(e).getCode());
+    }
+    assertEquals(12, (int) follower.get(5, TimeUnit.SECONDS));
+    assertEquals(2, serverCalls.get());
+  }
+
+  @Test
+  public void cancelledFollowerIsClosed() throws Exception {
+    serverLatch = new CountDownLatch(1);
+    ListenableFuture<Integer> leader = futureCall(SAFE_METHOD, 1);
+    ListenableFuture<Integer> follower = futureCall(SAFE_METHOD, 1);
+    follower.cancel(true);
+    serverLatch.countDown();
+
+    assertEquals(11, (int) leader.get(5, TimeUnit.SECONDS));
+    assertEquals(1, serverCalls.get());
+  }
+
+  @Test
+  public void leaderCancelledBeforeItIsSentReleasesFollowers() throws Exception {
+    final AtomicReference<ClientCall<Integer, Integer>> leaderCall =
+        new AtomicReference<ClientCall<Integer, Integer>>();
+    final AtomicReference<ListenableFuture<Integer>> follower =
+        new AtomicReference<ListenableFuture<Integer>>();
+    final AtomicBoolean unsentCallCancelled = new AtomicBoolean();
+    final AtomicReference<Channel> racingChannel = new AtomicReference<Channel>();
+    racingChannel.set(ClientInterceptors.intercept(new Channel() {
+      private boolean raced;
+
+      @Override
+      public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+          MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+        ClientCall<ReqT, RespT> call = channel.newCall(method, callOptions);
+        if (raced) {
+          return call;
+        }
+        raced = true;
+        // While the leader is being sent, an identical call joins it and the leader is cancelled.
+        follower.set(ClientCalls.futureUnaryCall(
+            racingChannel.get().newCall(SAFE_METHOD, CallOptions.DEFAULT), 1));
+        leaderCall.get().cancel("cancelled", null);
+        return new SimpleForwardingClientCall<ReqT, RespT>(call) {
+          @Override
+          public void cancel(String message, Throwable cause) {
+            unsentCallCancelled.set(true);
+            super.cancel(message, cause);
+          }
+        };
+      }
+
+      @Override
+      public String authority() {
+        return channel.authority();
+      }
+    }, interceptor));
+    leaderCall.set(racingChannel.get().newCall(SAFE_METHOD, CallOptions.DEFAULT));
+    ListenableFuture<Integer> leader = ClientCalls.futureUnaryCall(leaderCall.get(), 1);
+
+    try {
+      leader.get(5, TimeUnit.SECONDS);
+      fail("Should fail");
+    } catch (ExecutionException e) {
+      assertEquals(Status.Code.CANCELLED, Status.fromThrowable(e).getCode());
+    }
+    assertEquals(11, (int) follower.get().get(5, TimeUnit.SECONDS));
+    assertTrue(unsentCallCancelled.get());
+    // The cancelled leader is no longer in flight.
+    assertEquals(12, (int) futureCall(SAFE_METHOD, 1).get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void followerHonorsDeadline() throws Exception {
+    serverLatch = new CountDownLatch(1);
+    ListenableFuture<Integer> leader = futureCall(SAFE_METHOD, 1);
+    ListenableFuture<Integer> follower = ClientCalls.futureUnaryCall(
+        cachingChannel.newCall(
+            SAFE_METHOD, CallOptions.DEFAULT.withDeadlineAfter(100, TimeUnit.MILLISECONDS)),
+        1);
+
+    try {
+      follower.get(5, TimeUnit.SECONDS);
+      fail("Should fail");
+    } catch (ExecutionException e) {
+      assertEquals(Status.Code.DEADLINE_EXCEEDED, Status.fromThrowable(e).getCode());
+    }
+    serverLatch.countDown();
+    assertEquals(11, (int) leader.get(5, TimeUnit.SECONDS));
+    assertEquals(1, serverCalls.get());
+  }
+
+  @Test
+  public void followerHonorsContextCancellation() throws Exception {
+    serverLatch = new CountDownLatch(1);
+    ListenableFuture<Integer> leader = futureCall(SAFE_METHOD, 1);
+    Context.CancellableContext context = Context.current().withCancellation();
+    ListenableFuture<Integer> follower = context.call(new Callable<ListenableFuture<Integer>>() {
+      @Override
+      public ListenableFuture<Integer> call() {
+        return futureCall(SAFE_METHOD, 1);
+      }
+    });
+    context.cancel(null);
+
+    try {
+      follower.get(5, TimeUnit.SECONDS);
+      fail("Should fail");
+    } catch (ExecutionException e) {
+      assertEquals(Status.Code.CANCELLED, Status.fromThrowable(e).getCode());
+    }
+    serverLatch.countDown();
+    assertEquals(11, (int) leader.get(5, TimeUnit.SECONDS));
+    assertEquals(1, serverCalls.get());
+  }
+
+  @Test
+  public void callsWithCredentialsBypassCache() {
+    CallOptions callOptions = CallOptions.DEFAULT.withCallCredentials(new CallCredentials() {
+      @Override
+      public void applyRequestMetadata(MethodDescriptor<?, ?> method, Attributes attrs,
+          Executor appExecutor, MetadataApplier applier) {
+        applier.apply(new Metadata());
+      }
+
+      @Override
+      public void thisUsesUnstableApi() {}
+    });
+    assertEquals(11,
+        (int) ClientCalls.blockingUnaryCall(cachingChannel, SAFE_METHOD, callOptions, 1));
+    assertEquals(12,
+        (int) ClientCalls.blockingUnaryCall(cachingChannel, SAFE_METHOD, callOptions, 1));
+    // Nor was the response cached for other callers.
+    assertEquals(13, call(SAFE_METHOD, 1));
+  }
+
+  @Test
+  public void callsWithAuthorizationHeaderBypassCache() {
+    Metadata headers = new Metadata();
+    headers.put(Metadata.Key.of("authorization", Metadata.ASCII_STRING_MARSHALLER), "Bearer x");
+    Channel authorizedChannel = ClientInterceptors.intercept(
+        cachingChannel, MetadataUtils.newAttachHeadersInterceptor(headers));
+    assertEquals(11, (int) ClientCalls.blockingUnaryCall(
+        authorizedChannel, SAFE_METHOD, CallOptions.DEFAULT, 1));
+    assertEquals(12, (int) ClientCalls.blockingUnaryCall(
+        authorizedChannel, SAFE_METHOD, CallOptions.DEFAULT, 1));
+    assertEquals(13, call(SAFE_METHOD, 1));
+  }
+
+  @Test
+  public void cancelBeforeCachedResponseIsDeliveredClosesOnce() {
+    // Not a valid response, so that parsing fails after the cancellation.
+    cache.put(new Key(SAFE_METHOD.getFullMethodName(), new byte[] {0, 0, 0, 1}),
+        new Value(new byte[] {1}, Long.MAX_VALUE));
+    final List<Runnable> callbacks = new ArrayList<Runnable>();
+    Executor executor = new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        callbacks.add(command);
+      }
+    };
+    final List<Status> closes = new ArrayList<Status>();
+    ClientCall<Integer, Integer> call =
+        cachingChannel.newCall(SAFE_METHOD, CallOptions.DEFAULT.withExecutor(executor));
+    call.start(new ClientCall.Listener<Integer>() {
+      @Override
+      public void onClose(Status status, Metadata trailers) {
+        closes.add(status);
+      }
+    }, new Metadata());
+    call.sendMessage(1);
+    call.halfClose();
+    call.cancel("cancelled", null);
+    for (int i = 0; i < callbacks.size(); i++) {
+      callbacks.get(i).run();
+    }
+
+    assertEquals(1, closes.size());
+    assertEquals(Status.Code.CANCELLED, closes.get(0).getCode());
+    assertEquals(0, serverCalls.get());
+  }
+
+  @Test
+  public void lruCacheEvictsLeastRecentlyUsed() {
+    Cache cache = SafeMethodCachingInterceptor.newLruCache(3 * (96 + 2 * 4 + 10 + 100));
+    Key[] keys = new Key[4];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new Key("m/" + i, new byte[10]);
+      cache.put(keys[i], new Value(new byte[100], 0));
+      if (i == 2) {
+        // Make key 0 the most recently used.
+        cache.get(keys[0]);
+      }
+    }
+    assertNull(cache.get(keys[1]));
+    assertEquals(100, cache.get(keys[0]).getResponse().length);
+    assertEquals(100, cache.get(keys[2]).getResponse().length);
+    assertEquals(100, cache.get(keys[3]).getResponse().length);
+
+    cache.remove(keys[0]);
+    assertNull(cache.get(keys[0]));
+  }
+
+  @Test
+  public void offHeapCacheRoundTrip() {
+    Cache cache = SafeMethodCachingInterceptor.newOffHeapLruCache(1024);
+    Key key = new Key("m", new byte[] {1, 2});
+    byte[] response = {3, 4, 5};
+    cache.put(key, new Value(response, 42));
+
+    Value value = cache.get(new Key("m", new byte[] {1, 2}));
+    assertArrayEquals(response, value.getResponse());
+    assertEquals(42, value.getExpirationNanos());
+    assertNull(cache.get(new Key("m", new byte[] {1, 3})));
+  }
+
+  private int call(MethodDescriptor<Integer, Integer> method, int request) {
+    return ClientCalls.blockingUnaryCall(cachingChannel, method, CallOptions.DEFAULT, request);
+  }
+
+  private ListenableFuture<Integer> futureCall(
+      MethodDescriptor<Integer, Integer> method, int request) {
+    return ClientCalls.futureUnaryCall(
+        cachingChannel.newCall(method, CallOptions.DEFAULT), request);
+  }
+
+  private static MethodDescriptor<Integer, Integer> newMethod(String name, boolean safe) {
+    return MethodDescriptor.<Integer, Integer>newBuilder()
+        .setType(MethodDescriptor.MethodType.UNARY)
+        .setFullMethodName(name)
+        .setSafe(safe)
+        .setRequestMarshaller(new IntegerMarshaller())
+        .setResponseMarshaller(new IntegerMarshaller())
+        .build();
+  }
+
+  private static final class FakeTicker extends Ticker {
+    volatile long nanos;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+  }
+}